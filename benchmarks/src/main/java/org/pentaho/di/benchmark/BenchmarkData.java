@@ -0,0 +1,92 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * The rows the benchmarks work on: an id, a key with a given number of distinct values, a string, an amount and a
+ * date. The values are random but the same for every run, so the results of two runs can be compared.
+ */
+public class BenchmarkData {
+
+  public static final String ID = "id";
+  public static final String KEY = "key";
+  public static final String NAME = "name";
+  public static final String AMOUNT = "amount";
+  public static final String DATE = "date";
+
+  private static final long SEED = 20240720L;
+
+  private BenchmarkData() {
+  }
+
+  public static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( ID ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( KEY ) );
+    rowMeta.addValueMeta( new ValueMetaString( NAME ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( AMOUNT ) );
+    rowMeta.addValueMeta( new ValueMetaDate( DATE ) );
+    return rowMeta;
+  }
+
+  /**
+   * @param nrRows the number of rows
+   * @param nrKeys the number of distinct values of the key field
+   */
+  public static List<Object[]> createRows( int nrRows, int nrKeys ) {
+    Random random = new Random( SEED );
+    List<Object[]> rows = new ArrayList<>( nrRows );
+    for ( int i = 0; i < nrRows; i++ ) {
+      long key = random.nextInt( nrKeys );
+      rows.add( new Object[] {
+        (long) i,
+        key,
+        "name-" + key,
+        random.nextDouble() * 1000.0,
+        new Date( 1_600_000_000_000L + random.nextInt( 1_000_000 ) * 1000L ),
+      } );
+    }
+    return rows;
+  }
+
+  /**
+   * The lookup rows for the keys of {@link #createRows(int, int)}: the key and a description.
+   */
+  public static RowMetaInterface createLookupRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( KEY ) );
+    rowMeta.addValueMeta( new ValueMetaString( "description" ) );
+    return rowMeta;
+  }
+
+  public static List<Object[]> createLookupRows( int nrKeys ) {
+    List<Object[]> rows = new ArrayList<>( nrKeys );
+    for ( long key = 0; key < nrKeys; key++ ) {
+      rows.add( new Object[] { key, "description of " + key } );
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,44 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * The main class of benchmarks.jar. It runs the JMH benchmarks like <code>org.openjdk.jmh.Main</code> does, taking
+ * the same options, but writes the results in JSON to jmh-result.json unless other -rf / -rff options are given. That
+ * file can be compared with the one of a previous release to find performance regressions.
+ */
+public class BenchmarkRunner {
+
+  public static final String DEFAULT_RESULT_FORMAT = "json";
+  public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  public static void main( String[] args ) throws Exception {
+    List<String> arguments = new ArrayList<>( Arrays.asList( args ) );
+    if ( !arguments.contains( "-rf" ) ) {
+      arguments.add( 0, "-rf" );
+      arguments.add( 1, DEFAULT_RESULT_FORMAT );
+    }
+    if ( !arguments.contains( "-rff" ) ) {
+      arguments.add( 0, "-rff" );
+      arguments.add( 1, DEFAULT_RESULT_FILE );
+    }
+    Main.main( arguments.toArray( new String[ arguments.size() ] ) );
+  }
+}
@@ -0,0 +1,214 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.RowAdapter;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+
+/**
+ * Builds and runs the transformations of the step benchmarks: usually an Injector step that the benchmark feeds, the
+ * steps to measure and a Dummy step that counts the rows that come out. Like TransTestFactory in the engine tests, but
+ * without keeping the result rows in memory.
+ */
+public class BenchmarkTrans {
+
+  public static final String INJECTOR_STEPNAME = "injector";
+  public static final String DUMMY_STEPNAME = "dummy";
+
+  private final TransMeta transMeta;
+  private final List<StepMeta> steps = new ArrayList<>();
+
+  /**
+   * Initializes the Kettle environment, needed once before the steps are created.
+   */
+  public static void initEnvironment() throws KettleException {
+    if ( !KettleEnvironment.isInitialized() ) {
+      KettleEnvironment.init( false );
+    }
+  }
+
+  /**
+   * A transformation without steps, the first step added has to be an input step.
+   */
+  public BenchmarkTrans() {
+    transMeta = new TransMeta();
+  }
+
+  /**
+   * @param rowMeta the description of the rows given to run()
+   * @return a transformation that starts with the Injector step the rows given to run() are put to
+   */
+  public static BenchmarkTrans withInjector( RowMetaInterface rowMeta ) {
+    BenchmarkTrans benchmarkTrans = new BenchmarkTrans();
+    benchmarkTrans.addStep( INJECTOR_STEPNAME, createInjectorMeta( rowMeta ) );
+    return benchmarkTrans;
+  }
+
+  /**
+   * The Injector step describes the fields of its rows, so the steps after it know them before the first row.
+   */
+  public static InjectorMeta createInjectorMeta( RowMetaInterface rowMeta ) {
+    InjectorMeta injectorMeta = new InjectorMeta();
+    String[] fieldName = new String[ rowMeta.size() ];
+    int[] fieldType = new int[ rowMeta.size() ];
+    int[] fieldLength = new int[ rowMeta.size() ];
+    int[] fieldPrecision = new int[ rowMeta.size() ];
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      fieldName[ i ] = valueMeta.getName();
+      fieldType[ i ] = valueMeta.getType();
+      fieldLength[ i ] = valueMeta.getLength();
+      fieldPrecision[ i ] = valueMeta.getPrecision();
+    }
+    injectorMeta.setFieldname( fieldName );
+    injectorMeta.setType( fieldType );
+    injectorMeta.setLength( fieldLength );
+    injectorMeta.setPrecision( fieldPrecision );
+    return injectorMeta;
+  }
+
+  /**
+   * Adds a step after the last one.
+   *
+   * @return the step, to add an info stream or change the number of copies
+   */
+  public StepMeta addStep( String stepname, StepMetaInterface stepMetaInterface ) {
+    StepMeta stepMeta = createStep( stepname, stepMetaInterface );
+    if ( !steps.isEmpty() ) {
+      transMeta.addTransHop( new TransHopMeta( steps.get( steps.size() - 1 ), stepMeta ) );
+    }
+    steps.add( stepMeta );
+    return stepMeta;
+  }
+
+  /**
+   * Adds a step that isn't in the chain of steps from the injector to the dummy, e.g. an info step.
+   */
+  public StepMeta addSideStep( String stepname, StepMetaInterface stepMetaInterface ) {
+    return createStep( stepname, stepMetaInterface );
+  }
+
+  public void addHop( StepMeta from, StepMeta to ) {
+    transMeta.addTransHop( new TransHopMeta( from, to ) );
+  }
+
+  private StepMeta createStep( String stepname, StepMetaInterface stepMetaInterface ) {
+    String pluginId = PluginRegistry.getInstance().getPluginId( StepPluginType.class, stepMetaInterface );
+    StepMeta stepMeta = new StepMeta( pluginId, stepname, stepMetaInterface );
+    transMeta.addStep( stepMeta );
+    return stepMeta;
+  }
+
+  /**
+   * Sets a variable of the transformation, e.g. to choose the type of row sets.
+   */
+  public BenchmarkTrans setVariable( String name, String value ) {
+    transMeta.setVariable( name, value );
+    return this;
+  }
+
+  public TransMeta getTransMeta() {
+    return transMeta;
+  }
+
+  /**
+   * Finishes the transformation with a Dummy step, call it after the last step was added.
+   */
+  public BenchmarkTrans finish() {
+    addStep( DUMMY_STEPNAME, new DummyTransMeta() );
+    return this;
+  }
+
+  /**
+   * Run a transformation without an Injector step once.
+   *
+   * @return the number of rows that came out of the last step
+   */
+  public long run() throws KettleException {
+    return run( null, null, null, null, null );
+  }
+
+  /**
+   * Run the transformation once, injecting the rows.
+   *
+   * @return the number of rows that came out of the last step
+   */
+  public long run( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleException {
+    return run( rowMeta, rows, null, null, null );
+  }
+
+  /**
+   * Run the transformation once, injecting the rows and the info rows.
+   *
+   * @param rows         the rows to put to the Injector step, null if there is none
+   * @param infoStepname the name of an Injector step to put infoRows to, can be null
+   * @return the number of rows that came out of the last step
+   */
+  public long run( RowMetaInterface rowMeta, List<Object[]> rows, String infoStepname, RowMetaInterface infoRowMeta,
+                   List<Object[]> infoRows ) throws KettleException {
+    Trans trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.ERROR );
+    trans.prepareExecution( null );
+
+    AtomicLong written = new AtomicLong();
+    trans.getStepInterface( DUMMY_STEPNAME, 0 ).addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+        written.incrementAndGet();
+      }
+    } );
+    RowProducer producer = rows != null ? trans.addRowProducer( INJECTOR_STEPNAME, 0 ) : null;
+    RowProducer infoProducer = infoStepname != null ? trans.addRowProducer( infoStepname, 0 ) : null;
+
+    trans.startThreads();
+
+    if ( infoProducer != null ) {
+      for ( Object[] row : infoRows ) {
+        infoProducer.putRow( infoRowMeta, row );
+      }
+      infoProducer.finished();
+    }
+    if ( producer != null ) {
+      for ( Object[] row : rows ) {
+        producer.putRow( rowMeta, row );
+      }
+      producer.finished();
+    }
+
+    trans.waitUntilFinished();
+    if ( trans.getErrors() > 0 ) {
+      throw new KettleException( "The benchmark transformation finished with errors" );
+    }
+    return written.get();
+  }
+}
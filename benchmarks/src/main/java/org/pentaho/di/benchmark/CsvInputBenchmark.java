@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.steps.csvinput.CsvInputMeta;
+import org.pentaho.di.trans.steps.textfileinput.TextFileInputField;
+
+/**
+ * The CSV file input step parsing a file with Integer, String, Number and Date fields, with and without lazy
+ * conversion.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class CsvInputBenchmark {
+
+  private static final String DATE_FORMAT = "yyyy/MM/dd HH:mm:ss";
+
+  @Param( { "200000" } )
+  public int nrRows;
+
+  @Param( { "true", "false" } )
+  public boolean lazyConversion;
+
+  private File file;
+  private BenchmarkTrans trans;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkTrans.initEnvironment();
+    file = File.createTempFile( "csv-input-benchmark", ".csv" );
+    SimpleDateFormat dateFormat = new SimpleDateFormat( DATE_FORMAT );
+    try ( BufferedWriter writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 ) ) {
+      writer.write( "id,key,name,amount,date\n" );
+      for ( Object[] row : BenchmarkData.createRows( nrRows, 1000 ) ) {
+        writer.write( row[ 0 ] + "," + row[ 1 ] + ",\"" + row[ 2 ] + "\"," + row[ 3 ] + ","
+          + dateFormat.format( row[ 4 ] ) + "\n" );
+      }
+    }
+
+    CsvInputMeta csvInputMeta = new CsvInputMeta();
+    csvInputMeta.setDefault();
+    csvInputMeta.setFilename( file.getAbsolutePath() );
+    csvInputMeta.setEncoding( "UTF-8" );
+    csvInputMeta.setLazyConversionActive( lazyConversion );
+    csvInputMeta.setInputFields( new TextFileInputField[] {
+      createField( BenchmarkData.ID, ValueMetaInterface.TYPE_INTEGER, "#" ),
+      createField( BenchmarkData.KEY, ValueMetaInterface.TYPE_INTEGER, "#" ),
+      createField( BenchmarkData.NAME, ValueMetaInterface.TYPE_STRING, null ),
+      createField( BenchmarkData.AMOUNT, ValueMetaInterface.TYPE_NUMBER, null ),
+      createField( BenchmarkData.DATE, ValueMetaInterface.TYPE_DATE, DATE_FORMAT ),
+    } );
+
+    trans = new BenchmarkTrans();
+    trans.addStep( "csv input", csvInputMeta );
+    trans.finish();
+  }
+
+  private static TextFileInputField createField( String name, int type, String format ) {
+    TextFileInputField field = new TextFileInputField( name, -1, -1 );
+    field.setType( type );
+    field.setFormat( format );
+    field.setDecimalSymbol( "." );
+    field.setGroupSymbol( "," );
+    field.setTrimType( ValueMetaInterface.TRIM_TYPE_NONE );
+    return field;
+  }
+
+  @TearDown
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Benchmark
+  public long csvInput() throws Exception {
+    return trans.run();
+  }
+}
@@ -0,0 +1,161 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.step.RowAdapter;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+
+/**
+ * A running transformation that waits for rows: an Injector step and a chain of Dummy steps. Measures the CPU time the
+ * step threads use while there are no rows, and the time a single row takes from the Injector to the last step.
+ * <p>
+ * The CPU time is reported by the idleCpu benchmark as the cpuNanos counter: nanoseconds of CPU time of all the step
+ * threads together per second.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class IdleTransformationBenchmark {
+
+  private static final String TRANS_NAME = "idle benchmark";
+
+  @Param( { "10" } )
+  public int nrSteps;
+
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+  private Trans trans;
+  private RowProducer producer;
+  private final BlockingQueue<Object[]> arrived = new ArrayBlockingQueue<>( 1 );
+  private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+  private long[] stepThreadIds;
+
+  /**
+   * The CPU time of the step threads, normalized by JMH to nanoseconds per second.
+   */
+  @State( Scope.Thread )
+  @AuxCounters( AuxCounters.Type.OPERATIONS )
+  public static class CpuCounter {
+    public long cpuNanos;
+
+    @Setup( Level.Iteration )
+    public void reset() {
+      cpuNanos = 0;
+    }
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkTrans.initEnvironment();
+    rowMeta = BenchmarkData.createRowMeta();
+    row = BenchmarkData.createRows( 1, 1 ).get( 0 );
+
+    BenchmarkTrans benchmarkTrans = BenchmarkTrans.withInjector( rowMeta );
+    for ( int i = 1; i < nrSteps; i++ ) {
+      benchmarkTrans.addStep( "dummy " + i, new DummyTransMeta() );
+    }
+    benchmarkTrans.finish();
+    benchmarkTrans.getTransMeta().setName( TRANS_NAME );
+
+    trans = new Trans( benchmarkTrans.getTransMeta() );
+    trans.setLogLevel( LogLevel.ERROR );
+    trans.prepareExecution( null );
+    trans.getStepInterface( BenchmarkTrans.DUMMY_STEPNAME, 0 ).addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+        arrived.offer( row );
+      }
+    } );
+    producer = trans.addRowProducer( BenchmarkTrans.INJECTOR_STEPNAME, 0 );
+    trans.startThreads();
+
+    // The step threads are named after the transformation and the step, see Trans.startThreads()
+    //
+    List<Long> ids = new ArrayList<>();
+    for ( Thread thread : Thread.getAllStackTraces().keySet() ) {
+      if ( thread.getName().startsWith( TRANS_NAME + " - " ) ) {
+        ids.add( thread.getId() );
+      }
+    }
+    stepThreadIds = ids.stream().mapToLong( Long::longValue ).toArray();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    producer.finished();
+    trans.waitUntilFinished();
+  }
+
+  private long getStepThreadsCpuTime() {
+    long total = 0;
+    for ( long id : stepThreadIds ) {
+      long cpuTime = threadMXBean.getThreadCpuTime( id );
+      if ( cpuTime > 0 ) {
+        total += cpuTime;
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Leaves the transformation alone for 100ms and counts the CPU time its step threads used meanwhile.
+   */
+  @Benchmark
+  @BenchmarkMode( Mode.Throughput )
+  @OutputTimeUnit( TimeUnit.SECONDS )
+  public void idleCpu( CpuCounter counter ) throws Exception {
+    long before = getStepThreadsCpuTime();
+    Thread.sleep( 100 );
+    counter.cpuNanos += getStepThreadsCpuTime() - before;
+  }
+
+  /**
+   * Puts a single row to the idle transformation and waits until it comes out of the last step.
+   */
+  @Benchmark
+  public Object[] hopLatency() throws Exception {
+    producer.putRow( rowMeta, row );
+    return arrived.take();
+  }
+}
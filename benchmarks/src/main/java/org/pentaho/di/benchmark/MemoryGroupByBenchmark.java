@@ -0,0 +1,79 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
+
+/**
+ * The Memory group by step: sum, average and count per key, with few and with many groups.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class MemoryGroupByBenchmark {
+
+  @Param( { "200000" } )
+  public int nrRows;
+
+  @Param( { "100", "100000" } )
+  public int nrKeys;
+
+  private RowMetaInterface rowMeta;
+  private List<Object[]> rows;
+  private BenchmarkTrans trans;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkTrans.initEnvironment();
+    rowMeta = BenchmarkData.createRowMeta();
+    rows = BenchmarkData.createRows( nrRows, nrKeys );
+
+    MemoryGroupByMeta groupByMeta = new MemoryGroupByMeta();
+    groupByMeta.setDefault();
+    groupByMeta.allocate( 1, 3 );
+    groupByMeta.setGroupField( new String[] { BenchmarkData.KEY } );
+    groupByMeta.setAggregateField( new String[] { "total", "average", "count" } );
+    groupByMeta.setSubjectField( new String[] { BenchmarkData.AMOUNT, BenchmarkData.AMOUNT, BenchmarkData.ID } );
+    groupByMeta.setAggregateType( new int[] {
+      MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_AVERAGE, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL } );
+    groupByMeta.setValueField( new String[ 3 ] );
+
+    trans = BenchmarkTrans.withInjector( rowMeta );
+    trans.addStep( "group by", groupByMeta );
+    trans.finish();
+  }
+
+  @Benchmark
+  public long groupBy() throws Exception {
+    return trans.run( rowMeta, rows );
+  }
+}
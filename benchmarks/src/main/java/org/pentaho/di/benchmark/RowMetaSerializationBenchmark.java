@@ -0,0 +1,88 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * RowMeta.writeData() and readData(): the serialization used by the sort and group by temporary files and the
+ * socket row sets of clustered transformations.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class RowMetaSerializationBenchmark {
+
+  private static final int ROWS = 1000;
+
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+  private ByteArrayOutputStream bytes;
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() throws Exception {
+    rowMeta = BenchmarkData.createRowMeta();
+    rows = BenchmarkData.createRows( ROWS, ROWS ).toArray( new Object[ ROWS ][] );
+    bytes = new ByteArrayOutputStream( ROWS * 128 );
+    serialized = writeRows();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS )
+  public byte[] writeData() throws Exception {
+    return writeRows();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS )
+  public Object[] readData() throws Exception {
+    DataInputStream in = new DataInputStream( new ByteArrayInputStream( serialized ) );
+    Object[] row = null;
+    for ( int i = 0; i < ROWS; i++ ) {
+      row = rowMeta.readData( in );
+    }
+    return row;
+  }
+
+  private byte[] writeRows() throws Exception {
+    bytes.reset();
+    DataOutputStream out = new DataOutputStream( bytes );
+    for ( Object[] row : rows ) {
+      rowMeta.writeData( out, row );
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,118 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.BlockingBatchingRowSet;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Throughput of the row sets between two steps: a producer thread puts rows while the benchmark thread gets them, the
+ * way two step threads use a hop.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class RowSetBenchmark {
+
+  private static final int ROWS = 100_000;
+
+  @Param( { "BlockingRowSet", "BlockingBatchingRowSet" } )
+  public String rowSetType;
+
+  @Param( { "10000" } )
+  public int rowSetSize;
+
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+  private ExecutorService producer;
+  private RowSet rowSet;
+
+  @Setup( Level.Trial )
+  public void setUpTrial() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    row = new Object[] { 1L, "name" };
+    producer = Executors.newSingleThreadExecutor();
+  }
+
+  @Setup( Level.Invocation )
+  public void setUpInvocation() {
+    switch ( rowSetType ) {
+      case "BlockingBatchingRowSet":
+        rowSet = new BlockingBatchingRowSet( rowSetSize );
+        break;
+      default:
+        rowSet = new BlockingRowSet( rowSetSize );
+        break;
+    }
+  }
+
+  @TearDown( Level.Trial )
+  public void tearDownTrial() {
+    producer.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS )
+  public long putAndGetRows() throws Exception {
+    Future<?> done = producer.submit( () -> {
+      for ( int i = 0; i < ROWS; i++ ) {
+        while ( !rowSet.putRow( rowMeta, row ) ) {
+          // retry until the reader made room, like BaseStep.putRow() does
+        }
+      }
+      rowSet.setDone();
+    } );
+
+    long count = 0;
+    while ( true ) {
+      Object[] r = rowSet.getRow();
+      if ( r != null ) {
+        count++;
+      } else if ( rowSet.isDone() && rowSet.size() == 0 ) {
+        break;
+      }
+    }
+    done.get();
+    return count;
+  }
+}
@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.steps.sort.SortRowsMeta;
+
+/**
+ * The Sort rows step on one key, in memory and with temporary files when the sort size is smaller than the number of
+ * rows.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class SortRowsBenchmark {
+
+  @Param( { "200000" } )
+  public int nrRows;
+
+  @Param( { "1000000", "20000" } )
+  public String sortSize;
+
+  private RowMetaInterface rowMeta;
+  private List<Object[]> rows;
+  private BenchmarkTrans trans;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkTrans.initEnvironment();
+    rowMeta = BenchmarkData.createRowMeta();
+    rows = BenchmarkData.createRows( nrRows, nrRows );
+
+    SortRowsMeta sortRowsMeta = new SortRowsMeta();
+    sortRowsMeta.setDefault();
+    sortRowsMeta.allocate( 2 );
+    sortRowsMeta.setFieldName( new String[] { BenchmarkData.KEY, BenchmarkData.NAME } );
+    sortRowsMeta.setAscending( new boolean[] { true, false } );
+    sortRowsMeta.setCaseSensitive( new boolean[] { true, true } );
+    sortRowsMeta.setSortSize( sortSize );
+
+    trans = BenchmarkTrans.withInjector( rowMeta );
+    trans.addStep( "sort", sortRowsMeta );
+    trans.finish();
+  }
+
+  @Benchmark
+  public long sortRows() throws Exception {
+    return trans.run( rowMeta, rows );
+  }
+}
@@ -0,0 +1,95 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.streamlookup.StreamLookupMeta;
+
+/**
+ * The Stream lookup step: loading the lookup rows from the info step and looking up every row on an Integer key, with
+ * and without the memory preservation option.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class StreamLookupBenchmark {
+
+  private static final String LOOKUP_STEPNAME = "lookup rows";
+
+  @Param( { "200000" } )
+  public int nrRows;
+
+  @Param( { "100000" } )
+  public int nrKeys;
+
+  @Param( { "true", "false" } )
+  public boolean memoryPreservation;
+
+  private RowMetaInterface rowMeta;
+  private List<Object[]> rows;
+  private RowMetaInterface lookupRowMeta;
+  private List<Object[]> lookupRows;
+  private BenchmarkTrans trans;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkTrans.initEnvironment();
+    rowMeta = BenchmarkData.createRowMeta();
+    rows = BenchmarkData.createRows( nrRows, nrKeys );
+    lookupRowMeta = BenchmarkData.createLookupRowMeta();
+    lookupRows = BenchmarkData.createLookupRows( nrKeys );
+
+    StreamLookupMeta lookupMeta = new StreamLookupMeta();
+    lookupMeta.setDefault();
+    lookupMeta.allocate( 1, 1 );
+    lookupMeta.setKeystream( new String[] { BenchmarkData.KEY } );
+    lookupMeta.setKeylookup( new String[] { BenchmarkData.KEY } );
+    lookupMeta.setValue( new String[] { "description" } );
+    lookupMeta.setValueName( new String[] { "description" } );
+    lookupMeta.setValueDefault( new String[] { null } );
+    lookupMeta.setValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+    lookupMeta.setMemoryPreservationActive( memoryPreservation );
+
+    trans = BenchmarkTrans.withInjector( rowMeta );
+    StepMeta lookupStep = trans.addStep( "stream lookup", lookupMeta );
+    StepMeta infoStep = trans.addSideStep( LOOKUP_STEPNAME, BenchmarkTrans.createInjectorMeta( lookupRowMeta ) );
+    trans.addHop( infoStep, lookupStep );
+    lookupMeta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( infoStep );
+    trans.finish();
+  }
+
+  @Benchmark
+  public long streamLookup() throws Exception {
+    return trans.run( rowMeta, rows, LOOKUP_STEPNAME, lookupRowMeta, lookupRows );
+  }
+}
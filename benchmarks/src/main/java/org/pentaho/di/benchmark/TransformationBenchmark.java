@@ -0,0 +1,107 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.TransMeta.TransformationType;
+import org.pentaho.di.trans.steps.calculator.CalculatorMeta;
+import org.pentaho.di.trans.steps.calculator.CalculatorMetaFunction;
+import org.pentaho.di.trans.steps.filterrows.FilterRowsMeta;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
+
+/**
+ * A whole transformation in memory: Calculator, Filter rows and Memory group by after each other, run with the
+ * different transformation types and with and without columnar row batches between the steps that support them.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class TransformationBenchmark {
+
+  private static final String DOUBLE_AMOUNT = "double_amount";
+
+  @Param( { "200000" } )
+  public int nrRows;
+
+  @Param( { "Normal", "VirtualThreads", "Cooperative" } )
+  public String transformationType;
+
+  @Param( { "N", "Y" } )
+  public String columnarBatches;
+
+  private RowMetaInterface rowMeta;
+  private List<Object[]> rows;
+  private BenchmarkTrans trans;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkTrans.initEnvironment();
+    rowMeta = BenchmarkData.createRowMeta();
+    rows = BenchmarkData.createRows( nrRows, 1000 );
+
+    CalculatorMeta calculatorMeta = new CalculatorMeta();
+    calculatorMeta.setCalculation( new CalculatorMetaFunction[] {
+      new CalculatorMetaFunction( DOUBLE_AMOUNT, CalculatorMetaFunction.CALC_ADD, BenchmarkData.AMOUNT,
+        BenchmarkData.AMOUNT, null, ValueMetaInterface.TYPE_NUMBER, -1, -1, false, null, null, null, null ) } );
+
+    FilterRowsMeta filterRowsMeta = new FilterRowsMeta();
+    filterRowsMeta.setDefault();
+    filterRowsMeta.setCondition( new Condition( DOUBLE_AMOUNT, Condition.FUNC_LARGER, null,
+      new ValueMetaAndData( "constant", 1000.0 ) ) );
+
+    MemoryGroupByMeta groupByMeta = new MemoryGroupByMeta();
+    groupByMeta.setDefault();
+    groupByMeta.allocate( 1, 2 );
+    groupByMeta.setGroupField( new String[] { BenchmarkData.KEY } );
+    groupByMeta.setAggregateField( new String[] { "total", "count" } );
+    groupByMeta.setSubjectField( new String[] { DOUBLE_AMOUNT, BenchmarkData.ID } );
+    groupByMeta.setAggregateType( new int[] {
+      MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL } );
+    groupByMeta.setValueField( new String[ 2 ] );
+
+    trans = BenchmarkTrans.withInjector( rowMeta );
+    trans.addStep( "calculator", calculatorMeta );
+    trans.addStep( "filter rows", filterRowsMeta );
+    trans.addStep( "group by", groupByMeta );
+    trans.finish();
+    trans.getTransMeta().setTransformationType( TransformationType.getTransformationTypeByCode( transformationType ) );
+    trans.setVariable( Const.KETTLE_COLUMNAR_BATCHES, columnarBatches );
+  }
+
+  @Benchmark
+  public long transformation() throws Exception {
+    return trans.run( rowMeta, rows );
+  }
+}
@@ -0,0 +1,138 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * The conversions and comparisons of ValueMetaBase that every step does for every row: formatting and parsing with
+ * the common masks, and compare() as used by Sort rows, Group by and the lookups.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ValueMetaBenchmark {
+
+  private ValueMetaInterface integerMeta;
+  private ValueMetaInterface numberMeta;
+  private ValueMetaInterface bigNumberMeta;
+  private ValueMetaInterface dateMeta;
+  private ValueMetaInterface stringMeta;
+
+  private Long integerValue = 1234567L;
+  private Long otherIntegerValue = 1234568L;
+  private Double numberValue = 12345.678;
+  private BigDecimal bigNumberValue = new BigDecimal( "12345678901234.5678" );
+  private Date dateValue = new Date( 1_700_000_000_000L );
+  private String stringValue = "Kettle";
+  private String otherStringValue = "Kettle Spoon";
+
+  private String integerString;
+  private String numberString;
+  private String dateString;
+
+  @Setup
+  public void setUp() throws KettleValueException {
+    integerMeta = new ValueMetaInteger( "integer" );
+    integerMeta.setConversionMask( "#" );
+    numberMeta = new ValueMetaNumber( "number" );
+    numberMeta.setConversionMask( "#.##" );
+    bigNumberMeta = new ValueMetaBigNumber( "bignumber" );
+    dateMeta = new ValueMetaDate( "date" );
+    dateMeta.setConversionMask( "yyyy/MM/dd HH:mm:ss.SSS" );
+    stringMeta = new ValueMetaString( "string" );
+
+    integerString = integerMeta.getString( integerValue );
+    numberString = numberMeta.getString( numberValue );
+    dateString = dateMeta.getString( dateValue );
+  }
+
+  @Benchmark
+  public String integerToString() throws KettleValueException {
+    return integerMeta.getString( integerValue );
+  }
+
+  @Benchmark
+  public Object stringToInteger() throws KettleValueException {
+    return integerMeta.convertData( stringMeta, integerString );
+  }
+
+  @Benchmark
+  public String numberToString() throws KettleValueException {
+    return numberMeta.getString( numberValue );
+  }
+
+  @Benchmark
+  public Object stringToNumber() throws KettleValueException {
+    return numberMeta.convertData( stringMeta, numberString );
+  }
+
+  @Benchmark
+  public String bigNumberToString() throws KettleValueException {
+    return bigNumberMeta.getString( bigNumberValue );
+  }
+
+  @Benchmark
+  public String dateToString() throws KettleValueException {
+    return dateMeta.getString( dateValue );
+  }
+
+  @Benchmark
+  public Object stringToDate() throws KettleValueException {
+    return dateMeta.convertData( stringMeta, dateString );
+  }
+
+  @Benchmark
+  public int compareIntegers() throws KettleValueException {
+    return integerMeta.compare( integerValue, otherIntegerValue );
+  }
+
+  @Benchmark
+  public int compareNumbers() throws KettleValueException {
+    return numberMeta.compare( numberValue, numberValue );
+  }
+
+  @Benchmark
+  public int compareStrings() throws KettleValueException {
+    return stringMeta.compare( stringValue, otherStringValue );
+  }
+
+  @Benchmark
+  public int compareDates() throws KettleValueException {
+    return dateMeta.compare( dateValue, dateValue );
+  }
+}
@@ -0,0 +1,309 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.batch.RowBatch;
+
+/**
+ * A bounded blocking row set that passes whole {@link RowBatch}es as well as single rows. The steps on both sides can
+ * use whichever they like: a batch put by the previous step is handed out row by row to {@link #getRow()}, rows put
+ * one by one are gathered into a batch by {@link #getBatch(int)}. The capacity is counted in rows, a batch that is
+ * larger than the capacity is still accepted when the row set is empty.
+ *
+ * @since 11.1.0.0
+ */
+public class BatchRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  private final int capacity;
+
+  /** Rows (Object[]) and batches (RowBatch) in the order they were put. */
+  private final ArrayDeque<Object> entries;
+
+  /** The batch that is being read row by row and the next row to read from it. */
+  private RowBatch readBatch;
+  private int readPosition;
+
+  /** The number of rows in the entries and the rows left in the read batch. */
+  private int count;
+
+  private final ReentrantLock lock;
+  private final Condition notEmpty;
+  private final Condition notFull;
+
+  private final int timeoutPut;
+  private final int timeoutGet;
+
+  /**
+   * @param capacity the number of rows the row set can hold
+   */
+  public BatchRowSet( int capacity ) {
+    super();
+    this.capacity = capacity;
+    entries = new ArrayDeque<>();
+    lock = new ReentrantLock();
+    notEmpty = lock.newCondition();
+    notFull = lock.newCondition();
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    if ( rowData == null ) {
+      return false;
+    }
+    return put( rowData, 1, time, tu );
+  }
+
+  /**
+   * Put a batch of rows, it waits for a short period until there is room for the whole batch.
+   *
+   * @param rowMeta the description of the rows, the same as the row metadata of the batch
+   * @param batch   the rows
+   * @return true if the batch was added, false if there was no room in time
+   */
+  public boolean putBatch( RowMetaInterface rowMeta, RowBatch batch ) {
+    return putBatchWait( rowMeta, batch, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Put a batch of rows, wait at most the given time until there is room for the whole batch.
+   *
+   * @return true if the batch was added, false if there was no room in time
+   */
+  public boolean putBatchWait( RowMetaInterface rowMeta, RowBatch batch, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    if ( batch == null ) {
+      return false;
+    }
+    if ( batch.size() == 0 ) {
+      return true;
+    }
+    return put( batch, batch.size(), time, tu );
+  }
+
+  private boolean put( Object entry, int nrRows, long time, TimeUnit tu ) {
+    long nanos = tu.toNanos( time );
+    lock.lock();
+    try {
+      while ( count > 0 && count + nrRows > capacity ) {
+        if ( nanos <= 0L ) {
+          return false;
+        }
+        nanos = notFull.awaitNanos( nanos );
+      }
+      entries.add( entry );
+      count += nrRows;
+      notEmpty.signal();
+      return true;
+    } catch ( InterruptedException e ) {
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return getRowWait( 0L, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    lock.lock();
+    try {
+      if ( !awaitNotEmpty( tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+      if ( readBatch == null ) {
+        Object entry = entries.poll();
+        if ( entry instanceof Object[] ) {
+          count--;
+          notFull.signal();
+          return (Object[]) entry;
+        }
+        readBatch = (RowBatch) entry;
+        readPosition = 0;
+      }
+      return nextRowFromReadBatch();
+    } catch ( InterruptedException e ) {
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the first row like {@link #getRow()}, then takes whatever else is in the row set, up to max rows.
+   */
+  @Override
+  public List<Object[]> getRows( int max ) {
+    List<Object[]> rows = new ArrayList<>();
+    lock.lock();
+    try {
+      if ( !awaitNotEmpty( TimeUnit.MILLISECONDS.toNanos( timeoutGet ) ) ) {
+        return rows;
+      }
+      while ( rows.size() < max && count > 0 ) {
+        if ( readBatch == null ) {
+          Object entry = entries.poll();
+          if ( entry instanceof Object[] ) {
+            count--;
+            rows.add( (Object[]) entry );
+            continue;
+          }
+          readBatch = (RowBatch) entry;
+          readPosition = 0;
+        }
+        rows.add( nextRowFromReadBatch() );
+      }
+      notFull.signal();
+    } catch ( InterruptedException e ) {
+      // Return what we have
+    } finally {
+      lock.unlock();
+    }
+    return rows;
+  }
+
+  /**
+   * Get up to max rows as a batch, it blocks for a short period until the first row becomes available. A batch that
+   * was put as a whole is returned as it is as long as it isn't larger than max, consecutive rows that were put one by
+   * one are converted into a batch.
+   *
+   * @param max the maximum number of rows to return
+   * @return a batch of rows or null if no row is available
+   */
+  public RowBatch getBatch( int max ) {
+    List<Object[]> rows = null;
+    RowMetaInterface rowsMeta;
+    lock.lock();
+    try {
+      if ( !awaitNotEmpty( TimeUnit.MILLISECONDS.toNanos( timeoutGet ) ) ) {
+        return null;
+      }
+      if ( readBatch == null && entries.peek() instanceof RowBatch ) {
+        readBatch = (RowBatch) entries.poll();
+        readPosition = 0;
+      }
+      if ( readBatch != null ) {
+        int from = readPosition;
+        int to = Math.min( readBatch.size(), from + max );
+        RowBatch batch = readBatch.slice( from, to );
+        count -= to - from;
+        readPosition = to;
+        if ( readPosition == readBatch.size() ) {
+          readBatch = null;
+        }
+        notFull.signal();
+        return batch;
+      }
+      rows = new ArrayList<>( Math.min( max, count ) );
+      while ( rows.size() < max && entries.peek() instanceof Object[] ) {
+        rows.add( (Object[]) entries.poll() );
+      }
+      count -= rows.size();
+      rowsMeta = rowMeta;
+      notFull.signal();
+    } catch ( InterruptedException e ) {
+      return null;
+    } finally {
+      lock.unlock();
+    }
+    // Convert outside of the lock so the writer can go on
+    //
+    return RowBatch.fromRows( rowsMeta, rows );
+  }
+
+  /**
+   * @return true if there is a row, false if there still isn't one after waiting or once the row set is done
+   */
+  private boolean awaitNotEmpty( long nanos ) throws InterruptedException {
+    while ( count == 0 ) {
+      if ( nanos <= 0L || done.get() ) {
+        return false;
+      }
+      nanos = notEmpty.awaitNanos( nanos );
+    }
+    return true;
+  }
+
+  private Object[] nextRowFromReadBatch() {
+    Object[] row = readBatch.getRow( readPosition++ );
+    if ( readPosition == readBatch.size() ) {
+      readBatch = null;
+    }
+    count--;
+    notFull.signal();
+    return row;
+  }
+
+  /**
+   * Marks the row set as done and wakes up the reader waiting for a row.
+   */
+  @Override
+  public void setDone() {
+    super.setDone();
+    lock.lock();
+    try {
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      entries.clear();
+      readBatch = null;
+      count = 0;
+      done.set( false );
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
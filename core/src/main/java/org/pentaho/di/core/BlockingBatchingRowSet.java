@@ -13,6 +13,8 @@
 
 package org.pentaho.di.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +42,9 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
 
   private final int BATCHSIZE = 2;
 
+  /** Put in the queue by setDone() when there is no last buffer to wake up the reader with. */
+  private static final Object[][] END_OF_ROWS = new Object[0][];
+
   // private long inputTID = -1, outputTID = -1;
 
   /**
@@ -139,6 +144,10 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
       if ( outputBuffer == null ) {
         return null;
       }
+      if ( outputBuffer == END_OF_ROWS ) {
+        outputBuffer = null;
+        return null;
+      }
       getIndex = 0;
     }
 
@@ -152,6 +161,24 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
     return row;
   }
 
+  /**
+   * Waits for the first row like {@link #getRow()}, then only returns the rows left in the batch at hand so that it
+   * never blocks for a second time.
+   */
+  @Override
+  public List<Object[]> getRows( int max ) {
+    List<Object[]> rows = new ArrayList<>();
+    Object[] row = getRow();
+    while ( row != null ) {
+      rows.add( row );
+      if ( rows.size() >= max || outputBuffer == null ) {
+        break;
+      }
+      row = getRowWait( 0, TimeUnit.MILLISECONDS );
+    }
+    return rows;
+  }
+
   @Override
   public int size() {
     // does BlockingQueue.size() grab a lock? If so, frequent call to this method
@@ -168,6 +195,9 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
         inputBuffer[i] = null;
       }
       getArray.offer( inputBuffer );
+    } else {
+      // Wake up the reader waiting for a buffer, the empty one tells it there are no more rows
+      getArray.offer( END_OF_ROWS );
     }
     putArray.clear();
   }
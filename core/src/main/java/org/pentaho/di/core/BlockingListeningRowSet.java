@@ -13,8 +13,8 @@
 
 package org.pentaho.di.core;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -30,9 +30,7 @@ import org.pentaho.di.core.row.RowMetaInterface;
  * @since 23-12-2010
  *
  */
-public class BlockingListeningRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
-  private BlockingQueue<Object[]> queArray;
-
+public class BlockingListeningRowSet extends BlockingRowSet {
   private AtomicBoolean blocking;
 
   /**
@@ -41,10 +39,8 @@ public class BlockingListeningRowSet extends BaseRowSet implements Comparable<Ro
    * @param maxSize
    */
   public BlockingListeningRowSet( int maxSize ) {
-    super();
+    super( maxSize );
 
-    // create an empty queue
-    queArray = new ArrayBlockingQueue<Object[]>( maxSize, false );
     blocking = new AtomicBoolean( false );
   }
 
@@ -66,20 +62,12 @@ public class BlockingListeningRowSet extends BaseRowSet implements Comparable<Ro
    */
   @Override
   public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
-    this.rowMeta = rowMeta;
+    blocking.set( true );
     try {
-      blocking.set( true );
-      boolean b = queArray.offer( rowData, time, tu );
-      blocking.set( false );
-      return b;
-    } catch ( InterruptedException e ) {
+      return super.putRowWait( rowMeta, rowData, time, tu );
+    } finally {
       blocking.set( false );
-      return false;
-    } catch ( NullPointerException e ) {
-      blocking.set( false );
-      return false;
     }
-
   }
 
   // default getRow with wait time = 100ms
@@ -91,10 +79,7 @@ public class BlockingListeningRowSet extends BaseRowSet implements Comparable<Ro
    */
   @Override
   public Object[] getRow() {
-    blocking.set( true );
-    Object[] row = getRowWait( 100, TimeUnit.NANOSECONDS );
-    blocking.set( false );
-    return row;
+    return getRowWait( 100, TimeUnit.NANOSECONDS );
   }
 
   /*
@@ -104,11 +89,12 @@ public class BlockingListeningRowSet extends BaseRowSet implements Comparable<Ro
    */
   @Override
   public Object[] getRowImmediate() {
-
     blocking.set( true );
-    Object[] row = queArray.poll();
-    blocking.set( false );
-    return row;
+    try {
+      return super.getRowImmediate();
+    } finally {
+      blocking.set( false );
+    }
   }
 
   /*
@@ -118,21 +104,29 @@ public class BlockingListeningRowSet extends BaseRowSet implements Comparable<Ro
    */
   @Override
   public Object[] getRowWait( long timeout, TimeUnit tu ) {
-
+    blocking.set( true );
     try {
-      blocking.set( true );
-      Object[] row = queArray.poll( timeout, tu );
-      blocking.set( false );
-      return row;
-    } catch ( InterruptedException e ) {
+      return super.getRowWait( timeout, tu );
+    } finally {
       blocking.set( false );
-      return null;
     }
   }
 
+  /**
+   * Takes the rows one by one, like the other row sets that don't take their rows in one go.
+   */
   @Override
-  public int size() {
-    return queArray.size();
+  public List<Object[]> getRows( int max ) {
+    List<Object[]> rows = new ArrayList<>();
+    Object[] row = getRow();
+    while ( row != null ) {
+      rows.add( row );
+      if ( rows.size() >= max ) {
+        break;
+      }
+      row = getRowImmediate();
+    }
+    return rows;
   }
 
   /**
@@ -143,10 +137,4 @@ public class BlockingListeningRowSet extends BaseRowSet implements Comparable<Ro
     return blocking.get();
   }
 
-  @Override
-  public void clear() {
-    queArray.clear();
-    done.set( false );
-  }
-
 }
@@ -13,22 +13,34 @@
 
 package org.pentaho.di.core;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.pentaho.di.core.row.RowMetaInterface;
 
 /**
  * Contains a buffer of rows. Getting rows from the buffer or putting rows in the buffer is synchronized to allow
  * concurrent use of multiple Threads.
+ * <p>
+ * The buffer is a bounded array guarded by a single lock, like an ArrayBlockingQueue, so that {@link #setDone()} can
+ * wake up a reader that waits for a row that will never come.
  *
  * @author Matt
  * @since 04-04-2003
  *
  */
 public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
-  private BlockingQueue<Object[]> queArray;
+  private final Object[][] items;
+  private int takeIndex;
+  private int putIndex;
+  private int count;
+
+  private final ReentrantLock lock;
+  private final Condition notEmpty;
+  private final Condition notFull;
 
   private int timeoutPut;
   private int timeoutGet;
@@ -41,8 +53,15 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
   public BlockingRowSet( int maxSize ) {
     super();
 
+    if ( maxSize <= 0 ) {
+      throw new IllegalArgumentException( "The size of a row set has to be at least 1" );
+    }
+
     // create an empty queue
-    queArray = new ArrayBlockingQueue<Object[]>( maxSize, false );
+    items = new Object[maxSize][];
+    lock = new ReentrantLock();
+    notEmpty = lock.newCondition();
+    notFull = lock.newCondition();
 
     timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
     timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
@@ -67,15 +86,35 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
   @Override
   public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
     this.rowMeta = rowMeta;
-    try {
+    if ( rowData == null ) {
+      return false;
+    }
 
-      return queArray.offer( rowData, time, tu );
+    long nanos = tu.toNanos( time );
+    try {
+      lock.lockInterruptibly();
     } catch ( InterruptedException e ) {
       return false;
-    } catch ( NullPointerException e ) {
+    }
+    try {
+      while ( count == items.length ) {
+        if ( nanos <= 0L ) {
+          return false;
+        }
+        nanos = notFull.awaitNanos( nanos );
+      }
+      items[putIndex] = rowData;
+      if ( ++putIndex == items.length ) {
+        putIndex = 0;
+      }
+      count++;
+      notEmpty.signal();
+      return true;
+    } catch ( InterruptedException e ) {
       return false;
+    } finally {
+      lock.unlock();
     }
-
   }
 
   // default getRow with wait time = 100ms
@@ -97,34 +136,124 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
    */
   @Override
   public Object[] getRowImmediate() {
-
-    return queArray.poll();
+    lock.lock();
+    try {
+      return count == 0 ? null : take();
+    } finally {
+      lock.unlock();
+    }
   }
 
-  /*
-   * (non-Javadoc)
+  /**
+   * Waits for a row until the timeout expires or until the row set is done.
    *
    * @see org.pentaho.di.core.RowSetInterface#getRowWait(long, java.util.concurrent.TimeUnit)
    */
   @Override
   public Object[] getRowWait( long timeout, TimeUnit tu ) {
-
     try {
-      return queArray.poll( timeout, tu );
+      lock.lockInterruptibly();
     } catch ( InterruptedException e ) {
       return null;
     }
+    try {
+      return awaitNotEmpty( tu.toNanos( timeout ) ) ? take() : null;
+    } catch ( InterruptedException e ) {
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the first row like {@link #getRow()}, then takes whatever else is in the buffer, up to max rows, while
+   * taking the lock only once.
+   */
+  @Override
+  public List<Object[]> getRows( int max ) {
+    List<Object[]> rows = new ArrayList<>();
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return rows;
+    }
+    try {
+      if ( awaitNotEmpty( TimeUnit.MILLISECONDS.toNanos( timeoutGet ) ) ) {
+        do {
+          rows.add( take() );
+        } while ( rows.size() < max && count > 0 );
+      }
+    } catch ( InterruptedException e ) {
+      // Return what we have
+    } finally {
+      lock.unlock();
+    }
+    return rows;
+  }
+
+  /**
+   * @return true if there is a row, false if there still isn't one after waiting or once the row set is done
+   */
+  private boolean awaitNotEmpty( long nanos ) throws InterruptedException {
+    while ( count == 0 ) {
+      if ( nanos <= 0L || done.get() ) {
+        return false;
+      }
+      nanos = notEmpty.awaitNanos( nanos );
+    }
+    return true;
+  }
+
+  private Object[] take() {
+    Object[] row = items[takeIndex];
+    items[takeIndex] = null;
+    if ( ++takeIndex == items.length ) {
+      takeIndex = 0;
+    }
+    count--;
+    notFull.signal();
+    return row;
+  }
+
+  /**
+   * Marks the row set as done and wakes up the reader waiting for a row.
+   */
+  @Override
+  public void setDone() {
+    super.setDone();
+    lock.lock();
+    try {
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public int size() {
-    return queArray.size();
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public void clear() {
-    queArray.clear();
-    done.set( false );
+    lock.lock();
+    try {
+      for ( int i = 0; i < items.length; i++ ) {
+        items[i] = null;
+      }
+      takeIndex = 0;
+      putIndex = 0;
+      count = 0;
+      done.set( false );
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
   }
 
 }
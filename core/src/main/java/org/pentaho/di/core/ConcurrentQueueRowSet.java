@@ -0,0 +1,90 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * An unbounded row set that never blocks, like {@link QueueRowSet}, but that can be written and read by different
+ * threads. It is used when the steps are scheduled as tasks on a shared pool of threads: a step is only run when its
+ * input has rows, so the row set itself never has to wait. The scheduler keeps the number of rows in check by not
+ * running a producing step while its output row sets are full.
+ *
+ * @since 11.1.0.0
+ */
+public class ConcurrentQueueRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  private final ConcurrentLinkedQueue<Object[]> buffer;
+
+  /** ConcurrentLinkedQueue.size() walks the whole queue, keep count ourselves. */
+  private final AtomicInteger size;
+
+  public ConcurrentQueueRowSet() {
+    buffer = new ConcurrentLinkedQueue<>();
+    size = new AtomicInteger();
+  }
+
+  @Override
+  public Object[] getRow() {
+    Object[] retRow = buffer.poll();
+    if ( retRow != null ) {
+      size.decrementAndGet();
+    }
+    return retRow;
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return getRow();
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    return getRow();
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    this.rowMeta = rowMeta;
+    if ( rowData == null ) {
+      return false;
+    }
+    // Add the row before counting it: a reader that sees the count has to find the row. A reader that takes the row
+    // before it is counted makes the count negative for a moment, size() doesn't show that.
+    buffer.add( rowData );
+    size.incrementAndGet();
+    return true;
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    return putRow( rowMeta, rowData );
+  }
+
+  @Override
+  public int size() {
+    return Math.max( 0, size.get() );
+  }
+
+  @Override
+  public void clear() {
+    buffer.clear();
+    size.set( 0 );
+    done.set( false );
+  }
+}
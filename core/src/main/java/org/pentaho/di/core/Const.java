@@ -1065,6 +1065,82 @@ public class Const {
    */
   public static final String KETTLE_BATCHING_ROWSET = "KETTLE_BATCHING_ROWSET";
 
+  /**
+   * Set this variable to Y to use the lock-free single producer/single consumer ring buffer row set for the hops of a
+   * normal transformation. It can be set per transformation. (default = N)
+   */
+  public static final String KETTLE_RING_BUFFER_ROWSET = "KETTLE_RING_BUFFER_ROWSET";
+
+  /**
+   * Set this variable to Y to pass columnar row batches over the hops of a normal transformation between steps that
+   * support them, like Calculator, Filter Rows and Select Values. It can be set per transformation. (default = N)
+   */
+  public static final String KETTLE_COLUMNAR_BATCHES = "KETTLE_COLUMNAR_BATCHES";
+
+  /**
+   * The number of threads shared by all the cooperative transformations in this JVM. (default = the number of
+   * available processors)
+   */
+  public static final String KETTLE_COOPERATIVE_POOL_SIZE = "KETTLE_COOPERATIVE_POOL_SIZE";
+
+  /**
+   * Set this variable to N to sort the in-memory buffer of the Sort Rows step on a single thread instead of on all the
+   * available processors. (default = Y)
+   */
+  public static final String KETTLE_SORT_ROWS_PARALLEL = "KETTLE_SORT_ROWS_PARALLEL";
+
+  /**
+   * The name of the compression provider for the temp files of the Sort Rows step when it compresses them, for example
+   * Snappy or GZip. (default = Snappy)
+   */
+  public static final String KETTLE_SORT_ROWS_COMPRESSION = "KETTLE_SORT_ROWS_COMPRESSION";
+
+  /**
+   * The maximum number of temp files the Sort Rows step merges at the same time. If it writes more, they are first
+   * merged into fewer larger temp files. (default = 128)
+   */
+  public static final String KETTLE_SORT_ROWS_MAX_OPEN_FILES = "KETTLE_SORT_ROWS_MAX_OPEN_FILES";
+
+  /**
+   * The maximum number of groups the Memory Group By step keeps in memory. Once there are more, the rows of the new
+   * groups are written to temp files and aggregated afterwards. 0 means no limit. (default = 0)
+   */
+  public static final String KETTLE_MEMORY_GROUP_BY_MAX_GROUPS = "KETTLE_MEMORY_GROUP_BY_MAX_GROUPS";
+
+  /**
+   * The percentage of free memory below which the Memory Group By step stops adding groups in memory and writes the
+   * rows of the new groups to temp files. 0 disables the check. (default = 10)
+   */
+  public static final String KETTLE_MEMORY_GROUP_BY_FREE_MEMORY_LIMIT = "KETTLE_MEMORY_GROUP_BY_FREE_MEMORY_LIMIT";
+
+  /**
+   * The directory of the temp files of the Memory Group By step. (default = %%java.io.tmpdir%%)
+   */
+  public static final String KETTLE_MEMORY_GROUP_BY_TMP_DIR = "KETTLE_MEMORY_GROUP_BY_TMP_DIR";
+
+  /**
+   * Set this variable to Y to keep the lookup data of the Stream Lookup step in direct memory, outside of the heap, when
+   * it uses the compact table. The size of the direct memory is limited by -XX:MaxDirectMemorySize. (default = N)
+   */
+  public static final String KETTLE_STREAM_LOOKUP_OFF_HEAP = "KETTLE_STREAM_LOOKUP_OFF_HEAP";
+
+  /**
+   * The rows the cache of the Database Lookup step removes first when it is full: FIFO, LRU or LFU. (default = LRU)
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_CACHE_EVICTION = "KETTLE_DATABASE_LOOKUP_CACHE_EVICTION";
+
+  /**
+   * The number of seconds the Database Lookup step uses a row from its cache before it looks it up again, 0 to keep
+   * the rows until they are evicted. (default = 0)
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_CACHE_TIME_TO_LIVE = "KETTLE_DATABASE_LOOKUP_CACHE_TIME_TO_LIVE";
+
+  /**
+   * Set this variable to Y to have the copies of a Database Lookup step share one cache, the cache size is then the
+   * size of the shared cache. It doesn't apply when all the data is loaded in the cache. (default = N)
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_SHARE_CACHE = "KETTLE_DATABASE_LOOKUP_SHARE_CACHE";
+
   /**
    * Set this variable to limit max number of files the Text File Output step can have open at one time.
    */
@@ -1170,6 +1246,20 @@ public class Const {
   public static final String KETTLE_AGGREGATION_MIN_NULL_IS_VALUED = "KETTLE_AGGREGATION_MIN_NULL_IS_VALUED";
   public static final String KETTLE_AGGREGATION_ALL_NULLS_ARE_ZERO = "KETTLE_AGGREGATION_ALL_NULLS_ARE_ZERO";
 
+  /**
+   * The precision of the approximate distinct counts of the Group By and Memory Group By steps, between 4 and 18. A
+   * sketch takes up to 2^precision bytes per group, the standard error is about 1.04/sqrt(2^precision). (default = 12)
+   */
+  public static final String KETTLE_AGGREGATION_APPROX_DISTINCT_PRECISION =
+    "KETTLE_AGGREGATION_APPROX_DISTINCT_PRECISION";
+
+  /**
+   * The accuracy of the approximate medians and percentiles of the Group By and Memory Group By steps, at least 8. A
+   * sketch keeps about 3 times this many values per group, the rank error is about 1.7/accuracy. (default = 200)
+   */
+  public static final String KETTLE_AGGREGATION_APPROX_QUANTILE_ACCURACY =
+    "KETTLE_AGGREGATION_APPROX_QUANTILE_ACCURACY";
+
   /**
    * The name of the variable containing an alternative default timestamp format
    */
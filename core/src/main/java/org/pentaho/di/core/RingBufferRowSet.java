@@ -0,0 +1,360 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A lock-free row set for exactly one producing and one consuming thread, which is the way every hop between two step
+ * copies is used. Rows are kept in a pre-sized ring buffer. The read (head) and write (tail) sequences are padded onto
+ * their own cache lines so that the producer and consumer don't invalidate each other's caches. A thread that has to
+ * wait first spins, then yields and finally parks until the other side signals it or the timeout expires.
+ *
+ * Never share an instance of this row set between more than one writing or more than one reading thread.
+ *
+ * @since 11.1.0.0
+ */
+public class RingBufferRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 100;
+
+  private final Object[][] buffer;
+  private final int mask;
+  private final int capacity;
+
+  /** The sequence of the next row to read, only written by the consumer. */
+  private final Sequence head = new Sequence();
+
+  /** The sequence of the next row to write, only written by the producer. */
+  private final Sequence tail = new Sequence();
+
+  /** Last head seen by the producer, saves a read of the consumer's cache line per row. */
+  private long cachedHead;
+
+  /** Last tail seen by the consumer, saves a read of the producer's cache line per row. */
+  private long cachedTail;
+
+  private volatile Thread waitingProducer;
+  private volatile Thread waitingConsumer;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new ring buffer row set that can hold up to maxSize rows.
+   *
+   * @param maxSize
+   */
+  public RingBufferRowSet( int maxSize ) {
+    super();
+
+    capacity = Math.max( 1, maxSize );
+    int length = Integer.highestOneBit( capacity );
+    if ( length < capacity ) {
+      length <<= 1;
+    }
+    buffer = new Object[length][];
+    mask = length - 1;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    if ( rowData == null ) {
+      return false;
+    }
+
+    long currentTail = tail.get();
+    long wrapPoint = currentTail - capacity;
+    if ( cachedHead <= wrapPoint ) {
+      cachedHead = head.get();
+      if ( cachedHead <= wrapPoint && !waitForSpace( wrapPoint, tu.toNanos( time ) ) ) {
+        return false;
+      }
+    }
+
+    buffer[(int) currentTail & mask] = rowData;
+    publishTail( currentTail + 1 );
+    return true;
+  }
+
+  /**
+   * Copies as many rows as there is room for into the buffer and publishes them all at once, which saves most of the
+   * per row signalling between producer and consumer.
+   */
+  @Override
+  public int putRows( RowMetaInterface rowMeta, List<Object[]> rows ) {
+    this.rowMeta = rowMeta;
+    int nrRows = rows.size();
+    int nrAdded = 0;
+    while ( nrAdded < nrRows ) {
+      long currentTail = tail.get();
+      long wrapPoint = currentTail - capacity;
+      if ( cachedHead <= wrapPoint ) {
+        cachedHead = head.get();
+        if ( cachedHead <= wrapPoint
+          && !waitForSpace( wrapPoint, TimeUnit.MILLISECONDS.toNanos( timeoutPut ) ) ) {
+          break;
+        }
+      }
+
+      int end = (int) Math.min( nrRows, nrAdded + ( cachedHead + capacity - currentTail ) );
+      long sequence = currentTail;
+      while ( nrAdded < end ) {
+        Object[] row = rows.get( nrAdded );
+        if ( row == null ) {
+          break;
+        }
+        buffer[(int) sequence++ & mask] = row;
+        nrAdded++;
+      }
+      if ( sequence > currentTail ) {
+        publishTail( sequence );
+      }
+      if ( nrAdded < end ) {
+        break; // a null row
+      }
+    }
+    return nrAdded;
+  }
+
+  private void publishTail( long newTail ) {
+    tail.set( newTail );
+
+    Thread consumer = waitingConsumer;
+    if ( consumer != null ) {
+      LockSupport.unpark( consumer );
+    }
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long currentHead = head.get();
+    if ( currentHead >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( currentHead >= cachedTail ) {
+        return null;
+      }
+    }
+    return take( currentHead );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long currentHead = head.get();
+    if ( currentHead >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( currentHead >= cachedTail && !waitForData( currentHead, tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+    }
+    return take( currentHead );
+  }
+
+  /**
+   * Takes all the rows that are available, up to max, and releases their slots at once.
+   */
+  @Override
+  public List<Object[]> getRows( int max ) {
+    List<Object[]> rows = new ArrayList<>();
+    long currentHead = head.get();
+    if ( currentHead >= cachedTail ) {
+      cachedTail = tail.get();
+      if ( currentHead >= cachedTail
+        && !waitForData( currentHead, TimeUnit.MILLISECONDS.toNanos( timeoutGet ) ) ) {
+        return rows;
+      }
+    }
+
+    long end = Math.min( cachedTail, currentHead + Math.max( 1, max ) );
+    for ( long sequence = currentHead; sequence < end; sequence++ ) {
+      int index = (int) sequence & mask;
+      rows.add( buffer[index] );
+      buffer[index] = null; // prevent any hold-up to GC
+    }
+    publishHead( end );
+    return rows;
+  }
+
+  private Object[] take( long currentHead ) {
+    int index = (int) currentHead & mask;
+    Object[] row = buffer[index];
+    buffer[index] = null; // prevent any hold-up to GC
+    publishHead( currentHead + 1 );
+    return row;
+  }
+
+  private void publishHead( long newHead ) {
+    head.set( newHead );
+
+    Thread producer = waitingProducer;
+    if ( producer != null ) {
+      LockSupport.unpark( producer );
+    }
+  }
+
+  /**
+   * Wait until the consumer moved past the wrap point or until the timeout expires.
+   *
+   * @return true if there is room for another row
+   */
+  private boolean waitForSpace( long wrapPoint, long timeoutNanos ) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    int tries = 0;
+    while ( ( cachedHead = head.get() ) <= wrapPoint ) {
+      if ( tries < SPIN_TRIES ) {
+        Thread.onSpinWait();
+      } else if ( tries < SPIN_TRIES + YIELD_TRIES ) {
+        Thread.yield();
+      } else {
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 ) {
+          return false;
+        }
+        waitingProducer = Thread.currentThread();
+        // Re-check after announcing ourselves, the consumer might have taken a row in between
+        if ( head.get() <= wrapPoint ) {
+          LockSupport.parkNanos( this, remaining );
+        }
+        waitingProducer = null;
+        if ( Thread.interrupted() ) {
+          return false;
+        }
+      }
+      tries++;
+    }
+    return true;
+  }
+
+  /**
+   * Wait until the producer published a row after the given sequence, until the row set is done or until the timeout
+   * expires.
+   *
+   * @return true if a row is available
+   */
+  private boolean waitForData( long currentHead, long timeoutNanos ) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    int tries = 0;
+    while ( ( cachedTail = tail.get() ) <= currentHead ) {
+      if ( done.get() ) {
+        // The last row is always published before the done flag, check one last time
+        cachedTail = tail.get();
+        return cachedTail > currentHead;
+      }
+      if ( tries < SPIN_TRIES ) {
+        Thread.onSpinWait();
+      } else if ( tries < SPIN_TRIES + YIELD_TRIES ) {
+        Thread.yield();
+      } else {
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 ) {
+          return false;
+        }
+        waitingConsumer = Thread.currentThread();
+        // Re-check after announcing ourselves, the producer might have published a row in between
+        if ( tail.get() <= currentHead && !done.get() ) {
+          LockSupport.parkNanos( this, remaining );
+        }
+        waitingConsumer = null;
+        if ( Thread.interrupted() ) {
+          return false;
+        }
+      }
+      tries++;
+    }
+    return true;
+  }
+
+  @Override
+  public void setDone() {
+    super.setDone();
+    Thread consumer = waitingConsumer;
+    if ( consumer != null ) {
+      LockSupport.unpark( consumer );
+    }
+  }
+
+  @Override
+  public int size() {
+    return (int) ( tail.get() - head.get() );
+  }
+
+  /**
+   * @return the maximum number of rows this row set can hold
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill( buffer, null );
+    head.set( 0L );
+    tail.set( 0L );
+    cachedHead = 0L;
+    cachedTail = 0L;
+    done.set( false );
+  }
+
+  /**
+   * Padding before the sequence value so that it doesn't share a cache line with the fields before it.
+   */
+  @SuppressWarnings( "unused" )
+  static class LeftPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+  }
+
+  static class SequenceValue extends LeftPadding {
+    protected volatile long value;
+
+    long get() {
+      return value;
+    }
+
+    /**
+     * A full volatile write: it orders the publication of a slot before the read of the peer's waiting flag so that a
+     * parking peer can't miss the signal.
+     */
+    void set( long newValue ) {
+      value = newValue;
+    }
+  }
+
+  /**
+   * A sequence padded on both sides onto its own cache line.
+   */
+  @SuppressWarnings( "unused" )
+  static final class Sequence extends SequenceValue {
+    protected long p9, p10, p11, p12, p13, p14, p15;
+  }
+}
@@ -13,6 +13,8 @@
 
 package org.pentaho.di.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -47,6 +49,28 @@ public interface RowSet {
    */
   boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu );
 
+  /**
+   * Offer a batch of rows to this rowset providing for the description (metadata) of the rows. If the buffer is full,
+   * wait (block) for a small period of time. Rows are added in the order of the list.
+   *
+   * @param rowMeta
+   *          The description of the row data
+   * @param rows
+   *          the rows of data
+   * @return the number of rows, counted from the start of the list, that were added to the rowset. The remaining rows
+   *         have to be offered again.
+   */
+  default int putRows( RowMetaInterface rowMeta, List<Object[]> rows ) {
+    int nrAdded = 0;
+    for ( Object[] row : rows ) {
+      if ( !putRow( rowMeta, row ) ) {
+        break;
+      }
+      nrAdded++;
+    }
+    return nrAdded;
+  }
+
   /**
    * Get a row from the input buffer, it blocks for a short period until a new row becomes available. Otherwise, it
    * returns null.
@@ -55,6 +79,27 @@ public interface RowSet {
    */
   Object[] getRow();
 
+  /**
+   * Get up to max rows from the input buffer, it blocks for a short period until the first row becomes available. The
+   * other rows are only taken if they are available immediately.
+   *
+   * @param max
+   *          the maximum number of rows to return
+   * @return the rows of data in the order they were put, an empty list if no row is available.
+   */
+  default List<Object[]> getRows( int max ) {
+    List<Object[]> rows = new ArrayList<>();
+    Object[] row = getRow();
+    while ( row != null ) {
+      rows.add( row );
+      if ( rows.size() >= max ) {
+        break;
+      }
+      row = getRowImmediate();
+    }
+    return rows;
+  }
+
   /**
    * Get the first row in the list immediately.
    *
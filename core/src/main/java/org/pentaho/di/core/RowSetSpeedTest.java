@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+/**
+ * Measures the number of rows per second a single hop can pass from one producing thread to one consuming thread for
+ * the available row set implementations.
+ */
+public class RowSetSpeedTest {
+  private static final Log log = LogFactory.getLog( RowSetSpeedTest.class );
+
+  public static final int ITERATIONS = 10000000;
+  public static final int ROWSET_SIZE = 10000;
+
+  private RowMetaInterface rowMeta;
+  private Object[] row;
+
+  public RowSetSpeedTest() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    row = new Object[] { Long.valueOf( 1L ) };
+  }
+
+  /**
+   * Pass the given number of rows through the row set with one producer and one consumer thread.
+   *
+   * @return the elapsed time in ms
+   */
+  public long runTest( final RowSet rowSet, final int iterations ) throws InterruptedException {
+    Thread producer = new Thread( () -> {
+      for ( int i = 0; i < iterations; i++ ) {
+        while ( !rowSet.putRow( rowMeta, row ) ) {
+          // wait for room, just like BaseStep.putRow() does
+        }
+      }
+      rowSet.setDone();
+    }, "producer" );
+
+    long startTime = System.currentTimeMillis();
+    producer.start();
+
+    long count = 0;
+    Object[] r = rowSet.getRow();
+    while ( r != null || !rowSet.isDone() || rowSet.size() > 0 ) {
+      if ( r != null ) {
+        count++;
+      }
+      r = rowSet.getRow();
+    }
+    producer.join();
+
+    long stopTime = System.currentTimeMillis();
+
+    if ( count != iterations ) {
+      throw new IllegalStateException( "Expected " + iterations + " rows but received " + count );
+    }
+    return stopTime - startTime;
+  }
+
+  public static void main( String[] args ) throws InterruptedException {
+    RowSetSpeedTest speedTest = new RowSetSpeedTest();
+
+    StringBuilder runtimeTestMessage = new StringBuilder();
+    for ( int run = 0; run < 3; run++ ) {
+      runtimeTestMessage.append( "\nRun " + ( run + 1 ) + "\n" );
+      appendResult( runtimeTestMessage, "BlockingRowSet", speedTest.runTest(
+        new BlockingRowSet( ROWSET_SIZE ), ITERATIONS ) );
+      appendResult( runtimeTestMessage, "BlockingBatchingRowSet", speedTest.runTest(
+        new BlockingBatchingRowSet( ROWSET_SIZE ), ITERATIONS ) );
+      appendResult( runtimeTestMessage, "RingBufferRowSet", speedTest.runTest(
+        new RingBufferRowSet( ROWSET_SIZE ), ITERATIONS ) );
+    }
+
+    log.info( runtimeTestMessage );
+  }
+
+  private static void appendResult( StringBuilder message, String name, long time ) {
+    message.append( "Time to pass " + ITERATIONS + " rows through '" + name + "' : " + time + " ms ("
+      + ( 1000L * ITERATIONS / Math.max( 1L, time ) ) + " r/s)\n" );
+  }
+}
@@ -86,7 +86,6 @@ import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.plugins.DatabasePluginType;
 import org.pentaho.di.core.plugins.PluginInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
-import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMeta;
@@ -193,6 +192,9 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   private Statement selStmt;
   private PreparedStatement pstmt;
   private PreparedStatement prepStatementLookup;
+  private PreparedStatement prepStatementLookupBatch;
+  private String lookupBatchSql;
+  private RowMetaInterface lookupBatchRowMeta;
   private PreparedStatement prepStatementUpdate;
   private PreparedStatement prepStatementInsert;
   private PreparedStatement pstmtSeq;
@@ -202,6 +204,11 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
   private RowMetaInterface rowMeta;
 
+  /**
+   * Reads the rows of the last row metadata a row was read with
+   */
+  private ResultSetRowReader rowReader;
+
   private int written;
 
   private LogChannelInterface log;
@@ -791,6 +798,11 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
       tryCloseAndLog( prepStatementLookup, "lookup statement" );
       prepStatementLookup = null;
     }
+    if ( prepStatementLookupBatch != null ) {
+      tryCloseAndLog( prepStatementLookupBatch, "lookup batch statement" );
+      prepStatementLookupBatch = null;
+      lookupBatchSql = null;
+    }
     if ( prepStatementInsert != null ) {
       tryCloseAndLog( prepStatementInsert, "insert statement" );
       prepStatementInsert = null;
@@ -1493,7 +1505,22 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   }
 
   public String getInsertStatement( String schemaName, String tableName, RowMetaInterface fields ) {
-    StringBuilder ins = new StringBuilder( 128 );
+    return getInsertStatement( schemaName, tableName, fields, 1 );
+  }
+
+  /**
+   * Get the statement to insert a number of rows at once: INSERT INTO table (...) VALUES (?, ...), (?, ...), ...<br>
+   * The values of row r (zero based) and field f go to parameter r * fields.size() + f + 1.
+   *
+   * @param schemaName the schema of the table
+   * @param tableName  the table to insert into
+   * @param fields     the fields of a row
+   * @param nrRows     the number of rows to insert with the statement
+   * @return the insert statement
+   * @see DatabaseMeta#supportsMultiRowInsert()
+   */
+  public String getInsertStatement( String schemaName, String tableName, RowMetaInterface fields, int nrRows ) {
+    StringBuilder ins = new StringBuilder( 128 + nrRows * fields.size() * 3 );
 
     String schemaTable = databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName );
     ins.append( "INSERT INTO " ).append( schemaTable ).append( " (" );
@@ -1506,16 +1533,22 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
       String name = fields.getValueMeta( i ).getName();
       ins.append( databaseMeta.quoteField( name ) );
     }
-    ins.append( ") VALUES (" );
+    ins.append( ") VALUES " );
 
     // Add placeholders...
-    for ( int i = 0; i < fields.size(); i++ ) {
-      if ( i > 0 ) {
+    for ( int r = 0; r < nrRows; r++ ) {
+      if ( r > 0 ) {
         ins.append( ", " );
       }
-      ins.append( " ?" );
+      ins.append( '(' );
+      for ( int i = 0; i < fields.size(); i++ ) {
+        if ( i > 0 ) {
+          ins.append( ", " );
+        }
+        ins.append( " ?" );
+      }
+      ins.append( ')' );
     }
-    ins.append( ')' );
 
     return ins.toString();
   }
@@ -3015,34 +3048,86 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     long startTime = System.currentTimeMillis();
 
     try {
-      // PDI-19750 - synchronize on the connection to prevent data inconsistency
-      // when multiple Database objects share the same connection and access ResultSets concurrently
-      synchronized ( connection ) {
-        int nrcols = rowInfo.size();
-        Object[] data = RowDataUtil.allocateRowData( nrcols );
-
-        if ( rs.next() ) {
-          for ( int i = 0; i < nrcols; i++ ) {
-            ValueMetaInterface val = rowInfo.getValueMeta( i );
-
-            data[ i ] = databaseMeta.getValueFromResultSet( rs, val, i );
-          }
-        } else {
-          data = null;
+      ResultSetRowReader reader = getRowReader( rowInfo );
+      if ( isConnectionShared() ) {
+        // PDI-19750 - synchronize on the connection to prevent data inconsistency
+        // when multiple Database objects share the same connection and access ResultSets concurrently
+        synchronized ( connection ) {
+          return rs.next() ? reader.readRow( rs ) : null;
         }
-
-        return data;
       }
+      return rs.next() ? reader.readRow( rs ) : null;
     } catch ( Exception ex ) {
       throw new KettleDatabaseException( "Couldn't get row from result set", ex );
     } finally {
-      if ( log.isGatheringMetrics() ) {
-        long time = System.currentTimeMillis() - startTime;
-        log.snap( Metrics.METRIC_DATABASE_GET_ROW_SUM_TIME, databaseMeta.getName(), time );
-        log.snap( Metrics.METRIC_DATABASE_GET_ROW_MIN_TIME, databaseMeta.getName(), time );
-        log.snap( Metrics.METRIC_DATABASE_GET_ROW_MAX_TIME, databaseMeta.getName(), time );
-        log.snap( Metrics.METRIC_DATABASE_GET_ROW_COUNT, databaseMeta.getName() );
+      snapGetRowMetrics( startTime );
+    }
+  }
+
+  /**
+   * Get the next block of rows from the resultset. Reading a block at a time saves the work done for every row, so
+   * reading is limited by the driver instead.
+   *
+   * @param rs      The resultset to get the rows from
+   * @param rowInfo The metadata of the rows
+   * @param maxRows The maximum number of rows to get
+   * @return the rows, fewer than the maximum once the last row was read and an empty list after that.
+   */
+  public List<Object[]> getRowBlock( ResultSet rs, RowMetaInterface rowInfo, int maxRows )
+    throws KettleDatabaseException {
+    long startTime = System.currentTimeMillis();
+
+    try {
+      ResultSetRowReader reader = getRowReader( rowInfo );
+      if ( isConnectionShared() ) {
+        // PDI-19750 - the rows of a block are read with one lock on the shared connection
+        synchronized ( connection ) {
+          return readRowBlock( rs, reader, maxRows );
+        }
       }
+      return readRowBlock( rs, reader, maxRows );
+    } catch ( Exception ex ) {
+      throw new KettleDatabaseException( "Couldn't get rows from result set", ex );
+    } finally {
+      snapGetRowMetrics( startTime );
+    }
+  }
+
+  private List<Object[]> readRowBlock( ResultSet rs, ResultSetRowReader reader, int maxRows )
+    throws SQLException, KettleDatabaseException {
+    List<Object[]> rows = new ArrayList<>( maxRows );
+    while ( rows.size() < maxRows && rs.next() ) {
+      rows.add( reader.readRow( rs ) );
+    }
+    return rows;
+  }
+
+  /**
+   * @return the reader of the rows with the given metadata, the one of the previous rows if it is the same
+   */
+  private ResultSetRowReader getRowReader( RowMetaInterface rowInfo ) {
+    ResultSetRowReader reader = rowReader;
+    if ( reader == null || !reader.isReaderOf( rowInfo ) ) {
+      reader = new ResultSetRowReader( databaseMeta, rowInfo );
+      rowReader = reader;
+    }
+    return reader;
+  }
+
+  /**
+   * @return true if other database objects use the same connection, as they do in a connection group
+   */
+  private boolean isConnectionShared() {
+    return !Utils.isEmpty( connectionGroup );
+  }
+
+  private void snapGetRowMetrics( long startTime ) {
+    if ( log.isGatheringMetrics() ) {
+      long time = System.currentTimeMillis() - startTime;
+      log.snap( Metrics.METRIC_DATABASE_GET_ROW_SUM_TIME, databaseMeta.getName(), time );
+      log.snap( Metrics.METRIC_DATABASE_GET_ROW_MIN_TIME, databaseMeta.getName(), time );
+      log.snap( Metrics.METRIC_DATABASE_GET_ROW_MAX_TIME, databaseMeta.getName(), time );
+      log.snap( Metrics.METRIC_DATABASE_GET_ROW_COUNT, databaseMeta.getName() );
     }
   }
 
@@ -3129,6 +3214,130 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     }
   }
 
+  /**
+   * Looks up the rows of many keys in one query. The key fields with condition "=" get their values from the keys, a
+   * single one with IN ( ... ), more of them with an OR of their combinations. The other conditions can only be IS
+   * NULL or IS NOT NULL. The statement is prepared again only when the number of keys changes.
+   *
+   * @param keyMeta the metadata of the values of the key fields with condition "="
+   * @param keys    the values of the keys to look up
+   * @return all the rows found in the order of orderby: the key fields with condition "=" followed by the gets
+   * @throws KettleDatabaseException in case a condition can't be used in a batch or the query fails
+   */
+  public List<Object[]> getLookupBatch( String schemaName, String tableName, String[] codes, String[] condition,
+                                        String[] gets, String[] rename, String orderby, RowMetaInterface keyMeta,
+                                        List<Object[]> keys ) throws KettleDatabaseException {
+    log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_START, databaseMeta.getName() );
+    try {
+      String table = databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName );
+
+      StringBuilder select = new StringBuilder( "SELECT " );
+      StringBuilder where = new StringBuilder( " WHERE " );
+      List<String> keyFields = new ArrayList<>();
+      for ( int i = 0; i < codes.length; i++ ) {
+        String field = databaseMeta.quoteField( codes[ i ] );
+        if ( "=".equals( condition[ i ] ) ) {
+          select.append( field ).append( ", " );
+          keyFields.add( field );
+        } else if ( "IS NULL".equalsIgnoreCase( condition[ i ] ) || "IS NOT NULL".equalsIgnoreCase( condition[ i ] ) ) {
+          where.append( field ).append( " " ).append( condition[ i ] ).append( " AND " );
+        } else {
+          throw new KettleDatabaseException( "Condition " + condition[ i ] + " on field " + codes[ i ]
+            + " can't be used in a batched lookup" );
+        }
+      }
+
+      if ( keyFields.isEmpty() ) {
+        throw new KettleDatabaseException( "A batched lookup needs at least one key field with condition =" );
+      }
+
+      for ( int i = 0; i < gets.length; i++ ) {
+        if ( i != 0 ) {
+          select.append( ", " );
+        }
+        select.append( databaseMeta.quoteField( gets[ i ] ) );
+        if ( rename != null && rename[ i ] != null && !gets[ i ].equalsIgnoreCase( rename[ i ] ) ) {
+          select.append( " AS " ).append( databaseMeta.quoteField( rename[ i ] ) );
+        }
+      }
+
+      if ( keyFields.size() == 1 ) {
+        where.append( keyFields.get( 0 ) ).append( " IN ( " );
+        for ( int k = 0; k < keys.size(); k++ ) {
+          where.append( k == 0 ? "?" : ", ?" );
+        }
+        where.append( " )" );
+      } else {
+        where.append( "( " );
+        for ( int k = 0; k < keys.size(); k++ ) {
+          if ( k != 0 ) {
+            where.append( " OR " );
+          }
+          where.append( "( " );
+          for ( int i = 0; i < keyFields.size(); i++ ) {
+            if ( i != 0 ) {
+              where.append( " AND " );
+            }
+            where.append( keyFields.get( i ) ).append( " = ?" );
+          }
+          where.append( " )" );
+        }
+        where.append( " )" );
+      }
+
+      StringBuilder sql = select.append( " FROM " ).append( table ).append( where );
+      if ( orderby != null && orderby.length() != 0 ) {
+        sql.append( " ORDER BY " ).append( orderby );
+      }
+
+      try {
+        if ( !sql.toString().equals( lookupBatchSql ) ) {
+          if ( prepStatementLookupBatch != null ) {
+            closePreparedStatement( prepStatementLookupBatch );
+            prepStatementLookupBatch = null;
+          }
+          if ( log.isDetailed() ) {
+            log.logDetailed( "Setting lookup batch preparedStatement to [" + sql + "]" );
+          }
+          prepStatementLookupBatch = connection.prepareStatement( databaseMeta.stripCR( sql.toString() ) );
+          lookupBatchSql = sql.toString();
+          lookupBatchRowMeta = null;
+        }
+
+        int index = 1;
+        for ( Object[] key : keys ) {
+          for ( int i = 0; i < keyMeta.size(); i++ ) {
+            setValue( prepStatementLookupBatch, keyMeta.getValueMeta( i ), key[ i ], index++ );
+          }
+        }
+
+        try ( ResultSet res = prepStatementLookupBatch.executeQuery() ) {
+          if ( lookupBatchRowMeta == null ) {
+            lookupBatchRowMeta = getRowInfo( res.getMetaData(), databaseMeta.isMySQLVariant(), false );
+          }
+          List<Object[]> rows = new ArrayList<>();
+          Object[] row = getRow( res, null, lookupBatchRowMeta );
+          while ( row != null ) {
+            rows.add( row );
+            row = getRow( res, null, lookupBatchRowMeta );
+          }
+          return rows;
+        }
+      } catch ( SQLException ex ) {
+        throw new KettleDatabaseException( "Error looking up rows in database [" + sql + "]", ex );
+      }
+    } finally {
+      log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_STOP, databaseMeta.getName() );
+    }
+  }
+
+  /**
+   * @return the metadata of the rows returned by the last getLookupBatch()
+   */
+  public RowMetaInterface getLookupBatchRowMeta() {
+    return lookupBatchRowMeta;
+  }
+
   public boolean prepareUpdate( String table, String[] codes, String[] condition, String[] sets ) {
     return prepareUpdate( null, table, codes, condition, sets );
   }
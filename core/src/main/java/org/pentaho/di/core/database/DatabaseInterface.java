@@ -991,6 +991,14 @@ public interface DatabaseInterface extends Cloneable {
    */
   boolean supportsErrorHandlingOnBatchUpdates();
 
+  /**
+   * @return true if the database can insert many rows with one statement (INSERT INTO ... VALUES (...), (...), ...)
+   *         and does that faster than with a batch of single row inserts.
+   */
+  default boolean supportsMultiRowInsert() {
+    return false;
+  }
+
   /**
    * Get the SQL to insert a new empty unknown record in a dimension.
    *
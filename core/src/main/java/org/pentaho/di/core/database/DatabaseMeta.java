@@ -2989,6 +2989,10 @@ public class DatabaseMeta extends SharedObjectBase implements Cloneable, XMLInte
     return databaseInterface.supportsErrorHandlingOnBatchUpdates();
   }
 
+  public boolean supportsMultiRowInsert() {
+    return databaseInterface.supportsMultiRowInsert();
+  }
+
   /**
    * Get the SQL to insert a new empty unknown record in a dimension.
    *
@@ -521,6 +521,11 @@ public class MSSQLServerDatabaseMeta extends BaseDatabaseMeta implements Databas
     return true;
   }
 
+  @Override
+  public boolean supportsMultiRowInsert() {
+    return true;
+  }
+
   @Override
   public int getMaxVARCHARLength() {
     return 8000;
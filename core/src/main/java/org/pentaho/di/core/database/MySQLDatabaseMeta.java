@@ -466,6 +466,10 @@ public class MySQLDatabaseMeta extends BaseDatabaseMeta implements DatabaseInter
     return true;
   }
 
+  @Override public boolean supportsMultiRowInsert() {
+    return true;
+  }
+
   @Override public boolean isRequiringTransactionsOnQueries() {
     return false;
   }
@@ -513,6 +513,11 @@ public class PostgreSQLDatabaseMeta extends BaseDatabaseMeta implements Database
     return false;
   }
 
+  @Override
+  public boolean supportsMultiRowInsert() {
+    return true;
+  }
+
   /**
    * PG needs the extra E in front of the string before it allows you to quote it. Imagine that.
    *
@@ -0,0 +1,178 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import java.sql.Blob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+
+/**
+ * Reads the rows of a result set with a reader per column. The reader of a column is picked once for the row
+ * metadata instead of for every value read.
+ * <p>
+ * A database type or a value type that reads values its own way keeps doing so: its columns are read through
+ * {@link DatabaseMeta#getValueFromResultSet(ResultSet, ValueMetaInterface, int)} like before.
+ */
+class ResultSetRowReader {
+
+  @FunctionalInterface
+  private interface ColumnReader {
+    Object read( ResultSet rs ) throws SQLException, KettleDatabaseException;
+  }
+
+  /**
+   * Whether a class reads values its own way, looked up once per class: the readers are created for every lookup
+   * query executed by some steps.
+   */
+  private static final ClassValue<Boolean> DATABASE_META_READS_VALUES = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue( Class<?> type ) {
+      return overridesGetValue( type, DatabaseMeta.class, ResultSet.class, ValueMetaInterface.class, int.class );
+    }
+  };
+  private static final ClassValue<Boolean> DATABASE_INTERFACE_READS_VALUES = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue( Class<?> type ) {
+      return overridesGetValue( type, BaseDatabaseMeta.class, ResultSet.class, ValueMetaInterface.class, int.class );
+    }
+  };
+  private static final ClassValue<Boolean> VALUE_META_READS_VALUES = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue( Class<?> type ) {
+      return overridesGetValue( type, ValueMetaBase.class, DatabaseInterface.class, ResultSet.class, int.class );
+    }
+  };
+
+  private final RowMetaInterface rowMeta;
+  private final ColumnReader[] readers;
+
+  /**
+   * @param databaseMeta the database the result set comes from
+   * @param rowMeta      the metadata of the rows to read
+   */
+  ResultSetRowReader( DatabaseMeta databaseMeta, RowMetaInterface rowMeta ) {
+    this.rowMeta = rowMeta;
+
+    DatabaseInterface databaseInterface = databaseMeta.getDatabaseInterface();
+    boolean specialize = databaseInterface != null
+      && !DATABASE_META_READS_VALUES.get( databaseMeta.getClass() )
+      && !DATABASE_INTERFACE_READS_VALUES.get( databaseInterface.getClass() );
+
+    readers = new ColumnReader[ rowMeta.size() ];
+    for ( int i = 0; i < readers.length; i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      ColumnReader reader = specialize ? getColumnReader( databaseInterface, valueMeta, i + 1 ) : null;
+      if ( reader == null ) {
+        final int index = i;
+        reader = rs -> databaseMeta.getValueFromResultSet( rs, valueMeta, index );
+      }
+      readers[ i ] = reader;
+    }
+  }
+
+  /**
+   * @return true if this reader reads rows with the given metadata
+   */
+  boolean isReaderOf( RowMetaInterface rowMeta ) {
+    return this.rowMeta == rowMeta;
+  }
+
+  /**
+   * Reads the current row of the result set.
+   *
+   * @param rs the result set, positioned on a row
+   * @return the values of the row
+   * @throws KettleDatabaseException in case a value couldn't be read
+   */
+  Object[] readRow( ResultSet rs ) throws KettleDatabaseException {
+    Object[] data = RowDataUtil.allocateRowData( readers.length );
+    for ( int i = 0; i < readers.length; i++ ) {
+      try {
+        data[ i ] = readers[ i ].read( rs );
+      } catch ( SQLException e ) {
+        throw new KettleDatabaseException( "Unable to get value '" + rowMeta.getValueMeta( i ).toStringMeta()
+          + "' from database resultset, index " + i, e );
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Picks the reader for a column the same way {@link ValueMetaBase} reads a value from a result set.
+   *
+   * @param column the column number (1-based)
+   * @return the reader, null in case the value has to be read by the value metadata itself
+   */
+  private static ColumnReader getColumnReader( DatabaseInterface databaseInterface, ValueMetaInterface valueMeta,
+                                               int column ) {
+    if ( !( valueMeta instanceof ValueMetaBase ) || VALUE_META_READS_VALUES.get( valueMeta.getClass() ) ) {
+      return null;
+    }
+
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return rs -> nullIfWasNull( rs, Boolean.valueOf( rs.getBoolean( column ) ) );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return rs -> nullIfWasNull( rs, Double.valueOf( rs.getDouble( column ) ) );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return rs -> nullIfWasNull( rs, rs.getBigDecimal( column ) );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return rs -> nullIfWasNull( rs, Long.valueOf( rs.getLong( column ) ) );
+      case ValueMetaInterface.TYPE_STRING:
+        if ( valueMeta.isStorageBinaryString() ) {
+          return rs -> nullIfWasNull( rs, rs.getBytes( column ) );
+        }
+        return rs -> nullIfWasNull( rs, rs.getString( column ) );
+      case ValueMetaInterface.TYPE_BINARY:
+        if ( databaseInterface.supportsGetBlob() ) {
+          return rs -> {
+            Blob blob = rs.getBlob( column );
+            return nullIfWasNull( rs, blob != null ? blob.getBytes( 1L, (int) blob.length() ) : null );
+          };
+        }
+        return rs -> nullIfWasNull( rs, rs.getBytes( column ) );
+      case ValueMetaInterface.TYPE_DATE:
+        if ( valueMeta.getPrecision() != 1 && databaseInterface.supportsTimeStampToDateConversion() ) {
+          return rs -> nullIfWasNull( rs, rs.getTimestamp( column ) );
+        }
+        if ( databaseInterface instanceof NetezzaDatabaseMeta ) {
+          return null;
+        }
+        return rs -> nullIfWasNull( rs, rs.getDate( column ) );
+      default:
+        return null;
+    }
+  }
+
+  private static Object nullIfWasNull( ResultSet rs, Object value ) throws SQLException {
+    return rs.wasNull() ? null : value;
+  }
+
+  /**
+   * @return true if the class has its own way of getting a value from a result set
+   */
+  private static boolean overridesGetValue( Class<?> clazz, Class<?> baseClass, Class<?>... parameterTypes ) {
+    try {
+      return clazz.getMethod( "getValueFromResultSet", parameterTypes ).getDeclaringClass() != baseClass;
+    } catch ( NoSuchMethodException e ) {
+      return true;
+    }
+  }
+}
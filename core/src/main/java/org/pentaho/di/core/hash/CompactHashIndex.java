@@ -0,0 +1,598 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A hash index of key rows to value rows that doesn't keep an object per row. The rows are numbered in the order they
+ * are added and every field is kept in a column of primitive values by row number: integers, numbers and dates as 8
+ * bytes, booleans as 1 byte and strings as the 4 byte number of the string in a dictionary of the distinct strings.
+ * Fields of the other types are kept as objects. The hash table itself is an array of row numbers with open
+ * addressing.<br>
+ * <br>
+ * The columns can be kept off-heap, in direct byte buffers, so that they don't count for the heap and the garbage
+ * collector. The strings of the dictionary always stay on the heap.<br>
+ * <br>
+ * Looking up a key doesn't allocate anything. Once all the rows are added, the index can be read by several threads at
+ * the same time.
+ */
+public class CompactHashIndex {
+
+  private static final int STANDARD_INDEX_SIZE = 1024;
+  private static final float STANDARD_LOAD_FACTOR = 0.75f;
+  private static final int MAXIMUM_INDEX_SIZE = 1 << 30;
+
+  private static final int PAGE_BITS = 20;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+  private static final int OBJECT_PAGE_BITS = 16;
+
+  private static final long NULL_CODE = 0x5DEECE66DL;
+
+  private final RowMetaInterface keyMeta;
+  private final RowMetaInterface valueMeta;
+  private final boolean offHeap;
+
+  private final Column[] keyColumns;
+  private final Column[] valueColumns;
+  private final StringDictionary dictionary;
+
+  // The row number + 1 of the key in every slot, 0 for an empty slot
+  private int[] index;
+  private int size;
+  private int resizeThresHold;
+
+  private final ThreadLocal<Probe> probes;
+
+  /**
+   * Create a new compact hash index
+   *
+   * @param keyMeta
+   *          the layout of the keys, in normal storage. The types have to be supported, see supportsKeys()
+   * @param valueMeta
+   *          the layout of the values, in normal storage
+   * @param offHeap
+   *          true to keep the columns in direct byte buffers
+   */
+  public CompactHashIndex( RowMetaInterface keyMeta, RowMetaInterface valueMeta, boolean offHeap )
+    throws KettleValueException {
+    if ( !supportsKeys( keyMeta ) ) {
+      throw new KettleValueException( "The compact hash index only supports keys of type Integer, Number, Date, "
+        + "Boolean and String" );
+    }
+    this.keyMeta = keyMeta;
+    this.valueMeta = valueMeta;
+    this.offHeap = offHeap;
+    this.dictionary = new StringDictionary();
+
+    keyColumns = new Column[ keyMeta.size() ];
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      keyColumns[ i ] = new Column( keyMeta.getValueMeta( i ), true );
+    }
+    valueColumns = new Column[ valueMeta.size() ];
+    for ( int i = 0; i < valueColumns.length; i++ ) {
+      valueColumns[ i ] = new Column( valueMeta.getValueMeta( i ), false );
+    }
+
+    index = new int[ STANDARD_INDEX_SIZE ];
+    resizeThresHold = (int) ( STANDARD_INDEX_SIZE * STANDARD_LOAD_FACTOR );
+    probes = ThreadLocal.withInitial( () -> new Probe( keyColumns.length ) );
+  }
+
+  /**
+   * @return true if the keys can be kept in a compact hash index: all of them are of type Integer, Number, Date, Boolean
+   *         or String
+   */
+  public static boolean supportsKeys( RowMetaInterface keyMeta ) {
+    for ( int i = 0; i < keyMeta.size(); i++ ) {
+      switch ( keyMeta.getValueMeta( i ).getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+        case ValueMetaInterface.TYPE_NUMBER:
+        case ValueMetaInterface.TYPE_DATE:
+        case ValueMetaInterface.TYPE_BOOLEAN:
+        case ValueMetaInterface.TYPE_STRING:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public RowMetaInterface getKeyMeta() {
+    return keyMeta;
+  }
+
+  public RowMetaInterface getValueMeta() {
+    return valueMeta;
+  }
+
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  /**
+   * Add a row to the index. The values of a key that is already in the index are replaced, like in a hash map.
+   */
+  public void put( Object[] keyData, Object[] valueData ) throws KettleValueException {
+    Probe probe = probes.get();
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      keyColumns[ i ].encode( keyData[ i ], probe, i, true );
+    }
+    int hashCode = probe.hashCode();
+
+    int slot = find( probe, hashCode );
+    if ( index[ slot ] != 0 ) {
+      setValues( index[ slot ] - 1, valueData );
+      return;
+    }
+
+    if ( size >= resizeThresHold ) {
+      resize();
+      slot = find( probe, hashCode );
+    }
+
+    int rowNr = size;
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      keyColumns[ i ].setCode( rowNr, probe.codes[ i ], probe.nulls[ i ] );
+    }
+    setValues( rowNr, valueData );
+    index[ slot ] = rowNr + 1;
+    size++;
+  }
+
+  /**
+   * Look up a key without allocating anything.
+   *
+   * @return the number of the row of the key, -1 if the key isn't in the index
+   */
+  public int indexOf( Object[] keyData ) throws KettleValueException {
+    Probe probe = probes.get();
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      if ( !keyColumns[ i ].encode( keyData[ i ], probe, i, false ) ) {
+        return -1; // a string that isn't in the dictionary
+      }
+    }
+    return index[ find( probe, probe.hashCode() ) ] - 1;
+  }
+
+  /**
+   * Copy the values of a row to an array
+   *
+   * @param rowNr
+   *          the number of the row, as returned by indexOf()
+   * @param target
+   *          the array to copy the values to
+   * @param offset
+   *          the position of the first value in the array
+   */
+  public void getValues( int rowNr, Object[] target, int offset ) {
+    for ( int i = 0; i < valueColumns.length; i++ ) {
+      target[ offset + i ] = valueColumns[ i ].get( rowNr );
+    }
+  }
+
+  /**
+   * @return the values of a key in a new array, null if the key isn't in the index
+   */
+  public Object[] get( Object[] keyData ) throws KettleValueException {
+    int rowNr = indexOf( keyData );
+    if ( rowNr < 0 ) {
+      return null;
+    }
+    Object[] valueData = new Object[ valueColumns.length ];
+    getValues( rowNr, valueData, 0 );
+    return valueData;
+  }
+
+  /**
+   * @return the number of bytes of the index and the columns, without the strings of the dictionary and the values that
+   *         are kept as objects
+   */
+  public long getMemorySize() {
+    long memorySize = (long) index.length * 4 + dictionary.getMemorySize();
+    for ( Column column : keyColumns ) {
+      memorySize += column.getMemorySize();
+    }
+    for ( Column column : valueColumns ) {
+      memorySize += column.getMemorySize();
+    }
+    return memorySize;
+  }
+
+  private void setValues( int rowNr, Object[] valueData ) throws KettleValueException {
+    for ( int i = 0; i < valueColumns.length; i++ ) {
+      valueColumns[ i ].set( rowNr, valueData[ i ] );
+    }
+  }
+
+  /**
+   * @return the slot of the key, or the empty slot where it belongs
+   */
+  private int find( Probe probe, int hashCode ) {
+    int mask = index.length - 1;
+    int slot = hashCode & mask;
+    while ( index[ slot ] != 0 && !matches( index[ slot ] - 1, probe ) ) {
+      slot = ( slot + 1 ) & mask;
+    }
+    return slot;
+  }
+
+  private boolean matches( int rowNr, Probe probe ) {
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      boolean isNull = keyColumns[ i ].isNull( rowNr );
+      if ( isNull != probe.nulls[ i ] || ( !isNull && keyColumns[ i ].getCode( rowNr ) != probe.codes[ i ] ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int hashCode( int rowNr ) {
+    long hash = 0L;
+    for ( Column keyColumn : keyColumns ) {
+      hash = combine( hash, keyColumn.isNull( rowNr ) ? NULL_CODE : keyColumn.getCode( rowNr ) );
+    }
+    return mix( hash );
+  }
+
+  private void resize() throws KettleValueException {
+    if ( index.length == MAXIMUM_INDEX_SIZE ) {
+      throw new KettleValueException( "The compact hash index can't hold more than " + size + " rows" );
+    }
+    int[] oldIndex = index;
+    index = new int[ oldIndex.length << 1 ];
+    resizeThresHold = (int) ( index.length * STANDARD_LOAD_FACTOR );
+
+    int mask = index.length - 1;
+    for ( int entry : oldIndex ) {
+      if ( entry != 0 ) {
+        int slot = hashCode( entry - 1 ) & mask;
+        while ( index[ slot ] != 0 ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        index[ slot ] = entry;
+      }
+    }
+  }
+
+  private static long combine( long hash, long code ) {
+    return ( hash + code ) * 0x9E3779B97F4A7C15L;
+  }
+
+  private static int mix( long hash ) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    return (int) hash;
+  }
+
+  /**
+   * The codes of the key that is looked up or added, one per thread.
+   */
+  private static final class Probe {
+    private final long[] codes;
+    private final boolean[] nulls;
+
+    private Probe( int nrKeys ) {
+      codes = new long[ nrKeys ];
+      nulls = new boolean[ nrKeys ];
+    }
+
+    public int hashCode() {
+      long hash = 0L;
+      for ( int i = 0; i < codes.length; i++ ) {
+        hash = combine( hash, nulls[ i ] ? NULL_CODE : codes[ i ] );
+      }
+      return mix( hash );
+    }
+  }
+
+  /**
+   * The values of one field by row number. Keys are kept as a code of 8 bytes that is equal for equal keys, values in
+   * the smallest form they can be restored from.
+   */
+  private final class Column {
+    private final ValueMetaInterface valueMeta;
+    private final Memory memory;
+    private Object[][] objects;
+    private BitSet nulls;
+
+    private Column( ValueMetaInterface valueMeta, boolean key ) {
+      this.valueMeta = valueMeta;
+      switch ( key ? ValueMetaInterface.TYPE_INTEGER : valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+        case ValueMetaInterface.TYPE_NUMBER:
+        case ValueMetaInterface.TYPE_DATE:
+          memory = new Memory( 8, offHeap );
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          memory = new Memory( 1, offHeap );
+          break;
+        case ValueMetaInterface.TYPE_STRING:
+          memory = new Memory( 4, offHeap );
+          break;
+        default:
+          memory = null;
+          objects = new Object[ 0 ][];
+          break;
+      }
+    }
+
+    /**
+     * Store the code of a key in the probe.
+     *
+     * @param add
+     *          true to add a string that isn't in the dictionary yet
+     * @return false if the key is a string that isn't in the dictionary
+     */
+    private boolean encode( Object object, Probe probe, int keyNr, boolean add ) throws KettleValueException {
+      probe.nulls[ keyNr ] = valueMeta.isNull( object );
+      if ( probe.nulls[ keyNr ] ) {
+        probe.codes[ keyNr ] = 0L;
+        return true;
+      }
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          probe.codes[ keyNr ] = valueMeta.getInteger( object );
+          return true;
+        case ValueMetaInterface.TYPE_NUMBER:
+          probe.codes[ keyNr ] = Double.doubleToLongBits( valueMeta.getNumber( object ) );
+          return true;
+        case ValueMetaInterface.TYPE_DATE:
+          probe.codes[ keyNr ] = valueMeta.getDate( object ).getTime();
+          return true;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          probe.codes[ keyNr ] = valueMeta.getBoolean( object ) ? 1L : 0L;
+          return true;
+        default:
+          String string = valueMeta.getString( object );
+          int id = add ? dictionary.add( string ) : dictionary.indexOf( string );
+          probe.codes[ keyNr ] = id;
+          return id >= 0;
+      }
+    }
+
+    private void setCode( int rowNr, long code, boolean isNull ) {
+      memory.putLong( rowNr, code );
+      setNull( rowNr, isNull );
+    }
+
+    private long getCode( int rowNr ) {
+      return memory.getLong( rowNr );
+    }
+
+    private boolean isNull( int rowNr ) {
+      return nulls != null && nulls.get( rowNr );
+    }
+
+    private void setNull( int rowNr, boolean isNull ) {
+      if ( isNull ) {
+        if ( nulls == null ) {
+          nulls = new BitSet();
+        }
+        nulls.set( rowNr );
+      } else if ( nulls != null ) {
+        nulls.clear( rowNr );
+      }
+    }
+
+    private void set( int rowNr, Object object ) throws KettleValueException {
+      boolean isNull = valueMeta.isNull( object );
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          memory.putLong( rowNr, isNull ? 0L : valueMeta.getInteger( object ) );
+          setNull( rowNr, isNull );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          memory.putLong( rowNr, isNull ? 0L : Double.doubleToRawLongBits( valueMeta.getNumber( object ) ) );
+          setNull( rowNr, isNull );
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+          memory.putLong( rowNr, isNull ? 0L : valueMeta.getDate( object ).getTime() );
+          setNull( rowNr, isNull );
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          memory.putByte( rowNr, isNull ? 0 : valueMeta.getBoolean( object ) ? (byte) 2 : (byte) 1 );
+          break;
+        case ValueMetaInterface.TYPE_STRING:
+          memory.putInt( rowNr, isNull ? 0 : dictionary.add( valueMeta.getString( object ) ) + 1 );
+          break;
+        default:
+          int page = rowNr >>> OBJECT_PAGE_BITS;
+          if ( page >= objects.length ) {
+            objects = Arrays.copyOf( objects, Math.max( page + 1, objects.length * 2 ) );
+          }
+          if ( objects[ page ] == null ) {
+            objects[ page ] = new Object[ 1 << OBJECT_PAGE_BITS ];
+          }
+          objects[ page ][ rowNr & ( ( 1 << OBJECT_PAGE_BITS ) - 1 ) ] = isNull ? null : object;
+          break;
+      }
+    }
+
+    private Object get( int rowNr ) {
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          return isNull( rowNr ) ? null : Long.valueOf( memory.getLong( rowNr ) );
+        case ValueMetaInterface.TYPE_NUMBER:
+          return isNull( rowNr ) ? null : Double.valueOf( Double.longBitsToDouble( memory.getLong( rowNr ) ) );
+        case ValueMetaInterface.TYPE_DATE:
+          return isNull( rowNr ) ? null : new Date( memory.getLong( rowNr ) );
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          byte flag = memory.getByte( rowNr );
+          return flag == 0 ? null : Boolean.valueOf( flag == 2 );
+        case ValueMetaInterface.TYPE_STRING:
+          int id = memory.getInt( rowNr );
+          return id == 0 ? null : dictionary.get( id - 1 );
+        default:
+          return objects[ rowNr >>> OBJECT_PAGE_BITS ][ rowNr & ( ( 1 << OBJECT_PAGE_BITS ) - 1 ) ];
+      }
+    }
+
+    private long getMemorySize() {
+      long memorySize = memory == null ? (long) objects.length << ( OBJECT_PAGE_BITS + 2 ) : memory.getMemorySize();
+      return memorySize + ( nulls == null ? 0L : nulls.size() / 8 );
+    }
+  }
+
+  /**
+   * Elements of a fixed number of bytes by their number, in pages that are allocated as they are written to.
+   */
+  private static final class Memory {
+    private final int width;
+    private final boolean direct;
+    private ByteBuffer[] pages = new ByteBuffer[ 0 ];
+
+    private Memory( int width, boolean direct ) {
+      this.width = width;
+      this.direct = direct;
+    }
+
+    private ByteBuffer readPage( long position ) {
+      return pages[ (int) ( position >>> PAGE_BITS ) ];
+    }
+
+    private ByteBuffer writePage( long position ) {
+      int page = (int) ( position >>> PAGE_BITS );
+      if ( page >= pages.length ) {
+        pages = Arrays.copyOf( pages, Math.max( page + 1, pages.length * 2 ) );
+      }
+      if ( pages[ page ] == null ) {
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect( PAGE_SIZE ) : ByteBuffer.allocate( PAGE_SIZE );
+        pages[ page ] = buffer.order( ByteOrder.nativeOrder() );
+      }
+      return pages[ page ];
+    }
+
+    private long getLong( int nr ) {
+      long position = (long) nr * width;
+      return readPage( position ).getLong( (int) ( position & PAGE_MASK ) );
+    }
+
+    private void putLong( int nr, long value ) {
+      long position = (long) nr * width;
+      writePage( position ).putLong( (int) ( position & PAGE_MASK ), value );
+    }
+
+    private int getInt( int nr ) {
+      long position = (long) nr * width;
+      return readPage( position ).getInt( (int) ( position & PAGE_MASK ) );
+    }
+
+    private void putInt( int nr, int value ) {
+      long position = (long) nr * width;
+      writePage( position ).putInt( (int) ( position & PAGE_MASK ), value );
+    }
+
+    private byte getByte( int nr ) {
+      long position = (long) nr * width;
+      return readPage( position ).get( (int) ( position & PAGE_MASK ) );
+    }
+
+    private void putByte( int nr, byte value ) {
+      long position = (long) nr * width;
+      writePage( position ).put( (int) ( position & PAGE_MASK ), value );
+    }
+
+    private long getMemorySize() {
+      long memorySize = 0L;
+      for ( ByteBuffer page : pages ) {
+        if ( page != null ) {
+          memorySize += PAGE_SIZE;
+        }
+      }
+      return memorySize;
+    }
+  }
+
+  /**
+   * The distinct strings of all the columns, numbered in the order they are added.
+   */
+  private static final class StringDictionary {
+    private String[] strings = new String[ STANDARD_INDEX_SIZE ];
+    private int size;
+    // The number + 1 of the string in every slot, 0 for an empty slot
+    private int[] index = new int[ STANDARD_INDEX_SIZE * 2 ];
+
+    private int indexOf( String string ) {
+      int slot = find( string );
+      return index[ slot ] - 1;
+    }
+
+    private int add( String string ) throws KettleValueException {
+      int slot = find( string );
+      if ( index[ slot ] != 0 ) {
+        return index[ slot ] - 1;
+      }
+      if ( size == strings.length ) {
+        if ( index.length == MAXIMUM_INDEX_SIZE ) {
+          throw new KettleValueException( "The compact hash index can't hold more than " + size + " strings" );
+        }
+        strings = Arrays.copyOf( strings, size * 2 );
+        resize();
+        slot = find( string );
+      }
+      strings[ size ] = string;
+      index[ slot ] = ++size;
+      return size - 1;
+    }
+
+    private String get( int id ) {
+      return strings[ id ];
+    }
+
+    private int find( String string ) {
+      int mask = index.length - 1;
+      int slot = mix( string.hashCode() ) & mask;
+      while ( index[ slot ] != 0 && !strings[ index[ slot ] - 1 ].equals( string ) ) {
+        slot = ( slot + 1 ) & mask;
+      }
+      return slot;
+    }
+
+    private void resize() {
+      index = new int[ index.length * 2 ];
+      int mask = index.length - 1;
+      for ( int id = 0; id < size; id++ ) {
+        int slot = mix( strings[ id ].hashCode() ) & mask;
+        while ( index[ slot ] != 0 ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        index[ slot ] = id + 1;
+      }
+    }
+
+    private long getMemorySize() {
+      return (long) strings.length * 4 + (long) index.length * 4;
+    }
+  }
+}
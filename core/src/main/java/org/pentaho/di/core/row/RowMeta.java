@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -53,6 +54,11 @@ public class RowMeta implements RowMetaInterface {
   List<ValueMetaInterface> valueMetaList;
   List<Integer> needRealClone;
 
+  /**
+   * The lock free copy of the metadata, present while this row metadata is frozen.
+   */
+  private volatile Snapshot snapshot;
+
   public RowMeta() {
     this( new ArrayList<ValueMetaInterface>(), new RowMetaCache() );
   }
@@ -135,6 +141,10 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public List<ValueMetaInterface> getValueMetaList() {
+    Snapshot frozen = snapshot;
+    if ( frozen != null ) {
+      return frozen.valueMetaList;
+    }
     List<ValueMetaInterface> copy;
 
     lock.readLock().lock();
@@ -154,6 +164,7 @@ public class RowMeta implements RowMetaInterface {
   public void setValueMetaList( List<ValueMetaInterface> valueMetaList ) {
     lock.writeLock().lock();
     try {
+      this.snapshot = null;
       this.valueMetaList = valueMetaList;
       this.cache.invalidate();
       for ( int i = 0, len = valueMetaList.size(); i < len; i++ ) {
@@ -171,6 +182,10 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public int size() {
+    Snapshot frozen = snapshot;
+    if ( frozen != null ) {
+      return frozen.valueMetas.length;
+    }
     lock.readLock().lock();
     try {
       return valueMetaList.size();
@@ -184,6 +199,10 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public boolean isEmpty() {
+    Snapshot frozen = snapshot;
+    if ( frozen != null ) {
+      return frozen.valueMetas.length == 0;
+    }
     lock.readLock().lock();
     try {
       return valueMetaList.isEmpty();
@@ -214,6 +233,7 @@ public class RowMeta implements RowMetaInterface {
         } else {
           newMeta = renameValueMetaIfInRow( meta, null );
         }
+        snapshot = null;
         int sz = valueMetaList.size();
         valueMetaList.add( newMeta );
         cache.storeMapping( newMeta.getName(), sz );
@@ -243,6 +263,7 @@ public class RowMeta implements RowMetaInterface {
         } else {
           newMeta = renameValueMetaIfInRow( meta, null );
         }
+        snapshot = null;
         valueMetaList.add( index, newMeta );
         cache.storeMapping( newMeta.getName(), index );
         cache.updateFrom( index + 1, valueMetaList );
@@ -261,6 +282,10 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public ValueMetaInterface getValueMeta( int index ) {
+    Snapshot frozen = snapshot;
+    if ( frozen != null ) {
+      return ( index >= 0 && index < frozen.valueMetas.length ) ? frozen.valueMetas[ index ] : null;
+    }
     lock.readLock().lock();
     try {
       if ( ( index >= 0 ) && ( index < valueMetaList.size() ) ) {
@@ -294,6 +319,7 @@ public class RowMeta implements RowMetaInterface {
         if ( existsIndex >= 0 && existsIndex != index ) {
           newMeta = renameValueMetaIfInRow( valueMeta, null );
         }
+        snapshot = null;
         valueMetaList.set( index, newMeta );
         cache.replaceMapping( old.getName(), newMeta.getName(), index );
         needRealClone = null;
@@ -454,6 +480,13 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public Object[] cloneRow( Object[] objects, Object[] newObjects ) throws KettleValueException {
+    Snapshot frozen = snapshot;
+    if ( frozen != null ) {
+      for ( int i : frozen.needRealClone ) {
+        newObjects[ i ] = frozen.valueMetas[ i ].cloneValueData( objects[ i ] );
+      }
+      return newObjects;
+    }
     lock.writeLock().lock();
     List<Integer> list = getOrCreateValuesThatNeedRealClone( valueMetaList );
     try {
@@ -526,6 +559,14 @@ public class RowMeta implements RowMetaInterface {
       return -1;
     }
 
+    Snapshot frozen = snapshot;
+    if ( frozen != null ) {
+      int index = frozen.indexOfValue( valueName );
+      if ( index != Snapshot.UNKNOWN ) {
+        return index;
+      }
+    }
+
     lock.writeLock().lock();
     try {
       Integer index = cache.findAndCompare( valueName, valueMetaList );
@@ -556,6 +597,13 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public ValueMetaInterface searchValueMeta( String valueName ) {
+    Snapshot frozen = snapshot;
+    if ( frozen != null && valueName != null ) {
+      int index = frozen.indexOfValue( valueName );
+      if ( index != Snapshot.UNKNOWN ) {
+        return index < 0 ? null : frozen.valueMetas[ index ];
+      }
+    }
     lock.writeLock().lock();
     try {
       Integer index = indexOfValue( valueName );
@@ -644,6 +692,10 @@ public class RowMeta implements RowMetaInterface {
    */
   @Override
   public String[] getFieldNames() {
+    Snapshot frozen = snapshot;
+    if ( frozen != null ) {
+      return frozen.fieldNames.clone();
+    }
     lock.readLock().lock();
     try {
       String[] retval = new String[ size() ];
@@ -774,6 +826,7 @@ public class RowMeta implements RowMetaInterface {
   public void clear() {
     lock.writeLock().lock();
     try {
+      snapshot = null;
       valueMetaList.clear();
       cache.invalidate();
       needRealClone = null;
@@ -801,6 +854,7 @@ public class RowMeta implements RowMetaInterface {
   public void removeValueMeta( int index ) {
     lock.writeLock().lock();
     try {
+      snapshot = null;
       ValueMetaInterface old = valueMetaList.remove( index );
       if ( old != null ) {
         cache.removeMapping( old.getName() );
@@ -1252,6 +1306,94 @@ public class RowMeta implements RowMetaInterface {
     }
   }
 
+  /**
+   * Freezes this row metadata: until it's modified again, reading the fields, their number and looking up fields by
+   * name no longer takes the lock but reads a copy of the metadata kept in plain arrays and a name to index table. The
+   * metadata on a running hop normally doesn't change after the first row, so the steps freeze the metadata they
+   * receive. Any modification simply thaws the row metadata again.
+   *
+   * @return this row metadata
+   */
+  public RowMeta freeze() {
+    if ( snapshot == null ) {
+      lock.readLock().lock();
+      try {
+        snapshot = new Snapshot( valueMetaList );
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * @return true if this row metadata is frozen and wasn't modified since
+   * @see #freeze()
+   */
+  public boolean isFrozen() {
+    return snapshot != null;
+  }
+
+  /**
+   * An immutable copy of the metadata, read without locking while the row metadata is frozen.
+   */
+  private static final class Snapshot {
+    /** Returned when the snapshot can't tell, the caller has to look it up the slow way. */
+    static final int UNKNOWN = -2;
+
+    final ValueMetaInterface[] valueMetas;
+    final List<ValueMetaInterface> valueMetaList;
+    final String[] fieldNames;
+    final int[] needRealClone;
+    final Map<String, Integer> indexes;
+    final Map<String, Integer> lowerCaseIndexes;
+
+    Snapshot( List<ValueMetaInterface> list ) {
+      valueMetas = list.toArray( new ValueMetaInterface[ list.size() ] );
+      valueMetaList = Collections.unmodifiableList( Arrays.asList( valueMetas.clone() ) );
+      fieldNames = new String[ valueMetas.length ];
+      indexes = new HashMap<>( valueMetas.length * 2 );
+      lowerCaseIndexes = new HashMap<>( valueMetas.length * 2 );
+      int nrRealClone = 0;
+      int[] realClone = new int[ valueMetas.length ];
+      for ( int i = 0; i < valueMetas.length; i++ ) {
+        String name = valueMetas[ i ].getName();
+        fieldNames[ i ] = name == null ? "" : name;
+        if ( name != null ) {
+          indexes.putIfAbsent( name, i );
+          lowerCaseIndexes.putIfAbsent( name.toLowerCase(), i );
+        }
+        if ( valueMetas[ i ].requiresRealClone() ) {
+          realClone[ nrRealClone++ ] = i;
+        }
+      }
+      needRealClone = Arrays.copyOf( realClone, nrRealClone );
+    }
+
+    /**
+     * @return the index of the value, -1 if there is no such value or {@link #UNKNOWN} if a value was renamed since
+     */
+    int indexOfValue( String valueName ) {
+      Integer index = indexes.get( valueName );
+      if ( index == null ) {
+        index = lowerCaseIndexes.get( valueName.toLowerCase() );
+        if ( index == null ) {
+          // Not known by that name, unless a value was renamed to it since
+          //
+          for ( int i = 0; i < valueMetas.length; i++ ) {
+            if ( valueName.equalsIgnoreCase( valueMetas[ i ].getName() ) ) {
+              return UNKNOWN;
+            }
+          }
+          return -1;
+        }
+      }
+      // The value metadata itself can be renamed without us knowing
+      //
+      return valueName.equalsIgnoreCase( valueMetas[ index ].getName() ) ? index : UNKNOWN;
+    }
+  }
+
   @VisibleForTesting
   static class RowMetaCache {
     @VisibleForTesting
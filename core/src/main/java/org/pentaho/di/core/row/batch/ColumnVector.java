@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.batch;
+
+/**
+ * The values of one field for all the rows of a {@link RowBatch}. A column vector is never changed once it is part of
+ * a batch that was passed on, steps that change a field create a new vector for it.<br>
+ * <br>
+ * {@link #getObject(int)} returns the value the way it would be in an <code>Object[]</code> row, the subclasses add
+ * access to the values without boxing them.
+ *
+ * @since 11.1.0.0
+ */
+public abstract class ColumnVector {
+
+  protected final int size;
+
+  protected ColumnVector( int size ) {
+    this.size = size;
+  }
+
+  /**
+   * @return the number of values in this column
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param index the row in the batch
+   * @return true if the value of the row is null
+   */
+  public abstract boolean isNull( int index );
+
+  /**
+   * @param index the row in the batch
+   * @return the value of the row, as it would be stored in an <code>Object[]</code> row
+   */
+  public abstract Object getObject( int index );
+
+  /**
+   * Create a column with only some of the values of this column.
+   *
+   * @param positions the rows to keep, in increasing order
+   * @param count     the number of positions to use
+   * @return a column with count values
+   */
+  public abstract ColumnVector select( int[] positions, int count );
+
+  /**
+   * @param size the number of values
+   * @return an empty null bitmap for the given number of values
+   */
+  public static long[] newNullBitmap( int size ) {
+    return new long[ ( size + 63 ) >>> 6 ];
+  }
+
+  /**
+   * Mark a value as null in a null bitmap.
+   */
+  public static void setNull( long[] nulls, int index ) {
+    nulls[ index >>> 6 ] |= 1L << index;
+  }
+
+  /**
+   * @param nulls the null bitmap, null if there are no null values
+   * @return true if the value is marked as null
+   */
+  public static boolean isNull( long[] nulls, int index ) {
+    return nulls != null && ( nulls[ index >>> 6 ] & ( 1L << index ) ) != 0;
+  }
+
+  /**
+   * @return the null bitmap of the selected values, null if none of them is null
+   */
+  protected static long[] selectNulls( long[] nulls, int[] positions, int count ) {
+    if ( nulls == null ) {
+      return null;
+    }
+    long[] selected = null;
+    for ( int i = 0; i < count; i++ ) {
+      if ( isNull( nulls, positions[ i ] ) ) {
+        if ( selected == null ) {
+          selected = newNullBitmap( count );
+        }
+        setNull( selected, i );
+      }
+    }
+    return selected;
+  }
+}
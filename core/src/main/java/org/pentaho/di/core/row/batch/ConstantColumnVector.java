@@ -0,0 +1,48 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.batch;
+
+/**
+ * A column with the same value in every row, without storing it more than once.
+ *
+ * @since 11.1.0.0
+ */
+public class ConstantColumnVector extends ColumnVector {
+
+  private final Object value;
+
+  /**
+   * @param value the value of every row, can be null
+   * @param size  the number of rows
+   */
+  public ConstantColumnVector( Object value, int size ) {
+    super( size );
+    this.value = value;
+  }
+
+  @Override
+  public boolean isNull( int index ) {
+    return value == null;
+  }
+
+  @Override
+  public Object getObject( int index ) {
+    return value;
+  }
+
+  @Override
+  public ColumnVector select( int[] positions, int count ) {
+    return new ConstantColumnVector( value, count );
+  }
+}
@@ -0,0 +1,69 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.batch;
+
+/**
+ * A column of Number values, stored as primitive doubles with a null bitmap.
+ *
+ * @since 11.1.0.0
+ */
+public class DoubleColumnVector extends ColumnVector {
+
+  private final double[] values;
+  private final long[] nulls;
+
+  /**
+   * @param values the values, the value of a null is ignored
+   * @param nulls  the null bitmap as created by {@link #newNullBitmap(int)} or null if there are no null values
+   * @param size   the number of values
+   */
+  public DoubleColumnVector( double[] values, long[] nulls, int size ) {
+    super( size );
+    this.values = values;
+    this.nulls = nulls;
+  }
+
+  /**
+   * @return the value of the row, only meaningful when it isn't null
+   */
+  public double getDouble( int index ) {
+    return values[ index ];
+  }
+
+  /**
+   * @return true if there is at least one null value in the column
+   */
+  public boolean hasNulls() {
+    return nulls != null;
+  }
+
+  @Override
+  public boolean isNull( int index ) {
+    return isNull( nulls, index );
+  }
+
+  @Override
+  public Object getObject( int index ) {
+    return isNull( nulls, index ) ? null : Double.valueOf( values[ index ] );
+  }
+
+  @Override
+  public ColumnVector select( int[] positions, int count ) {
+    double[] selected = new double[ count ];
+    for ( int i = 0; i < count; i++ ) {
+      selected[ i ] = values[ positions[ i ] ];
+    }
+    return new DoubleColumnVector( selected, selectNulls( nulls, positions, count ), count );
+  }
+}
@@ -0,0 +1,53 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.batch;
+
+/**
+ * A column of values that are kept as objects: strings, binary data (<code>byte[]</code>), dates, big numbers and the
+ * values of fields that don't use the normal storage type.
+ *
+ * @since 11.1.0.0
+ */
+public class ObjectColumnVector extends ColumnVector {
+
+  private final Object[] values;
+
+  /**
+   * @param values the values, null for a null value
+   * @param size   the number of values
+   */
+  public ObjectColumnVector( Object[] values, int size ) {
+    super( size );
+    this.values = values;
+  }
+
+  @Override
+  public boolean isNull( int index ) {
+    return values[ index ] == null;
+  }
+
+  @Override
+  public Object getObject( int index ) {
+    return values[ index ];
+  }
+
+  @Override
+  public ColumnVector select( int[] positions, int count ) {
+    Object[] selected = new Object[ count ];
+    for ( int i = 0; i < count; i++ ) {
+      selected[ i ] = values[ positions[ i ] ];
+    }
+    return new ObjectColumnVector( selected, count );
+  }
+}
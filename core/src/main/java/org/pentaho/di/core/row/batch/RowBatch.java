@@ -0,0 +1,252 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A batch of rows stored column by column. Integer and Number fields with the normal storage type are kept in
+ * primitive arrays with a null bitmap, so the steps that work on whole batches don't box every value of every row. All
+ * the other fields are kept as objects.<br>
+ * <br>
+ * A batch is immutable: steps create a new batch, sharing the columns they don't change, and pass that on. Use
+ * {@link #fromRows(RowMetaInterface, List)} and {@link #toRows()} to convert from and to <code>Object[]</code> rows.
+ *
+ * @since 11.1.0.0
+ */
+public class RowBatch {
+
+  /** The number of rows steps read in one batch. */
+  public static final int DEFAULT_SIZE = 1024;
+
+  private final RowMetaInterface rowMeta;
+  private final ColumnVector[] columns;
+  private final int size;
+
+  /**
+   * @param rowMeta the description of the fields
+   * @param columns one column for every field of the row metadata, each with size values
+   * @param size    the number of rows
+   */
+  public RowBatch( RowMetaInterface rowMeta, ColumnVector[] columns, int size ) {
+    if ( columns.length != rowMeta.size() ) {
+      throw new IllegalArgumentException( "The batch has " + columns.length + " columns for " + rowMeta.size()
+        + " fields" );
+    }
+    this.rowMeta = rowMeta;
+    this.columns = columns;
+    this.size = size;
+  }
+
+  /**
+   * Convert rows to a batch.
+   *
+   * @param rowMeta the description of the rows
+   * @param rows    the rows, they are not changed
+   * @return the batch with the values of the rows
+   */
+  public static RowBatch fromRows( RowMetaInterface rowMeta, List<Object[]> rows ) {
+    ColumnVector[] columns = new ColumnVector[ rowMeta.size() ];
+    for ( int i = 0; i < columns.length; i++ ) {
+      final int index = i;
+      columns[ i ] = toColumn( rowMeta.getValueMeta( i ), rows.size(), r -> getValue( rows.get( r ), index ) );
+    }
+    return new RowBatch( rowMeta, columns, rows.size() );
+  }
+
+  /**
+   * Create the column for a field from its values: a primitive column for Integer and Number fields with the normal
+   * storage type, an object column for the others.
+   *
+   * @param valueMeta the description of the field
+   * @param values    the values of the field, as they would be stored in <code>Object[]</code> rows
+   * @param size      the number of values
+   * @return the column with the values
+   */
+  public static ColumnVector toColumn( ValueMetaInterface valueMeta, Object[] values, int size ) {
+    return toColumn( valueMeta, size, r -> values[ r ] );
+  }
+
+  private static ColumnVector toColumn( ValueMetaInterface valueMeta, int size, IntFunction<Object> values ) {
+    ColumnVector column = null;
+    if ( valueMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          column = toLongColumn( size, values );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          column = toDoubleColumn( size, values );
+          break;
+        default:
+          break;
+      }
+    }
+    return column != null ? column : toObjectColumn( size, values );
+  }
+
+  /**
+   * @return the column or null if a value isn't a Long
+   */
+  private static ColumnVector toLongColumn( int size, IntFunction<Object> values ) {
+    long[] longs = new long[ size ];
+    long[] nulls = null;
+    for ( int r = 0; r < size; r++ ) {
+      Object value = values.apply( r );
+      if ( value instanceof Long ) {
+        longs[ r ] = (Long) value;
+      } else if ( value == null ) {
+        if ( nulls == null ) {
+          nulls = ColumnVector.newNullBitmap( size );
+        }
+        ColumnVector.setNull( nulls, r );
+      } else {
+        return null;
+      }
+    }
+    return new LongColumnVector( longs, nulls, size );
+  }
+
+  /**
+   * @return the column or null if a value isn't a Double
+   */
+  private static ColumnVector toDoubleColumn( int size, IntFunction<Object> values ) {
+    double[] doubles = new double[ size ];
+    long[] nulls = null;
+    for ( int r = 0; r < size; r++ ) {
+      Object value = values.apply( r );
+      if ( value instanceof Double ) {
+        doubles[ r ] = (Double) value;
+      } else if ( value == null ) {
+        if ( nulls == null ) {
+          nulls = ColumnVector.newNullBitmap( size );
+        }
+        ColumnVector.setNull( nulls, r );
+      } else {
+        return null;
+      }
+    }
+    return new DoubleColumnVector( doubles, nulls, size );
+  }
+
+  private static ColumnVector toObjectColumn( int size, IntFunction<Object> values ) {
+    Object[] objects = new Object[ size ];
+    for ( int r = 0; r < size; r++ ) {
+      objects[ r ] = values.apply( r );
+    }
+    return new ObjectColumnVector( objects, size );
+  }
+
+  private static Object getValue( Object[] row, int index ) {
+    return index < row.length ? row[ index ] : null;
+  }
+
+  /**
+   * @return the description of the fields of the batch
+   */
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * @return the number of rows in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of columns, the same as the number of fields in the row metadata
+   */
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * @param index the index of the field in the row metadata
+   * @return the column of the field
+   */
+  public ColumnVector getColumn( int index ) {
+    return columns[ index ];
+  }
+
+  /**
+   * @return a copy of the array of columns, to build a new batch from
+   */
+  public ColumnVector[] getColumns() {
+    return columns.clone();
+  }
+
+  /**
+   * Build a row like the ones the row based steps put: over-allocated with {@link RowDataUtil#allocateRowData(int)}.
+   *
+   * @param index the row in the batch
+   * @return a new row with the values of the row in the batch
+   */
+  public Object[] getRow( int index ) {
+    Object[] row = RowDataUtil.allocateRowData( columns.length );
+    for ( int c = 0; c < columns.length; c++ ) {
+      row[ c ] = columns[ c ].getObject( index );
+    }
+    return row;
+  }
+
+  /**
+   * @return all the rows of the batch as new <code>Object[]</code> rows
+   */
+  public List<Object[]> toRows() {
+    List<Object[]> rows = new ArrayList<>( size );
+    for ( int r = 0; r < size; r++ ) {
+      rows.add( getRow( r ) );
+    }
+    return rows;
+  }
+
+  /**
+   * @param positions the rows to keep, in increasing order
+   * @param count     the number of positions to use
+   * @return a batch with only the given rows, this batch if all of them are kept
+   */
+  public RowBatch select( int[] positions, int count ) {
+    if ( count == size ) {
+      return this;
+    }
+    ColumnVector[] selected = new ColumnVector[ columns.length ];
+    for ( int c = 0; c < columns.length; c++ ) {
+      selected[ c ] = columns[ c ].select( positions, count );
+    }
+    return new RowBatch( rowMeta, selected, count );
+  }
+
+  /**
+   * @param from the first row to keep
+   * @param to   the row after the last one to keep
+   * @return a batch with the rows from up to to, this batch if all of them are kept
+   */
+  public RowBatch slice( int from, int to ) {
+    if ( from == 0 && to == size ) {
+      return this;
+    }
+    int[] positions = new int[ to - from ];
+    for ( int i = 0; i < positions.length; i++ ) {
+      positions[ i ] = from + i;
+    }
+    return select( positions, positions.length );
+  }
+}
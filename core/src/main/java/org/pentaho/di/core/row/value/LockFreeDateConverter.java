@@ -0,0 +1,210 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQuery;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Converts dates to and from strings the way a given {@link SimpleDateFormat} does, using an immutable
+ * {@link DateTimeFormatter} instead. The converter can be used by any number of threads at the same time, where the
+ * simple date format has to be locked.<br>
+ * <br>
+ * Only numeric masks are handled: <code>yyyy</code>, <code>MM</code>, <code>dd</code>, <code>HH</code>,
+ * <code>mm</code>, <code>ss</code> and <code>SSS</code> separated by literals, as in
+ * <code>yyyy/MM/dd HH:mm:ss.SSS</code>, <code>yyyy-MM-dd</code> or <code>yyyy-MM-dd'T'HH:mm:ss</code>. The two
+ * libraries don't agree on dates before the Gregorian calendar reform or on the time zones before 1900, so only the
+ * dates from 1900 to 9999 are converted. Strings are only parsed when they exactly match the mask with valid field values and a local
+ * time that exists exactly once in the time zone, everything else is left to the simple date format, which also
+ * handles leniency. Every method returns null for the values it doesn't convert.
+ */
+final class LockFreeDateConverter {
+
+  /** The time zones of java.util start in 1900, take a day of margin for the time zone offsets. */
+  private static final long MIN_TIME = LocalDateTime.of( 1900, 1, 2, 0, 0 ).toInstant( ZoneOffset.UTC ).toEpochMilli();
+  private static final int MAX_YEAR = 9999;
+
+  private static final long DEFAULT_GREGORIAN_CHANGE = new GregorianCalendar().getGregorianChange().getTime();
+
+  private final SimpleDateFormat source;
+  private final DateTimeFormatter formatter;
+  private final ZoneId zone;
+
+  private LockFreeDateConverter( SimpleDateFormat source, DateTimeFormatter formatter, ZoneId zone ) {
+    this.source = source;
+    this.formatter = formatter;
+    this.zone = zone;
+  }
+
+  /**
+   * @param format the simple date format to convert like
+   * @return a converter for the format or null if the format uses features the converter doesn't support
+   */
+  static LockFreeDateConverter of( SimpleDateFormat format ) {
+    if ( format == null
+      || format.getCalendar().getClass() != GregorianCalendar.class
+      || ( (GregorianCalendar) format.getCalendar() ).getGregorianChange().getTime() != DEFAULT_GREGORIAN_CHANGE ) {
+      return null;
+    }
+    NumberFormat numberFormat = format.getNumberFormat();
+    if ( !( numberFormat instanceof DecimalFormat )
+      || ( (DecimalFormat) numberFormat ).getDecimalFormatSymbols().getZeroDigit() != '0' ) {
+      return null;
+    }
+    TimeZone timeZone = format.getTimeZone();
+    if ( !TimeZone.getTimeZone( timeZone.getID() ).hasSameRules( timeZone ) ) {
+      // A custom time zone that java.time doesn't know about
+      return null;
+    }
+    String pattern = toDateTimeFormatterPattern( format.toPattern() );
+    if ( pattern == null ) {
+      return null;
+    }
+    try {
+      ZoneId zone = timeZone.toZoneId();
+      DateTimeFormatter formatter = new DateTimeFormatterBuilder()
+        .appendPattern( pattern )
+        .toFormatter( Locale.ROOT )
+        .withChronology( IsoChronology.INSTANCE )
+        .withResolverStyle( ResolverStyle.STRICT );
+      return new LockFreeDateConverter( format, formatter, zone );
+    } catch ( DateTimeException | IllegalArgumentException e ) {
+      return null;
+    }
+  }
+
+  /**
+   * Translate a simple date format pattern into the same date time formatter pattern.
+   *
+   * @return the date time formatter pattern or null if the pattern uses letters that aren't supported
+   */
+  static String toDateTimeFormatterPattern( String pattern ) {
+    StringBuilder result = new StringBuilder( pattern.length() + 8 );
+    int i = 0;
+    while ( i < pattern.length() ) {
+      char c = pattern.charAt( i );
+      if ( c == '\'' ) {
+        int end = pattern.indexOf( '\'', i + 1 );
+        if ( end <= i + 1 ) {
+          // Unterminated or an escaped quote
+          return null;
+        }
+        result.append( pattern, i, end + 1 );
+        i = end + 1;
+      } else if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) ) {
+        int end = i;
+        while ( end < pattern.length() && pattern.charAt( end ) == c ) {
+          end++;
+        }
+        String letters = pattern.substring( i, end );
+        switch ( letters ) {
+          case "yyyy":
+            result.append( "uuuu" );
+            break;
+          case "MM":
+          case "dd":
+          case "HH":
+          case "mm":
+          case "ss":
+          case "SSS":
+            result.append( letters );
+            break;
+          default:
+            return null;
+        }
+        i = end;
+      } else {
+        // Quote every other character, some of them have a meaning for the date time formatter but not here
+        result.append( '\'' ).append( c ).append( '\'' );
+        i++;
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * @return true if this converter was created for the given simple date format
+   */
+  boolean isFor( SimpleDateFormat format ) {
+    return source == format;
+  }
+
+  String format( Date date ) {
+    if ( date.getTime() < MIN_TIME ) {
+      return null;
+    }
+    ZonedDateTime dateTime = Instant.ofEpochMilli( date.getTime() ).atZone( zone );
+    if ( dateTime.getYear() > MAX_YEAR ) {
+      return null;
+    }
+    return formatter.format( dateTime );
+  }
+
+  Date parse( String string ) {
+    LocalDateTime localDateTime;
+    try {
+      localDateTime = formatter.parse( string, LocalDateTimeQuery.INSTANCE );
+    } catch ( DateTimeException e ) {
+      return null;
+    }
+    if ( localDateTime == null || localDateTime.getYear() > MAX_YEAR
+      || zone.getRules().getValidOffsets( localDateTime ).size() != 1 ) {
+      return null;
+    }
+    long time = localDateTime.atZone( zone ).toInstant().toEpochMilli();
+    return time < MIN_TIME ? null : new Date( time );
+  }
+
+  /**
+   * Builds the local date time from whatever fields the mask has, the missing ones default like they do in a simple
+   * date format: 1970-01-01 00:00:00.000.
+   */
+  private static final class LocalDateTimeQuery implements TemporalQuery<LocalDateTime> {
+    static final LocalDateTimeQuery INSTANCE = new LocalDateTimeQuery();
+
+    @Override
+    public LocalDateTime queryFrom( TemporalAccessor temporal ) {
+      return LocalDateTime.of(
+        get( temporal, ChronoField.YEAR, 1970 ),
+        get( temporal, ChronoField.MONTH_OF_YEAR, 1 ),
+        get( temporal, ChronoField.DAY_OF_MONTH, 1 ),
+        get( temporal, ChronoField.HOUR_OF_DAY, 0 ),
+        get( temporal, ChronoField.MINUTE_OF_HOUR, 0 ),
+        get( temporal, ChronoField.SECOND_OF_MINUTE, 0 ),
+        get( temporal, ChronoField.NANO_OF_SECOND, 0 ) );
+    }
+
+    private static int get( TemporalAccessor temporal, ChronoField field, int defaultValue ) {
+      return temporal.isSupported( field ) ? temporal.get( field ) : defaultValue;
+    }
+  }
+}
@@ -0,0 +1,294 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.value;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+
+/**
+ * Converts numbers to and from strings the way a given {@link DecimalFormat} does, without touching the format. The
+ * converter is immutable so it can be used by any number of threads at the same time, where the decimal format has
+ * to be locked.<br>
+ * <br>
+ * Only the common masks are handled: plain integers and decimals (<code>#</code>, <code>####0</code>,
+ * <code>#.#</code>, <code>####0.0#########</code>, ...) with fixed prefixes and suffixes, no grouping, no exponent and
+ * no percent or currency. Every method returns null for the values it can't convert with exactly the result of the
+ * decimal format, the caller then falls back to the decimal format.
+ */
+final class LockFreeNumberConverter {
+
+  /** Up to 18 digits always fit in a long. */
+  private static final int MAX_LONG_DIGITS = 18;
+
+  /**
+   * Up to 18 significant digits are parsed into a double by the decimal format without dropping any of them, the
+   * result is then the correctly rounded value, the same as Double.parseDouble() gives.
+   */
+  private static final int MAX_DOUBLE_DIGITS = 18;
+
+  /** The powers of ten that are exact doubles. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+    1e20, 1e21, 1e22 };
+
+  /** Below this a double still has a fraction and the integer part fits in a long. */
+  private static final double MAX_EXACT_SCALED = 0x1p52;
+
+  /** Covers the rounding of the sum that computes the fraction. */
+  private static final double FRACTION_MARGIN = 0x1p-48;
+
+  private final DecimalFormat source;
+
+  private final String positivePrefix;
+  private final String positiveSuffix;
+  private final String negativePrefix;
+  private final String negativeSuffix;
+  private final int minimumIntegerDigits;
+  private final int minimumFractionDigits;
+  private final int maximumFractionDigits;
+  private final char decimalSeparator;
+  private final boolean parseBigDecimal;
+
+  /** Plain numbers with only a minus sign in front of negative numbers can be parsed without the format. */
+  private final boolean plainParsing;
+
+  /** Half of the smallest step at the maximum fraction digits: values this far from a rounded value are ties. */
+  private final BigDecimal halfStep;
+
+  private LockFreeNumberConverter( DecimalFormat source ) {
+    this.source = source;
+    positivePrefix = source.getPositivePrefix();
+    positiveSuffix = source.getPositiveSuffix();
+    negativePrefix = source.getNegativePrefix();
+    negativeSuffix = source.getNegativeSuffix();
+    minimumIntegerDigits = source.getMinimumIntegerDigits();
+    minimumFractionDigits = source.getMinimumFractionDigits();
+    maximumFractionDigits = source.getMaximumFractionDigits();
+    decimalSeparator = source.getDecimalFormatSymbols().getDecimalSeparator();
+    parseBigDecimal = source.isParseBigDecimal();
+    plainParsing = positivePrefix.isEmpty() && positiveSuffix.isEmpty() && "-".equals( negativePrefix )
+      && negativeSuffix.isEmpty() && !Character.isDigit( decimalSeparator ) && decimalSeparator != '-';
+    halfStep = BigDecimal.valueOf( 5, maximumFractionDigits + 1 );
+  }
+
+  /**
+   * @param format the decimal format to convert like
+   * @return a converter for the format or null if the format uses features the converter doesn't support
+   */
+  static LockFreeNumberConverter of( DecimalFormat format ) {
+    if ( format == null ) {
+      return null;
+    }
+    if ( format.getMultiplier() != 1
+      || format.getRoundingMode() != RoundingMode.HALF_EVEN
+      || format.isDecimalSeparatorAlwaysShown()
+      || ( format.isGroupingUsed() && format.getGroupingSize() > 0 )
+      || format.isParseIntegerOnly()
+      || format.getMaximumIntegerDigits() < Integer.MAX_VALUE
+      || format.getMinimumFractionDigits() > format.getMaximumFractionDigits()
+      || format.getMaximumFractionDigits() > 340
+      || format.getDecimalFormatSymbols().getZeroDigit() != '0' ) {
+      return null;
+    }
+    String pattern = format.toPattern();
+    if ( pattern.indexOf( 'E' ) >= 0 || pattern.indexOf( '\u00A4' ) >= 0 ) {
+      // Scientific notation or currency
+      return null;
+    }
+    return new LockFreeNumberConverter( format );
+  }
+
+  /**
+   * @return true if this converter was created for the given decimal format
+   */
+  boolean isFor( DecimalFormat format ) {
+    return source == format;
+  }
+
+  String format( long value ) {
+    String digits = Long.toString( value );
+    if ( value < 0 ) {
+      digits = digits.substring( 1 );
+    }
+    return format( value < 0, digits, "" );
+  }
+
+  String format( double value ) {
+    if ( Double.isNaN( value ) || Double.isInfinite( value ) ) {
+      return null;
+    }
+    boolean negative = value < 0.0 || ( value == 0.0 && 1 / value < 0.0 );
+    double magnitude = Math.abs( value );
+
+    // The decimal format rounds the shortest decimal representation of the double, we round the exact binary value.
+    // The two only round differently when a halfway point between two results lies between them. They are less than
+    // half an ulp apart, so that can't happen unless the exact value is within an ulp of a halfway point.
+    //
+    if ( maximumFractionDigits < POWERS_OF_TEN.length ) {
+      double scale = POWERS_OF_TEN[ maximumFractionDigits ];
+      double scaled = magnitude * scale;
+      if ( scaled < MAX_EXACT_SCALED ) {
+        // The exact product is scaled + error, the fraction is exact to within an ulp of 1
+        double error = Math.fma( magnitude, scale, -scaled );
+        double floor = Math.floor( scaled );
+        double fraction = ( scaled - floor ) + error;
+        if ( Math.abs( fraction - 0.5 ) <= Math.ulp( magnitude ) * scale + FRACTION_MARGIN ) {
+          return null;
+        }
+        return format( negative, (long) floor + ( fraction > 0.5 ? 1 : 0 ) );
+      }
+    }
+
+    BigDecimal exact = new BigDecimal( magnitude );
+    BigDecimal rounded = exact.setScale( maximumFractionDigits, RoundingMode.HALF_EVEN );
+    BigDecimal distanceToHalfway = halfStep.subtract( exact.subtract( rounded ).abs() );
+    if ( distanceToHalfway.compareTo( new BigDecimal( Math.ulp( magnitude ) ) ) <= 0 ) {
+      return null;
+    }
+    return format( negative, rounded );
+  }
+
+  String format( BigDecimal value ) {
+    return format( value.signum() < 0, value.abs().setScale( maximumFractionDigits, RoundingMode.HALF_EVEN ) );
+  }
+
+  /**
+   * @param units the magnitude of the number in units of the last fraction digit
+   */
+  private String format( boolean negative, long units ) {
+    String digits = Long.toString( units );
+    if ( digits.length() <= maximumFractionDigits ) {
+      StringBuilder padded = new StringBuilder( maximumFractionDigits + 1 );
+      for ( int i = digits.length(); i <= maximumFractionDigits; i++ ) {
+        padded.append( '0' );
+      }
+      digits = padded.append( digits ).toString();
+    }
+    int separator = digits.length() - maximumFractionDigits;
+    return format( negative, digits.substring( 0, separator ), digits.substring( separator ) );
+  }
+
+  private String format( boolean negative, BigDecimal rounded ) {
+    String plain = rounded.toPlainString();
+    int separator = plain.indexOf( '.' );
+    if ( separator < 0 ) {
+      return format( negative, plain, "" );
+    }
+    return format( negative, plain.substring( 0, separator ), plain.substring( separator + 1 ) );
+  }
+
+  /**
+   * Lay out the digits of a number as the decimal format would.
+   *
+   * @param negative       true for negative numbers
+   * @param integerDigits  the digits before the decimal point, without a sign
+   * @param fractionDigits the digits after the decimal point, already rounded to the maximum fraction digits
+   */
+  private String format( boolean negative, String integerDigits, String fractionDigits ) {
+    if ( "0".equals( integerDigits ) ) {
+      integerDigits = "";
+    }
+    int fractionLength = fractionDigits.length();
+    while ( fractionLength > minimumFractionDigits && fractionDigits.charAt( fractionLength - 1 ) == '0' ) {
+      fractionLength--;
+    }
+
+    StringBuilder result = new StringBuilder( 24 );
+    result.append( negative ? negativePrefix : positivePrefix );
+    for ( int i = integerDigits.length(); i < minimumIntegerDigits; i++ ) {
+      result.append( '0' );
+    }
+    result.append( integerDigits );
+
+    boolean fractionPresent = fractionLength > 0 || minimumFractionDigits > 0;
+    if ( !fractionPresent && integerDigits.isEmpty() && minimumIntegerDigits == 0 ) {
+      result.append( '0' );
+    }
+    if ( fractionPresent ) {
+      result.append( decimalSeparator );
+      result.append( fractionDigits, 0, fractionLength );
+      for ( int i = fractionLength; i < minimumFractionDigits; i++ ) {
+        result.append( '0' );
+      }
+    }
+    result.append( negative ? negativeSuffix : positiveSuffix );
+    return result.toString();
+  }
+
+  Long parseLong( String string ) {
+    if ( !plainParsing || parseBigDecimal || countDigits( string, false ) < 0 ) {
+      return null;
+    }
+    return Long.parseLong( string );
+  }
+
+  Double parseDouble( String string ) {
+    if ( !plainParsing || parseBigDecimal || countDigits( string, true ) < 0 ) {
+      return null;
+    }
+    String number = string;
+    if ( decimalSeparator != '.' ) {
+      number = string.replace( decimalSeparator, '.' );
+    }
+    return Double.parseDouble( number );
+  }
+
+  BigDecimal parseBigDecimal( String string ) {
+    if ( !plainParsing || !parseBigDecimal ) {
+      return null;
+    }
+    int separator = countDigits( string, true );
+    if ( separator < 0 ) {
+      return null;
+    }
+    String number = string;
+    if ( decimalSeparator != '.' ) {
+      number = string.replace( decimalSeparator, '.' );
+    }
+    return new BigDecimal( number );
+  }
+
+  /**
+   * Checks that the string is a plain number: an optional minus sign, digits and, if allowed, a decimal separator
+   * followed by more digits.
+   *
+   * @return the number of significant digits or -1 if the string isn't a plain number or has too many digits
+   */
+  private int countDigits( String string, boolean allowFraction ) {
+    int length = string.length();
+    int start = length > 0 && string.charAt( 0 ) == '-' ? 1 : 0;
+    int digits = 0;
+    boolean leading = true;
+    boolean separatorSeen = false;
+    for ( int i = start; i < length; i++ ) {
+      char c = string.charAt( i );
+      if ( c >= '0' && c <= '9' ) {
+        if ( c != '0' || !leading ) {
+          leading = false;
+          digits++;
+        }
+      } else if ( c == decimalSeparator && allowFraction && !separatorSeen && i > start && i < length - 1 ) {
+        separatorSeen = true;
+      } else {
+        return -1;
+      }
+    }
+    if ( length == start ) {
+      return -1;
+    }
+    int maxDigits = allowFraction ? MAX_DOUBLE_DIGITS : MAX_LONG_DIGITS;
+    return digits <= maxDigits ? digits : -1;
+  }
+}
@@ -152,6 +152,13 @@ public class ValueMetaBase implements ValueMetaInterface {
   protected DecimalFormat decimalFormat;
   protected boolean decimalFormatChanged;
 
+  /**
+   * Convert like dateFormat and decimalFormat without locking, for the common masks. They are created together with
+   * the formats and are null when the masks aren't supported.
+   */
+  private volatile LockFreeDateConverter lockFreeDateConverter;
+  private volatile LockFreeNumberConverter lockFreeNumberConverter;
+
   protected ValueMetaInterface storageMetadata;
   protected boolean identicalFormat;
 
@@ -248,6 +255,13 @@ public class ValueMetaBase implements ValueMetaInterface {
     setDefaultConversionMask();
   }
 
+  /**
+   * @return the comparator the values are compared with, null if they are compared by their type
+   */
+  public Comparator<Object> getComparator() {
+    return comparator;
+  }
+
   public ValueMetaBase( Node node ) throws KettleException {
     this();
 
@@ -432,6 +446,8 @@ public class ValueMetaBase implements ValueMetaInterface {
       ValueMetaBase valueMeta = (ValueMetaBase) super.clone();
       valueMeta.dateFormat = null;
       valueMeta.decimalFormat = null;
+      valueMeta.lockFreeDateConverter = null;
+      valueMeta.lockFreeNumberConverter = null;
       if ( dateFormatLocale != null ) {
         valueMeta.dateFormatLocale = (Locale) dateFormatLocale.clone();
       }
@@ -893,24 +909,48 @@ public class ValueMetaBase implements ValueMetaInterface {
 
   // DATE + STRING
 
-  protected synchronized String convertDateToString( Date date ) {
+  protected String convertDateToString( Date date ) {
     if ( date == null ) {
       return null;
     }
 
+    LockFreeDateConverter converter = getLockFreeDateConverter();
+    if ( converter != null ) {
+      String string = converter.format( date );
+      if ( string != null ) {
+        return string;
+      }
+    }
+    return formatDate( date );
+  }
+
+  private synchronized String formatDate( Date date ) {
     return getDateFormat().format( date );
   }
 
   protected static SimpleDateFormat compatibleDateFormat = new SimpleDateFormat( COMPATIBLE_DATE_FORMAT_PATTERN );
 
-  protected synchronized String convertDateToCompatibleString( Date date ) {
+  private static final LockFreeDateConverter compatibleDateConverter =
+    LockFreeDateConverter.of( compatibleDateFormat );
+
+  protected String convertDateToCompatibleString( Date date ) {
     if ( date == null ) {
       return null;
     }
-    return compatibleDateFormat.format( date );
+    if ( compatibleDateConverter != null && compatibleDateConverter.isFor( compatibleDateFormat ) ) {
+      String string = compatibleDateConverter.format( date );
+      if ( string != null ) {
+        return string;
+      }
+    }
+    // The format is shared by all value metadata
+    //
+    synchronized ( compatibleDateFormat ) {
+      return compatibleDateFormat.format( date );
+    }
   }
 
-  protected synchronized Date convertStringToDate( String string ) throws KettleValueException {
+  protected Date convertStringToDate( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -919,6 +959,17 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    LockFreeDateConverter converter = getLockFreeDateConverter();
+    if ( converter != null ) {
+      Date date = converter.parse( string );
+      if ( date != null ) {
+        return date;
+      }
+    }
+    return parseDate( string );
+  }
+
+  private synchronized Date parseDate( String string ) throws KettleValueException {
     try {
       ParsePosition pp = new ParsePosition( 0 );
       Date result = getDateFormat( TYPE_DATE ).parse( string, pp );
@@ -967,7 +1018,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return new Date( number.longValue() );
   }
 
-  protected synchronized String convertNumberToString( Double number ) throws KettleValueException {
+  protected String convertNumberToString( Double number ) throws KettleValueException {
     if ( number == null ) {
       if ( !outputPaddingEnabled || length < 1 ) {
         return null;
@@ -985,13 +1036,29 @@ public class ValueMetaBase implements ValueMetaInterface {
       }
     }
 
+    // When conversion masks are different, we must ensure the number precision is not lost
+    boolean keepPrecision = this.conversionMask != null && storageMetadata != null
+      && !this.conversionMask.equals( storageMetadata.getConversionMask() );
+    if ( !keepPrecision ) {
+      LockFreeNumberConverter converter = getLockFreeNumberConverter();
+      if ( converter != null ) {
+        String string = converter.format( number.doubleValue() );
+        if ( string != null ) {
+          return string;
+        }
+      }
+    }
+    return formatNumber( number, keepPrecision );
+  }
+
+  private synchronized String formatNumber( Double number, boolean keepPrecision ) throws KettleValueException {
     try {
       DecimalFormat format = getDecimalFormat( false );
 
-      // When conversion masks are different, we must ensure the number precision is not lost
-      if ( this.conversionMask != null && storageMetadata != null
-              && !this.conversionMask.equals( storageMetadata.getConversionMask() ) ) {
+      if ( keepPrecision ) {
         format.setMaximumFractionDigits( 50 );
+        // The format no longer matches its lock free converter
+        dropLockFreeNumberConverter();
       }
       return format.format( number );
     } catch ( Exception e ) {
@@ -999,14 +1066,14 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
   }
 
-  protected synchronized String convertNumberToCompatibleString( Double number ) throws KettleValueException {
+  protected String convertNumberToCompatibleString( Double number ) throws KettleValueException {
     if ( number == null ) {
       return null;
     }
     return Double.toString( number );
   }
 
-  protected synchronized Double convertStringToNumber( String string ) throws KettleValueException {
+  protected Double convertStringToNumber( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1015,6 +1082,17 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    LockFreeNumberConverter converter = getLockFreeNumberConverter();
+    if ( converter != null ) {
+      Double number = converter.parseDouble( string );
+      if ( number != null ) {
+        return number;
+      }
+    }
+    return parseNumber( string );
+  }
+
+  private synchronized Double parseNumber( String string ) throws KettleValueException {
     try {
       DecimalFormat format = getDecimalFormat( false );
       Number number;
@@ -1086,6 +1164,7 @@ public class ValueMetaBase implements ValueMetaInterface {
       dateFormat.setLenient( dateFormatLenient );
 
       dateFormatChanged = false;
+      lockFreeDateConverter = LockFreeDateConverter.of( dateFormat );
     }
 
     return dateFormat;
@@ -1135,11 +1214,52 @@ public class ValueMetaBase implements ValueMetaInterface {
       }
 
       decimalFormatChanged = false;
+      lockFreeNumberConverter = LockFreeNumberConverter.of( decimalFormat );
     }
 
     return decimalFormat;
   }
 
+  /**
+   * @return the converter that works like the date format without locking or null if there is none
+   */
+  private LockFreeDateConverter getLockFreeDateConverter() {
+    if ( conversionMetadata != null ) {
+      return conversionMetadata instanceof ValueMetaBase
+        ? ( (ValueMetaBase) conversionMetadata ).getLockFreeDateConverter() : null;
+    }
+    LockFreeDateConverter converter = lockFreeDateConverter;
+    if ( converter == null || dateFormatChanged || !converter.isFor( dateFormat ) ) {
+      return null;
+    }
+    return converter;
+  }
+
+  /**
+   * @return the converter that works like the decimal format without locking or null if there is none
+   */
+  private LockFreeNumberConverter getLockFreeNumberConverter() {
+    if ( conversionMetadata != null ) {
+      return conversionMetadata instanceof ValueMetaBase
+        ? ( (ValueMetaBase) conversionMetadata ).getLockFreeNumberConverter() : null;
+    }
+    LockFreeNumberConverter converter = lockFreeNumberConverter;
+    if ( converter == null || decimalFormatChanged || !converter.isFor( decimalFormat ) ) {
+      return null;
+    }
+    return converter;
+  }
+
+  private void dropLockFreeNumberConverter() {
+    if ( conversionMetadata != null ) {
+      if ( conversionMetadata instanceof ValueMetaBase ) {
+        ( (ValueMetaBase) conversionMetadata ).dropLockFreeNumberConverter();
+      }
+    } else {
+      lockFreeNumberConverter = null;
+    }
+  }
+
   @Override
   public String getFormatMask() {
     return getMask( getType() );
@@ -1287,7 +1407,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     return numberPattern.toString();
   }
 
-  protected synchronized String convertIntegerToString( Long integer ) throws KettleValueException {
+  protected String convertIntegerToString( Long integer ) throws KettleValueException {
     if ( integer == null ) {
       if ( !outputPaddingEnabled || length < 1 ) {
         return null;
@@ -1305,6 +1425,14 @@ public class ValueMetaBase implements ValueMetaInterface {
       }
     }
 
+    LockFreeNumberConverter converter = getLockFreeNumberConverter();
+    if ( converter != null ) {
+      return converter.format( integer.longValue() );
+    }
+    return formatInteger( integer );
+  }
+
+  private synchronized String formatInteger( Long integer ) throws KettleValueException {
     try {
       return getDecimalFormat( false ).format( integer );
     } catch ( Exception e ) {
@@ -1312,14 +1440,14 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
   }
 
-  protected synchronized String convertIntegerToCompatibleString( Long integer ) throws KettleValueException {
+  protected String convertIntegerToCompatibleString( Long integer ) throws KettleValueException {
     if ( integer == null ) {
       return null;
     }
     return Long.toString( integer );
   }
 
-  protected synchronized Long convertStringToInteger( String string ) throws KettleValueException {
+  protected Long convertStringToInteger( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1328,6 +1456,17 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    LockFreeNumberConverter converter = getLockFreeNumberConverter();
+    if ( converter != null ) {
+      Long integer = converter.parseLong( string );
+      if ( integer != null ) {
+        return integer;
+      }
+    }
+    return parseInteger( string );
+  }
+
+  private synchronized Long parseInteger( String string ) throws KettleValueException {
     try {
       Number number;
       if ( lenientStringToNumber ) {
@@ -1360,11 +1499,19 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
   }
 
-  protected synchronized String convertBigNumberToString( BigDecimal number ) throws KettleValueException {
+  protected String convertBigNumberToString( BigDecimal number ) throws KettleValueException {
     if ( number == null ) {
       return null;
     }
 
+    LockFreeNumberConverter converter = getLockFreeNumberConverter();
+    if ( converter != null ) {
+      return converter.format( number );
+    }
+    return formatBigNumber( number );
+  }
+
+  private synchronized String formatBigNumber( BigDecimal number ) throws KettleValueException {
     try {
       return getDecimalFormat( bigNumberFormatting ).format( number );
     } catch ( Exception e ) {
@@ -1372,7 +1519,7 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
   }
 
-  protected synchronized BigDecimal convertStringToBigNumber( String string ) throws KettleValueException {
+  protected BigDecimal convertStringToBigNumber( String string ) throws KettleValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1381,6 +1528,17 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
+    LockFreeNumberConverter converter = getLockFreeNumberConverter();
+    if ( converter != null ) {
+      BigDecimal number = converter.parseBigDecimal( string );
+      if ( number != null ) {
+        return number;
+      }
+    }
+    return parseBigNumber( string );
+  }
+
+  private synchronized BigDecimal parseBigNumber( String string ) throws KettleValueException {
     try {
       DecimalFormat format = getDecimalFormat( bigNumberFormatting );
       Number number;
@@ -13,6 +13,8 @@
 
 package org.pentaho.di.core.row.value;
 
+import java.util.Comparator;
+
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.util.Utils;
@@ -31,6 +33,10 @@ public class ValueMetaInteger extends ValueMetaBase implements ValueMetaInterfac
     super( name, ValueMetaInterface.TYPE_INTEGER, length, precision );
   }
 
+  public ValueMetaInteger( String name, Comparator<Object> comparator ) {
+    super( name, ValueMetaInterface.TYPE_INTEGER, comparator );
+  }
+
   @Override
   public Object getNativeDataType( Object object ) throws KettleValueException {
     return getInteger( object );
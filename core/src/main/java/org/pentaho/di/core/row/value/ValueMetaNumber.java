@@ -13,6 +13,8 @@
 
 package org.pentaho.di.core.row.value;
 
+import java.util.Comparator;
+
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.util.Utils;
@@ -31,6 +33,10 @@ public class ValueMetaNumber extends ValueMetaBase implements ValueMetaInterface
     super( name, ValueMetaInterface.TYPE_NUMBER, length, precision );
   }
 
+  public ValueMetaNumber( String name, Comparator<Object> comparator ) {
+    super( name, ValueMetaInterface.TYPE_NUMBER, comparator );
+  }
+
   @Override
   public Object getNativeDataType( Object object ) throws KettleValueException {
     return getNumber( object );
@@ -0,0 +1,268 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.sketch;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Estimates the number of distinct values with a HyperLogLog sketch. The sketch takes at most 2^precision bytes, the
+ * standard error of the estimate is about 1.04 / sqrt(2^precision): 1.6% for the default precision of 12.<br>
+ * As long as there are only a few distinct values their hashes are kept as they are and the count is exact, but for
+ * the odd collision of two hashes. Two sketches of the same precision can be merged, the result is the sketch of all
+ * the values of both.
+ */
+public class HyperLogLog {
+
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 18;
+  public static final int DEFAULT_PRECISION = 12;
+
+  private static final int INITIAL_HASHES_SIZE = 16;
+
+  private final int precision;
+
+  // The distinct hashes as long as there are few, open addressing with 0 for a free slot
+  private long[] hashes;
+  private int nrHashes;
+  private boolean hasZeroHash;
+  private final int maxHashes;
+
+  // One register per bucket, null as long as the hashes are kept
+  private byte[] registers;
+
+  /**
+   * @param precision
+   *          the number of bits of the hash that pick the register, between MIN_PRECISION and MAX_PRECISION
+   */
+  public HyperLogLog( int precision ) {
+    if ( precision < MIN_PRECISION || precision > MAX_PRECISION ) {
+      throw new IllegalArgumentException( "The precision of a HyperLogLog sketch has to be between " + MIN_PRECISION
+        + " and " + MAX_PRECISION + ", not " + precision );
+    }
+    this.precision = precision;
+    // The hashes take no more memory than the registers do
+    this.maxHashes = Math.max( 1, ( 1 << precision ) / 16 );
+    this.hashes = new long[ INITIAL_HASHES_SIZE ];
+  }
+
+  public HyperLogLog() {
+    this( DEFAULT_PRECISION );
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Adds a value in normal storage, null values are not counted.
+   */
+  public void add( Object value ) {
+    if ( value != null ) {
+      addHash( hash( value ) );
+    }
+  }
+
+  /**
+   * Adds the 64 bit hash of a value, see {@link #hash(Object)}.
+   */
+  public void addHash( long hash ) {
+    if ( registers != null ) {
+      updateRegister( hash );
+    } else if ( addToHashes( hash ) && nrHashes + ( hasZeroHash ? 1 : 0 ) > maxHashes ) {
+      toRegisters();
+    }
+  }
+
+  /**
+   * @return true if the hash wasn't seen before
+   */
+  private boolean addToHashes( long hash ) {
+    if ( hash == 0L ) {
+      boolean added = !hasZeroHash;
+      hasZeroHash = true;
+      return added;
+    }
+    int mask = hashes.length - 1;
+    int slot = (int) ( hash ^ ( hash >>> 32 ) ) & mask;
+    while ( hashes[ slot ] != 0L ) {
+      if ( hashes[ slot ] == hash ) {
+        return false;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    hashes[ slot ] = hash;
+    nrHashes++;
+    if ( nrHashes * 2 > hashes.length ) {
+      long[] old = hashes;
+      hashes = new long[ old.length * 2 ];
+      nrHashes = 0;
+      for ( long h : old ) {
+        if ( h != 0L ) {
+          addToHashes( h );
+        }
+      }
+    }
+    return true;
+  }
+
+  private void toRegisters() {
+    registers = new byte[ 1 << precision ];
+    for ( long h : hashes ) {
+      if ( h != 0L ) {
+        updateRegister( h );
+      }
+    }
+    if ( hasZeroHash ) {
+      updateRegister( 0L );
+    }
+    hashes = null;
+    nrHashes = 0;
+    hasZeroHash = false;
+  }
+
+  private void updateRegister( long hash ) {
+    int index = (int) ( hash >>> ( 64 - precision ) );
+    // The position of the first 1 bit in the rest of the hash, all zeros count as one past the last bit
+    int rank = Math.min( Long.numberOfLeadingZeros( hash << precision ), 64 - precision ) + 1;
+    if ( rank > registers[ index ] ) {
+      registers[ index ] = (byte) rank;
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct values added
+   */
+  public long estimate() {
+    if ( registers == null ) {
+      return nrHashes + ( hasZeroHash ? 1 : 0 );
+    }
+    int m = registers.length;
+    double sum = 0.0;
+    int zeros = 0;
+    for ( byte register : registers ) {
+      sum += 1.0 / ( 1L << register );
+      if ( register == 0 ) {
+        zeros++;
+      }
+    }
+    double estimate = alpha( m ) * m * m / sum;
+    if ( estimate <= 2.5 * m && zeros > 0 ) {
+      // Linear counting is more accurate for the small cardinalities
+      estimate = m * Math.log( (double) m / zeros );
+    }
+    return Math.round( estimate );
+  }
+
+  private static double alpha( int m ) {
+    switch ( m ) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / ( 1.0 + 1.079 / m );
+    }
+  }
+
+  /**
+   * Adds all the values of another sketch of the same precision to this one.
+   */
+  public void merge( HyperLogLog other ) {
+    if ( other.precision != precision ) {
+      throw new IllegalArgumentException( "Unable to merge a HyperLogLog sketch of precision " + other.precision
+        + " into one of precision " + precision );
+    }
+    if ( other.registers == null ) {
+      for ( long h : other.hashes ) {
+        if ( h != 0L ) {
+          addHash( h );
+        }
+      }
+      if ( other.hasZeroHash ) {
+        addHash( 0L );
+      }
+      return;
+    }
+    if ( registers == null ) {
+      toRegisters();
+    }
+    for ( int i = 0; i < registers.length; i++ ) {
+      if ( other.registers[ i ] > registers[ i ] ) {
+        registers[ i ] = other.registers[ i ];
+      }
+    }
+  }
+
+  /**
+   * Calculates a well spread 64 bit hash of a value in normal storage. Numbers that are equal hash the same whatever
+   * their scale.
+   */
+  public static long hash( Object value ) {
+    long h;
+    if ( value instanceof String ) {
+      h = hash( (String) value );
+    } else if ( value instanceof Long || value instanceof Integer || value instanceof Short
+      || value instanceof Byte ) {
+      h = ( (Number) value ).longValue();
+    } else if ( value instanceof Double || value instanceof Float ) {
+      double d = ( (Number) value ).doubleValue();
+      // -0.0 equals 0.0
+      h = Double.doubleToLongBits( d == 0.0 ? 0.0 : d );
+    } else if ( value instanceof BigDecimal ) {
+      BigDecimal bd = (BigDecimal) value;
+      h = bd.signum() == 0 ? 0L : hash( bd.stripTrailingZeros().toString() );
+    } else if ( value instanceof Date ) {
+      h = ( (Date) value ).getTime();
+    } else if ( value instanceof byte[] ) {
+      h = hash( (byte[]) value );
+    } else if ( value instanceof Boolean ) {
+      h = ( (Boolean) value ) ? 1L : 0L;
+    } else {
+      h = value.hashCode();
+    }
+    return mix( h );
+  }
+
+  // FNV-1a
+  private static long hash( String value ) {
+    long h = 0xCBF29CE484222325L;
+    for ( int i = 0; i < value.length(); i++ ) {
+      h ^= value.charAt( i );
+      h *= 0x100000001B3L;
+    }
+    return h;
+  }
+
+  private static long hash( byte[] value ) {
+    long h = 0xCBF29CE484222325L;
+    for ( byte b : value ) {
+      h ^= b & 0xFF;
+      h *= 0x100000001B3L;
+    }
+    return h;
+  }
+
+  // The finalizer of MurmurHash3, spreads every bit of the input over the whole hash
+  private static long mix( long h ) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,235 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.sketch;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the quantiles of a stream of numbers with a KLL sketch (Karnin, Lang and Liberty). The values are kept in
+ * levels of compactors, a value on level h stands for 2^h values of the stream. Once a level is full it is sorted and
+ * every other value moves up a level. The sketch keeps about 3k values whatever the number of values in the stream,
+ * the rank error is about 1.7 / k: 1% for the default k of 200.<br>
+ * As long as there are fewer than k values the quantiles are exact. Sketches can be merged, the result is the sketch
+ * of all the values of both.
+ */
+public class KllSketch {
+
+  public static final int MIN_K = 8;
+  public static final int DEFAULT_K = 200;
+
+  private static final double CAPACITY_RATIO = 2.0 / 3.0;
+  private static final int MIN_CAPACITY = 2;
+  private static final int INITIAL_LEVEL_SIZE = 8;
+
+  private final int k;
+
+  private double[][] levels = new double[ 1 ][];
+  private int[] sizes = new int[ 1 ];
+  private int nrLevels = 1;
+  private int nrRetained;
+  private int maxRetained;
+
+  private long n;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+
+  // Picks the odd or even values of a level to move up, a fixed seed makes the results repeatable
+  private long random = 0x9E3779B97F4A7C15L;
+
+  /**
+   * @param k
+   *          the accuracy of the sketch, at least MIN_K
+   */
+  public KllSketch( int k ) {
+    if ( k < MIN_K ) {
+      throw new IllegalArgumentException( "The k of a KLL sketch has to be at least " + MIN_K + ", not " + k );
+    }
+    this.k = k;
+    this.levels[ 0 ] = new double[ INITIAL_LEVEL_SIZE ];
+    this.maxRetained = capacity( 0 );
+  }
+
+  public KllSketch() {
+    this( DEFAULT_K );
+  }
+
+  public int getK() {
+    return k;
+  }
+
+  /**
+   * @return the number of values added
+   */
+  public long getN() {
+    return n;
+  }
+
+  /**
+   * @return the number of values kept by the sketch
+   */
+  public int getNrRetained() {
+    return nrRetained;
+  }
+
+  /**
+   * Adds a value, NaN is ignored.
+   */
+  public void update( double value ) {
+    if ( Double.isNaN( value ) ) {
+      return;
+    }
+    if ( n == 0 ) {
+      min = value;
+      max = value;
+    } else {
+      min = Math.min( min, value );
+      max = Math.max( max, value );
+    }
+    n++;
+    append( 0, value );
+    if ( nrRetained > maxRetained ) {
+      compress();
+    }
+  }
+
+  /**
+   * Adds all the values of another sketch to this one.
+   */
+  public void merge( KllSketch other ) {
+    if ( other.n == 0 ) {
+      return;
+    }
+    if ( n == 0 ) {
+      min = other.min;
+      max = other.max;
+    } else {
+      min = Math.min( min, other.min );
+      max = Math.max( max, other.max );
+    }
+    n += other.n;
+    for ( int h = 0; h < other.nrLevels; h++ ) {
+      for ( int i = 0; i < other.sizes[ h ]; i++ ) {
+        append( h, other.levels[ h ][ i ] );
+      }
+    }
+    compress();
+  }
+
+  /**
+   * @param fraction
+   *          the fraction of the values that are at most the quantile, between 0 and 1
+   * @return the estimated quantile, NaN if there aren't any values
+   */
+  public double getQuantile( double fraction ) {
+    if ( n == 0 ) {
+      return Double.NaN;
+    }
+    if ( fraction <= 0.0 ) {
+      return min;
+    }
+    if ( fraction >= 1.0 ) {
+      return max;
+    }
+    double[] values = new double[ nrRetained ];
+    long[] weights = new long[ nrRetained ];
+    int index = 0;
+    for ( int h = 0; h < nrLevels; h++ ) {
+      for ( int i = 0; i < sizes[ h ]; i++ ) {
+        values[ index ] = levels[ h ][ i ];
+        weights[ index ] = 1L << h;
+        index++;
+      }
+    }
+    Integer[] order = new Integer[ nrRetained ];
+    for ( int i = 0; i < order.length; i++ ) {
+      order[ i ] = i;
+    }
+    Arrays.sort( order, ( i1, i2 ) -> Double.compare( values[ i1 ], values[ i2 ] ) );
+
+    // The first value with a rank of at least fraction * n, like the nearest rank method
+    double target = fraction * n;
+    long cumulative = 0L;
+    for ( int i : order ) {
+      cumulative += weights[ i ];
+      if ( cumulative >= target ) {
+        return values[ i ];
+      }
+    }
+    return max;
+  }
+
+  private void append( int level, double value ) {
+    while ( level >= nrLevels ) {
+      addLevel();
+    }
+    if ( sizes[ level ] == levels[ level ].length ) {
+      levels[ level ] = Arrays.copyOf( levels[ level ], levels[ level ].length * 2 );
+    }
+    levels[ level ][ sizes[ level ]++ ] = value;
+    nrRetained++;
+  }
+
+  private void addLevel() {
+    if ( nrLevels == levels.length ) {
+      levels = Arrays.copyOf( levels, nrLevels * 2 );
+      sizes = Arrays.copyOf( sizes, nrLevels * 2 );
+    }
+    levels[ nrLevels ] = new double[ INITIAL_LEVEL_SIZE ];
+    sizes[ nrLevels ] = 0;
+    nrLevels++;
+    maxRetained = 0;
+    for ( int h = 0; h < nrLevels; h++ ) {
+      maxRetained += capacity( h );
+    }
+  }
+
+  /**
+   * @return the number of values a level keeps before it is compacted, the top level keeps k
+   */
+  private int capacity( int level ) {
+    int depth = nrLevels - 1 - level;
+    return Math.max( MIN_CAPACITY, (int) Math.ceil( k * Math.pow( CAPACITY_RATIO, depth ) ) );
+  }
+
+  private void compress() {
+    while ( nrRetained > maxRetained ) {
+      for ( int h = 0; h < nrLevels; h++ ) {
+        if ( sizes[ h ] >= capacity( h ) ) {
+          compact( h );
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sorts a level and moves every other value up a level, an odd value out stays where it is.
+   */
+  private void compact( int level ) {
+    double[] values = levels[ level ];
+    int size = sizes[ level ];
+    Arrays.sort( values, 0, size );
+    int keep = size % 2;
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    int offset = (int) ( random & 1L );
+    for ( int i = keep + offset; i < size; i += 2 ) {
+      append( level + 1, values[ i ] );
+    }
+    // append may have replaced the arrays of the levels, not the values of this level
+    sizes[ level ] = keep;
+    nrRetained -= size - keep;
+  }
+}
@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads when the Java runtime supports them (Java 21 and later) and plain platform threads
+ * otherwise. The code is compiled for older Java versions so the virtual thread builder is looked up once through
+ * reflection.
+ */
+public class VirtualThreadUtil {
+
+  private static final Method OF_VIRTUAL = findMethod( Thread.class, "ofVirtual" );
+  private static final Method UNSTARTED;
+
+  static {
+    Method unstarted = null;
+    if ( OF_VIRTUAL != null ) {
+      try {
+        unstarted = Class.forName( "java.lang.Thread$Builder" ).getMethod( "unstarted", Runnable.class );
+      } catch ( ReflectiveOperationException e ) {
+        // Not supported by this runtime
+      }
+    }
+    UNSTARTED = unstarted;
+  }
+
+  private VirtualThreadUtil() {
+  }
+
+  /**
+   * @return true if this Java runtime can create virtual threads
+   */
+  public static boolean isSupported() {
+    return UNSTARTED != null;
+  }
+
+  /**
+   * Create a new, unstarted thread for the runnable. This is a virtual thread when the runtime supports them and a
+   * platform thread otherwise.
+   *
+   * @param runnable the code to run
+   * @param name     the name of the thread
+   * @return the unstarted thread
+   */
+  public static Thread newThread( Runnable runnable, String name ) {
+    Thread thread = null;
+    if ( isSupported() ) {
+      try {
+        thread = (Thread) UNSTARTED.invoke( OF_VIRTUAL.invoke( null ), runnable );
+      } catch ( ReflectiveOperationException e ) {
+        // Fall back to a platform thread
+      }
+    }
+    if ( thread == null ) {
+      thread = new Thread( runnable );
+    }
+    thread.setName( name );
+    return thread;
+  }
+
+  private static Method findMethod( Class<?> clazz, String name ) {
+    try {
+      return clazz.getMethod( name );
+    } catch ( NoSuchMethodException e ) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.batch.RowBatch;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the batch row set: rows and batches in, rows and batches out.
+ */
+public class BatchRowSetTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  private RowBatch createBatch( RowMetaInterface rm, long from, long to ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = from; i < to; i++ ) {
+      rows.add( new Object[] { i } );
+    }
+    return RowBatch.fromRows( rm, rows );
+  }
+
+  @Test
+  public void testBasicCreation() {
+    BatchRowSet set = new BatchRowSet( 10 );
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowImmediate() );
+  }
+
+  @Test
+  public void testBatchReadRowByRow() {
+    BatchRowSet set = new BatchRowSet( 10 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    assertTrue( set.putBatch( rm, createBatch( rm, 0, 3 ) ) );
+    assertTrue( set.putRow( rm, new Object[] { 3L } ) );
+    assertEquals( 4, set.size() );
+    assertSame( rm, set.getRowMeta() );
+
+    for ( long i = 0; i < 4; i++ ) {
+      assertEquals( i, set.getRow()[ 0 ] );
+    }
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testRowsReadAsBatch() {
+    BatchRowSet set = new BatchRowSet( 10 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    for ( long i = 0; i < 3; i++ ) {
+      assertTrue( set.putRow( rm, new Object[] { i } ) );
+    }
+    RowBatch batch = createBatch( rm, 3, 8 );
+    assertTrue( set.putBatch( rm, batch ) );
+
+    // The rows that were put one by one come first, the batch isn't merged with them
+    RowBatch first = set.getBatch( 100 );
+    assertEquals( 3, first.size() );
+    assertEquals( 2L, first.getRow( 2 )[ 0 ] );
+
+    // A batch is split when it is larger than asked for
+    RowBatch second = set.getBatch( 2 );
+    assertEquals( 2, second.size() );
+    assertEquals( 4L, second.getRow( 1 )[ 0 ] );
+    assertEquals( 3, set.size() );
+
+    assertEquals( 5L, set.getRow()[ 0 ] );
+    RowBatch rest = set.getBatch( 100 );
+    assertEquals( 2, rest.size() );
+    assertEquals( 7L, rest.getRow( 1 )[ 0 ] );
+
+    assertNull( set.getBatch( 100 ) );
+  }
+
+  @Test
+  public void testCapacity() {
+    BatchRowSet set = new BatchRowSet( 4 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    // A batch that is larger than the capacity fits in an empty row set
+    assertTrue( set.putBatch( rm, createBatch( rm, 0, 6 ) ) );
+    assertFalse( set.putBatchWait( rm, createBatch( rm, 6, 7 ), 1, TimeUnit.MILLISECONDS ) );
+    assertFalse( set.putRowWait( rm, new Object[] { 6L }, 1, TimeUnit.MILLISECONDS ) );
+
+    assertEquals( 3, set.getRows( 3 ).size() );
+    assertTrue( set.putRowWait( rm, new Object[] { 6L }, 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 4, set.size() );
+
+    List<Object[]> rows = set.getRows( 10 );
+    assertEquals( 4, rows.size() );
+    assertEquals( 6L, rows.get( 3 )[ 0 ] );
+  }
+
+  @Test
+  public void testClear() {
+    BatchRowSet set = new BatchRowSet( 10 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    set.putBatch( rm, createBatch( rm, 0, 5 ) );
+    set.getRow();
+    set.setDone();
+    set.clear();
+
+    assertEquals( 0, set.size() );
+    assertFalse( set.isDone() );
+    assertNull( set.getRowImmediate() );
+  }
+
+  @Test( timeout = 5000 )
+  public void testSetDoneWakesUpWaitingConsumer() throws Exception {
+    final RowSet set = new BatchRowSet( 10 );
+    final AtomicReference<Object[]> result = new AtomicReference<>( new Object[0] );
+
+    Thread consumer = new Thread( () -> result.set( set.getRowWait( 1, TimeUnit.HOURS ) ) );
+    consumer.start();
+    Thread.sleep( 50 );
+    set.setDone();
+    consumer.join();
+
+    assertNull( result.get() );
+  }
+}
@@ -15,6 +15,8 @@ package org.pentaho.di.core;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -116,4 +118,18 @@ public class BlockingBatchingRowSetTest {
     assertNotNull( r );
     assertArrayEquals( rows.get( 2 ), r );
   }
+
+  @Test( timeout = 5000 )
+  public void testSetDoneWakesUpWaitingConsumer() throws Exception {
+    final RowSet set = new BlockingBatchingRowSet( 10 );
+    final AtomicReference<Object[]> result = new AtomicReference<>( new Object[0] );
+
+    Thread consumer = new Thread( () -> result.set( set.getRowWait( 1, TimeUnit.HOURS ) ) );
+    consumer.start();
+    Thread.sleep( 50 );
+    set.setDone();
+    consumer.join();
+
+    assertNull( result.get() );
+  }
 }
@@ -0,0 +1,84 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentQueueRowSetTest {
+
+  @Test
+  public void testFunctionality() {
+    RowSet set = new ConcurrentQueueRowSet();
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+
+    Object[] r1 = new Object[] { 1L };
+    Object[] r2 = new Object[] { 2L };
+
+    assertNull( set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+    assertTrue( set.putRow( rm, r1 ) );
+    assertTrue( set.putRowWait( rm, r2, 1, TimeUnit.MILLISECONDS ) );
+    assertFalse( set.putRow( rm, null ) );
+    assertEquals( 2, set.size() );
+    assertSame( rm, set.getRowMeta() );
+
+    assertSame( r1, set.getRow() );
+    assertSame( r2, set.getRowImmediate() );
+    assertNull( set.getRow() );
+    assertEquals( 0, set.size() );
+
+    set.setDone();
+    assertTrue( set.isDone() );
+    set.clear();
+    assertFalse( set.isDone() );
+  }
+
+  @Test( timeout = 30000 )
+  public void testProducerAndConsumerThreads() throws Exception {
+    final RowSet set = new ConcurrentQueueRowSet();
+    final RowMetaInterface rm = new RowMeta();
+    final int nrRows = 100000;
+
+    Thread producer = new Thread( () -> {
+      for ( long i = 0; i < nrRows; i++ ) {
+        set.putRow( rm, new Object[] { i } );
+      }
+      set.setDone();
+    } );
+    producer.start();
+
+    long expected = 0;
+    Object[] row = set.getRow();
+    while ( row != null || !set.isDone() || set.size() > 0 ) {
+      if ( row != null ) {
+        assertEquals( expected++, row[0] );
+      }
+      row = set.getRow();
+    }
+    producer.join();
+
+    assertEquals( nrRows, expected );
+  }
+}
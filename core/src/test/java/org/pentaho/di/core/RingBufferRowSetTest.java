@@ -0,0 +1,195 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the basic functionality of the ring buffer row set.
+ */
+public class RingBufferRowSetTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  public RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  @Test
+  public void testBasicCreation() {
+    RingBufferRowSet set = new RingBufferRowSet( 10 );
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+    assertEquals( 10, set.getCapacity() );
+    assertNull( set.getRowImmediate() );
+  }
+
+  @Test
+  public void testFunctionality() {
+    RowSet set = new RingBufferRowSet( 3 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    Object[] r1 = new Object[] { 1L };
+    Object[] r2 = new Object[] { 2L };
+    Object[] r3 = new Object[] { 3L };
+    Object[] r4 = new Object[] { 4L };
+
+    assertTrue( set.putRow( rm, r1 ) );
+    assertTrue( set.putRow( rm, r2 ) );
+    assertTrue( set.putRow( rm, r3 ) );
+    assertEquals( 3, set.size() );
+    assertSame( rm, set.getRowMeta() );
+
+    // The row set is full
+    assertFalse( set.putRowWait( rm, r4, 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 3, set.size() );
+
+    assertSame( r1, set.getRow() );
+    assertTrue( set.putRow( rm, r4 ) );
+    assertSame( r2, set.getRowImmediate() );
+    assertSame( r3, set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+    assertSame( r4, set.getRow() );
+    assertEquals( 0, set.size() );
+
+    assertNull( set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testBatches() {
+    RowSet set = new RingBufferRowSet( 4 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = 0; i < 6; i++ ) {
+      rows.add( new Object[] { i } );
+    }
+
+    // Only 4 rows fit in the buffer
+    assertEquals( 4, set.putRows( rm, rows ) );
+    assertEquals( 4, set.size() );
+
+    List<Object[]> result = set.getRows( 3 );
+    assertEquals( 3, result.size() );
+    assertSame( rows.get( 0 ), result.get( 0 ) );
+    assertSame( rows.get( 2 ), result.get( 2 ) );
+
+    assertEquals( 2, set.putRows( rm, rows.subList( 4, 6 ) ) );
+    result = set.getRows( 10 );
+    assertEquals( 3, result.size() );
+    assertSame( rows.get( 3 ), result.get( 0 ) );
+    assertSame( rows.get( 5 ), result.get( 2 ) );
+
+    set.setDone();
+    assertTrue( set.getRows( 10 ).isEmpty() );
+  }
+
+  @Test
+  public void testNullRowIsRejected() {
+    RowSet set = new RingBufferRowSet( 3 );
+    assertFalse( set.putRow( createRowMetaInterface(), null ) );
+    assertEquals( 0, set.size() );
+  }
+
+  @Test
+  public void testClear() {
+    RowSet set = new RingBufferRowSet( 2 );
+    RowMetaInterface rm = createRowMetaInterface();
+    set.putRow( rm, new Object[] { 1L } );
+    set.putRow( rm, new Object[] { 2L } );
+    set.setDone();
+
+    set.clear();
+
+    assertEquals( 0, set.size() );
+    assertFalse( set.isDone() );
+    assertNull( set.getRowImmediate() );
+    assertTrue( set.putRow( rm, new Object[] { 3L } ) );
+    assertEquals( 3L, set.getRow()[0] );
+  }
+
+  @Test( timeout = 5000 )
+  public void testSetDoneWakesUpWaitingConsumer() throws Exception {
+    final RowSet set = new RingBufferRowSet( 10 );
+    final AtomicReference<Object[]> result = new AtomicReference<>( new Object[0] );
+
+    Thread consumer = new Thread( () -> result.set( set.getRowWait( 1, TimeUnit.HOURS ) ) );
+    consumer.start();
+    Thread.sleep( 50 );
+    set.setDone();
+    consumer.join();
+
+    assertNull( result.get() );
+  }
+
+  @Test( timeout = 30000 )
+  public void testProducerAndConsumerThreads() throws Exception {
+    final RowSet set = new RingBufferRowSet( 7 );
+    final RowMetaInterface rm = createRowMetaInterface();
+    final int nrRows = 100000;
+
+    Thread producer = new Thread( () -> {
+      for ( long i = 0; i < nrRows; i++ ) {
+        Object[] row = new Object[] { i };
+        while ( !set.putRow( rm, row ) ) {
+          // retry until there is room
+        }
+      }
+      set.setDone();
+    } );
+    producer.start();
+
+    long expected = 0;
+    Object[] row = set.getRow();
+    while ( row != null || !set.isDone() || set.size() > 0 ) {
+      if ( row != null ) {
+        assertEquals( expected++, row[0] );
+      }
+      row = set.getRow();
+    }
+    producer.join();
+
+    assertEquals( nrRows, expected );
+  }
+
+  @Test
+  public void testNames() {
+    RowSet set = new RingBufferRowSet( 3 );
+
+    set.setThreadNameFromToCopy( "from", 2, "to", 3 );
+
+    assertEquals( "from", set.getOriginStepName() );
+    assertEquals( 2, set.getOriginStepCopy() );
+    assertEquals( "to", set.getDestinationStepName() );
+    assertEquals( 3, set.getDestinationStepCopy() );
+    assertEquals( "from.2 - to.3", set.getName() );
+  }
+}
@@ -13,6 +13,10 @@
 
 package org.pentaho.di.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -23,6 +27,7 @@ import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.junit.rules.RestorePDIEnvironment;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -161,6 +166,37 @@ public class RowSetTest {
      **********************************************************************/
   }
 
+  /**
+   * Batch functionality test.
+   */
+  @Test
+  public void testBatches() {
+    RowSet set = new BlockingRowSet( 3 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = 1; i <= 4; i++ ) {
+      rows.add( new Object[] { i } );
+    }
+
+    // The rowset can only hold 3 rows, the 4th one times out
+    assertEquals( 3, set.putRows( rm, rows ) );
+    assertEquals( 3, set.size() );
+
+    List<Object[]> result = set.getRows( 2 );
+    assertEquals( 2, result.size() );
+    assertEquals( 1L, result.get( 0 )[0] );
+    assertEquals( 2L, result.get( 1 )[0] );
+
+    assertEquals( 1, set.putRows( rm, rows.subList( 3, 4 ) ) );
+    result = set.getRows( 10 );
+    assertEquals( 2, result.size() );
+    assertEquals( 3L, result.get( 0 )[0] );
+    assertEquals( 4L, result.get( 1 )[0] );
+
+    assertTrue( set.getRows( 10 ).isEmpty() );
+  }
+
   /**
    * Names test. Just for completeness.
    */
@@ -177,4 +213,18 @@ public class RowSetTest {
     assertEquals( set.toString(), set.getName() );
     assertEquals( "from.2 - to.3", set.getName() );
   }
+
+  @Test( timeout = 5000 )
+  public void testSetDoneWakesUpWaitingConsumer() throws Exception {
+    final RowSet set = new BlockingRowSet( 10 );
+    final AtomicReference<Object[]> result = new AtomicReference<>( new Object[0] );
+
+    Thread consumer = new Thread( () -> result.set( set.getRowWait( 1, TimeUnit.HOURS ) ) );
+    consumer.start();
+    Thread.sleep( 50 );
+    set.setDone();
+    consumer.join();
+
+    assertNull( result.get() );
+  }
 }
@@ -73,6 +73,7 @@ import org.pentaho.di.core.exception.KettleDatabaseBatchException;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
@@ -156,6 +157,27 @@ public class DatabaseTest {
     assertEquals( conn, db.getConnection() );
   }
 
+  @Test
+  public void testGetRowBlock() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaNumber( columnName ) );
+    when( rs.next() ).thenReturn( true, true, true, false );
+    when( meta.getValueFromResultSet( same( rs ), any( ValueMetaInterface.class ), eq( 0 ) ) )
+      .thenReturn( 1.0, 2.0, 3.0 );
+
+    // Without a connection group the connection isn't locked, there doesn't even have to be one
+    Database db = new Database( log, meta );
+    List<Object[]> first = db.getRowBlock( rs, rowMeta, 2 );
+    List<Object[]> last = db.getRowBlock( rs, rowMeta, 2 );
+
+    assertEquals( 2, first.size() );
+    assertEquals( 1.0, first.get( 0 )[ 0 ] );
+    assertEquals( 2.0, first.get( 1 )[ 0 ] );
+    assertEquals( 1, last.size() );
+    assertEquals( 3.0, last.get( 0 )[ 0 ] );
+    assertTrue( db.getRowBlock( rs, rowMeta, 2 ).isEmpty() );
+  }
+
   @Test
   public void testGetQueryFieldsFromPreparedStatement() throws Exception {
     when( rsMetaData.getColumnCount() ).thenReturn( 1 );
@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.database;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+public class ResultSetRowReaderTest {
+  @ClassRule
+  public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private DatabaseMeta databaseMeta;
+  private ResultSet rs;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    databaseMeta = new DatabaseMeta();
+    databaseMeta.setDatabaseInterface( new H2DatabaseMeta() );
+    rs = mock( ResultSet.class );
+  }
+
+  @Test
+  public void testReadRow() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    when( rs.getLong( 1 ) ).thenReturn( 5L );
+    when( rs.getString( 2 ) ).thenReturn( null );
+    when( rs.wasNull() ).thenReturn( false, true );
+
+    ResultSetRowReader reader = new ResultSetRowReader( databaseMeta, rowMeta );
+    Object[] row = reader.readRow( rs );
+
+    assertEquals( 5L, row[ 0 ] );
+    assertEquals( null, row[ 1 ] );
+    assertTrue( reader.isReaderOf( rowMeta ) );
+    assertFalse( reader.isReaderOf( rowMeta.clone() ) );
+  }
+
+  @Test
+  public void testReadRow_binaryStringStorage() throws Exception {
+    ValueMetaString valueMeta = new ValueMetaString( "name" );
+    valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( valueMeta );
+    byte[] bytes = new byte[] { 'a' };
+    when( rs.getBytes( 1 ) ).thenReturn( bytes );
+
+    Object[] row = new ResultSetRowReader( databaseMeta, rowMeta ).readRow( rs );
+
+    assertArrayEquals( bytes, (byte[]) row[ 0 ] );
+    verify( rs, never() ).getString( anyInt() );
+  }
+
+  @Test
+  public void testReadRow_valueTypeReadsItsOwnValues() throws Exception {
+    ValueMetaInterface valueMeta = mock( ValueMetaInterface.class );
+    when( valueMeta.getName() ).thenReturn( "own" );
+    when( valueMeta.getValueFromResultSet( databaseMeta.getDatabaseInterface(), rs, 0 ) ).thenReturn( "own" );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( valueMeta );
+
+    Object[] row = new ResultSetRowReader( databaseMeta, rowMeta ).readRow( rs );
+
+    assertEquals( "own", row[ 0 ] );
+  }
+
+  @Test
+  public void testReadRow_valueMetaOverridingTheRead() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) {
+      @Override
+      public Object getValueFromResultSet( DatabaseInterface databaseInterface, ResultSet resultSet, int index ) {
+        return 7L;
+      }
+    } );
+
+    // The second reader uses what was found out about the class for the first one
+    assertEquals( 7L, new ResultSetRowReader( databaseMeta, rowMeta ).readRow( rs )[ 0 ] );
+    assertEquals( 7L, new ResultSetRowReader( databaseMeta, rowMeta ).readRow( rs )[ 0 ] );
+    verify( rs, never() ).getLong( anyInt() );
+  }
+
+  @Test( expected = KettleDatabaseException.class )
+  public void testReadRow_failingColumn() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    when( rs.getLong( 1 ) ).thenThrow( new SQLException( "closed" ) );
+
+    new ResultSetRowReader( databaseMeta, rowMeta ).readRow( rs );
+  }
+}
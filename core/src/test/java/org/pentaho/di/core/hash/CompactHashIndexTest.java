@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class CompactHashIndexTest {
+
+  @Test
+  public void testGetAndPut() throws KettleValueException {
+    CompactHashIndex obj = new CompactHashIndex( keyMeta(), valueMeta(), false );
+    assertTrue( obj.isEmpty() );
+    assertNull( obj.get( new Object[] { 10L, "a" } ) );
+
+    Date date = new Date( 1234567890L );
+    obj.put( new Object[] { 10L, "a" }, new Object[] { 1L, 2.5, date, true, "b", BigDecimal.ONE } );
+    assertEquals( 1, obj.getSize() );
+    assertArrayEquals( new Object[] { 1L, 2.5, date, true, "b", BigDecimal.ONE }, obj.get( new Object[] { 10L, "a" } ) );
+    assertNull( obj.get( new Object[] { 10L, "b" } ) );
+    assertNull( obj.get( new Object[] { 10L, "c" } ) );
+
+    // The values of a key are replaced, like in a hash map
+    obj.put( new Object[] { 10L, "a" }, new Object[] { null, null, null, null, null, null } );
+    assertEquals( 1, obj.getSize() );
+    assertArrayEquals( new Object[6], obj.get( new Object[] { 10L, "a" } ) );
+  }
+
+  @Test
+  public void testNullKeys() throws KettleValueException {
+    CompactHashIndex obj = new CompactHashIndex( keyMeta(), valueMeta(), false );
+    obj.put( new Object[] { null, "a" }, new Object[] { 1L, null, null, null, null, null } );
+    obj.put( new Object[] { 0L, null }, new Object[] { 2L, null, null, null, null, null } );
+
+    assertEquals( 1L, obj.get( new Object[] { null, "a" } )[0] );
+    assertEquals( 2L, obj.get( new Object[] { 0L, null } )[0] );
+    assertNull( obj.get( new Object[] { 0L, "a" } ) );
+    assertNull( obj.get( new Object[] { null, null } ) );
+  }
+
+  @Test
+  public void testManyRowsOnAndOffHeap() throws KettleValueException {
+    for ( boolean offHeap : new boolean[] { false, true } ) {
+      CompactHashIndex obj = new CompactHashIndex( keyMeta(), valueMeta(), offHeap );
+      Map<List<Object>, Object[]> expected = new HashMap<>();
+      Random random = new Random( 1 );
+      for ( int i = 0; i < 100000; i++ ) {
+        Object[] keyData = { (long) random.nextInt( 50000 ), "key" + random.nextInt( 3 ) };
+        Object[] valueData = { random.nextLong(), random.nextDouble(), new Date( random.nextLong() ),
+          random.nextBoolean(), "value" + random.nextInt( 100 ), new BigDecimal( i ) };
+        obj.put( keyData, valueData );
+        expected.put( Arrays.asList( keyData ), valueData );
+      }
+
+      assertEquals( expected.size(), obj.getSize() );
+      for ( Map.Entry<List<Object>, Object[]> entry : expected.entrySet() ) {
+        assertArrayEquals( entry.getValue(), obj.get( entry.getKey().toArray() ) );
+      }
+      assertEquals( -1, obj.indexOf( new Object[] { 50000L, "key0" } ) );
+    }
+  }
+
+  @Test
+  public void testGetValuesIntoRow() throws KettleValueException {
+    CompactHashIndex obj = new CompactHashIndex( keyMeta(), valueMeta(), false );
+    obj.put( new Object[] { 1L, "a" }, new Object[] { 1L, 1.0, null, false, "b", null } );
+
+    Object[] row = new Object[] { "x", null, null, null, null, null, null };
+    obj.getValues( obj.indexOf( new Object[] { 1L, "a" } ), row, 1 );
+    assertArrayEquals( new Object[] { "x", 1L, 1.0, null, false, "b", null }, row );
+  }
+
+  @Test
+  public void testSupportsKeys() {
+    assertTrue( CompactHashIndex.supportsKeys( keyMeta() ) );
+
+    RowMeta keyMeta = keyMeta();
+    keyMeta.addValueMeta( new ValueMetaBinary( "binary" ) );
+    assertFalse( CompactHashIndex.supportsKeys( keyMeta ) );
+  }
+
+  @Test( expected = KettleValueException.class )
+  public void testUnsupportedKeys() throws KettleValueException {
+    RowMeta keyMeta = new RowMeta();
+    keyMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    new CompactHashIndex( keyMeta, valueMeta(), false );
+  }
+
+  private RowMeta keyMeta() {
+    RowMeta keyMeta = new RowMeta();
+    keyMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    keyMeta.addValueMeta( new ValueMetaString( "string" ) );
+    return keyMeta;
+  }
+
+  private RowMeta valueMeta() {
+    RowMeta valueMeta = new RowMeta();
+    valueMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    valueMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    valueMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    valueMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    valueMeta.addValueMeta( new ValueMetaString( "string" ) );
+    valueMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    return valueMeta;
+  }
+}
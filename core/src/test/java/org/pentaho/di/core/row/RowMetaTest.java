@@ -449,4 +449,62 @@ public class RowMetaTest {
       rowMeta.addValueMeta( i, new ValueMetaInteger( null ) );
     }
   }
+
+  @Test
+  public void testFreeze() throws Exception {
+    RowMeta frozen = ( (RowMeta) rowMeta ).freeze();
+    assertSame( rowMeta, frozen );
+    assertTrue( frozen.isFrozen() );
+
+    assertEquals( 3, frozen.size() );
+    assertFalse( frozen.isEmpty() );
+    assertSame( integer, frozen.getValueMeta( 1 ) );
+    assertNull( frozen.getValueMeta( 3 ) );
+    assertEquals( 2, frozen.indexOfValue( "date" ) );
+    assertEquals( 2, frozen.indexOfValue( "DATE" ) );
+    assertEquals( -1, frozen.indexOfValue( "unknown" ) );
+    assertSame( string, frozen.searchValueMeta( "String" ) );
+    assertNull( frozen.searchValueMeta( "unknown" ) );
+    assertEquals( 3, frozen.getValueMetaList().size() );
+    assertEquals( "integer", frozen.getFieldNames()[ 1 ] );
+  }
+
+  @Test
+  public void testFrozenRowMetaThawsWhenModified() throws Exception {
+    RowMeta frozen = ( (RowMeta) rowMeta ).freeze();
+
+    frozen.addValueMeta( bin );
+    assertFalse( frozen.isFrozen() );
+    assertEquals( 4, frozen.size() );
+    assertEquals( 3, frozen.indexOfValue( "bin" ) );
+
+    frozen.freeze();
+    frozen.removeValueMeta( "string" );
+    assertFalse( frozen.isFrozen() );
+    assertEquals( -1, frozen.indexOfValue( "string" ) );
+    assertEquals( 0, frozen.indexOfValue( "integer" ) );
+  }
+
+  @Test
+  public void testFrozenRowMetaSeesRenamedValues() throws Exception {
+    RowMeta frozen = ( (RowMeta) rowMeta ).freeze();
+
+    integer.setName( "renamed" );
+    assertEquals( 1, frozen.indexOfValue( "renamed" ) );
+    assertEquals( -1, frozen.indexOfValue( "integer" ) );
+  }
+
+  @Test
+  public void testFrozenRowMetaClonesRows() throws Exception {
+    rowMeta.addValueMeta( bin );
+    RowMeta frozen = ( (RowMeta) rowMeta ).freeze();
+
+    byte[] bytes = new byte[] { 1, 2, 3 };
+    Object[] row = new Object[] { "a", 1L, null, bytes };
+    Object[] clone = frozen.cloneRow( row );
+
+    assertSame( row[ 0 ], clone[ 0 ] );
+    assertEquals( 3, ( (byte[]) clone[ 3 ] ).length );
+    assertFalse( bytes == clone[ 3 ] );
+  }
 }
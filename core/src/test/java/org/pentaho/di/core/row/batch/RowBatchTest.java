@@ -0,0 +1,120 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row.batch;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RowBatchTest {
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  private List<Object[]> createRows() {
+    return Arrays.asList(
+      new Object[] { 1L, 1.5, "a" },
+      new Object[] { null, 2.5, null },
+      new Object[] { 3L, null, "c" } );
+  }
+
+  @Test
+  public void testFromRows() {
+    RowBatch batch = RowBatch.fromRows( createRowMeta(), createRows() );
+
+    assertEquals( 3, batch.size() );
+    assertEquals( 3, batch.getColumnCount() );
+    assertTrue( batch.getColumn( 0 ) instanceof LongColumnVector );
+    assertTrue( batch.getColumn( 1 ) instanceof DoubleColumnVector );
+    assertTrue( batch.getColumn( 2 ) instanceof ObjectColumnVector );
+
+    LongColumnVector ids = (LongColumnVector) batch.getColumn( 0 );
+    assertTrue( ids.hasNulls() );
+    assertEquals( 3L, ids.getLong( 2 ) );
+    assertTrue( ids.isNull( 1 ) );
+    assertFalse( ids.isNull( 2 ) );
+    assertNull( batch.getColumn( 1 ).getObject( 2 ) );
+    assertEquals( "c", batch.getColumn( 2 ).getObject( 2 ) );
+  }
+
+  @Test
+  public void testToRows() {
+    List<Object[]> rows = createRows();
+    List<Object[]> result = RowBatch.fromRows( createRowMeta(), rows ).toRows();
+
+    assertEquals( rows.size(), result.size() );
+    for ( int r = 0; r < rows.size(); r++ ) {
+      for ( int c = 0; c < 3; c++ ) {
+        assertEquals( rows.get( r )[ c ], result.get( r )[ c ] );
+      }
+    }
+  }
+
+  @Test
+  public void testUnexpectedValuesAreKeptAsObjects() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowBatch batch = RowBatch.fromRows( rowMeta, Arrays.asList( new Object[] { 1L }, new Object[] { "2" } ) );
+
+    assertTrue( batch.getColumn( 0 ) instanceof ObjectColumnVector );
+    assertEquals( "2", batch.getRow( 1 )[ 0 ] );
+  }
+
+  @Test
+  public void testSelectAndSlice() {
+    RowBatch batch = RowBatch.fromRows( createRowMeta(), createRows() );
+
+    RowBatch selected = batch.select( new int[] { 0, 2 }, 2 );
+    assertEquals( 2, selected.size() );
+    assertEquals( 3L, selected.getRow( 1 )[ 0 ] );
+    assertNull( selected.getRow( 1 )[ 1 ] );
+    assertSame( batch, batch.select( new int[] { 0, 1, 2 }, 3 ) );
+
+    RowBatch slice = batch.slice( 1, 3 );
+    assertEquals( 2, slice.size() );
+    assertNull( slice.getRow( 0 )[ 0 ] );
+    assertEquals( "c", slice.getRow( 1 )[ 2 ] );
+    assertSame( batch, batch.slice( 0, 3 ) );
+  }
+
+  @Test
+  public void testConstantColumn() {
+    ColumnVector column = new ConstantColumnVector( "x", 1000 );
+    assertEquals( "x", column.getObject( 999 ) );
+    assertEquals( 10, column.select( new int[ 10 ], 10 ).size() );
+    assertTrue( new ConstantColumnVector( null, 5 ).isNull( 3 ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testColumnsMustMatchFields() {
+    new RowBatch( createRowMeta(), new ColumnVector[ 2 ], 0 );
+  }
+}
@@ -0,0 +1,113 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.core.row.value;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class LockFreeDateConverterTest {
+
+  private static final String[] MASKS = {
+    ValueMetaBase.DEFAULT_DATE_FORMAT_MASK, "yyyy-MM-dd", "yyyyMMdd", "yyyy-MM-dd'T'HH:mm:ss", "dd.MM.yyyy HH:mm",
+    "HH:mm:ss" };
+
+  private static final String[] TIME_ZONES = { "UTC", "Europe/Amsterdam", "America/New_York", "Australia/Lord_Howe" };
+
+  @Test
+  public void testPatternTranslation() {
+    assertEquals( "uuuu'/'MM'/'dd' 'HH':'mm':'ss'.'SSS",
+      LockFreeDateConverter.toDateTimeFormatterPattern( "yyyy/MM/dd HH:mm:ss.SSS" ) );
+    assertEquals( "uuuu'-'MM'-'dd'T'HH", LockFreeDateConverter.toDateTimeFormatterPattern( "yyyy-MM-dd'T'HH" ) );
+    assertNull( LockFreeDateConverter.toDateTimeFormatterPattern( "yy-MM-dd" ) );
+    assertNull( LockFreeDateConverter.toDateTimeFormatterPattern( "yyyy-MMM-dd" ) );
+    assertNull( LockFreeDateConverter.toDateTimeFormatterPattern( "hh:mm a" ) );
+    assertNull( LockFreeDateConverter.toDateTimeFormatterPattern( "yyyy''MM" ) );
+  }
+
+  @Test
+  public void testUnsupportedFormats() {
+    assertNull( LockFreeDateConverter.of( new SimpleDateFormat( "EEE, d MMM yyyy" ) ) );
+    assertNull( LockFreeDateConverter.of( new SimpleDateFormat( "yyyy-MM-dd", new Locale( "th", "TH" ) ) ) );
+
+    SimpleDateFormat customTimeZone = new SimpleDateFormat( "yyyy-MM-dd" );
+    customTimeZone.setTimeZone( new SimpleTimeZone( 3600000, "Custom" ) );
+    assertNull( LockFreeDateConverter.of( customTimeZone ) );
+  }
+
+  @Test
+  public void testFormatAndParseLikeSimpleDateFormat() {
+    Random random = new Random( 1 );
+    for ( String mask : MASKS ) {
+      for ( String timeZone : TIME_ZONES ) {
+        for ( boolean lenient : new boolean[] { false, true } ) {
+          SimpleDateFormat format = new SimpleDateFormat( mask );
+          format.setTimeZone( TimeZone.getTimeZone( timeZone ) );
+          format.setLenient( lenient );
+          LockFreeDateConverter converter = LockFreeDateConverter.of( format );
+          assertNotNull( mask, converter );
+
+          for ( int i = 0; i < 2000; i++ ) {
+            // Any time between 1800 and 2300, rounded to the hour half of the time to hit the daylight saving changes
+            long time = (long) ( ( random.nextDouble() * 500 - 170 ) * 365.25 * 24 * 3600000L );
+            if ( i % 2 == 0 ) {
+              time = time / 3600000L * 3600000L;
+            }
+            Date date = new Date( time );
+            String string = converter.format( date );
+            if ( string != null ) {
+              assertEquals( mask + " " + timeZone + " " + time, format.format( date ), string );
+            }
+
+            assertParse( format, converter, format.format( date ) );
+            assertParse( format, converter, format.format( date ).replace( '1', '3' ) );
+          }
+        }
+      }
+    }
+  }
+
+  private static void assertParse( SimpleDateFormat format, LockFreeDateConverter converter, String string ) {
+    Date date = converter.parse( string );
+    if ( date != null ) {
+      ParsePosition position = new ParsePosition( 0 );
+      assertEquals( format.toPattern() + " " + string, format.parse( string, position ), date );
+    }
+  }
+
+  @Test
+  public void testParseOnlyExactMatches() {
+    SimpleDateFormat format = new SimpleDateFormat( "yyyy-MM-dd" );
+    format.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+    LockFreeDateConverter converter = LockFreeDateConverter.of( format );
+
+    assertEquals( new Date( 86400000L ), converter.parse( "1970-01-02" ) );
+    assertNull( converter.parse( "1970-1-2" ) );
+    assertNull( converter.parse( "1970-02-30" ) );
+    assertNull( converter.parse( "1970-01-02 10:00" ) );
+    assertNull( converter.parse( "1582-01-02" ) );
+    assertNull( converter.format( new Date( Long.MIN_VALUE / 2 ) ) );
+  }
+}
@@ -0,0 +1,153 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.core.row.value;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class LockFreeNumberConverterTest {
+
+  private static final String[] MASKS = {
+    ValueMetaBase.DEFAULT_INTEGER_FORMAT_MASK, ValueMetaBase.DEFAULT_NUMBER_FORMAT_MASK,
+    ValueMetaBase.DEFAULT_BIG_NUMBER_FORMAT_MASK, ValueMetaBase.DEFAULT_NUMBER_PARSE_MASK, "#", "#.#", "0.00",
+    " 000;-000", "000.000", "#.##;(#.##)" };
+
+  private static DecimalFormat decimalFormat( String mask, boolean parseBigDecimal ) {
+    DecimalFormat format = (DecimalFormat) NumberFormat.getInstance( Locale.US );
+    format.setParseBigDecimal( parseBigDecimal );
+    format.applyPattern( mask );
+    return format;
+  }
+
+  @Test
+  public void testUnsupportedMasks() {
+    assertNull( LockFreeNumberConverter.of( decimalFormat( "#,##0.00", false ) ) );
+    assertNull( LockFreeNumberConverter.of( decimalFormat( "0.###E0", false ) ) );
+    assertNull( LockFreeNumberConverter.of( decimalFormat( "#%", false ) ) );
+    assertNull( LockFreeNumberConverter.of( decimalFormat( "\u00A4#.00", false ) ) );
+    assertNull( LockFreeNumberConverter.of( null ) );
+  }
+
+  @Test
+  public void testFormatLikeDecimalFormat() {
+    Random random = new Random( 1 );
+    for ( String mask : MASKS ) {
+      DecimalFormat format = decimalFormat( mask, false );
+      LockFreeNumberConverter converter = LockFreeNumberConverter.of( format );
+      assertNotNull( mask, converter );
+
+      for ( double value : new double[] { 0.0, -0.0, 0.5, -0.04, 0.15, 1.05, 2.5, 1e23, -1234.5678, 0.1, 1e-20 } ) {
+        assertFormat( format, converter, value );
+      }
+      for ( int i = 0; i < 10000; i++ ) {
+        assertFormat( format, converter, random.nextInt( 2000000 ) / 100.0 - 10000 );
+        assertFormat( format, converter, random.nextGaussian() * Math.pow( 10, random.nextInt( 30 ) - 10 ) );
+        assertFormat( format, converter, Double.longBitsToDouble( random.nextLong() ) );
+
+        long longValue = random.nextLong();
+        assertEquals( format.format( longValue ), converter.format( longValue ) );
+
+        BigDecimal bigValue = new BigDecimal( BigInteger.valueOf( random.nextLong() ), random.nextInt( 30 ) - 5 );
+        assertEquals( format.format( bigValue ), converter.format( bigValue ) );
+      }
+      assertEquals( format.format( Long.MIN_VALUE ), converter.format( Long.MIN_VALUE ) );
+      assertEquals( format.format( 0L ), converter.format( 0L ) );
+    }
+  }
+
+  private static void assertFormat( DecimalFormat format, LockFreeNumberConverter converter, double value ) {
+    String string = converter.format( value );
+    if ( string != null ) {
+      assertEquals( "Formatting " + value + " with " + format.toPattern(), format.format( value ), string );
+    }
+  }
+
+  @Test
+  public void testFormatUsesDecimalSymbol() {
+    DecimalFormat format = (DecimalFormat) NumberFormat.getInstance( Locale.US );
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    symbols.setDecimalSeparator( ',' );
+    format.setDecimalFormatSymbols( symbols );
+    format.applyPattern( ValueMetaBase.DEFAULT_NUMBER_FORMAT_MASK );
+    LockFreeNumberConverter converter = LockFreeNumberConverter.of( format );
+
+    assertEquals( "-12,25", converter.format( -12.25 ) );
+    assertEquals( Double.valueOf( 12.25 ), converter.parseDouble( "12,25" ) );
+    assertNull( converter.parseDouble( "12.25" ) );
+  }
+
+  @Test
+  public void testParseLikeDecimalFormat() {
+    String[] strings = {
+      "0", "-0", "007", "-123", "123456789012345678", "1234567890123456789", "1.5", "-0.0", "1.50", "00012.3400",
+      "123456789.123456789", "1e5", "+1", "1,000", "-", ".5", "5.", "1-", "" };
+    for ( String mask : MASKS ) {
+      for ( boolean parseBigDecimal : new boolean[] { false, true } ) {
+        DecimalFormat format = decimalFormat( mask, parseBigDecimal );
+        LockFreeNumberConverter converter = LockFreeNumberConverter.of( format );
+        for ( String string : strings ) {
+          ParsePosition position = new ParsePosition( 0 );
+          Number expected = format.parse( string, position );
+          if ( position.getIndex() < string.length() ) {
+            expected = null;
+          }
+
+          Long integer = converter.parseLong( string );
+          if ( integer != null ) {
+            assertEquals( mask + " " + string, expected.longValue(), integer.longValue() );
+          }
+          Double number = converter.parseDouble( string );
+          if ( number != null ) {
+            assertEquals( mask + " " + string, expected.doubleValue(), number, 0.0 );
+            assertEquals( mask + " " + string, 1 / expected.doubleValue(), 1 / number, 0.0 );
+          }
+          BigDecimal bigNumber = converter.parseBigDecimal( string );
+          if ( bigNumber != null ) {
+            assertEquals( mask + " " + string, expected, bigNumber );
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParsePlainNumbersOnly() {
+    LockFreeNumberConverter converter = LockFreeNumberConverter.of( decimalFormat( "####0", false ) );
+
+    assertEquals( Long.valueOf( -42 ), converter.parseLong( "-42" ) );
+    assertEquals( Double.valueOf( 1.5 ), converter.parseDouble( "1.5" ) );
+    assertNull( converter.parseBigDecimal( "1.5" ) );
+    assertNull( converter.parseLong( "1.5" ) );
+    assertNull( converter.parseLong( "1234567890123456789" ) );
+    assertNull( converter.parseLong( "1a" ) );
+    assertNull( converter.parseDouble( "1,5" ) );
+
+    converter = LockFreeNumberConverter.of( decimalFormat( "####0", true ) );
+    assertNull( converter.parseDouble( "1.5" ) );
+    assertEquals( new BigDecimal( "12.3400" ), converter.parseBigDecimal( "0012.3400" ) );
+  }
+}
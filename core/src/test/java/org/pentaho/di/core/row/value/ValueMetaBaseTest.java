@@ -450,6 +450,86 @@ public class ValueMetaBaseTest {
     valueMeta.getNumber( "1234567890" );
   }
 
+  @Test
+  public void testConversionsFollowMaskChanges() throws KettleValueException {
+    ValueMetaBase numberMeta = new ValueMetaNumber( "number" );
+    assertEquals( "1234.5", numberMeta.convertNumberToString( 1234.5 ) );
+    assertEquals( "1234.5", numberMeta.convertNumberToString( 1234.5 ) );
+    numberMeta.setConversionMask( "#.00" );
+    assertEquals( "1234.50", numberMeta.convertNumberToString( 1234.5 ) );
+    assertEquals( "1234.50", numberMeta.convertNumberToString( 1234.5 ) );
+    assertEquals( Double.valueOf( -12.25 ), numberMeta.convertStringToNumber( "-12.25" ) );
+
+    ValueMetaBase integerMeta = new ValueMetaInteger( "integer" );
+    assertEquals( "-42", integerMeta.convertIntegerToString( -42L ) );
+    assertEquals( Long.valueOf( 42L ), integerMeta.convertStringToInteger( "42" ) );
+    integerMeta.setConversionMask( "000" );
+    assertEquals( "007", integerMeta.convertIntegerToString( 7L ) );
+    assertEquals( "007", integerMeta.convertIntegerToString( 7L ) );
+
+    ValueMetaBase dateMeta = new ValueMetaDate( "date" );
+    dateMeta.setDateFormatTimeZone( TimeZone.getTimeZone( "UTC" ) );
+    assertEquals( "1970/01/02 00:00:00.000", dateMeta.convertDateToString( new Date( 86400000L ) ) );
+    assertEquals( "1970/01/02 00:00:00.000", dateMeta.convertDateToString( new Date( 86400000L ) ) );
+    dateMeta.setConversionMask( "yyyy-MM-dd" );
+    assertEquals( "1970-01-02", dateMeta.convertDateToString( new Date( 86400000L ) ) );
+    assertEquals( new Date( 86400000L ), dateMeta.convertStringToDate( "1970-01-02" ) );
+    dateMeta.setDateFormatTimeZone( TimeZone.getTimeZone( "GMT+01:00" ) );
+    assertEquals( new Date( 82800000L ), dateMeta.convertStringToDate( "1970-01-02" ) );
+  }
+
+  @Test
+  public void testNumberToStringKeepsPrecisionWhenMasksDiffer() throws KettleValueException {
+    ValueMetaBase numberMeta = new ValueMetaNumber( "number" );
+    numberMeta.setConversionMask( "#.#" );
+    assertEquals( "0.3", numberMeta.convertNumberToString( 0.25 + 0.05 ) );
+
+    ValueMetaBase storageMeta = new ValueMetaNumber( "number" );
+    storageMeta.setConversionMask( "#.##" );
+    numberMeta.setStorageMetadata( storageMeta );
+    assertEquals( "0.3", numberMeta.convertNumberToString( 0.3 ) );
+    assertEquals( "0.12345", numberMeta.convertNumberToString( 0.12345 ) );
+
+    numberMeta.setStorageMetadata( null );
+    assertEquals( "0.12345", numberMeta.convertNumberToString( 0.12345 ) );
+  }
+
+  @Test
+  public void testConcurrentConversionsWithSharedValueMeta() throws Exception {
+    final ValueMetaBase numberMeta = new ValueMetaNumber( "number" );
+    final ValueMetaBase dateMeta = new ValueMetaDate( "date" );
+    final List<Throwable> errors = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for ( int t = 0; t < 4; t++ ) {
+      final int offset = t;
+      threads.add( new Thread( () -> {
+        try {
+          SimpleDateFormat format = new SimpleDateFormat( ValueMetaBase.DEFAULT_DATE_FORMAT_MASK );
+          for ( int i = 0; i < 10000; i++ ) {
+            double number = offset * 100000 + i / 100.0;
+            assertEquals( number, numberMeta.convertStringToNumber( numberMeta.convertNumberToString( number ) ),
+              1e-6 );
+            Date date = new Date( 1000000000000L + offset * 100000000L + i * 1234L );
+            String string = dateMeta.convertDateToString( date );
+            assertEquals( format.format( date ), string );
+            assertEquals( date, dateMeta.convertStringToDate( string ) );
+          }
+        } catch ( Throwable e ) {
+          synchronized ( errors ) {
+            errors.add( e );
+          }
+        }
+      } ) );
+    }
+    for ( Thread thread : threads ) {
+      thread.start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    assertTrue( errors.toString(), errors.isEmpty() );
+  }
+
   @Test
   public void testIsNumeric() {
     int[] numTypes = { ValueMetaInterface.TYPE_INTEGER, ValueMetaInterface.TYPE_NUMBER, ValueMetaInterface.TYPE_BIGNUMBER };
@@ -0,0 +1,80 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.sketch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+  @Test
+  public void testFewValuesAreCountedExactly() {
+    HyperLogLog sketch = new HyperLogLog();
+    for ( int i = 0; i < 1000; i++ ) {
+      sketch.add( "value" + ( i % 200 ) );
+    }
+    sketch.add( null );
+    assertEquals( 200L, sketch.estimate() );
+  }
+
+  @Test
+  public void testEstimateWithinTheStandardError() {
+    HyperLogLog sketch = new HyperLogLog( 12 );
+    for ( long i = 0; i < 100000; i++ ) {
+      sketch.add( i );
+      sketch.add( i );
+    }
+    // 3 times the standard error of 1.6%
+    assertEquals( 100000.0, sketch.estimate(), 5000.0 );
+  }
+
+  @Test
+  public void testMergeCountsTheUnion() {
+    HyperLogLog first = new HyperLogLog( 10 );
+    HyperLogLog second = new HyperLogLog( 10 );
+    HyperLogLog all = new HyperLogLog( 10 );
+    for ( long i = 0; i < 20000; i++ ) {
+      ( i < 12000 ? first : second ).add( i );
+      if ( i >= 8000 ) {
+        // the values 8000..11999 are in both
+        second.add( i - 4000 );
+      }
+      all.add( i );
+    }
+    first.merge( second );
+    assertEquals( all.estimate(), first.estimate() );
+
+    HyperLogLog small = new HyperLogLog( 10 );
+    small.add( 1L );
+    small.add( 123456789L );
+    all.merge( small );
+    assertTrue( Math.abs( all.estimate() - 20001L ) < 20001L * 0.1 );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testMergeNeedsTheSamePrecision() {
+    new HyperLogLog( 10 ).merge( new HyperLogLog( 12 ) );
+  }
+
+  @Test
+  public void testEqualNumbersHashTheSame() {
+    assertEquals( HyperLogLog.hash( new BigDecimal( "1.50" ) ), HyperLogLog.hash( new BigDecimal( "1.5" ) ) );
+    assertEquals( HyperLogLog.hash( 0.0 ), HyperLogLog.hash( -0.0 ) );
+    assertEquals( HyperLogLog.hash( 42L ), HyperLogLog.hash( 42 ) );
+  }
+}
@@ -0,0 +1,72 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.sketch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class KllSketchTest {
+
+  @Test
+  public void testFewValuesGiveTheNearestRank() {
+    KllSketch sketch = new KllSketch();
+    for ( int i = 100; i >= 1; i-- ) {
+      sketch.update( i );
+    }
+    sketch.update( Double.NaN );
+    assertEquals( 100L, sketch.getN() );
+    assertEquals( 50.0, sketch.getQuantile( 0.5 ), 0.0 );
+    assertEquals( 90.0, sketch.getQuantile( 0.9 ), 0.0 );
+    assertEquals( 1.0, sketch.getQuantile( 0.0 ), 0.0 );
+    assertEquals( 100.0, sketch.getQuantile( 1.0 ), 0.0 );
+  }
+
+  @Test
+  public void testMemoryIsBoundedAndRankErrorSmall() {
+    KllSketch sketch = new KllSketch( 200 );
+    int n = 200000;
+    for ( int i = 0; i < n; i++ ) {
+      // every value once, in a scrambled order
+      sketch.update( ( i * 7919L ) % n );
+    }
+    assertTrue( sketch.getNrRetained() < 3 * 200 + 64 );
+    for ( double fraction : new double[] { 0.01, 0.25, 0.5, 0.75, 0.99 } ) {
+      // the rank of value v is v + 1, allow 2%
+      assertEquals( fraction * n, sketch.getQuantile( fraction ), 0.02 * n );
+    }
+  }
+
+  @Test
+  public void testMergeOfSketches() {
+    KllSketch first = new KllSketch( 100 );
+    KllSketch second = new KllSketch( 100 );
+    for ( int i = 0; i < 50000; i++ ) {
+      first.update( i );
+      second.update( 50000 + i );
+    }
+    first.merge( second );
+    first.merge( new KllSketch( 100 ) );
+    assertEquals( 100000L, first.getN() );
+    assertEquals( 0.0, first.getQuantile( 0.0 ), 0.0 );
+    assertEquals( 99999.0, first.getQuantile( 1.0 ), 0.0 );
+    assertEquals( 50000.0, first.getQuantile( 0.5 ), 0.03 * 100000 );
+  }
+
+  @Test
+  public void testEmptySketch() {
+    assertTrue( Double.isNaN( new KllSketch().getQuantile( 0.5 ) ) );
+  }
+}
@@ -0,0 +1,52 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadUtilTest {
+
+  @Test
+  public void testNewThreadRunsRunnable() throws Exception {
+    final AtomicBoolean ran = new AtomicBoolean( false );
+    Thread thread = VirtualThreadUtil.newThread( () -> ran.set( true ), "test thread" );
+
+    assertEquals( "test thread", thread.getName() );
+    assertFalse( thread.isAlive() );
+
+    thread.start();
+    thread.join();
+
+    assertTrue( ran.get() );
+  }
+
+  @Test
+  public void testSupportedFollowsRuntime() throws Exception {
+    boolean runtimeHasVirtualThreads;
+    try {
+      Thread.class.getMethod( "ofVirtual" );
+      runtimeHasVirtualThreads = true;
+    } catch ( NoSuchMethodException e ) {
+      runtimeHasVirtualThreads = false;
+    }
+
+    assertEquals( runtimeHasVirtualThreads, VirtualThreadUtil.isSupported() );
+  }
+}
@@ -0,0 +1,380 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.logging.Metrics;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.TransMeta.TransformationType;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+
+/**
+ * Runs the steps of a transformation as cooperative tasks on a work-stealing pool of threads shared by all the
+ * cooperative transformations in the JVM. Like the {@link SingleThreadedTransExecutor} a step only gets to call
+ * processRow() when it can do so without waiting: when there are rows on its input (or all its input is done) and
+ * there is room on its outputs. Unlike the single threaded executor, independent steps run in parallel on all the
+ * cores.<br>
+ * <br>
+ * A step that did some work wakes up the steps it reads from and writes to. A periodic sweep wakes up all the steps
+ * in case rows arrive from elsewhere, for example from a {@link RowProducer}.<br>
+ * <br>
+ * Only steps that support the single threaded transformation type can be used: those don't read ahead in
+ * processRow() and so never block a pool thread.
+ *
+ * @since 11.1.0.0
+ */
+public class CooperativeTransExecutor {
+
+  /** for i18n purposes, needed by Translator2!! */
+  private static Class<?> PKG = BaseStep.class;
+
+  /** The maximum number of processRow() calls a step does before it gives other steps a turn. */
+  private static final int QUANTUM = 1000;
+
+  /** The interval of the sweep that wakes up all the steps. */
+  private static final long SWEEP_INTERVAL_MILLIS = 10L;
+
+  private static ForkJoinPool pool;
+  private static ScheduledExecutorService sweeper;
+
+  private final Trans trans;
+  private final LogChannelInterface log;
+  private final List<StepTask> tasks;
+  private final AtomicInteger nrRunning;
+  private final int maxRowsOnOutput;
+  private ScheduledFuture<?> sweep;
+
+  public CooperativeTransExecutor( final Trans trans ) {
+    this.trans = trans;
+    this.log = trans.getLogChannel();
+    this.maxRowsOnOutput = Math.max( 1, trans.getTransMeta().getSizeRowset() );
+
+    List<StepMetaDataCombi> steps = trans.getSteps();
+    tasks = new ArrayList<>( steps.size() );
+    nrRunning = new AtomicInteger( steps.size() );
+
+    // Thread priority management only makes the steps yield, there are no step threads to yield to.
+    //
+    for ( StepMetaDataCombi combi : steps ) {
+      combi.step.setUsingThreadPriorityManagment( false );
+      tasks.add( new StepTask( combi ) );
+    }
+
+    // Connect the tasks through the row sets they share
+    //
+    Map<RowSet, StepTask> readers = new IdentityHashMap<>();
+    for ( StepTask task : tasks ) {
+      for ( RowSet rowSet : task.inputRowSets ) {
+        readers.put( rowSet, task );
+      }
+    }
+    for ( StepTask task : tasks ) {
+      for ( RowSet rowSet : task.outputRowSets ) {
+        StepTask reader = readers.get( rowSet );
+        if ( reader != null ) {
+          task.neighbours.add( reader );
+          reader.neighbours.add( task );
+
+          // A step only reads its info streams once they are complete. Don't hold back the step writing them or the
+          // two will wait on each other.
+          //
+          if ( reader.infoRowSets.contains( rowSet ) ) {
+            task.unboundedRowSets.add( rowSet );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Start all the steps. This method returns right away, the steps are finished through the usual step listeners.
+   *
+   * @throws KettleException in case a step doesn't support cooperative execution
+   */
+  public void start() throws KettleException {
+    for ( StepTask task : tasks ) {
+      StepMetaDataCombi combi = task.combi;
+      boolean ok = false;
+      for ( TransformationType type : combi.stepMeta.getStepMetaInterface().getSupportedTransformationTypes() ) {
+        if ( type == TransformationType.SingleThreaded ) {
+          ok = true;
+        }
+      }
+      if ( !ok ) {
+        throw new KettleException( "Step '"
+          + combi.stepname + "' of type '" + combi.stepMeta.getStepID()
+          + "' is not yet supported in a Cooperative transformation engine." );
+      }
+    }
+
+    if ( log.isDetailed() ) {
+      log.logDetailed( "Cooperative executor starting " + tasks.size() + " steps on " + getPool().getParallelism()
+        + " threads" );
+    }
+
+    if ( !tasks.isEmpty() ) {
+      sweep = getSweeper().scheduleWithFixedDelay(
+        this::wakeUpAll, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS );
+    }
+    wakeUpAll();
+  }
+
+  private void wakeUpAll() {
+    for ( StepTask task : tasks ) {
+      task.wakeUp();
+    }
+  }
+
+  private void stepFinished() {
+    if ( nrRunning.decrementAndGet() == 0 && sweep != null ) {
+      sweep.cancel( false );
+    }
+  }
+
+  public Trans getTrans() {
+    return trans;
+  }
+
+  /**
+   * @return the number of steps that didn't finish yet
+   */
+  public int getNrRunningSteps() {
+    return nrRunning.get();
+  }
+
+  /**
+   * @return the pool of threads shared by all the cooperative transformations
+   */
+  public static synchronized ForkJoinPool getPool() {
+    if ( pool == null ) {
+      int size = Const.toInt( System.getProperty( Const.KETTLE_COOPERATIVE_POOL_SIZE ), 0 );
+      if ( size <= 0 ) {
+        size = Runtime.getRuntime().availableProcessors();
+      }
+      AtomicInteger threadNr = new AtomicInteger( 1 );
+      pool = new ForkJoinPool( size, p -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( p );
+        thread.setName( "Cooperative transformation worker " + threadNr.getAndIncrement() );
+        return thread;
+      }, null, true );
+    }
+    return pool;
+  }
+
+  private static synchronized ScheduledExecutorService getSweeper() {
+    if ( sweeper == null ) {
+      sweeper = Executors.newSingleThreadScheduledExecutor( r -> {
+        Thread thread = new Thread( r, "Cooperative transformation sweeper" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    }
+    return sweeper;
+  }
+
+  /**
+   * A step as a task: it is either idle, scheduled on the pool, running, or running and woken up again (so that it
+   * runs once more when it's done), or finished.
+   */
+  private class StepTask implements Runnable {
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int RUNNING = 2;
+    private static final int RUNNING_WOKEN_UP = 3;
+    private static final int FINISHED = 4;
+
+    private final StepMetaDataCombi combi;
+    private final StepInterface step;
+    private final List<RowSet> inputRowSets;
+    private final List<RowSet> outputRowSets;
+    private final Set<RowSet> infoRowSets;
+    private final Set<RowSet> unboundedRowSets;
+    private final Set<StepTask> neighbours;
+    private final AtomicInteger state;
+    private boolean started;
+
+    StepTask( StepMetaDataCombi combi ) {
+      this.combi = combi;
+      this.step = combi.step;
+      this.inputRowSets = new ArrayList<>( step.getInputRowSets() );
+      this.outputRowSets = new ArrayList<>( step.getOutputRowSets() );
+      this.infoRowSets = Collections.newSetFromMap( new IdentityHashMap<>() );
+      this.unboundedRowSets = Collections.newSetFromMap( new IdentityHashMap<>() );
+      this.neighbours = new HashSet<>();
+      this.state = new AtomicInteger( IDLE );
+
+      Set<String> infoStepNames = new HashSet<>();
+      for ( StreamInterface infoStream : combi.stepMeta.getStepMetaInterface().getStepIOMeta().getInfoStreams() ) {
+        infoStepNames.add( infoStream.getStepname() );
+      }
+      for ( RowSet rowSet : inputRowSets ) {
+        if ( infoStepNames.contains( rowSet.getOriginStepName() ) ) {
+          infoRowSets.add( rowSet );
+        }
+      }
+    }
+
+    /**
+     * Make sure the step runs (again) soon. Never blocks.
+     */
+    void wakeUp() {
+      while ( true ) {
+        int current = state.get();
+        if ( current == IDLE ) {
+          if ( state.compareAndSet( IDLE, SCHEDULED ) ) {
+            getPool().execute( this );
+            return;
+          }
+        } else if ( current == RUNNING ) {
+          if ( state.compareAndSet( RUNNING, RUNNING_WOKEN_UP ) ) {
+            return;
+          }
+        } else {
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      state.set( RUNNING );
+
+      boolean finished = false;
+      int calls = 0;
+      try {
+        if ( !started ) {
+          started = true;
+          step.setRunning( true );
+          step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_START );
+          step.beforeStartProcessing( combi.meta, combi.data );
+          if ( step.getLogChannel().isDetailed() ) {
+            step.getLogChannel().logDetailed( BaseMessages.getString( "System.Log.StartingToRun" ) );
+          }
+        }
+
+        while ( calls < QUANTUM ) {
+          if ( step.isStopped() ) {
+            finished = true;
+            break;
+          }
+          if ( !canProcessRow() ) {
+            break;
+          }
+          calls++;
+          if ( !step.processRow( combi.meta, combi.data ) ) {
+            finished = true;
+            break;
+          }
+        }
+      } catch ( Throwable t ) {
+        step.getLogChannel().logError( BaseMessages.getString( "System.Log.UnexpectedError" ), t );
+        step.setErrors( 1 );
+        step.stopAll();
+        finished = true;
+      }
+
+      if ( finished ) {
+        finish();
+      }
+
+      // We consumed or produced rows: the steps around us might have something to do now
+      //
+      if ( calls > 0 || finished ) {
+        for ( StepTask neighbour : neighbours ) {
+          neighbour.wakeUp();
+        }
+      }
+
+      if ( finished ) {
+        return;
+      }
+      if ( calls >= QUANTUM || !state.compareAndSet( RUNNING, IDLE ) ) {
+        // Either there's more to do or we were woken up while running: go to the back of the queue
+        //
+        state.set( SCHEDULED );
+        getPool().execute( this );
+      }
+    }
+
+    /**
+     * @return true if processRow() can be called without having to wait for input or for room on the output
+     */
+    private boolean canProcessRow() {
+      for ( RowSet rowSet : outputRowSets ) {
+        if ( rowSet.size() >= maxRowsOnOutput && !unboundedRowSets.contains( rowSet ) ) {
+          return false;
+        }
+      }
+
+      // The info streams are read completely in one go
+      //
+      for ( RowSet rowSet : infoRowSets ) {
+        if ( !rowSet.isDone() ) {
+          return false;
+        }
+      }
+
+      if ( inputRowSets.isEmpty() ) {
+        return true;
+      }
+      boolean allDone = true;
+      for ( RowSet rowSet : inputRowSets ) {
+        if ( rowSet.size() > 0 ) {
+          return true;
+        }
+        allDone &= rowSet.isDone();
+      }
+      return allDone;
+    }
+
+    private void finish() {
+      state.set( FINISHED );
+      try {
+        step.afterFinishProcessing( combi.meta, combi.data );
+        step.dispose( combi.meta, combi.data );
+        step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_STOP );
+        step.getLogChannel().logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo",
+          String.valueOf( step.getLinesInput() ), String.valueOf( step.getLinesOutput() ),
+          String.valueOf( step.getLinesRead() ), String.valueOf( step.getLinesWritten() ),
+          String.valueOf( step.getLinesUpdated() ), String.valueOf( step.getErrors() + step.getLinesRejected() ) ) );
+      } catch ( Throwable t ) {
+        step.getLogChannel().logError( "UnexpectedError: " + Const.getStackTracker( t ) );
+      } finally {
+        step.markStop();
+        stepFinished();
+      }
+    }
+  }
+}
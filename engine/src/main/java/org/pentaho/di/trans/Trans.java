@@ -17,8 +17,10 @@ package org.pentaho.di.trans;
 import org.pentaho.di.base.IMetaFileCache;
 import org.pentaho.di.cluster.SlaveServer;
 import org.pentaho.di.connections.vfs.provider.ConnectionFileProvider;
+import org.pentaho.di.core.BatchRowSet;
 import org.pentaho.di.core.BlockingBatchingRowSet;
 import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.ConcurrentQueueRowSet;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.Counter;
 import org.pentaho.di.core.ExecutorInterface;
@@ -27,6 +29,7 @@ import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.SingleRowRowSet;
@@ -73,6 +76,7 @@ import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.util.ConnectionUtil;
 import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.util.VirtualThreadUtil;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.core.vfs.KettleVFS;
@@ -87,6 +91,7 @@ import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryDirectoryInterface;
 import org.pentaho.di.resource.ResourceUtil;
 import org.pentaho.di.resource.TopLevelResource;
+import org.pentaho.di.trans.TransMeta.TransformationType;
 import org.pentaho.di.trans.cluster.TransSplitter;
 import org.pentaho.di.trans.performance.StepPerformanceSnapShot;
 import org.pentaho.di.trans.step.BaseStep;
@@ -140,6 +145,9 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
@@ -518,6 +526,14 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   private ArrayBlockingQueue<Object> transFinishedBlockingQueue;
 
+  /**
+   * Signalled when the transformation starts running or is stopped, steps wait on it before they exchange their first
+   * rows. A lock rather than a monitor so that steps running on virtual threads don't pin their carrier thread.
+   */
+  private final Lock runningLock = new ReentrantLock();
+
+  private final Condition runningSignal = runningLock.newCondition();
+
   /**
    * The name of the executing server
    */
@@ -972,6 +988,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
             RowSet rowSet;
             switch ( transMeta.getTransformationType() ) {
               case Normal:
+              case VirtualThreads:
                 // This is a temporary patch until the batching rowset has proven
                 // to be working in all situations.
                 // Currently there are stalling problems when dealing with small
@@ -979,7 +996,17 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                 //
                 Boolean batchingRowSet =
                   ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
-                if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
+                Boolean ringBufferRowSet =
+                  ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_RING_BUFFER_ROWSET ) );
+                Boolean columnarBatches =
+                  ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_COLUMNAR_BATCHES ) );
+                if ( columnarBatches != null && columnarBatches.booleanValue()
+                  && thisStep.getStepMetaInterface().supportsBatches()
+                  && nextStep.getStepMetaInterface().supportsBatches() ) {
+                  rowSet = new BatchRowSet( transMeta.getSizeRowset() );
+                } else if ( ringBufferRowSet != null && ringBufferRowSet.booleanValue() ) {
+                  rowSet = new RingBufferRowSet( transMeta.getSizeRowset() );
+                } else if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
                   rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
                 } else {
                   rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
@@ -994,6 +1021,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                 rowSet = new QueueRowSet();
                 break;
 
+              case Cooperative:
+                rowSet = new ConcurrentQueueRowSet();
+                break;
+
               default:
                 throw new KettleException( "Unhandled transformation type: " + transMeta.getTransformationType() );
             }
@@ -1028,7 +1059,13 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           // distribution...
           for ( int s = 0; s < thisCopies; s++ ) {
             for ( int t = 0; t < nextCopies; t++ ) {
-              BlockingRowSet rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+              RowSet rowSet;
+              if ( transMeta.getTransformationType() == TransformationType.Cooperative ) {
+                // A cooperative step can't wait for room on its output
+                rowSet = new ConcurrentQueueRowSet();
+              } else {
+                rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+              }
               rowSet.setThreadNameFromToCopy( thisStep.getName(), s, nextStep.getName(), t );
               rowsets.add( rowSet );
               if ( log.isDetailed() ) {
@@ -1235,6 +1272,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
     StepInitThread[] initThreads = new StepInitThread[ steps.size() ];
     Thread[] threads = new Thread[ steps.size() ];
+    boolean virtualThreads = transMeta.getTransformationType() == TransformationType.VirtualThreads;
 
     // Initialize all the threads...
     //
@@ -1250,8 +1288,12 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
         // Put it in a separate thread!
         //
-        threads[ i ] = new Thread( initThreads[ i ] );
-        threads[ i ].setName( "init of " + sid.stepname + "." + sid.copy + " (" + threads[ i ].getName() + ")" );
+        if ( virtualThreads ) {
+          threads[ i ] = VirtualThreadUtil.newThread( initThreads[ i ], "init of " + sid.stepname + "." + sid.copy );
+        } else {
+          threads[ i ] = new Thread( initThreads[ i ] );
+          threads[ i ].setName( "init of " + sid.stepname + "." + sid.copy + " (" + threads[ i ].getName() + ")" );
+        }
 
         ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeInitialize.id, initThreads[ i ] );
         threads[ i ].start();
@@ -1404,6 +1446,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         public void stepFinished( Trans trans, StepMeta stepMeta, StepInterface step ) {
           synchronized ( Trans.this ) {
             nrOfFinishedSteps++;
+            Trans.this.notifyAll();
 
             // This check for isFinished() is a hack to prevent the transformation from finishing more than once.
             // This only happens running a transformation with an Abort transformation step on a Carte server EE.
@@ -1547,14 +1590,23 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
     switch ( transMeta.getTransformationType() ) {
       case Normal:
+      case VirtualThreads:
 
         // Now start all the threads...
         //
+        boolean virtualThreads = transMeta.getTransformationType() == TransformationType.VirtualThreads;
         for ( int i = 0; i < steps.size(); i++ ) {
           final StepMetaDataCombi combi = steps.get( i );
           RunThread runThread = new RunThread( combi );
-          Thread thread = new Thread( runThread );
-          thread.setName( getName() + " - " + combi.stepname );
+          Thread thread;
+          if ( virtualThreads ) {
+            // Step copies mostly wait on their row sets, so thousands of them can share a few carrier threads
+            //
+            thread = VirtualThreadUtil.newThread( runThread, getName() + " - " + combi.stepname );
+          } else {
+            thread = new Thread( runThread );
+            thread.setName( getName() + " - " + combi.stepname );
+          }
           ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
           // Call an extension point at the end of the step
           //
@@ -1638,6 +1690,26 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         // executor!
         //
         break;
+
+      case Cooperative:
+        for ( final StepMetaDataCombi combi : steps ) {
+          ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
+          combi.step.addStepListener( new StepAdapter() {
+
+            @Override
+            public void stepFinished( Trans trans, StepMeta stepMeta, StepInterface step ) {
+              try {
+                ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepFinished.id, combi );
+              } catch ( KettleException e ) {
+                throw new RuntimeException( "Unexpected error in calling extension point upon step finish", e );
+              }
+            }
+
+          } );
+        }
+        new CooperativeTransExecutor( this ).start();
+        break;
+
       default:
         break;
 
@@ -1724,8 +1796,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
         StepPerformanceSnapShot snapShot =
           new StepPerformanceSnapShot( seqNr, getBatchId(), new Date(), getName(), stepMeta.getName(), step.getCopy(),
-            step.getLinesRead(), step.getLinesWritten(), step.getLinesInput(), step.getLinesOutput(), step
-            .getLinesUpdated(), step.getLinesRejected(), step.getErrors() );
+            step.getCounters() );
 
         synchronized ( stepPerformanceSnapShots ) {
           List<StepPerformanceSnapShot> snapShotList = stepPerformanceSnapShots.get( step.toString() );
@@ -1795,14 +1866,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       if ( transFinishedBlockingQueue == null ) {
         return;
       }
+      // poll() blocks until the finished listeners signal us, there is no need to sleep in between
       boolean wait = true;
       while ( wait ) {
         wait = transFinishedBlockingQueue.poll( 1, TimeUnit.DAYS ) == null;
-        if ( wait ) {
-          // poll returns immediately - this was hammering the CPU with poll checks. Added
-          // a sleep to let the CPU breathe
-          Thread.sleep( 1 );
-        }
       }
     } catch ( InterruptedException e ) {
       throw new RuntimeException( "Waiting for transformation to be finished interrupted!", e );
@@ -1894,6 +1961,8 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
     int nrStepsFinished = 0;
 
+    // Ask all the steps to stop at once, then wait for the step listeners to report them finished
+    //
     for ( int i = 0; i < steps.size(); i++ ) {
       StepMetaDataCombi sid = steps.get( i );
 
@@ -1901,19 +1970,31 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         log.logDebug( BaseMessages.getString( PKG, "Trans.Log.LookingAtStep" ) + sid.step.getStepname() );
       }
 
-      // If thr is a mapping, this is cause for an endless loop
-      //
-      while ( sid.step.isRunning() ) {
+      if ( sid.step.isRunning() ) {
         sid.step.stopAll();
-        try {
-          Thread.sleep( 20 );
-        } catch ( Exception e ) {
-          log.logError( BaseMessages.getString( PKG, "Trans.Log.TransformationErrors" ) + e.toString() );
-          return;
+      }
+    }
+
+    synchronized ( this ) {
+      for ( int i = 0; i < steps.size(); i++ ) {
+        StepMetaDataCombi sid = steps.get( i );
+
+        // A step is done as soon as all the step finished listeners ran, even if it didn't reset its running flag
+        // yet. The timeout covers steps that were started without those listeners.
+        //
+        while ( sid.step.isRunning() && nrOfFinishedSteps < steps.size() ) {
+          try {
+            wait( 20 );
+          } catch ( InterruptedException e ) {
+            log.logError( BaseMessages.getString( PKG, "Trans.Log.TransformationErrors" ) + e.toString() );
+            return;
+          }
         }
       }
+    }
 
-      if ( !sid.step.isRunning() ) {
+    for ( int i = 0; i < steps.size(); i++ ) {
+      if ( !steps.get( i ).step.isRunning() ) {
         nrStepsFinished++;
       }
     }
@@ -3460,6 +3541,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     RowSet rowSet;
     switch ( transMeta.getTransformationType() ) {
       case Normal:
+      case VirtualThreads:
         rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
         break;
       case SerialSingleThreaded:
@@ -3468,6 +3550,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       case SingleThreaded:
         rowSet = new QueueRowSet();
         break;
+      case Cooperative:
+        rowSet = new ConcurrentQueueRowSet();
+        break;
       default:
         throw new KettleException( "Unhandled transformation type: " + transMeta.getTransformationType() );
     }
@@ -3727,6 +3812,39 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   public void setRunning( boolean running ) {
     status.updateAndGet( v -> running ? v | RUNNING.mask : ( BIT_STATUS_SUM ^ RUNNING.mask ) & v );
+    if ( running ) {
+      signalRunningChange();
+    }
+  }
+
+  /**
+   * Waits until the transformation is running or stopped, or until the timeout expires.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit    the unit of the timeout
+   * @return true if the transformation is running
+   * @throws InterruptedException in case the waiting thread is interrupted
+   */
+  public boolean waitUntilRunning( long timeout, TimeUnit unit ) throws InterruptedException {
+    long remaining = unit.toNanos( timeout );
+    runningLock.lock();
+    try {
+      while ( !isRunning() && !isStopped() && remaining > 0 ) {
+        remaining = runningSignal.awaitNanos( remaining );
+      }
+    } finally {
+      runningLock.unlock();
+    }
+    return isRunning();
+  }
+
+  private void signalRunningChange() {
+    runningLock.lock();
+    try {
+      runningSignal.signalAll();
+    } finally {
+      runningLock.unlock();
+    }
   }
 
   /**
@@ -4850,6 +4968,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
   public void setStopped( boolean stopped ) {
     status.updateAndGet( v -> stopped ? v | STOPPED.mask : ( BIT_STATUS_SUM ^ STOPPED.mask ) & v );
+    if ( stopped ) {
+      signalRunningChange();
+    }
   }
 
   /**
@@ -332,7 +332,14 @@ public class TransMeta extends AbstractMeta
 
       /** A single-threaded transformation. */
       SingleThreaded( "SingleThreaded", BaseMessages
-        .getString( PKG, "TransMeta.TransformationType.SingleThreaded" ) );
+        .getString( PKG, "TransMeta.TransformationType.SingleThreaded" ) ),
+
+      /** A normal transformation that runs the step copies on virtual threads when the Java runtime supports them. */
+      VirtualThreads( "VirtualThreads", BaseMessages.getString(
+        PKG, "TransMeta.TransformationType.VirtualThreads" ) ),
+
+      /** A transformation that runs its steps as cooperative tasks on a pool of threads shared by all of them. */
+      Cooperative( "Cooperative", BaseMessages.getString( PKG, "TransMeta.TransformationType.Cooperative" ) );
 
     /** The code corresponding to the transformation type. */
     private final String code;
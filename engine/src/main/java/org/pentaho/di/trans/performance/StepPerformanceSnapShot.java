@@ -15,6 +15,8 @@ package org.pentaho.di.trans.performance;
 
 import java.util.Date;
 
+import org.pentaho.di.trans.step.StepCounters;
+
 public class StepPerformanceSnapShot {
 
   private long batchId;
@@ -73,6 +75,16 @@ public class StepPerformanceSnapShot {
     this.totalErrors = totalErrors;
   }
 
+  /**
+   * @param counters the counters of the step, taken at the same moment
+   */
+  public StepPerformanceSnapShot( int seqNr, long batchId, Date date, String transName, String stepName,
+    int stepCopy, StepCounters counters ) {
+    this( seqNr, batchId, date, transName, stepName, stepCopy, counters.getLinesRead(), counters.getLinesWritten(),
+      counters.getLinesInput(), counters.getLinesOutput(), counters.getLinesUpdated(), counters.getLinesRejected(),
+      counters.getErrors() );
+  }
+
   public void diff( StepPerformanceSnapShot previous, long inputBufferSize, long outputBufferSize ) {
     this.inputBufferSize = inputBufferSize;
     this.outputBufferSize = outputBufferSize;
@@ -16,6 +16,8 @@ package org.pentaho.di.trans.step;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.ServerSocket;
@@ -32,13 +34,17 @@ import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import org.apache.commons.lang.StringUtils;
 import org.json.simple.JSONObject;
+import org.pentaho.di.core.BatchRowSet;
 import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.ExtensionDataInterface;
@@ -58,6 +64,7 @@ import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.core.row.value.ValueMetaDate;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
@@ -158,7 +165,33 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private Trans trans;
 
-  private final Object statusCountersLock = new Object();
+  /**
+   * The row counters below are updated without a lock. Besides the step thread, other threads update them too, like
+   * the socket threads of a remote step, so every update is an atomic add. The monitoring threads read them with an
+   * acquire load, so they always see a complete value.
+   */
+  private static final VarHandle LINES_READ;
+  private static final VarHandle LINES_WRITTEN;
+  private static final VarHandle LINES_INPUT;
+  private static final VarHandle LINES_OUTPUT;
+  private static final VarHandle LINES_UPDATED;
+  private static final VarHandle LINES_SKIPPED;
+  private static final VarHandle LINES_REJECTED;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      LINES_READ = lookup.findVarHandle( BaseStep.class, "linesRead", long.class );
+      LINES_WRITTEN = lookup.findVarHandle( BaseStep.class, "linesWritten", long.class );
+      LINES_INPUT = lookup.findVarHandle( BaseStep.class, "linesInput", long.class );
+      LINES_OUTPUT = lookup.findVarHandle( BaseStep.class, "linesOutput", long.class );
+      LINES_UPDATED = lookup.findVarHandle( BaseStep.class, "linesUpdated", long.class );
+      LINES_SKIPPED = lookup.findVarHandle( BaseStep.class, "linesSkipped", long.class );
+      LINES_REJECTED = lookup.findVarHandle( BaseStep.class, "linesRejected", long.class );
+    } catch ( ReflectiveOperationException e ) {
+      throw new ExceptionInInitializerError( e );
+    }
+  }
 
   /**
    * nr of lines read from previous step(s)
@@ -267,6 +300,25 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private AtomicBoolean paused;
 
+  /**
+   * Signalled when the paused or stopped flags change so that a paused step continues right away. A lock rather than
+   * a monitor so that a paused step running on a virtual thread doesn't pin its carrier thread.
+   */
+  private final Lock pauseLock = new ReentrantLock();
+
+  private final Condition pauseSignal = pauseLock.newCondition();
+
+  /**
+   * The maximum time a paused step waits for a signal before it looks at the paused flag again. The flag can be shared
+   * with other objects through {@link #setPaused(AtomicBoolean)} and those don't signal us.
+   */
+  private static final long PAUSE_SIGNAL_TIMEOUT_MILLIS = 100L;
+
+  /**
+   * The maximum time to wait for the transformation to signal it is running before looking at our own stopped flag.
+   */
+  private static final long TRANS_START_SIGNAL_TIMEOUT_MILLIS = 100L;
+
   private boolean init;
 
   /**
@@ -387,16 +439,6 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   private SocketRepository socketRepository;
 
-  /**
-   * The upper buffer size boundary after which we manage the thread priority a little bit to prevent excessive locking
-   */
-  private int upperBufferBoundary;
-
-  /**
-   * The lower buffer size boundary after which we manage the thread priority a little bit to prevent excessive locking
-   */
-  private int lowerBufferBoundary;
-
   /**
    * maximum number of errors to allow
    */
@@ -479,15 +521,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     init = false;
 
-    synchronized ( statusCountersLock ) {
-      linesRead = 0L; // new AtomicLong(0L); // Keep some statistics!
-      linesWritten = 0L; // new AtomicLong(0L);
-      linesUpdated = 0L; // new AtomicLong(0L);
-      linesSkipped = 0L; // new AtomicLong(0L);
-      linesRejected = 0L; // new AtomicLong(0L);
-      linesInput = 0L; // new AtomicLong(0L);
-      linesOutput = 0L; // new AtomicLong(0L);
-    }
+    linesRead = 0L; // Keep some statistics!
+    linesWritten = 0L;
+    linesUpdated = 0L;
+    linesSkipped = 0L;
+    linesRejected = 0L;
+    linesInput = 0L;
+    linesOutput = 0L;
 
     inputRowSets = null;
     outputRowSets = null;
@@ -553,9 +593,6 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     stepListeners = Collections.synchronizedList( new ArrayList<StepListener>() );
 
     dispatch();
-
-    upperBufferBoundary = (int) ( transMeta.getSizeRowset() * 0.99 );
-    lowerBufferBoundary = (int) ( transMeta.getSizeRowset() * 0.01 );
   }
 
   /*
@@ -900,14 +937,29 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     errors = e;
   }
 
+  /**
+   * The counters are updated one by one without a lock, so they are read until two reads in a row give the same
+   * values: no counter changed in between, and the values are those of a single moment.
+   */
+  @Override
+  public StepCounters getCounters() {
+    StepCounters counters = StepInterface.super.getCounters();
+    while ( true ) {
+      StepCounters again = StepInterface.super.getCounters();
+      if ( again.equals( counters ) ) {
+        return counters;
+      }
+      counters = again;
+      Thread.onSpinWait();
+    }
+  }
+
   /**
    * @return Returns the number of lines read from previous steps
    */
   @Override
   public long getLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return linesRead;
-    }
+    return (long) LINES_READ.getAcquire( this );
   }
 
   /**
@@ -916,9 +968,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRead;
-    }
+    return (long) LINES_READ.getAndAdd( this, 1L ) + 1L;
+  }
+
+  /**
+   * Increments the number of lines read from previous steps by the given number
+   *
+   * @param nrLines the number of lines read
+   * @return Returns the new value
+   */
+  public long incrementLinesRead( long nrLines ) {
+    return (long) LINES_READ.getAndAdd( this, nrLines ) + nrLines;
   }
 
   /**
@@ -927,18 +987,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return --linesRead;
-    }
+    return (long) LINES_READ.getAndAdd( this, -1L ) - 1L;
   }
 
   /**
    * @param newLinesReadValue the new number of lines read from previous steps
    */
   public void setLinesRead( long newLinesReadValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRead = newLinesReadValue;
-    }
+    LINES_READ.setRelease( this, newLinesReadValue );
   }
 
   /**
@@ -946,9 +1002,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return linesInput;
-    }
+    return (long) LINES_INPUT.getAcquire( this );
   }
 
   /**
@@ -957,18 +1011,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesInput;
-    }
+    return (long) LINES_INPUT.getAndAdd( this, 1L ) + 1L;
   }
 
   /**
    * @param newLinesInputValue the new number of lines read from an input source: database, file, socket, etc.
    */
   public void setLinesInput( long newLinesInputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesInput = newLinesInputValue;
-    }
+    LINES_INPUT.setRelease( this, newLinesInputValue );
   }
 
   /**
@@ -976,9 +1026,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return linesOutput;
-    }
+    return (long) LINES_OUTPUT.getAcquire( this );
   }
 
   /**
@@ -987,18 +1035,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesOutput;
-    }
+    return (long) LINES_OUTPUT.getAndAdd( this, 1L ) + 1L;
   }
 
   /**
    * @param newLinesOutputValue the new number of lines written to an output target: database, file, socket, etc.
    */
   public void setLinesOutput( long newLinesOutputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesOutput = newLinesOutputValue;
-    }
+    LINES_OUTPUT.setRelease( this, newLinesOutputValue );
   }
 
   /**
@@ -1006,9 +1050,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return linesWritten;
-    }
+    return (long) LINES_WRITTEN.getAcquire( this );
   }
 
   /**
@@ -1017,9 +1059,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return ++linesWritten;
-    }
+    return (long) LINES_WRITTEN.getAndAdd( this, 1L ) + 1L;
+  }
+
+  /**
+   * Increments the number of lines written to next steps by the given number
+   *
+   * @param nrLines the number of lines written
+   * @return Returns the new value
+   */
+  public long incrementLinesWritten( long nrLines ) {
+    return (long) LINES_WRITTEN.getAndAdd( this, nrLines ) + nrLines;
   }
 
   /**
@@ -1028,18 +1078,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return --linesWritten;
-    }
+    return (long) LINES_WRITTEN.getAndAdd( this, -1L ) - 1L;
   }
 
   /**
    * @param newLinesWrittenValue the new number of lines written to next steps
    */
   public void setLinesWritten( long newLinesWrittenValue ) {
-    synchronized ( statusCountersLock ) {
-      linesWritten = newLinesWrittenValue;
-    }
+    LINES_WRITTEN.setRelease( this, newLinesWrittenValue );
   }
 
   /**
@@ -1047,9 +1093,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return linesUpdated;
-    }
+    return (long) LINES_UPDATED.getAcquire( this );
   }
 
   /**
@@ -1058,18 +1102,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return ++linesUpdated;
-    }
+    return (long) LINES_UPDATED.getAndAdd( this, 1L ) + 1L;
   }
 
   /**
    * @param newLinesUpdatedValue the new number of lines updated in an output target: database, file, socket, etc.
    */
   public void setLinesUpdated( long newLinesUpdatedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesUpdated = newLinesUpdatedValue;
-    }
+    LINES_UPDATED.setRelease( this, newLinesUpdatedValue );
   }
 
   /**
@@ -1077,9 +1117,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return linesRejected;
-    }
+    return (long) LINES_REJECTED.getAcquire( this );
   }
 
   /**
@@ -1088,9 +1126,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRejected;
-    }
+    return (long) LINES_REJECTED.getAndAdd( this, 1L ) + 1L;
   }
 
   /**
@@ -1098,18 +1134,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void setLinesRejected( long newLinesRejectedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRejected = newLinesRejectedValue;
-    }
+    LINES_REJECTED.setRelease( this, newLinesRejectedValue );
   }
 
   /**
    * @return the number of lines skipped
    */
   public long getLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return linesSkipped;
-    }
+    return (long) LINES_SKIPPED.getAcquire( this );
   }
 
   /**
@@ -1118,18 +1150,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return ++linesSkipped;
-    }
+    return (long) LINES_SKIPPED.getAndAdd( this, 1L ) + 1L;
   }
 
   /**
    * @param newLinesSkippedValue lines number of lines skipped
    */
   public void setLinesSkipped( long newLinesSkippedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesSkipped = newLinesSkippedValue;
-    }
+    LINES_SKIPPED.setRelease( this, newLinesSkippedValue );
   }
 
   /*
@@ -1245,6 +1273,152 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void putRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    checkFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRow( rowMeta, row );
+  }
+
+  /**
+   * putRows is the batch version of {@link #putRow(RowMetaInterface, Object[])}: the pause, stop and start checks and
+   * the locking of the output rowsets are done once for the whole list of rows instead of once per row.
+   *
+   * @param rowMeta The row meta-data of all the rows
+   * @param rows    The rows to put to the destination rowset(s).
+   * @throws KettleStepException
+   */
+  public void putRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleStepException {
+    if ( rows == null || rows.isEmpty() ) {
+      return;
+    }
+    checkFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRows( rowMeta, rows );
+  }
+
+  /**
+   * putBatch is the columnar version of {@link #putRows(RowMetaInterface, List)}. The batch is passed on as a whole
+   * when the hop to the next step carries batches (see {@link BatchRowSet}) and the rows don't have to be partitioned,
+   * distributed or seen by row listeners. Otherwise it is converted to rows and put with putRows().
+   *
+   * @param rowMeta The row meta-data of the batch
+   * @param batch   The rows to put to the destination rowset(s).
+   * @throws KettleStepException
+   */
+  public void putBatch( RowMetaInterface rowMeta, RowBatch batch ) throws KettleStepException {
+    if ( batch == null || batch.size() == 0 ) {
+      return;
+    }
+
+    BatchRowSet batchRowSet = null;
+    if ( canPassBatches() && repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_NONE
+      && ( !distributed || rowDistribution == null ) ) {
+      outputRowSetsLock.readLock().lock();
+      try {
+        if ( outputRowSets.size() == 1 && outputRowSets.get( 0 ) instanceof BatchRowSet ) {
+          batchRowSet = (BatchRowSet) outputRowSets.get( 0 );
+        }
+      } finally {
+        outputRowSetsLock.readLock().unlock();
+      }
+    }
+    if ( batchRowSet == null ) {
+      putRows( rowMeta, batch.toRows() );
+      return;
+    }
+
+    checkFieldNamesAndTypes( rowMeta );
+
+    waitWhilePaused();
+
+    if ( stopped.get() && !safeStopped.get() ) {
+      if ( log.isDebug() ) {
+        logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopPuttingARow" ) );
+      }
+      stopAll();
+      return;
+    }
+
+    waitUntilTransformationIsStarted();
+
+    putBatchToRowSet( batchRowSet, rowMeta, batch );
+    incrementLinesWritten( batch.size() );
+  }
+
+  /**
+   * putBatchTo is the columnar version of {@link #putRowTo(RowMetaInterface, Object[], RowSet)}: it puts a batch of
+   * rows in a certain specific RowSet, as a whole if the row set carries batches.
+   *
+   * @param rowMeta The row meta-data of the batch
+   * @param batch   the rows to put in the RowSet
+   * @param rowSet  the RowSet to put the rows into.
+   * @throws KettleStepException In case something unexpected goes wrong
+   */
+  public void putBatchTo( RowMetaInterface rowMeta, RowBatch batch, RowSet rowSet ) throws KettleStepException {
+    if ( batch == null || batch.size() == 0 ) {
+      return;
+    }
+    if ( !( rowSet instanceof BatchRowSet ) || !canPassBatches() ) {
+      for ( int i = 0; i < batch.size(); i++ ) {
+        putRowTo( rowMeta, batch.getRow( i ), rowSet );
+      }
+      return;
+    }
+
+    waitWhilePaused();
+
+    if ( stopped.get() ) {
+      if ( log.isDebug() ) {
+        logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopPuttingARow" ) );
+      }
+      stopAll();
+      return;
+    }
+
+    while ( !( (BatchRowSet) rowSet ).putBatch( rowMeta, batch ) ) {
+      if ( isStopped() ) {
+        break;
+      }
+    }
+    incrementLinesWritten( batch.size() );
+  }
+
+  /**
+   * Batches can only skip the row handler if it is the default one and nobody needs to see the individual rows.
+   */
+  private boolean canPassBatches() {
+    return getRowHandler() instanceof DefaultRowHandler && rowListeners.isEmpty()
+      && !( terminator && terminator_rows != null );
+  }
+
+  /**
+   * Steps that support row batches (see {@link StepMetaInterface#supportsBatches()}) can use this to decide whether
+   * to process their rows a batch at a time: it is only worth it when a hop to or from the step carries batches.
+   *
+   * @return true if one of the input or output row sets of the step is a {@link BatchRowSet}
+   */
+  public boolean hasBatchRowSets() {
+    inputRowSetsLock.readLock().lock();
+    try {
+      for ( RowSet rowSet : inputRowSets ) {
+        if ( rowSet instanceof BatchRowSet ) {
+          return true;
+        }
+      }
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+    outputRowSetsLock.readLock().lock();
+    try {
+      for ( RowSet rowSet : outputRowSets ) {
+        if ( rowSet instanceof BatchRowSet ) {
+          return true;
+        }
+      }
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+    return false;
+  }
+
+  private void checkFieldNamesAndTypes( RowMetaInterface rowMeta ) throws KettleStepException {
     if ( rowMeta != null ) {
       if ( !allowEmptyFieldNamesAndTypes ) {
         // check row meta for empty field name (BACKLOG-18004)
@@ -1258,19 +1432,12 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         }
       }
     }
-    getRowHandler().putRow( rowMeta, row );
   }
 
   private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
     // Are we pausing the step? If so, stall forever...
     //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 1 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
-      }
-    }
+    waitWhilePaused();
 
     // Right after the pause loop we have to check if this thread is stopped or
     // not.
@@ -1287,16 +1454,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     // Are we running yet? If not, wait a bit until all threads have been
     // started.
     //
-    if ( this.checkTransRunning == false ) {
-      while ( !trans.isRunning() && !stopped.get() ) {
-        try {
-          Thread.sleep( 1 );
-        } catch ( InterruptedException e ) {
-          // Ignore
-        }
-      }
-      this.checkTransRunning = true;
-    }
+    waitUntilTransformationIsStarted();
 
     // call all row listeners...
     //
@@ -1325,29 +1483,97 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         return; // we're done here!
       }
 
-      // Repartitioning happens when the current step is not partitioned, but the next one is.
-      // That means we need to look up the partitioning information in the next step..
-      // If there are multiple steps, we need to look at the first (they should be all the same)
-      //
-      switch ( repartitioning ) {
-        case StepPartitioningMeta.PARTITIONING_METHOD_NONE:
-          noPartitioning( rowMeta, row );
-          break;
+      dispatchRow( rowMeta, row );
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+  }
 
-        case StepPartitioningMeta.PARTITIONING_METHOD_SPECIAL:
-          specialPartitioning( rowMeta, row );
-          break;
-        case StepPartitioningMeta.PARTITIONING_METHOD_MIRROR:
-          mirrorPartitioning( rowMeta, row );
-          break;
-        default:
-          throw new KettleStepException( "Internal error: invalid repartitioning type: " + repartitioning );
+  private void handlePutRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleStepException {
+    // Are we pausing the step? If so, stall forever...
+    //
+    waitWhilePaused();
+
+    if ( stopped.get() && !safeStopped.get() ) {
+      if ( log.isDebug() ) {
+        logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopPuttingARow" ) );
+      }
+      stopAll();
+      return;
+    }
+
+    waitUntilTransformationIsStarted();
+
+    // call all row listeners...
+    //
+    if ( !rowListeners.isEmpty() ) {
+      for ( Object[] row : rows ) {
+        for ( RowListener listener : rowListeners ) {
+          listener.rowWrittenEvent( rowMeta, row );
+        }
+      }
+    }
+
+    // Keep adding to terminator_rows buffer...
+    //
+    if ( terminator && terminator_rows != null ) {
+      try {
+        for ( Object[] row : rows ) {
+          terminator_rows.add( rowMeta.cloneRow( row ) );
+        }
+      } catch ( KettleValueException e ) {
+        throw new KettleStepException( "Unable to clone row while adding rows to the terminator rows.", e );
+      }
+    }
+
+    outputRowSetsLock.readLock().lock();
+    try {
+      if ( outputRowSets.isEmpty() ) {
+        // No more output rowsets!
+        // Still update the nr of lines written.
+        //
+        incrementLinesWritten( rows.size() );
+
+        return; // we're done here!
+      }
+
+      // The common case of a single target without any partitioning or plugin row distribution can pass the batch as
+      // a whole. Everything else is dispatched row by row, but still under a single lock.
+      //
+      if ( repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_NONE
+        && outputRowSets.size() == 1 && ( !distributed || rowDistribution == null ) ) {
+        incrementLinesWritten( putRowsToRowSet( outputRowSets.get( 0 ), rowMeta, rows ) );
+      } else {
+        for ( Object[] row : rows ) {
+          dispatchRow( rowMeta, row );
+        }
       }
     } finally {
       outputRowSetsLock.readLock().unlock();
     }
   }
 
+  private void dispatchRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    // Repartitioning happens when the current step is not partitioned, but the next one is.
+    // That means we need to look up the partitioning information in the next step..
+    // If there are multiple steps, we need to look at the first (they should be all the same)
+    //
+    switch ( repartitioning ) {
+      case StepPartitioningMeta.PARTITIONING_METHOD_NONE:
+        noPartitioning( rowMeta, row );
+        break;
+
+      case StepPartitioningMeta.PARTITIONING_METHOD_SPECIAL:
+        specialPartitioning( rowMeta, row );
+        break;
+      case StepPartitioningMeta.PARTITIONING_METHOD_MIRROR:
+        mirrorPartitioning( rowMeta, row );
+        break;
+      default:
+        throw new KettleStepException( "Internal error: invalid repartitioning type: " + repartitioning );
+    }
+  }
+
   /**
    * Copy always to all target steps/copies
    */
@@ -1514,18 +1740,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         //
         RowSet rs = outputRowSets.get( currentOutputRowSetNr );
 
-        // To reduce stress on the locking system we are NOT going to allow
-        // the buffer to grow to its full capacity.
-        //
-        if ( isUsingThreadPriorityManagment() && !rs.isDone() && rs.size() >= upperBufferBoundary && !isStopped() ) {
-          try {
-            Thread.sleep( 0, 1 );
-          } catch ( InterruptedException e ) {
-            // Ignore sleep interruption exception
-          }
-        }
-
-        // Loop until we find room in the target rowset
+        // Loop until we find room in the target rowset, a full row set makes us wait until the next step takes a row
         //
         putRowToRowSet( rs, rowMeta, row );
         incrementLinesWritten();
@@ -1550,17 +1765,6 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
         RowSet rs = outputRowSets.get( i );
 
-        // To reduce stress on the locking system we are NOT going to allow
-        // the buffer to grow to its full capacity.
-        //
-        if ( isUsingThreadPriorityManagment() && !rs.isDone() && rs.size() >= upperBufferBoundary && !isStopped() ) {
-          try {
-            Thread.sleep( 0, 1 );
-          } catch ( InterruptedException e ) {
-            // Ignore sleep interruption exception
-          }
-        }
-
         try {
           // Loop until we find room in the target rowset
           //
@@ -1597,6 +1801,58 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  /**
+   * Puts the rows in the row set, waiting for room as long as the step runs. A step that is stopped gives up right
+   * away, a step that is stopped safely gives up when the row set doesn't take any more rows.
+   *
+   * @return the number of rows that were put in the row set
+   * @throws KettleStepException when one of the rows is null, no row set takes it
+   */
+  private int putRowsToRowSet( RowSet rs, RowMetaInterface rowMeta, List<Object[]> rows )
+    throws KettleStepException {
+    RowMetaInterface toBeSent;
+    RowMetaInterface metaFromRs = rs.getRowMeta();
+    if ( metaFromRs == null ) {
+      // RowSet is not initialised so far
+      toBeSent = rowMeta.clone();
+    } else {
+      // use the existing
+      toBeSent = metaFromRs;
+    }
+
+    int nrPut = 0;
+    while ( nrPut < rows.size() ) {
+      List<Object[]> remaining = rows.subList( nrPut, rows.size() );
+      int nrAdded = rs.putRows( toBeSent, remaining );
+      nrPut += nrAdded;
+      if ( nrAdded == 0 && remaining.get( 0 ) == null ) {
+        throw new KettleStepException( "Unable to put a null row in the row set of the next step" );
+      }
+      if ( nrPut < rows.size() && isStopped() && ( !safeStopped.get() || nrAdded == 0 ) ) {
+        break;
+      }
+    }
+    return nrPut;
+  }
+
+  private void putBatchToRowSet( BatchRowSet rs, RowMetaInterface rowMeta, RowBatch batch ) {
+    RowMetaInterface toBeSent;
+    RowMetaInterface metaFromRs = rs.getRowMeta();
+    if ( metaFromRs == null ) {
+      // RowSet is not initialised so far
+      toBeSent = rowMeta.clone();
+    } else {
+      // use the existing
+      toBeSent = metaFromRs;
+    }
+
+    while ( !rs.putBatch( toBeSent, batch ) ) {
+      if ( isStopped() && !safeStopped.get() ) {
+        return;
+      }
+    }
+  }
+
   /**
    * putRowTo is used to put a row in a certain specific RowSet.
    *
@@ -1613,13 +1869,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     // Are we pausing the step? If so, stall forever...
     //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 1 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
-      }
-    }
+    waitWhilePaused();
 
     // call all row listeners...
     //
@@ -1788,6 +2038,36 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  /**
+   * Wait while the step is paused. The thread is parked until the step is resumed or stopped.
+   *
+   * @throws KettleStepException in case the thread is interrupted
+   */
+  private void waitWhilePaused() throws KettleStepException {
+    if ( !paused.get() || stopped.get() ) {
+      return;
+    }
+    pauseLock.lock();
+    try {
+      while ( paused.get() && !stopped.get() ) {
+        pauseSignal.await( PAUSE_SIGNAL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS );
+      }
+    } catch ( InterruptedException e ) {
+      throw new KettleStepException( e );
+    } finally {
+      pauseLock.unlock();
+    }
+  }
+
+  private void signalPauseChange() {
+    pauseLock.lock();
+    try {
+      pauseSignal.signalAll();
+    } finally {
+      pauseLock.unlock();
+    }
+  }
+
   /**
    * Wait until the transformation is completely running and all threads have been started.
    */
@@ -1799,9 +2079,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     if ( this.checkTransRunning == false ) {
       while ( !trans.isRunning() && !stopped.get() ) {
         try {
-          Thread.sleep( 1 );
+          trans.waitUntilRunning( TRANS_START_SIGNAL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS );
         } catch ( InterruptedException e ) {
-          // Ignore sleep interruption exception
+          // Ignore interruption exception
         }
       }
       this.checkTransRunning = true;
@@ -1819,18 +2099,135 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   }
 
 
-  private Object[] handleGetRow() throws KettleException {
+  /**
+   * getRows is the batch version of {@link #getRow()}: it returns all the rows that are available right away, up to
+   * max, so that the pause and stop checks, the locking of the input rowsets and the rowset hand-off are done once for
+   * the whole list of rows.
+   *
+   * @param max the maximum number of rows to return
+   * @return a list of at least one row from the source step(s) or null if there is no more input
+   * @throws KettleException
+   */
+  public List<Object[]> getRows( int max ) throws KettleException {
+    return getRowHandler().getRows( max );
+  }
 
-    // Are we pausing the step? If so, stall forever...
+  /**
+   * getBatch is the columnar version of {@link #getRows(int)}. A batch is taken as a whole from the input rowset when
+   * the hop from the previous step carries batches (see {@link BatchRowSet}), otherwise the rows from getRows() are
+   * converted to a batch.
+   *
+   * @param max the maximum number of rows to return
+   * @return a batch of at least one row from the source step(s) or null if there is no more input
+   * @throws KettleException
+   */
+  public RowBatch getBatch( int max ) throws KettleException {
+    BatchRowSet inputRowSet = null;
+    RowBatch batch = null;
+
+    if ( canPassBatches() && !paused.get() && !stopped.get() ) {
+      waitUntilTransformationIsStarted();
+      openRemoteInputStepSocketsOnce();
+
+      inputRowSetsLock.readLock().lock();
+      try {
+        if ( inputRowSets.size() == 1 && inputRowSets.get( 0 ) instanceof BatchRowSet ) {
+          inputRowSet = (BatchRowSet) inputRowSets.get( 0 );
+          batch = inputRowSet.getBatch( max );
+        }
+      } finally {
+        inputRowSetsLock.readLock().unlock();
+      }
+    }
+
+    if ( batch == null ) {
+      // Nothing available right away, the last rows or not a batch hop: leave all that to getRows()
+      //
+      List<Object[]> rows = getRows( max );
+      if ( rows == null ) {
+        return null;
+      }
+      return RowBatch.fromRows( getInputRowMeta(), rows );
+    }
+
+    incrementLinesRead( batch.size() );
+
+    if ( inputRowMeta == null || prevSteps.length > 1 ) {
+      inputRowMeta = freeze( inputRowSet.getRowMeta() );
+    }
+
+    if ( trans.isSafeModeEnabled() ) {
+      transMeta.checkRowMixingStatically( stepMeta, null );
+    }
+
+    // Check the rejection rates etc. as well.
+    verifyRejectionRates();
+
+    return batch;
+  }
+
+  private List<Object[]> handleGetRows( int max ) throws KettleException {
+    List<Object[]> rows = null;
+    RowSet inputRowSet = null;
+
+    // Only the common case of a single input rowset is read in batches. Pausing, stopping, reading from several
+    // rowsets and removing finished ones is all left to handleGetRow().
     //
-    while ( paused.get() && !stopped.get() ) {
+    if ( !paused.get() && !stopped.get() ) {
+      waitUntilTransformationIsStarted();
+      openRemoteInputStepSocketsOnce();
+
+      inputRowSetsLock.readLock().lock();
       try {
-        Thread.sleep( 100 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
+        if ( inputRowSets.size() == 1 ) {
+          inputRowSet = inputRowSets.get( 0 );
+          rows = inputRowSet.getRows( max );
+        }
+      } finally {
+        inputRowSetsLock.readLock().unlock();
+      }
+    }
+
+    if ( rows == null || rows.isEmpty() ) {
+      Object[] row = handleGetRow();
+      if ( row == null ) {
+        return null;
       }
+      rows = new ArrayList<>( 1 );
+      rows.add( row );
+      return rows;
     }
 
+    incrementLinesRead( rows.size() );
+
+    if ( inputRowMeta == null || prevSteps.length > 1 ) {
+      inputRowMeta = freeze( inputRowSet.getRowMeta() );
+    }
+
+    if ( trans.isSafeModeEnabled() ) {
+      transMeta.checkRowMixingStatically( stepMeta, null );
+    }
+
+    if ( !rowListeners.isEmpty() ) {
+      for ( Object[] row : rows ) {
+        for ( RowListener listener : rowListeners ) {
+          listener.rowReadEvent( inputRowMeta, row );
+        }
+      }
+    }
+
+    // Check the rejection rates etc. as well.
+    verifyRejectionRates();
+
+    return rows;
+  }
+
+  private Object[] handleGetRow() throws KettleException {
+
+    // Are we pausing the step? If so, stall forever...
+    //
+    waitWhilePaused();
+
     if ( stopped.get() ) {
       if ( log.isDebug() ) {
         logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopLookingForMoreRows" ) );
@@ -1879,19 +2276,6 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         inputRowSet = currentInputStream();
       }
 
-      // To reduce stress on the locking system we are going to allow
-      // The buffer to grow beyond "a few" entries.
-      // We'll only do that if the previous step has not ended...
-      //
-      if ( isUsingThreadPriorityManagment()
-        && !inputRowSet.isDone() && inputRowSet.size() <= lowerBufferBoundary && !isStopped() ) {
-        try {
-          Thread.sleep( 0, 1 );
-        } catch ( InterruptedException e ) {
-          // Ignore sleep interruption exception
-        }
-      }
-
       // See if this step is receiving partitioned data...
       // In that case it might be the case that one input row set is receiving
       // all data and
@@ -1908,8 +2292,10 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         // Get a row from the input in row set ...
         // Timeout immediately if nothing is there to read.
         // We will then switch to the next row set to read from...
+        // With a single input row set there is nothing to switch to, so we block on it a while longer instead of
+        // waking up every millisecond.
         //
-        row = inputRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        row = inputRowSet.getRowWait( inputRowSets.size() == 1 ? Const.TIMEOUT_GET_MILLIS : 1, TimeUnit.MILLISECONDS );
         if ( row != null ) {
           incrementLinesRead();
           blockPointer++;
@@ -1973,7 +2359,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     // Also set the meta data on the first occurrence.
     // or if prevSteps.length > 1 inputRowMeta can be changed
     if ( inputRowMeta == null || prevSteps.length > 1 ) {
-      inputRowMeta = inputRowSet.getRowMeta();
+      inputRowMeta = freeze( inputRowSet.getRowMeta() );
     }
 
     if ( row != null ) {
@@ -2212,42 +2598,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   public Object[] handleGetRowFrom( RowSet rowSet ) throws KettleStepException {
     // Are we pausing the step? If so, stall forever...
     //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 10 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
-      }
-    }
+    waitWhilePaused();
 
     // Have all threads started?
     // Are we running yet? If not, wait a bit until all threads have been
     // started.
-    if ( this.checkTransRunning == false ) {
-      while ( !trans.isRunning() && !stopped.get() ) {
-        try {
-          Thread.sleep( 1 );
-        } catch ( InterruptedException e ) {
-          // Ignore sleep interruption exception
-        }
-      }
-      this.checkTransRunning = true;
-    }
+    waitUntilTransformationIsStarted();
     Object[] rowData = null;
 
-    // To reduce stress on the locking system we are going to allow
-    // The buffer to grow beyond "a few" entries.
-    // We'll only do that if the previous step has not ended...
-    //
-    if ( isUsingThreadPriorityManagment()
-      && !rowSet.isDone() && rowSet.size() <= lowerBufferBoundary && !isStopped() ) {
-      try {
-        Thread.sleep( 0, 1 );
-      } catch ( InterruptedException e ) {
-        // Ignore sleep interruption exception
-      }
-    }
-
     // Grab a row... If nothing received after a timeout, try again.
     //
     rowData = rowSet.getRow();
@@ -3001,6 +3359,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   @Override
   public void stopAll() {
     stopped.set( true );
+    signalPauseChange();
     trans.stopAll();
   }
 
@@ -3042,6 +3401,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   @Override
   public void setStopped( boolean stopped ) {
     this.stopped.set( stopped );
+    signalPauseChange();
   }
 
   @Override
@@ -3091,6 +3451,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   public void setPaused( boolean paused ) {
     this.paused.set( paused );
+    signalPauseChange();
   }
 
   /**
@@ -3380,22 +3741,20 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * Log summary.
    */
   public void logSummary() {
-    synchronized ( statusCountersLock ) {
-      long li = getLinesInput();
-      long lo = getLinesOutput();
-      long lr = getLinesRead();
-      long lw = getLinesWritten();
-      long lu = getLinesUpdated();
-      long lj = getLinesRejected();
-      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
-        logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      } else {
-        logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      }
+    long li = getLinesInput();
+    long lo = getLinesOutput();
+    long lr = getLinesRead();
+    long lw = getLinesWritten();
+    long lu = getLinesUpdated();
+    long lj = getLinesRejected();
+    if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
+      logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( errors + lj ) ) );
+    } else {
+      logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( errors + lj ) ) );
     }
   }
 
@@ -3730,6 +4089,19 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       && ( lines % getTransMeta().getFeedbackSize() ) == 0;
   }
 
+  /**
+   * The version of {@link #checkFeedback(long)} for steps that process a batch of rows at a time.
+   *
+   * @param linesBefore the number of lines before the batch
+   * @param linesAfter  the number of lines after the batch
+   * @return true if the feedback size was reached by one of the rows of the batch
+   */
+  protected boolean checkFeedback( long linesBefore, long linesAfter ) {
+    int feedbackSize = getTransMeta().getFeedbackSize();
+    return getTransMeta().isFeedbackShown() && feedbackSize > 0 && linesAfter > 0
+      && linesAfter / feedbackSize > linesBefore / feedbackSize;
+  }
+
   /**
    * @return the rowMeta
    */
@@ -3737,6 +4109,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     return inputRowMeta;
   }
 
+  /**
+   * The metadata of the rows on a hop doesn't change once they flow, so freeze it: the steps look up fields in it for
+   * every row and a frozen row metadata does that without locking.
+   */
+  private static RowMetaInterface freeze( RowMetaInterface rowMeta ) {
+    if ( rowMeta instanceof RowMeta ) {
+      ( (RowMeta) rowMeta ).freeze();
+    }
+    return rowMeta;
+  }
+
   /**
    * @param rowMeta the rowMeta to set
    */
@@ -3989,7 +4372,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   }
 
   /**
-   * Set to true to actively manage priorities of step threads.
+   * Set to true to actively manage priorities of step threads. The row sets already make a step wait until the other
+   * side signals a row or room for a row, so the step doesn't hold itself back on top of that.
    *
    * @param usingThreadPriorityManagment set to true to actively manage priorities of step threads
    */
@@ -4398,6 +4782,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       handlePutRow( rowMeta, row );
     }
 
+    @Override public List<Object[]> getRows( int max ) throws KettleException {
+      return handleGetRows( max );
+    }
+
+    @Override public void putRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleStepException {
+      handlePutRows( rowMeta, rows );
+    }
+
     @Override public void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                                     String fieldNames, String errorCodes ) throws KettleStepException {
       handlePutError( rowMeta, row, nrErrors, errorDescriptions, fieldNames, errorCodes );
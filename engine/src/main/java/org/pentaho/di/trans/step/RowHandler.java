@@ -13,6 +13,9 @@
 
 package org.pentaho.di.trans.step;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -41,6 +44,30 @@ public interface RowHandler {
   void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                  String fieldNames, String errorCodes ) throws KettleStepException;
 
+  /**
+   * Puts a batch of rows. By default the rows are put one by one with {@link #putRow(RowMetaInterface, Object[])}.
+   */
+  default void putRows( RowMetaInterface rowMeta, List<Object[]> rows ) throws KettleStepException {
+    for ( Object[] row : rows ) {
+      putRow( rowMeta, row );
+    }
+  }
+
+  /**
+   * Gets a batch of up to max rows. By default a batch of a single row is read with {@link #getRow()}.
+   *
+   * @return the rows or null if there is no more input
+   */
+  default List<Object[]> getRows( int max ) throws KettleException {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    List<Object[]> rows = new ArrayList<>( 1 );
+    rows.add( row );
+    return rows;
+  }
+
   default void putRowTo( RowMetaInterface rowMeta, Object[] row, RowSet rowSet )
     throws KettleStepException {
     throw new UnsupportedOperationException(
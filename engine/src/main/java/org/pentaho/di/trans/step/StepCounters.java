@@ -0,0 +1,118 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+/**
+ * The row counters and the number of errors of a step, all taken at the same moment.
+ *
+ * @see StepInterface#getCounters()
+ */
+public class StepCounters {
+  private final long linesRead;
+  private final long linesWritten;
+  private final long linesInput;
+  private final long linesOutput;
+  private final long linesUpdated;
+  private final long linesRejected;
+  private final long errors;
+
+  public StepCounters( long linesRead, long linesWritten, long linesInput, long linesOutput, long linesUpdated,
+                       long linesRejected, long errors ) {
+    this.linesRead = linesRead;
+    this.linesWritten = linesWritten;
+    this.linesInput = linesInput;
+    this.linesOutput = linesOutput;
+    this.linesUpdated = linesUpdated;
+    this.linesRejected = linesRejected;
+    this.errors = errors;
+  }
+
+  /**
+   * @return the number of lines read from previous steps
+   */
+  public long getLinesRead() {
+    return linesRead;
+  }
+
+  /**
+   * @return the number of lines written to next steps
+   */
+  public long getLinesWritten() {
+    return linesWritten;
+  }
+
+  /**
+   * @return the number of lines read from an input source: database, file, socket, etc.
+   */
+  public long getLinesInput() {
+    return linesInput;
+  }
+
+  /**
+   * @return the number of lines written to an output target: database, file, socket, etc.
+   */
+  public long getLinesOutput() {
+    return linesOutput;
+  }
+
+  /**
+   * @return the number of lines updated in an output target: database, file, socket, etc.
+   */
+  public long getLinesUpdated() {
+    return linesUpdated;
+  }
+
+  /**
+   * @return the number of lines rejected by error handling
+   */
+  public long getLinesRejected() {
+    return linesRejected;
+  }
+
+  /**
+   * @return the number of errors
+   */
+  public long getErrors() {
+    return errors;
+  }
+
+  @Override
+  public boolean equals( Object obj ) {
+    if ( this == obj ) {
+      return true;
+    }
+    if ( !( obj instanceof StepCounters ) ) {
+      return false;
+    }
+    StepCounters other = (StepCounters) obj;
+    return linesRead == other.linesRead && linesWritten == other.linesWritten && linesInput == other.linesInput
+      && linesOutput == other.linesOutput && linesUpdated == other.linesUpdated
+      && linesRejected == other.linesRejected && errors == other.errors;
+  }
+
+  @Override
+  public int hashCode() {
+    long hash = linesRead;
+    for ( long value : new long[] { linesWritten, linesInput, linesOutput, linesUpdated, linesRejected, errors } ) {
+      hash = 31 * hash + value;
+    }
+    return Long.hashCode( hash );
+  }
+
+  @Override
+  public String toString() {
+    return "R=" + linesRead + ", W=" + linesWritten + ", I=" + linesInput + ", O=" + linesOutput + ", U="
+      + linesUpdated + ", E=" + errors + ", rejected=" + linesRejected;
+  }
+}
@@ -279,6 +279,18 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   long getLinesRejected();
 
+  /**
+   * Takes the row counters and the number of errors at the same moment, e.g. for the step status or a performance
+   * snapshot. Reading the counters one by one while the step runs can give values of different moments, like more
+   * lines written than read.
+   *
+   * @return the counters of the step
+   */
+  default StepCounters getCounters() {
+    return new StepCounters( getLinesRead(), getLinesWritten(), getLinesInput(), getLinesOutput(), getLinesUpdated(),
+      getLinesRejected(), getErrors() );
+  }
+
   /**
    * Put a row on the destination rowsets.
    *
@@ -883,6 +883,17 @@ public interface StepMetaInterface {
     return false;
   }
 
+  /**
+   * True if the step can read and write columnar row batches (see BaseStep.getBatch() and BaseStep.putBatch()). When
+   * both steps of a hop support batches and the variable KETTLE_COLUMNAR_BATCHES is set, the hop passes whole batches
+   * instead of single rows.
+   *
+   * @return True if the step supports row batches, false otherwise
+   */
+  default boolean supportsBatches() {
+    return false;
+  }
+
   /**
    * Allows for someone to fetch the related TransMeta object. Returns null if not found (or not implemented)
    * @param stepMeta StepMetaInterface object
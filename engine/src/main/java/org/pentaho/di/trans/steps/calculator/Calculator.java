@@ -23,6 +23,7 @@ import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueDataUtil;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -62,8 +63,14 @@ public class Calculator extends BaseStep implements StepInterface {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
-    Object[] r = getRow(); // get row, set busy!
-    if ( r == null ) { // no more input to be expected...
+    if ( data.isBatchMode() ) {
+      return processBatch();
+    }
+
+    // Take the rows that are available right away in one go, see getRows()
+    //
+    List<Object[]> rows = getRows( RowBatch.DEFAULT_SIZE );
+    if ( rows == null ) { // no more input to be expected...
       setOutputDone();
       data.clearValuesMetaMapping();
       return false;
@@ -71,94 +78,82 @@ public class Calculator extends BaseStep implements StepInterface {
 
     if ( first ) {
       first = false;
-      data.setOutputRowMeta( getInputRowMeta().clone() );
-      meta.getFields( getTransMeta().getBowl(), data.getOutputRowMeta(), getStepname(), null, null, this, repository,
-        metaStore );
-
-      // get all metadata, including source rows and temporary fields.
-      data.setCalcRowMeta( meta.getAllFields( getInputRowMeta() ) );
-
-      data.setFieldIndexes( new FieldIndexes[meta.getCalculation().length] );
-      List<Integer> tempIndexes = new ArrayList<Integer>();
-
-      // Calculate the indexes of the values and arguments in the target data or temporary data
-      // We do this in advance to save time later on.
-      //
-      //CHECKSTYLE:Indentation:OFF
-      for ( int i = 0; i < meta.getCalculation().length; i++ ) {
-        CalculatorMetaFunction function = meta.getCalculation()[i];
-        data.getFieldIndexes()[i] = new FieldIndexes();
-
-        if ( !Utils.isEmpty( function.getFieldName() ) ) {
-          data.getFieldIndexes()[i].indexName = data.getCalcRowMeta().indexOfValue( function.getFieldName() );
-          if ( data.getFieldIndexes()[i].indexName < 0 ) {
-            // Nope: throw an exception
-            throw new KettleStepException( BaseMessages.getString(
-              PKG, "Calculator.Error.UnableFindField", function.getFieldName(), "" + ( i + 1 ) ) );
-          }
-        } else {
-          throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.Error.NoNameField", ""
-            + ( i + 1 ) ) );
-        }
+      prepareCalculations();
+    }
 
-        if ( !Utils.isEmpty( function.getFieldA() ) ) {
-          if ( function.getCalcType() != CalculatorMetaFunction.CALC_CONSTANT ) {
-            data.getFieldIndexes()[i].indexA = data.getCalcRowMeta().indexOfValue( function.getFieldA() );
-            if ( data.getFieldIndexes()[i].indexA < 0 ) {
-              // Nope: throw an exception
-              throw new KettleStepException( "Unable to find the first argument field '"
-                + function.getFieldName() + " for calculation #" + ( i + 1 ) );
-            }
-          } else {
-            data.getFieldIndexes()[i].indexA = -1;
-          }
-        } else {
-          throw new KettleStepException( "There is no first argument specified for calculated field #" + ( i + 1 ) );
+    List<Object[]> outputRows = new ArrayList<Object[]>( rows.size() );
+    try {
+      for ( Object[] r : rows ) {
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
+            + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
         }
 
-        if ( !Utils.isEmpty( function.getFieldB() ) ) {
-          data.getFieldIndexes()[i].indexB = data.getCalcRowMeta().indexOfValue( function.getFieldB() );
-          if ( data.getFieldIndexes()[i].indexB < 0 ) {
-            // Nope: throw an exception
-            throw new KettleStepException( "Unable to find the second argument field '"
-              + function.getFieldName() + " for calculation #" + ( i + 1 ) );
-          }
-        }
-        data.getFieldIndexes()[i].indexC = -1;
-        if ( !Utils.isEmpty( function.getFieldC() ) ) {
-          data.getFieldIndexes()[i].indexC = data.getCalcRowMeta().indexOfValue( function.getFieldC() );
-          if ( data.getFieldIndexes()[i].indexC < 0 ) {
-            // Nope: throw an exception
-            throw new KettleStepException( "Unable to find the third argument field '"
-              + function.getFieldName() + " for calculation #" + ( i + 1 ) );
+        try {
+          outputRows.add( calcFields( getInputRowMeta(), r ) );
+        } catch ( KettleFileNotFoundException e ) {
+          if ( meta.isFailIfNoFile() ) {
+            putRows( data.getOutputRowMeta(), outputRows );
+            logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
+            setErrors( getErrors() + 1 );
+            return false;
           }
         }
+      }
+      putRows( data.getOutputRowMeta(), outputRows ); // copy rows to possible alternate rowset(s).
 
-        if ( function.isRemovedFromResult() ) {
-          tempIndexes.add( getInputRowMeta().size() + i );
+      if ( log.isRowLevel() ) {
+        long lineNr = getLinesWritten() - outputRows.size();
+        for ( Object[] row : outputRows ) {
+          logRowlevel( "Wrote row #" + ( ++lineNr ) + " : " + data.getOutputRowMeta().getString( row ) );
         }
       }
-
-      // Convert temp indexes to int[]
-      data.setTempIndexes( new int[tempIndexes.size()] );
-      for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
-        data.getTempIndexes()[i] = tempIndexes.get( i );
+      if ( checkFeedback( getLinesRead() - rows.size(), getLinesRead() ) ) {
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+        }
       }
+    } catch ( KettleException e ) {
+      logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
+      throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
     }
+    return true;
+  }
 
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
-        + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
+  /**
+   * Calculates a whole batch of rows. Simple arithmetic on Integer and Number fields is done on the columns of the
+   * batch (see {@link ColumnCalculator}), all other calculations row by row.
+   */
+  private boolean processBatch() throws KettleException {
+    RowBatch batch = getBatch( RowBatch.DEFAULT_SIZE );
+    if ( batch == null ) { // no more input to be expected...
+      setOutputDone();
+      data.clearValuesMetaMapping();
+      return false;
     }
 
-    try {
-      Object[] row = calcFields( getInputRowMeta(), r );
-      putRow( data.getOutputRowMeta(), row ); // copy row to possible alternate rowset(s).
+    if ( first ) {
+      first = false;
+      prepareCalculations();
+      data.setColumnCalculator( ColumnCalculator.create( meta, data.getCalcRowMeta(), data.getFieldIndexes(),
+        getInputRowMeta().size() ) );
+    }
 
-      if ( log.isRowLevel() ) {
-        logRowlevel( "Wrote row #" + getLinesWritten() + " : " + getInputRowMeta().getString( r ) );
+    try {
+      RowBatch outputBatch = null;
+      if ( data.getColumnCalculator() != null ) {
+        outputBatch = data.getColumnCalculator().calculate( batch, data.getOutputRowMeta(), data.getTempIndexes() );
       }
-      if ( checkFeedback( getLinesRead() ) ) {
+      if ( outputBatch == null ) {
+        List<Object[]> rows = new ArrayList<Object[]>( batch.size() );
+        for ( int i = 0; i < batch.size(); i++ ) {
+          rows.add( calcFields( getInputRowMeta(), batch.getRow( i ) ) );
+        }
+        outputBatch = RowBatch.fromRows( data.getOutputRowMeta(), rows );
+      }
+      putBatch( data.getOutputRowMeta(), outputBatch ); // copy rows to possible alternate rowset(s).
+
+      if ( checkFeedback( getLinesRead() - batch.size(), getLinesRead() ) ) {
         if ( log.isBasic() ) {
           logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
         }
@@ -176,6 +171,85 @@ public class Calculator extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Determines the output and calculation metadata and the indexes of the fields of the calculations.
+   */
+  private void prepareCalculations() throws KettleException {
+    data.setOutputRowMeta( getInputRowMeta().clone() );
+    meta.getFields( getTransMeta().getBowl(), data.getOutputRowMeta(), getStepname(), null, null, this, repository,
+      metaStore );
+
+    // get all metadata, including source rows and temporary fields.
+    data.setCalcRowMeta( meta.getAllFields( getInputRowMeta() ) );
+
+    data.setFieldIndexes( new FieldIndexes[meta.getCalculation().length] );
+    List<Integer> tempIndexes = new ArrayList<Integer>();
+
+    // Calculate the indexes of the values and arguments in the target data or temporary data
+    // We do this in advance to save time later on.
+    //
+    //CHECKSTYLE:Indentation:OFF
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      CalculatorMetaFunction function = meta.getCalculation()[i];
+      data.getFieldIndexes()[i] = new FieldIndexes();
+
+      if ( !Utils.isEmpty( function.getFieldName() ) ) {
+        data.getFieldIndexes()[i].indexName = data.getCalcRowMeta().indexOfValue( function.getFieldName() );
+        if ( data.getFieldIndexes()[i].indexName < 0 ) {
+          // Nope: throw an exception
+          throw new KettleStepException( BaseMessages.getString(
+            PKG, "Calculator.Error.UnableFindField", function.getFieldName(), "" + ( i + 1 ) ) );
+        }
+      } else {
+        throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.Error.NoNameField", ""
+          + ( i + 1 ) ) );
+      }
+
+      if ( !Utils.isEmpty( function.getFieldA() ) ) {
+        if ( function.getCalcType() != CalculatorMetaFunction.CALC_CONSTANT ) {
+          data.getFieldIndexes()[i].indexA = data.getCalcRowMeta().indexOfValue( function.getFieldA() );
+          if ( data.getFieldIndexes()[i].indexA < 0 ) {
+            // Nope: throw an exception
+            throw new KettleStepException( "Unable to find the first argument field '"
+              + function.getFieldName() + " for calculation #" + ( i + 1 ) );
+          }
+        } else {
+          data.getFieldIndexes()[i].indexA = -1;
+        }
+      } else {
+        throw new KettleStepException( "There is no first argument specified for calculated field #" + ( i + 1 ) );
+      }
+
+      if ( !Utils.isEmpty( function.getFieldB() ) ) {
+        data.getFieldIndexes()[i].indexB = data.getCalcRowMeta().indexOfValue( function.getFieldB() );
+        if ( data.getFieldIndexes()[i].indexB < 0 ) {
+          // Nope: throw an exception
+          throw new KettleStepException( "Unable to find the second argument field '"
+            + function.getFieldName() + " for calculation #" + ( i + 1 ) );
+        }
+      }
+      data.getFieldIndexes()[i].indexC = -1;
+      if ( !Utils.isEmpty( function.getFieldC() ) ) {
+        data.getFieldIndexes()[i].indexC = data.getCalcRowMeta().indexOfValue( function.getFieldC() );
+        if ( data.getFieldIndexes()[i].indexC < 0 ) {
+          // Nope: throw an exception
+          throw new KettleStepException( "Unable to find the third argument field '"
+            + function.getFieldName() + " for calculation #" + ( i + 1 ) );
+        }
+      }
+
+      if ( function.isRemovedFromResult() ) {
+        tempIndexes.add( getInputRowMeta().size() + i );
+      }
+    }
+
+    // Convert temp indexes to int[]
+    data.setTempIndexes( new int[tempIndexes.size()] );
+    for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
+      data.getTempIndexes()[i] = tempIndexes.get( i );
+    }
+  }
+
   /**
    * @param inputRowMeta
    *          the input row metadata
@@ -657,6 +731,10 @@ public class Calculator extends BaseStep implements StepInterface {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
-    return super.init( smi, sdi );
+    if ( super.init( smi, sdi ) ) {
+      data.setBatchMode( hasBatchRowSets() );
+      return true;
+    }
+    return false;
   }
 }
@@ -35,6 +35,12 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
 
   private int[] tempIndexes;
 
+  /** Whether the step reads and writes whole batches of rows. */
+  private boolean batchMode;
+
+  /** The calculator for the columns of the batches, null if the calculations have to be done row by row. */
+  private ColumnCalculator columnCalculator;
+
   private final Map<Integer, ValueMetaInterface> resultMetaMapping;
 
   public CalculatorData() {
@@ -74,6 +80,22 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
     this.tempIndexes = tempIndexes;
   }
 
+  public boolean isBatchMode() {
+    return batchMode;
+  }
+
+  public void setBatchMode( boolean batchMode ) {
+    this.batchMode = batchMode;
+  }
+
+  ColumnCalculator getColumnCalculator() {
+    return columnCalculator;
+  }
+
+  void setColumnCalculator( ColumnCalculator columnCalculator ) {
+    this.columnCalculator = columnCalculator;
+  }
+
   public ValueMetaInterface getValueMetaFor( int resultType, String name ) throws KettlePluginException {
     // don't need any synchronization as data instance belongs only to one step instance
     ValueMetaInterface meta = resultMetaMapping.get( resultType );
@@ -253,6 +253,11 @@ public class CalculatorMeta extends BaseStepMeta implements StepMetaInterface {
     return new CalculatorData();
   }
 
+  @Override
+  public boolean supportsBatches() {
+    return true;
+  }
+
   @Override
   public StepHelperInterface getStepHelperInterface() {
     return new CalculatorHelper();
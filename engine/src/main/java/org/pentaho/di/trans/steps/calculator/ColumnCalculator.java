@@ -0,0 +1,251 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.calculator;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.ColumnVector;
+import org.pentaho.di.core.row.batch.DoubleColumnVector;
+import org.pentaho.di.core.row.batch.LongColumnVector;
+import org.pentaho.di.core.row.batch.RowBatch;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+
+/**
+ * Does the calculations of a Calculator step on the columns of a {@link RowBatch} instead of row by row. Only copies
+ * and A + B, A - B, A * B and A * A on two Integer or two Number fields are supported, with a result of the same type:
+ * the same results {@link org.pentaho.di.core.row.ValueDataUtil} gives, null if one of the arguments is null.
+ */
+final class ColumnCalculator {
+
+  private final int[] calcTypes;
+  private final Calculator.FieldIndexes[] fieldIndexes;
+  private final int[] valueTypes;
+  private final int inputSize;
+  private final int calcSize;
+
+  private ColumnCalculator( int[] calcTypes, Calculator.FieldIndexes[] fieldIndexes, int[] valueTypes,
+                            int inputSize, int calcSize ) {
+    this.calcTypes = calcTypes;
+    this.fieldIndexes = fieldIndexes;
+    this.valueTypes = valueTypes;
+    this.inputSize = inputSize;
+    this.calcSize = calcSize;
+  }
+
+  /**
+   * @param meta         the step metadata with the calculations
+   * @param calcRowMeta  the input fields followed by the calculated fields
+   * @param fieldIndexes the indexes of the arguments of the calculations in calcRowMeta
+   * @param inputSize    the number of input fields
+   * @return the calculator or null if a calculation can't be done on columns
+   */
+  static ColumnCalculator create( CalculatorMeta meta, RowMetaInterface calcRowMeta,
+                                  Calculator.FieldIndexes[] fieldIndexes, int inputSize ) {
+    CalculatorMetaFunction[] calculations = meta.getCalculation();
+    int[] calcTypes = new int[ calculations.length ];
+    int[] valueTypes = new int[ calculations.length ];
+    for ( int i = 0; i < calculations.length; i++ ) {
+      ValueMetaInterface targetMeta = calcRowMeta.getValueMeta( inputSize + i );
+      Calculator.FieldIndexes indexes = fieldIndexes[ i ];
+      calcTypes[ i ] = calculations[ i ].getCalcType();
+      valueTypes[ i ] = targetMeta.getType();
+
+      switch ( calcTypes[ i ] ) {
+        case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+          if ( indexes.indexA < 0 || !isCopyable( calcRowMeta.getValueMeta( indexes.indexA ), targetMeta ) ) {
+            return null;
+          }
+          break;
+        case CalculatorMetaFunction.CALC_ADD:
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+        case CalculatorMetaFunction.CALC_MULTIPLY:
+          if ( indexes.indexA < 0 || indexes.indexB < 0
+            || !isPrimitive( calcRowMeta.getValueMeta( indexes.indexA ), targetMeta )
+            || !isPrimitive( calcRowMeta.getValueMeta( indexes.indexB ), targetMeta ) ) {
+            return null;
+          }
+          break;
+        case CalculatorMetaFunction.CALC_SQUARE:
+          if ( indexes.indexA < 0 || !isPrimitive( calcRowMeta.getValueMeta( indexes.indexA ), targetMeta ) ) {
+            return null;
+          }
+          break;
+        default:
+          return null;
+      }
+    }
+    return new ColumnCalculator( calcTypes, fieldIndexes, valueTypes, inputSize, calcRowMeta.size() );
+  }
+
+  /**
+   * A copy is passed on as it is, without the conversion to the type of the target field.
+   */
+  private static boolean isCopyable( ValueMetaInterface sourceMeta, ValueMetaInterface targetMeta ) {
+    return sourceMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL
+      && sourceMeta.getType() == targetMeta.getType();
+  }
+
+  private static boolean isPrimitive( ValueMetaInterface argumentMeta, ValueMetaInterface targetMeta ) {
+    if ( argumentMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL
+      || argumentMeta.getType() != targetMeta.getType() ) {
+      return false;
+    }
+    Class<?> argumentClass = argumentMeta.getClass();
+    return argumentClass == ValueMetaInteger.class || argumentClass == ValueMetaNumber.class;
+  }
+
+  /**
+   * @param batch         the input rows
+   * @param outputRowMeta the description of the output rows
+   * @param tempIndexes   the indexes of the temporary fields in the calculation fields, they are left out
+   * @return the output rows or null if a column doesn't hold the values its field describes
+   */
+  RowBatch calculate( RowBatch batch, RowMetaInterface outputRowMeta, int[] tempIndexes ) {
+    int size = batch.size();
+    ColumnVector[] calc = new ColumnVector[ calcSize ];
+    for ( int c = 0; c < inputSize; c++ ) {
+      calc[ c ] = batch.getColumn( c );
+    }
+
+    for ( int i = 0; i < calcTypes.length; i++ ) {
+      Calculator.FieldIndexes indexes = fieldIndexes[ i ];
+      ColumnVector result;
+      if ( calcTypes[ i ] == CalculatorMetaFunction.CALC_COPY_OF_FIELD ) {
+        result = calc[ indexes.indexA ];
+      } else {
+        int indexB = calcTypes[ i ] == CalculatorMetaFunction.CALC_SQUARE ? indexes.indexA : indexes.indexB;
+        if ( valueTypes[ i ] == ValueMetaInterface.TYPE_INTEGER ) {
+          LongColumnVector a = toLongs( calc[ indexes.indexA ], size );
+          LongColumnVector b = toLongs( calc[ indexB ], size );
+          if ( a == null || b == null ) {
+            return null;
+          }
+          result = calculateLongs( calcTypes[ i ], a, b, size );
+        } else {
+          DoubleColumnVector a = toDoubles( calc[ indexes.indexA ], size );
+          DoubleColumnVector b = toDoubles( calc[ indexB ], size );
+          if ( a == null || b == null ) {
+            return null;
+          }
+          result = calculateDoubles( calcTypes[ i ], a, b, size );
+        }
+      }
+      calc[ inputSize + i ] = result;
+    }
+
+    // Leave out the temporary fields
+    //
+    ColumnVector[] output = new ColumnVector[ outputRowMeta.size() ];
+    for ( int c = 0, o = 0, t = 0; c < calc.length; c++ ) {
+      if ( t < tempIndexes.length && tempIndexes[ t ] == c ) {
+        t++;
+      } else {
+        output[ o++ ] = calc[ c ];
+      }
+    }
+    return new RowBatch( outputRowMeta, output, size );
+  }
+
+  private static LongColumnVector calculateLongs( int calcType, LongColumnVector a, LongColumnVector b, int size ) {
+    long[] values = new long[ size ];
+    switch ( calcType ) {
+      case CalculatorMetaFunction.CALC_ADD:
+        for ( int r = 0; r < size; r++ ) {
+          values[ r ] = a.getLong( r ) + b.getLong( r );
+        }
+        break;
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+        for ( int r = 0; r < size; r++ ) {
+          values[ r ] = a.getLong( r ) - b.getLong( r );
+        }
+        break;
+      default: // multiply and square
+        for ( int r = 0; r < size; r++ ) {
+          values[ r ] = a.getLong( r ) * b.getLong( r );
+        }
+        break;
+    }
+    return new LongColumnVector( values, nullsOf( a, b, size ), size );
+  }
+
+  private static DoubleColumnVector calculateDoubles( int calcType, DoubleColumnVector a, DoubleColumnVector b,
+                                                      int size ) {
+    double[] values = new double[ size ];
+    switch ( calcType ) {
+      case CalculatorMetaFunction.CALC_ADD:
+        for ( int r = 0; r < size; r++ ) {
+          values[ r ] = a.getDouble( r ) + b.getDouble( r );
+        }
+        break;
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+        for ( int r = 0; r < size; r++ ) {
+          values[ r ] = a.getDouble( r ) - b.getDouble( r );
+        }
+        break;
+      default: // multiply and square
+        for ( int r = 0; r < size; r++ ) {
+          values[ r ] = a.getDouble( r ) * b.getDouble( r );
+        }
+        break;
+    }
+    return new DoubleColumnVector( values, nullsOf( a, b, size ), size );
+  }
+
+  /**
+   * @return the null bitmap of the result: null where one of the arguments is null, no bitmap without nulls
+   */
+  private static long[] nullsOf( ColumnVector a, ColumnVector b, int size ) {
+    long[] nulls = null;
+    for ( int r = 0; r < size; r++ ) {
+      if ( a.isNull( r ) || b.isNull( r ) ) {
+        if ( nulls == null ) {
+          nulls = ColumnVector.newNullBitmap( size );
+        }
+        ColumnVector.setNull( nulls, r );
+      }
+    }
+    return nulls;
+  }
+
+  /**
+   * @return the column as a primitive column, null if it holds something else than Longs
+   */
+  private static LongColumnVector toLongs( ColumnVector column, int size ) {
+    if ( column instanceof LongColumnVector ) {
+      return (LongColumnVector) column;
+    }
+    Object[] values = new Object[ size ];
+    for ( int r = 0; r < size; r++ ) {
+      values[ r ] = column.getObject( r );
+    }
+    ColumnVector converted = RowBatch.toColumn( new ValueMetaInteger(), values, size );
+    return converted instanceof LongColumnVector ? (LongColumnVector) converted : null;
+  }
+
+  /**
+   * @return the column as a primitive column, null if it holds something else than Doubles
+   */
+  private static DoubleColumnVector toDoubles( ColumnVector column, int size ) {
+    if ( column instanceof DoubleColumnVector ) {
+      return (DoubleColumnVector) column;
+    }
+    Object[] values = new Object[ size ];
+    for ( int r = 0; r < size; r++ ) {
+      values[ r ] = column.getObject( r );
+    }
+    ColumnVector converted = RowBatch.toColumn( new ValueMetaNumber(), values, size );
+    return converted instanceof DoubleColumnVector ? (DoubleColumnVector) converted : null;
+  }
+}
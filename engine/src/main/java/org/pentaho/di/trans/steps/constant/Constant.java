@@ -27,6 +27,9 @@ import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.ColumnVector;
+import org.pentaho.di.core.row.batch.ConstantColumnVector;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.core.util.StringUtil;
 import org.pentaho.di.i18n.BaseMessages;
@@ -224,6 +227,10 @@ public class Constant extends BaseStep implements StepInterface {
 
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    if ( data.batchMode ) {
+      return processBatch();
+    }
+
     Object[] r = null;
     r = getRow();
 
@@ -233,13 +240,7 @@ public class Constant extends BaseStep implements StepInterface {
     }
 
     if ( data.firstRow ) {
-      // The output meta is the original input meta + the
-      // additional constant fields.
-
-      data.firstRow = false;
-      data.outputMeta = getInputRowMeta().clone();
-      meta.getFields( getTransMeta().getBowl(), data.outputMeta, getStepname(), null, null, this, repository,
-        metaStore );
+      determineOutputMeta();
     }
 
     // Add the constant data to the end of the row.
@@ -261,6 +262,61 @@ public class Constant extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Adds the constant fields to a whole batch of rows: the constant values are the same for every row, so every field
+   * becomes a single value column.
+   */
+  private boolean processBatch() throws KettleException {
+    RowBatch batch = getBatch( RowBatch.DEFAULT_SIZE );
+    if ( batch == null ) { // no more rows to be expected from the previous step(s)
+      setOutputDone();
+      return false;
+    }
+
+    if ( data.firstRow ) {
+      determineOutputMeta();
+    }
+
+    int inputSize = batch.getColumnCount();
+    Object[] constants = data.getConstants().getData();
+    ColumnVector[] columns = new ColumnVector[ data.outputMeta.size() ];
+    for ( int i = 0; i < inputSize; i++ ) {
+      columns[ i ] = batch.getColumn( i );
+    }
+    for ( int i = inputSize; i < columns.length; i++ ) {
+      columns[ i ] = new ConstantColumnVector( constants[ i - inputSize ], batch.size() );
+    }
+    RowBatch outputBatch = new RowBatch( data.outputMeta, columns, batch.size() );
+
+    long linesBefore = getLinesWritten();
+    putBatch( data.outputMeta, outputBatch );
+
+    if ( log.isRowLevel() ) {
+      for ( int i = 0; i < outputBatch.size(); i++ ) {
+        logRowlevel( BaseMessages.getString( PKG, "Constant.Log.Wrote.Row", Long.toString( linesBefore + i + 1 ),
+          getInputRowMeta().getString( outputBatch.getRow( i ) ) ) );
+      }
+    }
+
+    if ( checkFeedback( linesBefore, getLinesWritten() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "Constant.Log.LineNr", Long.toString( getLinesWritten() ) ) );
+      }
+    }
+
+    return true;
+  }
+
+  private void determineOutputMeta() throws KettleException {
+    // The output meta is the original input meta + the
+    // additional constant fields.
+
+    data.firstRow = false;
+    data.outputMeta = getInputRowMeta().clone();
+    meta.getFields( getTransMeta().getBowl(), data.outputMeta, getStepname(), null, null, this, repository,
+      metaStore );
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (ConstantMeta) smi;
@@ -272,6 +328,7 @@ public class Constant extends BaseStep implements StepInterface {
       // Create a row (constants) with all the values in it...
       List<CheckResultInterface> remarks = new ArrayList<CheckResultInterface>(); // stores the errors...
       data.constants = buildRow( meta, data, remarks );
+      data.batchMode = hasBatchRowSets();
       if ( remarks.isEmpty() ) {
         return true;
       } else {
@@ -39,6 +39,9 @@ public class ConstantData extends BaseStepData implements StepDataInterface {
 
   public boolean firstRow;
 
+  /** Process the rows a batch at a time, the step is next to a hop that carries row batches. */
+  boolean batchMode;
+
   public ConstantData() {
     super();
 
@@ -438,4 +438,9 @@ public class ConstantMeta extends BaseStepMeta implements StepMetaInterface {
   public StepDataInterface getStepData() {
     return new ConstantData();
   }
+
+  @Override
+  public boolean supportsBatches() {
+    return true;
+  }
 }
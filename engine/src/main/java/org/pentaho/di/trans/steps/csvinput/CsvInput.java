@@ -37,6 +37,7 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
@@ -141,25 +142,30 @@ public class CsvInput extends BaseStep implements StepInterface {
       }
     }
 
+    // Read a block of rows and pass them on at once
+    //
+    List<Object[]> rows = new ArrayList<>();
     try {
-      Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
-      // no more input to be expected...
-      if ( outputRowData == null ) {
-        if ( openNextFile() ) {
-          return true; // try again on the next loop...
-        } else {
-          setOutputDone(); // last file, end here
-          return false;
-        }
-      } else {
-        putRow( data.outputRowMeta, outputRowData ); // copy row to possible alternate rowset(s).
-        if ( checkFeedback( getLinesInput() ) ) {
-          if ( log.isBasic() ) {
-            logBasic( BaseMessages.getString( PKG, "CsvInput.Log.LineNumber", Long.toString( getLinesInput() ) ) );
+      while ( rows.size() < RowBatch.DEFAULT_SIZE && ( !data.parallel || data.totalBytesRead < data.blockToRead ) ) {
+        Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
+        // no more input to be expected...
+        if ( outputRowData == null ) {
+          putReadRows( rows );
+          if ( openNextFile() ) {
+            return true; // try again on the next loop...
+          } else {
+            setOutputDone(); // last file, end here
+            return false;
           }
         }
+        rows.add( outputRowData );
       }
+      putReadRows( rows );
     } catch ( KettleConversionException e ) {
+      // The rows before the one that failed go first
+      //
+      putReadRows( rows );
+
       if ( getStepMeta().isDoingErrorHandling() ) {
         StringBuilder errorDescriptions = new StringBuilder( 100 );
         StringBuilder errorFields = new StringBuilder( 50 );
@@ -185,6 +191,21 @@ public class CsvInput extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Copies the rows that were read to the possible alternate rowset(s).
+   */
+  private void putReadRows( List<Object[]> rows ) throws KettleException {
+    if ( rows.isEmpty() ) {
+      return;
+    }
+    putRows( data.outputRowMeta, rows );
+    if ( checkFeedback( getLinesInput() - rows.size(), getLinesInput() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "CsvInput.Log.LineNumber", Long.toString( getLinesInput() ) ) );
+      }
+    }
+  }
+
   private void prepareToRunInParallel() throws KettleException {
     try {
       // At this point it doesn't matter if we have 1 or more files.
@@ -13,14 +13,21 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
@@ -53,6 +60,12 @@ import org.pentaho.di.trans.steps.databaselookup.readallcache.ReadAllCache;
 public class DatabaseLookup extends BaseStep implements StepInterface {
   private static Class<?> PKG = DatabaseLookupMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** The maximum number of parameters in a batch query, some databases allow no more than 1000 values in an IN */
+  static final int MAX_BATCH_PARAMETERS = 1000;
+
+  /** A batch is looked up when it has this many rows per key of the batch size, even with fewer keys */
+  static final int MAX_BATCH_ROWS_PER_KEY = 8;
+
   private DatabaseLookupMeta meta;
   private DatabaseLookupData data;
 
@@ -70,8 +83,44 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
    */
   @VisibleForTesting
   synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+    Object[] lookupRow = getLookupRow( inputRowMeta, row );
+
+    Object[] add;
+    boolean cacheNow = false;
+    boolean cacheHit = false;
 
+    // First, check if we looked up before
+    if ( meta.isCached() ) {
+      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
+      if ( add != null ) {
+        cacheHit = true;
+      }
+    } else {
+      add = null;
+    }
+
+    if ( add == null && ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) ) {
+      // do not go to the database when all rows are in (exception LIKE operator)
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
+          + meta.getStreamKeyField1().length
+          + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
+          + data.lookupMeta.getString( lookupRow ) );
+      }
+
+      data.db.setValuesLookup( data.lookupMeta, lookupRow );
+      add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+      cacheNow = true;
+    }
+
+    return addLookupValues( inputRowMeta, row, lookupRow, add,
+      add == null || cacheHit ? null : data.db.getReturnRowMeta(), cacheNow );
+  }
+
+  /**
+   * @return the values of the row to look up with, converted to the types of the table fields
+   */
+  private Object[] getLookupRow( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
     Object[] lookupRow = new Object[ data.lookupMeta.size() ];
     int lookupIndex = 0;
 
@@ -110,35 +159,20 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
 
-    Object[] add;
-    boolean cacheNow = false;
-    boolean cacheHit = false;
-
-    // First, check if we looked up before
-    if ( meta.isCached() ) {
-      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
-      if ( add != null ) {
-        cacheHit = true;
-      }
-    } else {
-      add = null;
-    }
-
-    if ( add == null && ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) ) {
-      // do not go to the database when all rows are in (exception LIKE operator)
-      if ( log.isRowLevel() ) {
-        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
-          + meta.getStreamKeyField1().length
-          + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
-          + data.lookupMeta.getString( lookupRow ) );
-      }
-
-      data.db.setValuesLookup( data.lookupMeta, lookupRow );
-      add = data.db.getLookup( meta.isFailingOnMultipleResults() );
-      cacheNow = true;
-    }
-
+  /**
+   * Adds the values looked up to the row, or the default values if nothing was found.
+   *
+   * @param add          the values looked up, null if nothing was found
+   * @param returnedMeta the metadata of the values from the database, null if they came from the cache
+   * @param cacheNow     true to store the values in the cache
+   * @return the output row, null if the row is eaten or sent to the error handling
+   */
+  private Object[] addLookupValues( RowMetaInterface inputRowMeta, Object[] row, Object[] lookupRow, Object[] add,
+                                    RowMetaInterface returnedMeta, boolean cacheNow ) throws KettleException {
+    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
 
     if ( add == null ) { // nothing was found, unknown code: add default values
       if ( meta.isEatingRowOnLookupFailure() ) {
@@ -171,7 +205,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
       // Only verify the data types if the data comes from the DB, NOT when we have a cache hit
       // In that case, we already know the data type is OK.
-      if ( !cacheHit ) {
+      if ( returnedMeta != null ) {
         incrementLines();
         int[] types = meta.getReturnValueDefaultType();
 
@@ -180,7 +214,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         // that should not be a problem.
         //
         for ( int i = 0; i < types.length; i++ ) {
-          ValueMetaInterface returned = data.db.getReturnRowMeta().getValueMeta( i );
+          ValueMetaInterface returned = returnedMeta.getValueMeta( i );
           ValueMetaInterface expected = data.returnMeta.getValueMeta( i );
 
           if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
@@ -267,6 +301,36 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return !ValueMetaBase.convertStringToBoolean( Const.NVL( skipLookupReturnFields, "N" ) );
   }
 
+  /**
+   * @return true if the copies of the step share one cache, see KETTLE_DATABASE_LOOKUP_SHARE_CACHE
+   */
+  private boolean isSharingCache() {
+    String shareCache = getVariable( Const.KETTLE_DATABASE_LOOKUP_SHARE_CACHE, "N" );
+    return ValueMetaBase.convertStringToBoolean( Const.NVL( shareCache, "N" ) ) && !meta.isLoadingAllDataInCache()
+      && getTrans().findStepInterfaces( getStepname() ).size() > 1;
+  }
+
+  /**
+   * @return the cache of all the copies, kept by the first copy of the step
+   */
+  private DatabaseLookupData.Cache findSharedCache() {
+    StepInterface firstCopy = getTrans().findStepInterface( getStepname(), 0 );
+    DatabaseLookupData firstData = (DatabaseLookupData) firstCopy.getStepDataInterface();
+    synchronized ( firstData ) {
+      if ( firstData.cache == null ) {
+        firstData.cache = newDefaultCache( firstData, getTrans().findStepInterfaces( getStepname() ).size() );
+      }
+      return firstData.cache;
+    }
+  }
+
+  private DefaultCache newDefaultCache( DatabaseLookupData cacheData, int nrCopies ) {
+    DefaultCache.EvictionPolicy policy =
+      DefaultCache.EvictionPolicy.getPolicy( getVariable( Const.KETTLE_DATABASE_LOOKUP_CACHE_EVICTION, "LRU" ) );
+    long timeToLive = Const.toLong( getVariable( Const.KETTLE_DATABASE_LOOKUP_CACHE_TIME_TO_LIVE, "0" ), 0L ) * 1000L;
+    return DefaultCache.newCache( cacheData, meta.getCacheSize(), policy, timeToLive, nrCopies );
+  }
+
   /*
    * Forces the use of the return value type of fields as they are configured in the database
    * regardless of what is configured in the step UI
@@ -344,15 +408,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (DatabaseLookupMeta) smi;
+    data = (DatabaseLookupData) sdi;
+
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchRows != null && !flushLookupBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
 
-    meta = (DatabaseLookupMeta) smi;
-    data = (DatabaseLookupData) sdi;
-
     if ( first ) {
       first = false;
 
@@ -404,7 +471,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       }
 
       if ( meta.isCached() ) {
-        data.cache = DefaultCache.newCache( data, meta.getCacheSize() );
+        data.cache = isSharingCache() ? findSharedCache() : newDefaultCache( data, 1 );
       }
 
       determineFieldsTypesQueryingDb();
@@ -420,6 +487,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       if ( meta.isCached() && meta.isLoadingAllDataInCache() ) {
         loadAllTableDataIntoTheCache();
       }
+
+      data.batchSize = getLookupBatchSize();
+      if ( data.batchSize > 0 ) {
+        data.batchExactKeys = hasExactKeys();
+        data.batchRows = new ArrayList<>();
+        data.batchLookupRows = new ArrayList<>();
+        data.batchCacheHits = new ArrayList<>();
+        data.batchKeys = new LinkedHashSet<>();
+      } else if ( meta.getLookupBatchSize() > 1 && log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.LookupBatchNotUsed",
+          meta.getLookupBatchSize() ) );
+      }
     }
 
     if ( log.isRowLevel() ) {
@@ -427,37 +506,239 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         + getInputRowMeta().getString( r ) );
     }
 
+    if ( data.batchSize > 0 ) {
+      return addToLookupBatch( r );
+    }
+
     try {
       // add new lookup values to the row
-      Object[] outputRow = lookupValues( getInputRowMeta(), r );
+      putOutputRow( r, lookupValues( getInputRowMeta(), r ) );
+    } catch ( KettleException e ) {
+      return handleLookupError( r, e );
+    }
 
-      if ( outputRow != null ) {
-        // copy row to output rowset(s);
-        putRow( data.outputRowMeta, outputRow );
+    return true;
+  }
 
-        if ( log.isRowLevel() ) {
-          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
-            + getInputRowMeta().getString( r ) );
-        }
+  private void putOutputRow( Object[] r, Object[] outputRow ) throws KettleException {
+    if ( outputRow != null ) {
+      // copy row to output rowset(s);
+      putRow( data.outputRowMeta, outputRow );
 
-        long linesRead = getLinesRead();
-        if ( checkFeedback( linesRead ) ) {
-          logBasic( "linenr " + linesRead );
-        }
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
+          + getInputRowMeta().getString( r ) );
       }
-    } catch ( KettleException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
-      } else {
-        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
-          + e.getMessage() );
-        setErrors( 1 );
-        stopAll();
-        setOutputDone(); // signal end to receiver(s)
+
+      long linesRead = getLinesRead();
+      if ( checkFeedback( linesRead ) ) {
+        logBasic( "linenr " + linesRead );
+      }
+    }
+  }
+
+  /**
+   * @return true if the row went to the error handling, false if the step stopped
+   */
+  private boolean handleLookupError( Object[] r, KettleException e ) throws KettleException {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
+      return true;
+    }
+    logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
+      + e.getMessage() );
+    setErrors( 1 );
+    stopAll();
+    setOutputDone(); // signal end to receiver(s)
+    return false;
+  }
+
+  /**
+   * Returns the number of rows to look up in one query. Only the condition "=" with a stream field and the
+   * conditions IS NULL and IS NOT NULL without one can be combined over many rows. The number of keys is limited to
+   * MAX_BATCH_PARAMETERS parameters in the query.
+   *
+   * @return the number of rows to look up in one query, 0 to look up row by row
+   */
+  private int getLookupBatchSize() {
+    if ( meta.getLookupBatchSize() <= 1 || data.hasDBCondition
+      || ( meta.isCached() && meta.isLoadingAllDataInCache() ) ) {
+      return 0;
+    }
+
+    int nrKeys = 0;
+    for ( int i = 0; i < data.conditions.length; i++ ) {
+      boolean isNullCondition = data.conditions[ i ] == DatabaseLookupMeta.CONDITION_IS_NULL
+        || data.conditions[ i ] == DatabaseLookupMeta.CONDITION_IS_NOT_NULL;
+      boolean isKeyCondition = data.conditions[ i ] == DatabaseLookupMeta.CONDITION_EQ
+        && data.keynrs[ i ] >= 0 && data.keynrs2[ i ] < 0;
+      if ( isKeyCondition ) {
+        nrKeys++;
+      } else if ( !isNullCondition || data.keynrs[ i ] >= 0 || data.keynrs2[ i ] >= 0 ) {
+        return 0;
+      }
+    }
+    if ( nrKeys == 0 ) {
+      return 0;
+    }
+
+    int batchSize = Math.min( meta.getLookupBatchSize(), MAX_BATCH_PARAMETERS / nrKeys );
+    return batchSize > 1 ? batchSize : 0;
+  }
+
+  /**
+   * A key that was not returned by the batch query is not in the table when the database compares the keys the
+   * same way as the step does. That is only certain for integer keys: strings can be compared ignoring case or
+   * trailing spaces, dates and numbers can lose precision. Rows with other keys that are not returned are looked up
+   * one by one.
+   */
+  private boolean hasExactKeys() {
+    for ( ValueMetaInterface key : data.lookupMeta.getValueMetaList() ) {
+      if ( key.getType() != ValueMetaInterface.TYPE_INTEGER ) {
         return false;
       }
     }
+    return true;
+  }
 
+  /**
+   * Adds the row to the batch, and looks up the batch when it's full. A row found in the cache is put right away if
+   * there are no rows waiting, the order of the rows is always kept.
+   *
+   * @return false if the step stopped
+   */
+  private boolean addToLookupBatch( Object[] r ) throws KettleException {
+    Object[] lookupRow;
+    Object[] cacheHit = null;
+    try {
+      lookupRow = getLookupRow( getInputRowMeta(), r );
+      if ( meta.isCached() ) {
+        cacheHit = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
+      }
+      if ( cacheHit != null && data.batchRows.isEmpty() ) {
+        putOutputRow( r, addLookupValues( getInputRowMeta(), r, lookupRow, cacheHit, null, false ) );
+        return true;
+      }
+    } catch ( KettleException e ) {
+      return handleLookupError( r, e );
+    }
+
+    data.batchRows.add( r );
+    data.batchLookupRows.add( lookupRow );
+    data.batchCacheHits.add( cacheHit );
+    if ( cacheHit == null && !hasNullValue( lookupRow ) ) {
+      data.batchKeys.add( new RowMetaAndData( data.lookupMeta, lookupRow ) );
+    }
+
+    if ( data.batchKeys.size() >= data.batchSize
+      || data.batchRows.size() >= data.batchSize * MAX_BATCH_ROWS_PER_KEY ) {
+      return flushLookupBatch();
+    }
+    return true;
+  }
+
+  private static boolean hasNullValue( Object[] lookupRow ) {
+    for ( Object value : lookupRow ) {
+      if ( value == null ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Looks up the keys of the waiting rows in one query and puts the rows in the order they came in.
+   *
+   * @return false if the step stopped
+   */
+  private boolean flushLookupBatch() throws KettleException {
+    Map<RowMetaAndData, Object[]> found = new HashMap<>();
+    Set<RowMetaAndData> multiple = new HashSet<>();
+    RowMetaInterface returnedMeta = null;
+    KettleException batchError = null;
+
+    if ( !data.batchKeys.isEmpty() ) {
+      List<Object[]> keys = new ArrayList<>( data.batchKeys.size() );
+      for ( RowMetaAndData key : data.batchKeys ) {
+        keys.add( key.getData() );
+      }
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.LookupBatch", keys.size(),
+          data.batchRows.size() ) );
+      }
+
+      try {
+        List<Object[]> rows = data.db.getLookupBatch(
+          environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ),
+          meta.getTableKeyField(), meta.getKeyCondition(), meta.getReturnValueField(),
+          meta.getReturnValueNewName(), meta.getOrderByClause(), data.lookupMeta, keys );
+
+        RowMetaInterface rowMeta = data.db.getLookupBatchRowMeta();
+        int nrKeys = data.lookupMeta.size();
+        returnedMeta = new RowMeta();
+        for ( int i = nrKeys; i < rowMeta.size(); i++ ) {
+          returnedMeta.addValueMeta( rowMeta.getValueMeta( i ) );
+        }
+
+        for ( Object[] row : rows ) {
+          Object[] keyData = new Object[ nrKeys ];
+          for ( int i = 0; i < nrKeys; i++ ) {
+            keyData[ i ] = data.lookupMeta.getValueMeta( i ).convertData( rowMeta.getValueMeta( i ), row[ i ] );
+          }
+          RowMetaAndData key = new RowMetaAndData( data.lookupMeta, keyData );
+          if ( !found.containsKey( key ) ) {
+            found.put( key, Arrays.copyOfRange( row, nrKeys, rowMeta.size() ) );
+          } else if ( meta.isFailingOnMultipleResults() ) {
+            multiple.add( key );
+          }
+        }
+      } catch ( KettleException e ) {
+        batchError = e;
+      }
+    }
+
+    List<Object[]> batchRows = data.batchRows;
+    List<Object[]> batchLookupRows = data.batchLookupRows;
+    List<Object[]> batchCacheHits = data.batchCacheHits;
+    data.batchRows = new ArrayList<>();
+    data.batchLookupRows = new ArrayList<>();
+    data.batchCacheHits = new ArrayList<>();
+    data.batchKeys = new LinkedHashSet<>();
+
+    for ( int i = 0; i < batchRows.size(); i++ ) {
+      Object[] r = batchRows.get( i );
+      Object[] lookupRow = batchLookupRows.get( i );
+      try {
+        Object[] outputRow;
+        if ( batchCacheHits.get( i ) != null ) {
+          outputRow = addLookupValues( getInputRowMeta(), r, lookupRow, batchCacheHits.get( i ), null, false );
+        } else if ( hasNullValue( lookupRow ) ) {
+          outputRow = lookupValues( getInputRowMeta(), r );
+        } else {
+          if ( batchError != null ) {
+            throw batchError;
+          }
+          RowMetaAndData key = new RowMetaAndData( data.lookupMeta, lookupRow );
+          if ( multiple.contains( key ) ) {
+            throw new KettleDatabaseException(
+              BaseMessages.getString( PKG, "DatabaseLookup.ERROR006.MultipleResults" ) );
+          }
+          Object[] add = found.get( key );
+          if ( add != null ) {
+            outputRow = addLookupValues( getInputRowMeta(), r, lookupRow, add.clone(), returnedMeta, true );
+          } else if ( data.batchExactKeys ) {
+            outputRow = addLookupValues( getInputRowMeta(), r, lookupRow, null, null, true );
+          } else {
+            outputRow = lookupValues( getInputRowMeta(), r );
+          }
+        }
+        putOutputRow( r, outputRow );
+      } catch ( KettleException e ) {
+        if ( !handleLookupError( r, e ) ) {
+          return false;
+        }
+      }
+    }
     return true;
   }
 
@@ -645,6 +926,12 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       data.db.close();
     }
 
+    if ( data.cache instanceof DefaultCache && log.isDetailed() ) {
+      DefaultCache cache = (DefaultCache) data.cache;
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.CacheStatistics", cache.getEvictionPolicy(),
+        cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getExpirations(), cache.getSize() ) );
+    }
+
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
     data.cache = null;
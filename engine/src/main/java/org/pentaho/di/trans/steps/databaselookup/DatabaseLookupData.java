@@ -13,6 +13,10 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.List;
+import java.util.Set;
+
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -40,6 +44,13 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public int[] conditions;
   public boolean hasDBCondition;
 
+  public int batchSize; // nr of rows to look up in one query, 0 to look up row by row
+  public boolean batchExactKeys; // true if a key not returned by the batch query is certainly not in the table
+  public List<Object[]> batchRows; // input rows waiting for the batch query
+  public List<Object[]> batchLookupRows; // the lookup rows of batchRows
+  public List<Object[]> batchCacheHits; // the values found in the cache for batchRows, null if not found
+  public Set<RowMetaAndData> batchKeys; // the distinct keys to look up in the batch query
+
   public DatabaseLookupData() {
     super();
 
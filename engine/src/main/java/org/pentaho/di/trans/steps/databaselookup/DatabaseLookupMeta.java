@@ -64,6 +64,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
   private static final String TAG_FIELD = "field";
   private static final String TAG_KEY = "key";
   private static final String TAG_LOOKUP = "lookup";
+  private static final String TAG_LOOKUP_BATCH_SIZE = "lookup_batch_size";
   private static final String TAG_LOOKUP_KEY_CONDITION = "lookup_key_condition";
   private static final String TAG_LOOKUP_KEY_FIELD = "lookup_key_field";
   private static final String TAG_LOOKUP_KEY_NAME = "lookup_key_name";
@@ -152,6 +153,9 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
   /** Have the lookup eat the incoming row when nothing gets found */
   private boolean eatingRowOnLookupFailure;
 
+  /** Look up the keys of this many rows in one query, 0 or 1 to look up row by row */
+  private int lookupBatchSize;
+
   public DatabaseLookupMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -186,6 +190,21 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     this.cacheSize = cacheSize;
   }
 
+  /**
+   * @return Returns the number of rows to look up in one query.
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize
+   *          The number of rows to look up in one query, 0 or 1 to look up row by row.
+   */
+  public void setLookupBatchSize( int lookupBatchSize ) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
   /**
    * @return Returns the database.
    */
@@ -424,6 +443,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       cached = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, TAG_CACHE ) );
       loadingAllDataInCache = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, TAG_CACHE_LOAD_ALL ) );
       cacheSize = Const.toInt( XMLHandler.getTagValue( stepnode, TAG_CACHE_SIZE ), 0 );
+      lookupBatchSize = Const.toInt( XMLHandler.getTagValue( stepnode, TAG_LOOKUP_BATCH_SIZE ), 0 );
       schemaName = XMLHandler.getTagValue( stepnode, TAG_LOOKUP, TAG_SCHEMA );
       tablename = XMLHandler.getTagValue( stepnode, TAG_LOOKUP, TAG_TABLE );
 
@@ -476,6 +496,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     databaseMeta = null;
     cached = false;
     cacheSize = 0;
+    lookupBatchSize = 0;
     schemaName = "";
     tablename = BaseMessages.getString( PKG, "DatabaseLookupMeta.Default.TableName" );
 
@@ -522,6 +543,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_CACHE, cached ) );
     retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_CACHE_LOAD_ALL, loadingAllDataInCache ) );
     retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_CACHE_SIZE, cacheSize ) );
+    retval.append( SPACES4 ).append( XMLHandler.addTagValue( TAG_LOOKUP_BATCH_SIZE, lookupBatchSize ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( SPACES6 ).append( XMLHandler.addTagValue( TAG_SCHEMA, schemaName ) );
     retval.append( SPACES6 ).append( XMLHandler.addTagValue( TAG_TABLE, tablename ) );
@@ -561,6 +583,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       cached = rep.getStepAttributeBoolean( id_step, TAG_CACHE );
       loadingAllDataInCache = rep.getStepAttributeBoolean( id_step, TAG_CACHE_LOAD_ALL );
       cacheSize = (int) rep.getStepAttributeInteger( id_step, TAG_CACHE_SIZE );
+      lookupBatchSize = (int) rep.getStepAttributeInteger( id_step, TAG_LOOKUP_BATCH_SIZE );
       schemaName = rep.getStepAttributeString( id_step, TAG_LOOKUP_SCHEMA );
       tablename = rep.getStepAttributeString( id_step, TAG_LOOKUP_TABLE );
       orderByClause = rep.getStepAttributeString( id_step, TAG_LOOKUP_ORDERBY );
@@ -599,6 +622,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       rep.saveStepAttribute( idTransformation, idStep, TAG_CACHE, cached );
       rep.saveStepAttribute( idTransformation, idStep, TAG_CACHE_LOAD_ALL, loadingAllDataInCache );
       rep.saveStepAttribute( idTransformation, idStep, TAG_CACHE_SIZE, cacheSize );
+      rep.saveStepAttribute( idTransformation, idStep, TAG_LOOKUP_BATCH_SIZE, lookupBatchSize );
       rep.saveStepAttribute( idTransformation, idStep, TAG_LOOKUP_SCHEMA, schemaName );
       rep.saveStepAttribute( idTransformation, idStep, TAG_LOOKUP_TABLE, tablename );
       rep.saveStepAttribute( idTransformation, idStep, TAG_LOOKUP_ORDERBY, orderByClause );
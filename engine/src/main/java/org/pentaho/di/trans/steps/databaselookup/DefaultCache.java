@@ -15,122 +15,384 @@ package org.pentaho.di.trans.steps.databaselookup;
 
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Old code, copied from {@linkplain DatabaseLookup}
+ * The cache of the rows looked up in the database. The rows are kept in segments, each with its own lock, so that the
+ * copies of a step can share one cache. A segment removes its rows in the order of the eviction policy once it holds
+ * its part of the cache size, and rows older than the time to live are not handed out anymore.
  *
  * @author Andrey Khayrutdinov
  */
 public class DefaultCache implements DatabaseLookupData.Cache {
 
+  /**
+   * The rows removed from a full cache first.
+   */
+  public enum EvictionPolicy {
+    /** The rows stored first */
+    FIFO,
+    /** The rows used least recently */
+    LRU,
+    /** The rows used least often, out of the ones used least recently */
+    LFU;
+
+    /**
+     * @return the policy with the name, LRU if there is none
+     */
+    public static EvictionPolicy getPolicy( String name ) {
+      for ( EvictionPolicy policy : values() ) {
+        if ( policy.name().equalsIgnoreCase( name ) ) {
+          return policy;
+        }
+      }
+      return LRU;
+    }
+  }
+
+  private static final int MAX_SEGMENTS = 64;
+  private static final int MIN_SEGMENT_SIZE = 1024;
+
+  // The number of least recently used rows from which LFU removes the one used least often
+  private static final int LFU_SAMPLE_SIZE = 8;
+
   public static DefaultCache newCache( DatabaseLookupData data, int cacheSize ) {
-    return new DefaultCache( data, Math.max( 16, (int) ( cacheSize * 1.5 ) ) );
+    return newCache( data, cacheSize, EvictionPolicy.LRU, 0L, 1 );
+  }
+
+  /**
+   * @param timeToLive
+   *          the number of milliseconds a row can be handed out, 0 or less to keep it until it is removed
+   * @param nrCopies
+   *          the number of step copies that use the cache, the more copies the more segments
+   */
+  public static DefaultCache newCache( DatabaseLookupData data, int cacheSize, EvictionPolicy policy,
+                                       long timeToLive, int nrCopies ) {
+    int nrSegments = 1;
+    while ( nrSegments < nrCopies * 4 && nrSegments < MAX_SEGMENTS
+      && ( cacheSize <= 0 || cacheSize / ( nrSegments * 2 ) >= MIN_SEGMENT_SIZE ) ) {
+      nrSegments *= 2;
+    }
+    return new DefaultCache( data, Math.max( 16, (int) ( cacheSize * 1.5 ) ), policy, timeToLive, nrSegments );
   }
 
   private final DatabaseLookupData data;
-  private final LinkedHashMap<RowMetaAndData, Object[]> map;
+  private final EvictionPolicy policy;
+  private final long timeToLive;
+  private final Segment[] segments;
+  private final AtomicLong sequence = new AtomicLong();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
 
   DefaultCache( DatabaseLookupData data, int capacity ) {
+    this( data, capacity, EvictionPolicy.LRU, 0L, 1 );
+  }
+
+  DefaultCache( DatabaseLookupData data, int capacity, EvictionPolicy policy, long timeToLive, int nrSegments ) {
     this.data = data;
-    map = new LinkedHashMap<>( capacity );
+    this.policy = policy;
+    this.timeToLive = timeToLive;
+    segments = new Segment[ nrSegments ];
+    for ( int i = 0; i < nrSegments; i++ ) {
+      segments[ i ] = new Segment( Math.max( 16, capacity / nrSegments ) );
+    }
   }
 
   @Override
   public Object[] getRowFromCache( RowMetaInterface lookupMeta, Object[] lookupRow ) throws KettleException {
+    long now = timeToLive > 0 ? System.currentTimeMillis() : 0L;
     if ( data.allEquals ) {
       // only do the map lookup when all equals otherwise conditions >, <, <> will give wrong results
-      Object[] row = map.get( new RowMetaAndData( data.lookupMeta, lookupRow ) );
-      if ( row != null ) {
-        return row;
+      RowMetaAndData key = new RowMetaAndData( lookupMeta, lookupRow );
+      Entry entry = segmentOf( key ).get( key, now );
+      if ( entry != null ) {
+        hits.increment();
+        return entry.row;
       }
     } else { // special handling of conditions <,>, <> etc.
       if ( !data.hasDBCondition ) { // e.g. LIKE not handled by this routine, yet
-        // TODO: find an alternative way to look up the data based on the condition.
-        // Not all conditions are "=" so we are going to have to evaluate row by row
-        // A sorted list or index might be a good solution here...
+        // Not all conditions are "=" so we are going to have to evaluate row by row.
+        // The step only stores rows in this cache when all conditions are "=" and loads all data in a ReadAllCache
+        // otherwise, so there is no point in keeping the rows sorted for this.
         //
-        for ( Map.Entry<RowMetaAndData, Object[]> entry : map.entrySet() ) {
-          final RowMetaAndData key = entry.getKey();
-          // Now verify that the key is matching our conditions...
-          //
-          boolean match = true;
-          int lookupIndex = 0;
-          for ( int i = 0; i < data.conditions.length && match; i++ ) {
-            ValueMetaInterface cmpMeta = lookupMeta.getValueMeta( lookupIndex );
-            Object cmpData = lookupRow[ lookupIndex ];
-            ValueMetaInterface keyMeta = key.getValueMeta( i );
-            Object keyData = key.getData()[ i ];
-
-            switch ( data.conditions[ i ] ) {
-              case DatabaseLookupMeta.CONDITION_EQ:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) == 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_NE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) != 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_LT:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) > 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_LE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) >= 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_GT:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) < 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_GE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) <= 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_IS_NULL:
-                match = keyMeta.isNull( keyData );
-                break;
-              case DatabaseLookupMeta.CONDITION_IS_NOT_NULL:
-                match = !keyMeta.isNull( keyData );
-                break;
-              case DatabaseLookupMeta.CONDITION_BETWEEN:
-                // Between key >= cmp && key <= cmp2
-                ValueMetaInterface cmpMeta2 = lookupMeta.getValueMeta( lookupIndex + 1 );
-                Object cmpData2 = lookupRow[ lookupIndex + 1 ];
-                match = ( keyMeta.compare( keyData, cmpMeta, cmpData ) >= 0 );
-                if ( match ) {
-                  match = ( keyMeta.compare( keyData, cmpMeta2, cmpData2 ) <= 0 );
-                }
-                lookupIndex++;
-                break;
-              // TODO: add LIKE operator (think of changing the hasDBCondition logic then)
-              default:
-                match = false;
-                data.hasDBCondition = true; // avoid looping in here the next time, also safety when a new condition
-                // will be introduced
-                break;
-            }
-            lookupIndex++;
-          }
-          if ( match ) {
-            Object[] row = entry.getValue();
-            if ( row != null ) {
-              return row;
-            }
+        // The first row stored that matches, over all the segments
+        //
+        Entry first = null;
+        Segment firstSegment = null;
+        for ( Segment segment : segments ) {
+          Entry entry = segment.find( data.conditions, lookupMeta, lookupRow, now,
+            first == null ? Long.MAX_VALUE : first.sequenceNr );
+          if ( entry != null ) {
+            first = entry;
+            firstSegment = segment;
           }
         }
+        if ( first != null ) {
+          firstSegment.touch( first );
+          hits.increment();
+          return first.row;
+        }
       }
     }
+    misses.increment();
     return null;
   }
 
   @Override
   public void storeRowInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow,
                                Object[] add ) {
-    map.computeIfAbsent( new RowMetaAndData( lookupMeta, lookupRow ), k -> add );
+    RowMetaAndData key = new RowMetaAndData( lookupMeta, lookupRow );
 
     // DEinspanjer 2009-02-01: If you had previously set a cache size and then turned on load all, this
     // method would throw out entries if the previous cache size wasn't big enough.
-    if ( !meta.isLoadingAllDataInCache() && meta.getCacheSize() > 0 && map.size() > meta.getCacheSize() ) {
-      map.remove( map.entrySet().iterator().next().getKey() );
+    int maxSize = 0;
+    if ( !meta.isLoadingAllDataInCache() && meta.getCacheSize() > 0 ) {
+      maxSize = ( meta.getCacheSize() + segments.length - 1 ) / segments.length;
+    }
+    segmentOf( key ).put( key, add, timeToLive > 0 ? System.currentTimeMillis() : 0L, maxSize );
+  }
+
+  /**
+   * @return the row stored for exactly these keys, null if there is none
+   */
+  Object[] getRow( RowMetaInterface keyMeta, Object[] keyData ) {
+    RowMetaAndData key = new RowMetaAndData( keyMeta, keyData );
+    Entry entry = segmentOf( key ).get( key, timeToLive > 0 ? System.currentTimeMillis() : 0L );
+    return entry == null ? null : entry.row;
+  }
+
+  int getNrSegments() {
+    return segments.length;
+  }
+
+  /**
+   * @return the number of rows in the cache, including the expired rows that were not removed yet
+   */
+  public int getSize() {
+    int size = 0;
+    for ( Segment segment : segments ) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public EvictionPolicy getEvictionPolicy() {
+    return policy;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of rows removed to keep the cache within its size
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return the number of rows removed because they were older than the time to live
+   */
+  public long getExpirations() {
+    return expirations.sum();
+  }
+
+  private Segment segmentOf( RowMetaAndData key ) {
+    if ( segments.length == 1 ) {
+      return segments[ 0 ];
+    }
+    int hash = key.hashCode();
+    return segments[ ( hash ^ ( hash >>> 16 ) ) & ( segments.length - 1 ) ];
+  }
+
+  private boolean matches( RowMetaAndData key, int[] conditions, RowMetaInterface lookupMeta, Object[] lookupRow )
+    throws KettleValueException {
+    // Now verify that the key is matching our conditions...
+    //
+    boolean match = true;
+    int lookupIndex = 0;
+    for ( int i = 0; i < conditions.length && match; i++ ) {
+      ValueMetaInterface cmpMeta = lookupMeta.getValueMeta( lookupIndex );
+      Object cmpData = lookupRow[ lookupIndex ];
+      ValueMetaInterface keyMeta = key.getValueMeta( i );
+      Object keyData = key.getData()[ i ];
+
+      switch ( conditions[ i ] ) {
+        case DatabaseLookupMeta.CONDITION_EQ:
+          match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) == 0 );
+          break;
+        case DatabaseLookupMeta.CONDITION_NE:
+          match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) != 0 );
+          break;
+        case DatabaseLookupMeta.CONDITION_LT:
+          match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) > 0 );
+          break;
+        case DatabaseLookupMeta.CONDITION_LE:
+          match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) >= 0 );
+          break;
+        case DatabaseLookupMeta.CONDITION_GT:
+          match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) < 0 );
+          break;
+        case DatabaseLookupMeta.CONDITION_GE:
+          match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) <= 0 );
+          break;
+        case DatabaseLookupMeta.CONDITION_IS_NULL:
+          match = keyMeta.isNull( keyData );
+          break;
+        case DatabaseLookupMeta.CONDITION_IS_NOT_NULL:
+          match = !keyMeta.isNull( keyData );
+          break;
+        case DatabaseLookupMeta.CONDITION_BETWEEN:
+          // Between key >= cmp && key <= cmp2
+          ValueMetaInterface cmpMeta2 = lookupMeta.getValueMeta( lookupIndex + 1 );
+          Object cmpData2 = lookupRow[ lookupIndex + 1 ];
+          match = ( keyMeta.compare( keyData, cmpMeta, cmpData ) >= 0 );
+          if ( match ) {
+            match = ( keyMeta.compare( keyData, cmpMeta2, cmpData2 ) <= 0 );
+          }
+          lookupIndex++;
+          break;
+        // TODO: add LIKE operator (think of changing the hasDBCondition logic then)
+        default:
+          match = false;
+          data.hasDBCondition = true; // avoid looping in here the next time, also safety when a new condition
+          // will be introduced
+          break;
+      }
+      lookupIndex++;
+    }
+    return match;
+  }
+
+  private static final class Entry {
+    private final RowMetaAndData key;
+    private final Object[] row;
+    private final long sequenceNr;
+    private final long expiresAt;
+    private int useCount;
+
+    private Entry( RowMetaAndData key, Object[] row, long sequenceNr, long expiresAt ) {
+      this.key = key;
+      this.row = row;
+      this.sequenceNr = sequenceNr;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired( long now ) {
+      return now >= expiresAt;
+    }
+  }
+
+  private final class Segment {
+    private final LinkedHashMap<RowMetaAndData, Entry> map;
+
+    private Segment( int capacity ) {
+      map = new LinkedHashMap<>( capacity, 0.75f, policy != EvictionPolicy.FIFO );
+    }
+
+    private synchronized int size() {
+      return map.size();
+    }
+
+    private synchronized Entry get( RowMetaAndData key, long now ) {
+      Entry entry = map.get( key );
+      if ( entry == null ) {
+        return null;
+      }
+      if ( entry.isExpired( now ) ) {
+        remove( entry );
+        expirations.increment();
+        return null;
+      }
+      if ( entry.useCount < Integer.MAX_VALUE ) {
+        entry.useCount++;
+      }
+      return entry;
+    }
+
+    /**
+     * Marks a row found by find() as used.
+     */
+    private synchronized void touch( Entry entry ) {
+      if ( map.get( entry.key ) == entry && entry.useCount < Integer.MAX_VALUE ) {
+        entry.useCount++;
+      }
+    }
+
+    private synchronized void put( RowMetaAndData key, Object[] row, long now, int maxSize ) {
+      Entry entry = map.get( key );
+      if ( entry != null ) {
+        if ( !entry.isExpired( now ) ) {
+          // The first row stored for the key stays
+          return;
+        }
+        remove( entry );
+        expirations.increment();
+      }
+
+      entry = new Entry( key, row, sequence.getAndIncrement(), timeToLive > 0 ? now + timeToLive : Long.MAX_VALUE );
+      map.put( key, entry );
+
+      while ( maxSize > 0 && map.size() > maxSize ) {
+        remove( getEvictionCandidate( entry ) );
+        evictions.increment();
+      }
+    }
+
+    /**
+     * @param stored
+     *          the row just stored, LFU doesn't remove it before it had the chance to be used
+     * @return the row to remove first: the head of the map is the row stored or used longest ago
+     */
+    private Entry getEvictionCandidate( Entry stored ) {
+      Iterator<Entry> entries = map.values().iterator();
+      Entry candidate = entries.next();
+      if ( policy == EvictionPolicy.LFU ) {
+        for ( int i = 1; i < LFU_SAMPLE_SIZE && entries.hasNext(); i++ ) {
+          Entry entry = entries.next();
+          if ( entry != stored && entry.useCount < candidate.useCount ) {
+            candidate = entry;
+          }
+        }
+      }
+      return candidate;
+    }
+
+    private void remove( Entry entry ) {
+      map.remove( entry.key );
+    }
+
+    /**
+     * @param before
+     *          only a row stored before this sequence number is returned, another segment has a matching row already
+     * @return the first row stored in the segment that matches the conditions
+     */
+    private synchronized Entry find( int[] conditions, RowMetaInterface lookupMeta, Object[] lookupRow, long now,
+                                     long before ) throws KettleValueException {
+      Entry first = null;
+      for ( Entry entry : map.values() ) {
+        if ( entry.sequenceNr < before && !entry.isExpired( now )
+          && matches( entry.key, conditions, lookupMeta, lookupRow ) ) {
+          first = entry;
+          before = entry.sequenceNr;
+        }
+      }
+      return first;
     }
   }
 }
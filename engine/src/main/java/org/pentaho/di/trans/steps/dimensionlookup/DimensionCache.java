@@ -31,7 +31,9 @@ import org.pentaho.di.core.row.ValueMetaInterface;
  *
  * @author matt
  *
+ * @deprecated the pre-load cache of the step is kept in a {@link DimensionRangeCache}
  */
+@Deprecated
 public class DimensionCache implements Comparator<Object[]> {
   private RowMetaInterface rowMeta;
   private List<Object[]> rowCache;
@@ -13,6 +13,7 @@
 
 package org.pentaho.di.trans.steps.dimensionlookup;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -167,7 +168,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
       }
 
-      if ( !meta.isUpdate() && meta.isPreloadingCache() ) {
+      if ( meta.isPreloadingCache() ) {
         preloadCache();
       } else {
         // Caching...
@@ -266,44 +267,87 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     try {
       DatabaseMeta databaseMeta = meta.getDatabaseMeta();
 
-      // tk, version, from, to, natural keys, retrieval fields...
-      //
       String sql = "SELECT " + databaseMeta.quoteField( meta.getKeyField() );
-      // sql+=", "+databaseMeta.quoteField(meta.getVersionField());
-      for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
-        sql += ", " + meta.getKeyLookup()[ i ]; // the natural key field in the table
-      }
-      for ( int i = 0; i < meta.getFieldLookup().length; i++ ) {
-        sql += ", " + meta.getFieldLookup()[ i ]; // the extra fields to retrieve...
+      int nrFields = 0;
+      if ( meta.isUpdate() ) {
+        // tk, version, retrieval fields, from, to, natural keys...
+        // The versions are compared with the input the same way as the rows of the lookup in the table.
+        //
+        sql += ", " + databaseMeta.quoteField( meta.getVersionField() );
+        data.preloadFieldIndexes = new int[ meta.getFieldLookup().length ];
+        for ( int i = 0; i < meta.getFieldLookup().length; i++ ) {
+          data.preloadFieldIndexes[ i ] = -1;
+          if ( !Utils.isEmpty( meta.getFieldLookup()[ i ] )
+            && !DimensionLookupMeta.isUpdateTypeWithoutArgument( meta.isUpdate(), meta.getFieldUpdate()[ i ] ) ) {
+            sql += ", " + databaseMeta.quoteField( meta.getFieldLookup()[ i ] );
+            if ( !Utils.isEmpty( meta.getFieldStream()[ i ] )
+              && !meta.getFieldLookup()[ i ].equals( meta.getFieldStream()[ i ] ) ) {
+              sql += " AS " + databaseMeta.quoteField( meta.getFieldStream()[ i ] );
+            }
+            data.preloadFieldIndexes[ i ] = 2 + nrFields++;
+          }
+        }
+        sql += ", " + databaseMeta.quoteField( meta.getDateFrom() );
+        sql += ", " + databaseMeta.quoteField( meta.getDateTo() );
+        for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
+          sql += ", " + databaseMeta.quoteField( meta.getKeyLookup()[ i ] );
+        }
+      } else {
+        // tk, natural keys, retrieval fields, from, to...
+        //
+        for ( int i = 0; i < meta.getKeyLookup().length; i++ ) {
+          sql += ", " + meta.getKeyLookup()[ i ]; // the natural key field in the table
+        }
+        for ( int i = 0; i < meta.getFieldLookup().length; i++ ) {
+          sql += ", " + meta.getFieldLookup()[ i ]; // the extra fields to retrieve...
+        }
+        sql += ", " + databaseMeta.quoteField( meta.getDateFrom() ); // extra info in cache
+        sql += ", " + databaseMeta.quoteField( meta.getDateTo() ); // extra info in cache
       }
-      sql += ", " + databaseMeta.quoteField( meta.getDateFrom() ); // extra info in cache
-      sql += ", " + databaseMeta.quoteField( meta.getDateTo() ); // extra info in cache
 
       sql += " FROM " + data.schemaTable;
       logDetailed( "Pre-loading cache by reading from database with: " + Const.CR + sql + Const.CR );
 
-      List<Object[]> rows = data.db.getRows( sql, -1 );
-      RowMetaInterface rowMeta = data.db.getReturnRowMeta();
+      ResultSet resultSet = data.db.openQuery( sql );
+      try {
+        RowMetaInterface rowMeta = data.db.getReturnRowMeta();
 
-      data.preloadKeyIndexes = new int[ meta.getKeyLookup().length ];
-      for ( int i = 0; i < data.preloadKeyIndexes.length; i++ ) {
-        data.preloadKeyIndexes[ i ] = rowMeta.indexOfValue( meta.getKeyLookup()[ i ] ); // the field in the table
-      }
-      data.preloadFromDateIndex = rowMeta.indexOfValue( meta.getDateFrom() );
-      data.preloadToDateIndex = rowMeta.indexOfValue( meta.getDateTo() );
+        data.preloadKeyIndexes = new int[ meta.getKeyLookup().length ];
+        if ( meta.isUpdate() ) {
+          // A field can be retrieved under the name of a natural key, take the columns by position
+          //
+          data.preloadFromDateIndex = 2 + nrFields;
+          data.preloadToDateIndex = 3 + nrFields;
+          for ( int i = 0; i < data.preloadKeyIndexes.length; i++ ) {
+            data.preloadKeyIndexes[ i ] = 4 + nrFields + i;
+          }
+        } else {
+          for ( int i = 0; i < data.preloadKeyIndexes.length; i++ ) {
+            data.preloadKeyIndexes[ i ] = rowMeta.indexOfValue( meta.getKeyLookup()[ i ] ); // the field in the table
+          }
+          data.preloadFromDateIndex = rowMeta.indexOfValue( meta.getDateFrom() );
+          data.preloadToDateIndex = rowMeta.indexOfValue( meta.getDateTo() );
+        }
 
-      data.preloadCache =
-        new DimensionCache( rowMeta, data.preloadKeyIndexes, data.preloadFromDateIndex, data.preloadToDateIndex );
-      data.preloadCache.setRowCache( rows );
+        data.preloadCache = new DimensionRangeCache( rowMeta, data.preloadKeyIndexes, data.preloadFromDateIndex,
+          data.preloadToDateIndex );
 
-      logDetailed( "Sorting the cache rows..." );
-      data.preloadCache.sortRows();
-      logDetailed( "Sorting of cached rows finished." );
+        // Index the versions as they are read, the rows themselves are not kept
+        //
+        for ( Object[] row = data.db.getRow( resultSet ); row != null; row = data.db.getRow( resultSet ) ) {
+          data.preloadCache.addRow( row );
+        }
+      } finally {
+        data.db.closeQuery( resultSet );
+      }
+      logDetailed( "Pre-loaded " + data.preloadCache.getSize() + " versions of " + data.preloadCache.getNrKeys()
+        + " natural keys in the cache." );
 
       // Also see what indexes to take to populate the lookup row...
       // We only ever compare indexes and the lookup date in the cache, the rest is not needed...
       //
       data.preloadIndexes = new ArrayList<Integer>();
+      data.preloadKeyValues = new Object[ meta.getKeyStream().length ];
       for ( int i = 0; i < meta.getKeyStream().length; i++ ) {
         int index = data.inputRowMeta.indexOfValue( meta.getKeyStream()[ i ] );
         if ( index < 0 ) {
@@ -321,6 +365,89 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Assembles the natural key of a row to look up in the pre-load cache, converted to the data types of the table.
+   *
+   * @return the natural key, the same array for every row
+   */
+  private Object[] getPreloadKeyValues( RowMetaInterface rowMeta, Object[] row ) throws KettleValueException {
+    for ( int i = 0; i < data.preloadIndexes.size(); i++ ) {
+      int from = data.preloadIndexes.get( i ); // Input row index
+      int to = data.preloadCache.getKeyIndexes()[ i ]; // Lookup row index
+      data.preloadKeyValues[ i ] = toPreloadValue( to, rowMeta.getValueMeta( from ), row[ from ] );
+    }
+    return data.preloadKeyValues;
+  }
+
+  private Object toPreloadValue( int fieldIndex, ValueMetaInterface valueMeta, Object value )
+    throws KettleValueException {
+    return data.preloadCache.getRowMeta().getValueMeta( fieldIndex ).convertData( valueMeta, value );
+  }
+
+  /**
+   * Adds a version that was inserted in the dimension table to the pre-load cache.
+   */
+  private void addToPreloadCache( RowMetaInterface rowMeta, Object[] row, Long technicalKey, Long versionNr,
+                                  Date dateFrom, Date dateTo ) throws KettleValueException {
+    ValueMetaInterface integerMeta = new ValueMetaInteger();
+    ValueMetaInterface dateMeta = new ValueMetaDate();
+
+    Object[] cacheRow = new Object[ data.preloadCache.getRowMeta().size() ];
+    cacheRow[ 0 ] = toPreloadValue( 0, integerMeta, technicalKey );
+    cacheRow[ 1 ] = toPreloadValue( 1, integerMeta, versionNr );
+    for ( int i = 0; i < data.fieldnrs.length; i++ ) {
+      int fieldIndex = data.preloadFieldIndexes[ i ];
+      if ( data.fieldnrs[ i ] >= 0 && fieldIndex >= 0 ) {
+        cacheRow[ fieldIndex ] =
+          toPreloadValue( fieldIndex, rowMeta.getValueMeta( data.fieldnrs[ i ] ), row[ data.fieldnrs[ i ] ] );
+      }
+    }
+    cacheRow[ data.preloadFromDateIndex ] = toPreloadValue( data.preloadFromDateIndex, dateMeta, dateFrom );
+    cacheRow[ data.preloadToDateIndex ] = toPreloadValue( data.preloadToDateIndex, dateMeta, dateTo );
+    Object[] keyValues = getPreloadKeyValues( rowMeta, row );
+    for ( int i = 0; i < keyValues.length; i++ ) {
+      cacheRow[ data.preloadKeyIndexes[ i ] ] = keyValues[ i ];
+    }
+    data.preloadCache.addRow( cacheRow );
+  }
+
+  /**
+   * Copies the fields of a row to a version in the pre-load cache after it was updated in the dimension table.
+   *
+   * @param punchThrough true to copy only the fields that are punched through all versions
+   */
+  private void setPreloadFields( RowMetaInterface rowMeta, Object[] row, int index, boolean punchThrough )
+    throws KettleValueException {
+    for ( int i = 0; i < data.fieldnrs.length; i++ ) {
+      int fieldIndex = data.preloadFieldIndexes[ i ];
+      if ( data.fieldnrs[ i ] >= 0 && fieldIndex >= 0
+        && ( !punchThrough || meta.getFieldUpdate()[ i ] == DimensionLookupMeta.TYPE_UPDATE_DIM_PUNCHTHROUGH ) ) {
+        data.preloadCache.setValue( index, fieldIndex,
+          toPreloadValue( fieldIndex, rowMeta.getValueMeta( data.fieldnrs[ i ] ), row[ data.fieldnrs[ i ] ] ) );
+      }
+    }
+  }
+
+  /**
+   * Finds the version of a natural key in the pre-load cache with a value in an integer field.
+   *
+   * @param fieldIndex the field: 0 for the technical key, 1 for the version number
+   * @return the index of the version, -1 if it's not in the cache
+   */
+  private int findPreloadVersion( Object[] keyValues, int fieldIndex, Long value ) throws KettleValueException {
+    if ( value == null ) {
+      return -1;
+    }
+    for ( int index = data.preloadCache.getLatestVersion( keyValues ); index >= 0;
+          index = data.preloadCache.getPreviousVersion( index ) ) {
+      Object found = data.preloadCache.getValue( index, fieldIndex );
+      if ( found != null && ( (Number) found ).longValue() == value ) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
   private synchronized Object[] lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
     Object[] outputRow = new Object[ data.outputRowMeta.size() ];
 
@@ -341,53 +468,18 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     //
     valueDate = determineDimensionUpdatedDate( row );
 
-    if ( !meta.isUpdate() && meta.isPreloadingCache() ) {
+    if ( data.preloadCache != null ) {
       // Obtain a result row from the pre-load cache...
       //
-      // Create a row to compare with
-      //
-      RowMetaInterface preloadRowMeta = data.preloadCache.getRowMeta();
-
       // In this case it's all the same. (simple)
       //
       data.returnRowMeta = data.preloadCache.getRowMeta();
-      lookupRowMeta = preloadRowMeta;
-      lookupRow = new Object[ preloadRowMeta.size() ];
-
-      // Assemble the lookup row, convert data if needed...
-      //
-      for ( int i = 0; i < data.preloadIndexes.size(); i++ ) {
-        int from = data.preloadIndexes.get( i ); // Input row index
-        int to = data.preloadCache.getKeyIndexes()[ i ]; // Lookup row index
-
-        // From data type...
-        //
-        ValueMetaInterface fromValueMeta = rowMeta.getValueMeta( from );
-
-        // to date type...
-        //
-        ValueMetaInterface toValueMeta = data.preloadCache.getRowMeta().getValueMeta( to );
+      lookupRowMeta = data.preloadCache.getRowMeta();
+      lookupRow = getPreloadKeyValues( rowMeta, row );
 
-        // From value:
-        //
-        Object fromData = row[ from ];
-
-        // To value:
-        //
-        Object toData = toValueMeta.convertData( fromValueMeta, fromData );
-
-        // Set the key in the row...
-        //
-        lookupRow[ to ] = toData;
-      }
-
-      // Also set the lookup date on the "end of date range" (toDate) position
-      //
-      lookupRow[ data.preloadFromDateIndex ] = valueDate;
-
-      // Look up the row in the pre-load cache...
+      // Look up the version valid on the lookup date in the pre-load cache...
       //
-      int index = data.preloadCache.lookupRow( lookupRow );
+      int index = data.preloadCache.lookupRow( lookupRow, valueDate );
       if ( index >= 0 ) {
         returnRow = data.preloadCache.getRow( index );
       } else {
@@ -684,7 +776,8 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
             incrementLinesUpdated();
 
             // We need to capture this change in the cache as well...
-            if ( meta.getCacheSize() >= 0 ) {
+            // The pre-load cache is kept in line by the update itself.
+            if ( data.preloadCache == null && meta.getCacheSize() >= 0 ) {
               Object[] values =
                 getCacheValues( rowMeta, row, technicalKey, valueVersion, valueDateFrom, valueDateTo );
               addToCache( lookupRow, values );
@@ -735,7 +828,8 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
           incrementLinesOutput();
 
           // We need to capture this change in the cache as well...
-          if ( meta.getCacheSize() >= 0 ) {
+          // The pre-load cache is kept in line by the insert itself.
+          if ( data.preloadCache == null && meta.getCacheSize() >= 0 ) {
             Object[] values =
               getCacheValues( rowMeta, row, technicalKey, valueNewVersion, valueDateFrom, valueDateTo );
             addToCache( lookupRow, values );
@@ -784,6 +878,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
         log.logDebug( "Changing the type of the technical key from TYPE_BIGNUMBER to an TYPE_INTEGER" );
       }
       ValueMetaInterface tkValueMeta = data.returnRowMeta.getValueMeta( 0 );
+      data.returnRowMeta = data.returnRowMeta.clone(); // it can be the metadata of the pre-load cache
       data.returnRowMeta.setValueMeta( 0, ValueMetaFactory.cloneValueMeta(
         tkValueMeta, ValueMetaInterface.TYPE_INTEGER ) );
     }
@@ -1104,6 +1199,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     // on if newEntry == true
     insertRow[ insertIndex++ ] = versionNr;
 
+    int dateFromIndex = insertIndex;
     switch ( data.startDateChoice ) {
       case DimensionLookupMeta.START_DATE_ALTERNATIVE_NONE:
         insertRow[ insertIndex++ ] = dateFrom;
@@ -1252,6 +1348,17 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
       if ( isDebug() ) {
         logDebug( "Row updated!" );
       }
+
+      if ( data.preloadCache != null ) {
+        int previous = findPreloadVersion( getPreloadKeyValues( inputRowMeta, row ), 1, versionNr - 1 );
+        if ( previous >= 0 ) {
+          data.preloadCache.setToDate( previous, (Date) updateRow[ 0 ] );
+        }
+      }
+    }
+
+    if ( data.preloadCache != null ) {
+      addToPreloadCache( inputRowMeta, row, technicalKey, versionNr, (Date) insertRow[ dateFromIndex ], dateTo );
     }
 
     return technicalKey;
@@ -1268,7 +1375,7 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
   }
 
   public void dimUpdate( RowMetaInterface rowMeta, Object[] row, Long dimkey, Date valueDate )
-    throws KettleDatabaseException {
+    throws KettleException {
     if ( data.prepStatementDimensionUpdate == null ) {
       // first time: construct prepared statement
       //
@@ -1358,11 +1465,18 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
 
     data.db.setValues( data.dimensionUpdateRowMeta, dimensionUpdateRow, data.prepStatementDimensionUpdate );
     data.db.insertRow( data.prepStatementDimensionUpdate );
+
+    if ( data.preloadCache != null ) {
+      int index = findPreloadVersion( getPreloadKeyValues( rowMeta, row ), 0, dimkey );
+      if ( index >= 0 ) {
+        setPreloadFields( rowMeta, row, index, false );
+      }
+    }
   }
 
   // This updates all versions of a dimension entry.
   //
-  public void dimPunchThrough( RowMetaInterface rowMeta, Object[] row ) throws KettleDatabaseException {
+  public void dimPunchThrough( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
     if ( data.prepStatementPunchThrough == null ) { // first time: construct prepared statement
       DatabaseMeta databaseMeta = meta.getDatabaseMeta();
       data.punchThroughRowMeta = new RowMeta();
@@ -1448,6 +1562,14 @@ public class DimensionLookup extends BaseDatabaseStep implements StepInterface {
     data.db.setValues( data.punchThroughRowMeta, punchThroughRow, data.prepStatementPunchThrough ); // set values for
     // update
     data.db.insertRow( data.prepStatementPunchThrough ); // do the actual punch through update
+
+    if ( data.preloadCache != null ) {
+      Object[] keyValues = getPreloadKeyValues( rowMeta, row );
+      for ( int index = data.preloadCache.getLatestVersion( keyValues ); index >= 0;
+            index = data.preloadCache.getPreviousVersion( index ) ) {
+        setPreloadFields( rowMeta, row, index, true );
+      }
+    }
   }
 
   /**
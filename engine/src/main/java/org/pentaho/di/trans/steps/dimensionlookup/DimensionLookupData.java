@@ -78,10 +78,14 @@ public class DimensionLookupData extends BaseDatabaseStepData implements StepDat
   public int preloadFromDateIndex;
   public int preloadToDateIndex;
 
-  public DimensionCache preloadCache;
+  public int[] preloadFieldIndexes; // the fields compared when updating in the pre-load cache, -1 if not retrieved
+
+  public DimensionRangeCache preloadCache;
 
   public List<Integer> preloadIndexes;
 
+  public Object[] preloadKeyValues; // the natural key to look up in the pre-load cache, reused for every row
+
   public List<Integer> lazyList;
 
   /**
@@ -0,0 +1,377 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.dimensionlookup;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * The pre-load cache of the dimension: all the versions of all the natural keys, indexed on the natural key and the
+ * date range.
+ * <p>
+ * The versions are kept in columns instead of rows. The start and end of the date ranges are kept as milliseconds in
+ * primitive arrays, the integer fields (technical key, version, integer natural keys) as longs with a bit set for the
+ * empty values and the other fields in one array per field. The versions of a natural key are chained from the
+ * latest to the earliest start of the date range, the first version of every chain is found through an open
+ * addressing hash table on the natural key. Looking up a key and a date doesn't create any objects, only
+ * {@link #getRow(int)} does.
+ * <p>
+ * A version is found when the lookup date is in its date range: start &lt;= date &lt; end. An empty start means
+ * -infinity, an empty end +infinity.
+ * <p>
+ * The versions inserted or changed while the dimension is updated are added and changed in the cache as well, so it
+ * stays in line with the table.
+ */
+public class DimensionRangeCache {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final RowMetaInterface rowMeta;
+  private final int[] keyIndexes;
+  private final int fromDateIndex;
+  private final int toDateIndex;
+
+  private int size;
+  private long[] fromDates;
+  private long[] toDates;
+  private int[] next; // the version with the previous date range of the same natural key, -1 if there is none
+  private Object[][] columns; // [field][version], null for the date range and integer fields
+  private long[][] longColumns; // [field][version], null for the other fields
+  private BitSet[] nullValues; // [field], the empty values of the integer fields
+
+  private int nrKeys;
+  private int[] heads; // the latest version of a natural key + 1, 0 for an empty slot
+
+  /**
+   * @param rowMeta       the description of the rows to store
+   * @param keyIndexes    the indexes of the natural key (in that order)
+   * @param fromDateIndex the field index where the start of the date range can be found
+   * @param toDateIndex   the field index where the end of the date range can be found
+   */
+  public DimensionRangeCache( RowMetaInterface rowMeta, int[] keyIndexes, int fromDateIndex, int toDateIndex ) {
+    this.rowMeta = rowMeta;
+    this.keyIndexes = keyIndexes;
+    this.fromDateIndex = fromDateIndex;
+    this.toDateIndex = toDateIndex;
+
+    fromDates = new long[ INITIAL_CAPACITY ];
+    toDates = new long[ INITIAL_CAPACITY ];
+    next = new int[ INITIAL_CAPACITY ];
+    columns = new Object[ rowMeta.size() ][];
+    longColumns = new long[ rowMeta.size() ][];
+    nullValues = new BitSet[ rowMeta.size() ];
+    for ( int i = 0; i < columns.length; i++ ) {
+      if ( i == fromDateIndex || i == toDateIndex ) {
+        continue;
+      }
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      if ( valueMeta.getType() == ValueMetaInterface.TYPE_INTEGER && valueMeta.isStorageNormal() ) {
+        longColumns[ i ] = new long[ INITIAL_CAPACITY ];
+        nullValues[ i ] = new BitSet();
+      } else {
+        columns[ i ] = new Object[ INITIAL_CAPACITY ];
+      }
+    }
+    heads = new int[ INITIAL_CAPACITY * 2 ];
+  }
+
+  /**
+   * Adds a version of a natural key. It can be added in any order, also after versions were looked up.
+   *
+   * @param row the version, described by the row metadata
+   * @throws KettleValueException in case the natural key or the date range can't be read
+   */
+  public void addRow( Object[] row ) throws KettleValueException {
+    if ( size == fromDates.length ) {
+      grow();
+    }
+    int version = size++;
+    for ( int i = 0; i < columns.length; i++ ) {
+      if ( i != fromDateIndex && i != toDateIndex ) {
+        storeValue( i, version, row[ i ] );
+      }
+    }
+    Date fromDate = rowMeta.getDate( row, fromDateIndex );
+    fromDates[ version ] = fromDate == null ? Long.MIN_VALUE : fromDate.getTime();
+    setToDate( version, rowMeta.getDate( row, toDateIndex ) );
+
+    int slot = findSlot( row, keyIndexes, hash( row, keyIndexes ) );
+    if ( heads[ slot ] == 0 ) {
+      next[ version ] = -1;
+      heads[ slot ] = version + 1;
+      if ( ++nrKeys * 4 > heads.length * 3 ) {
+        rehash();
+      }
+      return;
+    }
+
+    // Keep the chain sorted from the latest to the earliest start of the date range
+    //
+    int latest = heads[ slot ] - 1;
+    if ( fromDates[ version ] >= fromDates[ latest ] ) {
+      next[ version ] = latest;
+      heads[ slot ] = version + 1;
+    } else {
+      int previous = latest;
+      while ( next[ previous ] >= 0 && fromDates[ next[ previous ] ] > fromDates[ version ] ) {
+        previous = next[ previous ];
+      }
+      next[ version ] = next[ previous ];
+      next[ previous ] = version;
+    }
+  }
+
+  /**
+   * Looks up the version of a natural key that was valid on a date.
+   *
+   * @param keyValues  the natural key, converted to the data types of the row metadata
+   * @param lookupDate the date to find the version for
+   * @return the index of the version to pass to {@link #getRow(int)}, -1 if nothing was found
+   * @throws KettleValueException in case the natural key can't be compared
+   */
+  public int lookupRow( Object[] keyValues, Date lookupDate ) throws KettleValueException {
+    int head = heads[ findSlot( keyValues, null, hash( keyValues, null ) ) ];
+    if ( head == 0 ) {
+      return -1;
+    }
+
+    long date = lookupDate.getTime();
+    for ( int version = head - 1; version >= 0; version = next[ version ] ) {
+      if ( fromDates[ version ] <= date ) {
+        return date < toDates[ version ] ? version : -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param keyValues the natural key, converted to the data types of the row metadata
+   * @return the index of the version of the natural key with the latest start of the date range, -1 if there is none
+   * @throws KettleValueException in case the natural key can't be compared
+   */
+  public int getLatestVersion( Object[] keyValues ) throws KettleValueException {
+    return heads[ findSlot( keyValues, null, hash( keyValues, null ) ) ] - 1;
+  }
+
+  /**
+   * @param index the index of a version
+   * @return the index of the version of the same natural key with the previous start of the date range, -1 if there
+   *         is none
+   */
+  public int getPreviousVersion( int index ) {
+    return next[ index ];
+  }
+
+  /**
+   * @param index the index of a version, as found by {@link #lookupRow(Object[], Date)}
+   * @return the version as a row, described by the row metadata
+   */
+  public Object[] getRow( int index ) {
+    Object[] row = new Object[ columns.length ];
+    for ( int i = 0; i < columns.length; i++ ) {
+      if ( i != fromDateIndex && i != toDateIndex ) {
+        row[ i ] = getValue( index, i );
+      }
+    }
+    row[ fromDateIndex ] = toDate( fromDateIndex, fromDates[ index ], Long.MIN_VALUE );
+    row[ toDateIndex ] = toDate( toDateIndex, toDates[ index ], Long.MAX_VALUE );
+    return row;
+  }
+
+  /**
+   * @param index      the index of a version
+   * @param fieldIndex the index of a field in the rows, not the start or end of the date range
+   * @return the value of the field of the version, described by the row metadata
+   */
+  public Object getValue( int index, int fieldIndex ) {
+    if ( longColumns[ fieldIndex ] != null ) {
+      return nullValues[ fieldIndex ].get( index ) ? null : Long.valueOf( longColumns[ fieldIndex ][ index ] );
+    }
+    return columns[ fieldIndex ][ index ];
+  }
+
+  /**
+   * Changes a field of a version, for instance after the version was updated in the table. The natural key and the
+   * date range can't be changed this way.
+   *
+   * @param index      the index of the version
+   * @param fieldIndex the index of the field in the rows
+   * @param value      the new value, described by the row metadata
+   */
+  public void setValue( int index, int fieldIndex, Object value ) {
+    for ( int keyIndex : keyIndexes ) {
+      if ( keyIndex == fieldIndex ) {
+        throw new IllegalArgumentException( "The natural key of a version can't be changed" );
+      }
+    }
+    if ( fieldIndex == fromDateIndex || fieldIndex == toDateIndex ) {
+      throw new IllegalArgumentException( "The date range of a version can't be changed this way" );
+    }
+    storeValue( fieldIndex, index, value );
+  }
+
+  /**
+   * Sets the end of the date range of a version, for instance when a new version of the natural key starts.
+   *
+   * @param index  the index of the version
+   * @param toDate the new end of the date range, null for +infinity
+   */
+  public void setToDate( int index, Date toDate ) {
+    toDates[ index ] = toDate == null ? Long.MAX_VALUE : toDate.getTime();
+  }
+
+
+  private void storeValue( int fieldIndex, int version, Object value ) {
+    if ( longColumns[ fieldIndex ] != null ) {
+      nullValues[ fieldIndex ].set( version, value == null );
+      longColumns[ fieldIndex ][ version ] = value == null ? 0L : ( (Number) value ).longValue();
+    } else {
+      columns[ fieldIndex ][ version ] = value;
+    }
+  }
+
+  private Date toDate( int index, long time, long empty ) {
+    if ( time == empty ) {
+      return null;
+    }
+    return rowMeta.getValueMeta( index ).getType() == ValueMetaInterface.TYPE_TIMESTAMP
+      ? new Timestamp( time ) : new Date( time );
+  }
+
+  /**
+   * @return the number of versions in the cache
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return the number of natural keys in the cache
+   */
+  public int getNrKeys() {
+    return nrKeys;
+  }
+
+  /**
+   * @return the description of the rows in the cache
+   */
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * @return the indexes of the natural key in the rows
+   */
+  public int[] getKeyIndexes() {
+    return keyIndexes;
+  }
+
+  /**
+   * @return the index of the start of the date range in the rows
+   */
+  public int getFromDateIndex() {
+    return fromDateIndex;
+  }
+
+  /**
+   * @return the index of the end of the date range in the rows
+   */
+  public int getToDateIndex() {
+    return toDateIndex;
+  }
+
+  /**
+   * Finds the slot of a natural key: the slot that holds its latest version or the empty slot to put it in.
+   *
+   * @param values  the values holding the natural key
+   * @param indexes the indexes of the natural key in values, null if values is the natural key
+   */
+  private int findSlot( Object[] values, int[] indexes, int hash ) throws KettleValueException {
+    int mask = heads.length - 1;
+    int slot = hash & mask;
+    while ( heads[ slot ] != 0 && !isKeyOf( heads[ slot ] - 1, values, indexes ) ) {
+      slot = ( slot + 1 ) & mask;
+    }
+    return slot;
+  }
+
+  private boolean isKeyOf( int version, Object[] values, int[] indexes ) throws KettleValueException {
+    for ( int i = 0; i < keyIndexes.length; i++ ) {
+      int keyIndex = keyIndexes[ i ];
+      Object value = values[ indexes == null ? i : indexes[ i ] ];
+      if ( longColumns[ keyIndex ] != null ) {
+        // Compare the integer keys without creating an object for the stored value
+        boolean empty = nullValues[ keyIndex ].get( version );
+        if ( value == null ? !empty : empty || ( (Number) value ).longValue() != longColumns[ keyIndex ][ version ] ) {
+          return false;
+        }
+      } else if ( rowMeta.getValueMeta( keyIndex ).compare( columns[ keyIndex ][ version ], value ) != 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int hash( Object[] values, int[] indexes ) throws KettleValueException {
+    int hash = 0;
+    for ( int i = 0; i < keyIndexes.length; i++ ) {
+      Object value = values[ indexes == null ? i : indexes[ i ] ];
+      hash = hash * 31 + rowMeta.getValueMeta( keyIndexes[ i ] ).hashCode( value );
+    }
+    return hash ^ ( hash >>> 16 );
+  }
+
+  private int hashOf( int version ) throws KettleValueException {
+    int hash = 0;
+    for ( int i = 0; i < keyIndexes.length; i++ ) {
+      hash = hash * 31 + rowMeta.getValueMeta( keyIndexes[ i ] ).hashCode( getValue( version, keyIndexes[ i ] ) );
+    }
+    return hash ^ ( hash >>> 16 );
+  }
+
+  private void grow() {
+    int capacity = fromDates.length + ( fromDates.length >> 1 );
+    fromDates = Arrays.copyOf( fromDates, capacity );
+    toDates = Arrays.copyOf( toDates, capacity );
+    next = Arrays.copyOf( next, capacity );
+    for ( int i = 0; i < columns.length; i++ ) {
+      if ( columns[ i ] != null ) {
+        columns[ i ] = Arrays.copyOf( columns[ i ], capacity );
+      }
+      if ( longColumns[ i ] != null ) {
+        longColumns[ i ] = Arrays.copyOf( longColumns[ i ], capacity );
+      }
+    }
+  }
+
+  private void rehash() throws KettleValueException {
+    int[] oldHeads = heads;
+    heads = new int[ oldHeads.length * 2 ];
+    int mask = heads.length - 1;
+    for ( int head : oldHeads ) {
+      if ( head != 0 ) {
+        int slot = hashOf( head - 1 ) & mask;
+        while ( heads[ slot ] != 0 ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        heads[ slot ] = head;
+      }
+    }
+  }
+}
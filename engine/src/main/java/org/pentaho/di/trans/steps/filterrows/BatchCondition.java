@@ -0,0 +1,364 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.filterrows;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.ColumnVector;
+import org.pentaho.di.core.row.batch.DoubleColumnVector;
+import org.pentaho.di.core.row.batch.LongColumnVector;
+import org.pentaho.di.core.row.batch.RowBatch;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+
+/**
+ * Evaluates a filter condition on the primitive columns of a whole batch of rows, with the same result as
+ * {@link Condition#evaluate(RowMetaInterface, Object[])} for every row.<br>
+ * <br>
+ * Only the comparisons (=, &lt;&gt;, &lt;, &lt;=, &gt;, &gt;=) and null checks of Integer and Number fields with a
+ * constant or another field of the same type are supported, combined in any way. For all other conditions
+ * {@link #compile(Condition, RowMetaInterface)} returns null and the rows are evaluated one by one.
+ */
+final class BatchCondition {
+
+  private final Node root;
+
+  private BatchCondition( Node root ) {
+    this.root = root;
+  }
+
+  /**
+   * @param condition the condition to evaluate
+   * @param rowMeta   the description of the rows of the batches
+   * @return the batch condition or null if the condition can't be evaluated on the columns
+   */
+  static BatchCondition compile( Condition condition, RowMetaInterface rowMeta ) {
+    boolean treatNullsAsNotZero =
+      "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO, "N" ) );
+    Node root = compile( condition, rowMeta, treatNullsAsNotZero );
+    return root == null ? null : new BatchCondition( root );
+  }
+
+  private static Node compile( Condition condition, RowMetaInterface rowMeta, boolean treatNullsAsNotZero ) {
+    if ( condition.isAtomic() ) {
+      return compileAtomic( condition, rowMeta, treatNullsAsNotZero );
+    }
+    Node[] children = new Node[ condition.nrConditions() ];
+    int[] operators = new int[ children.length ];
+    for ( int i = 0; i < children.length; i++ ) {
+      Condition child = condition.getCondition( i );
+      children[ i ] = compile( child, rowMeta, treatNullsAsNotZero );
+      if ( children[ i ] == null ) {
+        return null;
+      }
+      operators[ i ] = child.getOperator();
+      if ( i > 0 && operators[ i ] != Condition.OPERATOR_OR && operators[ i ] != Condition.OPERATOR_AND
+        && operators[ i ] != Condition.OPERATOR_OR_NOT && operators[ i ] != Condition.OPERATOR_AND_NOT
+        && operators[ i ] != Condition.OPERATOR_XOR ) {
+        return null;
+      }
+    }
+    return new Composite( children, operators, condition.isNegated() );
+  }
+
+  private static Node compileAtomic( Condition condition, RowMetaInterface rowMeta, boolean treatNullsAsNotZero ) {
+    int function = condition.getFunction();
+    if ( function == Condition.FUNC_TRUE ) {
+      return new Constant( !condition.isNegated() );
+    }
+    int left = indexOf( rowMeta, condition.getLeftValuename() );
+    if ( left < 0 || !isPrimitive( rowMeta.getValueMeta( left ) ) ) {
+      return null;
+    }
+    ValueMetaInterface leftMeta = rowMeta.getValueMeta( left );
+    boolean isLong = leftMeta.getType() == ValueMetaInterface.TYPE_INTEGER;
+
+    switch ( function ) {
+      case Condition.FUNC_NULL:
+      case Condition.FUNC_NOT_NULL:
+        return new NullCheck( left, function == Condition.FUNC_NOT_NULL, condition.isNegated() );
+      case Condition.FUNC_EQUAL:
+      case Condition.FUNC_NOT_EQUAL:
+      case Condition.FUNC_SMALLER:
+      case Condition.FUNC_SMALLER_EQUAL:
+      case Condition.FUNC_LARGER:
+      case Condition.FUNC_LARGER_EQUAL:
+        break;
+      default:
+        return null;
+    }
+    boolean nullIsFalse = treatNullsAsNotZero
+      && ( function == Condition.FUNC_SMALLER || function == Condition.FUNC_SMALLER_EQUAL );
+
+    if ( condition.getRightExact() != null && condition.getRightExact().getValueData() != null ) {
+      ValueMetaInterface rightMeta = condition.getRightExact().getValueMeta();
+      Object value = condition.getRightExact().getValueData();
+      if ( rightMeta.getType() != leftMeta.getType()
+        || rightMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+        return null;
+      }
+      if ( isLong && value instanceof Long ) {
+        return new LongComparison( left, -1, (Long) value, function, nullIsFalse, condition.isNegated() );
+      } else if ( !isLong && value instanceof Double ) {
+        return new DoubleComparison( left, -1, (Double) value, function, nullIsFalse, condition.isNegated() );
+      }
+      return null;
+    }
+
+    int right = indexOf( rowMeta, condition.getRightValuename() );
+    if ( right < 0 || !isPrimitive( rowMeta.getValueMeta( right ) )
+      || rowMeta.getValueMeta( right ).getType() != leftMeta.getType() ) {
+      return null;
+    }
+    return isLong
+      ? new LongComparison( left, right, 0L, function, nullIsFalse, condition.isNegated() )
+      : new DoubleComparison( left, right, 0.0, function, nullIsFalse, condition.isNegated() );
+  }
+
+  private static int indexOf( RowMetaInterface rowMeta, String name ) {
+    return name == null || name.isEmpty() ? -1 : rowMeta.indexOfValue( name );
+  }
+
+  /**
+   * The standard Integer and Number value metadata compare by value, unless they were given a comparator.
+   */
+  private static boolean isPrimitive( ValueMetaInterface valueMeta ) {
+    return ( valueMeta.getClass() == ValueMetaInteger.class || valueMeta.getClass() == ValueMetaNumber.class )
+      && ( (ValueMetaBase) valueMeta ).getComparator() == null
+      && valueMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL && !valueMeta.isSortedDescending();
+  }
+
+  /**
+   * @param batch the rows to evaluate
+   * @return the result of the condition for every row or null if the batch doesn't have primitive columns for the
+   *         fields of the condition
+   */
+  boolean[] evaluate( RowBatch batch ) {
+    boolean[] result = new boolean[ batch.size() ];
+    return root.evaluate( batch, result ) ? result : null;
+  }
+
+  private interface Node {
+    /**
+     * @return false if a column isn't a primitive column
+     */
+    boolean evaluate( RowBatch batch, boolean[] result );
+  }
+
+  private static final class Constant implements Node {
+    private final boolean value;
+
+    Constant( boolean value ) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean evaluate( RowBatch batch, boolean[] result ) {
+      Arrays.fill( result, value );
+      return true;
+    }
+  }
+
+  private static final class NullCheck implements Node {
+    private final int index;
+    private final boolean notNull;
+    private final boolean negated;
+
+    NullCheck( int index, boolean notNull, boolean negated ) {
+      this.index = index;
+      this.notNull = notNull;
+      this.negated = negated;
+    }
+
+    @Override
+    public boolean evaluate( RowBatch batch, boolean[] result ) {
+      ColumnVector column = batch.getColumn( index );
+      if ( !( column instanceof LongColumnVector ) && !( column instanceof DoubleColumnVector ) ) {
+        return false;
+      }
+      for ( int i = 0; i < result.length; i++ ) {
+        result[ i ] = column.isNull( i ) != notNull != negated;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Turns the result of a compare() into the result of the function.
+   */
+  private static boolean matches( int function, int cmp ) {
+    switch ( function ) {
+      case Condition.FUNC_EQUAL:
+        return cmp == 0;
+      case Condition.FUNC_NOT_EQUAL:
+        return cmp != 0;
+      case Condition.FUNC_SMALLER:
+        return cmp < 0;
+      case Condition.FUNC_SMALLER_EQUAL:
+        return cmp <= 0;
+      case Condition.FUNC_LARGER:
+        return cmp > 0;
+      default:
+        return cmp >= 0;
+    }
+  }
+
+  /**
+   * Nulls are smaller than any value, like in ValueMetaBase.compare().
+   */
+  private static int compareNulls( boolean leftNull, boolean rightNull ) {
+    return leftNull ? ( rightNull ? 0 : -1 ) : 1;
+  }
+
+  private static final class LongComparison implements Node {
+    private final int left;
+    private final int right;
+    private final long constant;
+    private final int function;
+    private final boolean nullIsFalse;
+    private final boolean negated;
+
+    LongComparison( int left, int right, long constant, int function, boolean nullIsFalse, boolean negated ) {
+      this.left = left;
+      this.right = right;
+      this.constant = constant;
+      this.function = function;
+      this.nullIsFalse = nullIsFalse;
+      this.negated = negated;
+    }
+
+    @Override
+    public boolean evaluate( RowBatch batch, boolean[] result ) {
+      if ( !( batch.getColumn( left ) instanceof LongColumnVector )
+        || ( right >= 0 && !( batch.getColumn( right ) instanceof LongColumnVector ) ) ) {
+        return false;
+      }
+      LongColumnVector leftColumn = (LongColumnVector) batch.getColumn( left );
+      LongColumnVector rightColumn = right >= 0 ? (LongColumnVector) batch.getColumn( right ) : null;
+      for ( int i = 0; i < result.length; i++ ) {
+        boolean leftNull = leftColumn.isNull( i );
+        boolean rightNull = rightColumn != null && rightColumn.isNull( i );
+        boolean match;
+        if ( leftNull && nullIsFalse ) {
+          match = false;
+        } else if ( leftNull || rightNull ) {
+          match = matches( function, compareNulls( leftNull, rightNull ) );
+        } else {
+          long value = rightColumn != null ? rightColumn.getLong( i ) : constant;
+          match = matches( function, Long.compare( leftColumn.getLong( i ), value ) );
+        }
+        result[ i ] = match != negated;
+      }
+      return true;
+    }
+  }
+
+  private static final class DoubleComparison implements Node {
+    private final int left;
+    private final int right;
+    private final double constant;
+    private final int function;
+    private final boolean nullIsFalse;
+    private final boolean negated;
+
+    DoubleComparison( int left, int right, double constant, int function, boolean nullIsFalse, boolean negated ) {
+      this.left = left;
+      this.right = right;
+      this.constant = constant;
+      this.function = function;
+      this.nullIsFalse = nullIsFalse;
+      this.negated = negated;
+    }
+
+    @Override
+    public boolean evaluate( RowBatch batch, boolean[] result ) {
+      if ( !( batch.getColumn( left ) instanceof DoubleColumnVector )
+        || ( right >= 0 && !( batch.getColumn( right ) instanceof DoubleColumnVector ) ) ) {
+        return false;
+      }
+      DoubleColumnVector leftColumn = (DoubleColumnVector) batch.getColumn( left );
+      DoubleColumnVector rightColumn = right >= 0 ? (DoubleColumnVector) batch.getColumn( right ) : null;
+      for ( int i = 0; i < result.length; i++ ) {
+        boolean leftNull = leftColumn.isNull( i );
+        boolean rightNull = rightColumn != null && rightColumn.isNull( i );
+        boolean match;
+        if ( leftNull && nullIsFalse ) {
+          match = false;
+        } else if ( leftNull || rightNull ) {
+          match = matches( function, compareNulls( leftNull, rightNull ) );
+        } else {
+          double value = rightColumn != null ? rightColumn.getDouble( i ) : constant;
+          match = matches( function, Double.compare( leftColumn.getDouble( i ), value ) );
+        }
+        result[ i ] = match != negated;
+      }
+      return true;
+    }
+  }
+
+  private static final class Composite implements Node {
+    private final Node[] children;
+    private final int[] operators;
+    private final boolean negated;
+
+    Composite( Node[] children, int[] operators, boolean negated ) {
+      this.children = children;
+      this.operators = operators;
+      this.negated = negated;
+    }
+
+    @Override
+    public boolean evaluate( RowBatch batch, boolean[] result ) {
+      if ( !children[ 0 ].evaluate( batch, result ) ) {
+        return false;
+      }
+      boolean[] other = new boolean[ result.length ];
+      for ( int c = 1; c < children.length; c++ ) {
+        if ( !children[ c ].evaluate( batch, other ) ) {
+          return false;
+        }
+        for ( int i = 0; i < result.length; i++ ) {
+          switch ( operators[ c ] ) {
+            case Condition.OPERATOR_OR:
+              result[ i ] = result[ i ] || other[ i ];
+              break;
+            case Condition.OPERATOR_AND:
+              result[ i ] = result[ i ] && other[ i ];
+              break;
+            case Condition.OPERATOR_OR_NOT:
+              result[ i ] = result[ i ] || !other[ i ];
+              break;
+            case Condition.OPERATOR_AND_NOT:
+              result[ i ] = result[ i ] && !other[ i ];
+              break;
+            default:
+              result[ i ] = result[ i ] ^ other[ i ];
+              break;
+          }
+        }
+      }
+      if ( negated ) {
+        for ( int i = 0; i < result.length; i++ ) {
+          result[ i ] = !result[ i ];
+        }
+      }
+      return true;
+    }
+  }
+}
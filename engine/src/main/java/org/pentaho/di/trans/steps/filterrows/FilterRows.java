@@ -19,6 +19,7 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -63,6 +64,10 @@ public class FilterRows extends BaseStep implements StepInterface {
     meta = (FilterRowsMeta) smi;
     data = (FilterRowsData) sdi;
 
+    if ( data.batchMode ) {
+      return processBatch();
+    }
+
     boolean keep;
 
     Object[] r = getRow(); // Get next usable row from input rowset(s)!
@@ -74,38 +79,7 @@ public class FilterRows extends BaseStep implements StepInterface {
 
     if ( first ) {
       first = false;
-
-      data.outputRowMeta = getInputRowMeta().clone();
-      meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
-        metaStore );
-
-      // if filter refers to non-existing fields, throw exception
-      checkNonExistingFields();
-
-      // Cache the position of the RowSet for the output.
-      //
-      if ( data.chosesTargetSteps ) {
-        List<StreamInterface> targetStreams = meta.getStepIOMeta().getTargetStreams();
-        if ( !Utils.isEmpty( targetStreams.get( 0 ).getStepname() ) ) {
-          data.trueRowSet = findOutputRowSet( getStepname(), getCopy(), targetStreams.get( 0 ).getStepname(), 0 );
-          if ( data.trueRowSet == null ) {
-            throw new KettleException( BaseMessages.getString(
-              PKG, "FilterRows.Log.TargetStepInvalid", targetStreams.get( 0 ).getStepname() ) );
-          }
-        } else {
-          data.trueRowSet = null;
-        }
-
-        if ( !Utils.isEmpty( targetStreams.get( 1 ).getStepname() ) ) {
-          data.falseRowSet = findOutputRowSet( getStepname(), getCopy(), targetStreams.get( 1 ).getStepname(), 0 );
-          if ( data.falseRowSet == null ) {
-            throw new KettleException( BaseMessages.getString(
-              PKG, "FilterRows.Log.TargetStepInvalid", targetStreams.get( 1 ).getStepname() ) );
-          }
-        } else {
-          data.falseRowSet = null;
-        }
-      }
+      prepareOutput();
     }
 
     keep = keepRow( getInputRowMeta(), r ); // Keep this row?
@@ -140,6 +114,111 @@ public class FilterRows extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Determines the output row metadata and looks up the row sets of the true and false target steps.
+   */
+  private void prepareOutput() throws KettleException {
+    data.outputRowMeta = getInputRowMeta().clone();
+    meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
+      metaStore );
+
+    // if filter refers to non-existing fields, throw exception
+    checkNonExistingFields();
+
+    // Cache the position of the RowSet for the output.
+    //
+    if ( data.chosesTargetSteps ) {
+      List<StreamInterface> targetStreams = meta.getStepIOMeta().getTargetStreams();
+      if ( !Utils.isEmpty( targetStreams.get( 0 ).getStepname() ) ) {
+        data.trueRowSet = findOutputRowSet( getStepname(), getCopy(), targetStreams.get( 0 ).getStepname(), 0 );
+        if ( data.trueRowSet == null ) {
+          throw new KettleException( BaseMessages.getString(
+            PKG, "FilterRows.Log.TargetStepInvalid", targetStreams.get( 0 ).getStepname() ) );
+        }
+      } else {
+        data.trueRowSet = null;
+      }
+
+      if ( !Utils.isEmpty( targetStreams.get( 1 ).getStepname() ) ) {
+        data.falseRowSet = findOutputRowSet( getStepname(), getCopy(), targetStreams.get( 1 ).getStepname(), 0 );
+        if ( data.falseRowSet == null ) {
+          throw new KettleException( BaseMessages.getString(
+            PKG, "FilterRows.Log.TargetStepInvalid", targetStreams.get( 1 ).getStepname() ) );
+        }
+      } else {
+        data.falseRowSet = null;
+      }
+    }
+  }
+
+  /**
+   * Filters a whole batch of rows. Simple conditions are evaluated on the columns of the batch (see
+   * {@link BatchCondition}), the others row by row. The rows that pass go on as a single batch, the same for the ones
+   * that don't when they are sent to a false target step.
+   */
+  private boolean processBatch() throws KettleException {
+    RowBatch batch = getBatch( RowBatch.DEFAULT_SIZE );
+    if ( batch == null ) { // no more input to be expected...
+
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      prepareOutput();
+      data.batchCondition = BatchCondition.compile( meta.getCondition(), getInputRowMeta() );
+    }
+
+    int size = batch.size();
+    boolean[] keep = data.batchCondition != null ? data.batchCondition.evaluate( batch ) : null;
+    if ( keep == null ) {
+      keep = new boolean[ size ];
+      for ( int i = 0; i < size; i++ ) {
+        keep[ i ] = keepRow( getInputRowMeta(), batch.getRow( i ) );
+      }
+    }
+
+    int[] kept = new int[ size ];
+    int[] rejected = new int[ size ];
+    int nrKept = 0;
+    int nrRejected = 0;
+    for ( int i = 0; i < size; i++ ) {
+      if ( keep[ i ] ) {
+        kept[ nrKept++ ] = i;
+      } else {
+        rejected[ nrRejected++ ] = i;
+      }
+    }
+
+    if ( !data.chosesTargetSteps ) {
+      if ( nrKept > 0 ) {
+        putBatch( data.outputRowMeta, batch.select( kept, nrKept ) ); // copy rows to output rowset(s);
+      }
+    } else {
+      if ( data.trueRowSet != null && nrKept > 0 ) {
+        if ( log.isRowLevel() ) {
+          logRowlevel( "Sending " + nrKept + " rows to true  :" + data.trueStepname );
+        }
+        putBatchTo( data.outputRowMeta, batch.select( kept, nrKept ), data.trueRowSet );
+      }
+      if ( data.falseRowSet != null && nrRejected > 0 ) {
+        if ( log.isRowLevel() ) {
+          logRowlevel( "Sending " + nrRejected + " rows to false :" + data.falseStepname );
+        }
+        putBatchTo( data.outputRowMeta, batch.select( rejected, nrRejected ), data.falseRowSet );
+      }
+    }
+
+    if ( checkFeedback( getLinesRead() - size, getLinesRead() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "FilterRows.Log.LineNumber" ) + getLinesRead() );
+      }
+    }
+
+    return true;
+  }
+
   /**
    * @see StepInterface#init(org.pentaho.di.trans.step.StepMetaInterface , org.pentaho.di.trans.step.StepDataInterface)
    */
@@ -158,6 +237,7 @@ public class FilterRows extends BaseStep implements StepInterface {
 
       data.chosesTargetSteps =
         targetStreams.get( 0 ).getStepMeta() != null || targetStreams.get( 1 ).getStepMeta() != null;
+      data.batchMode = hasBatchRowSets();
       return true;
     }
     return false;
@@ -32,6 +32,10 @@ public class FilterRowsData extends BaseStepData implements StepDataInterface {
   public String trueStepname;
   public String falseStepname;
 
+  /** Process the rows a batch at a time, the step is next to a hop that carries row batches. */
+  boolean batchMode;
+  BatchCondition batchCondition;
+
   public FilterRowsData() {
     super();
   }
@@ -331,6 +331,11 @@ public class FilterRowsMeta extends BaseStepMeta implements StepMetaInterface {
     return new FilterRowsData();
   }
 
+  @Override
+  public boolean supportsBatches() {
+    return true;
+  }
+
   /**
    * Returns the Input/Output metadata for this step.
    */
@@ -44,6 +44,8 @@ import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNone;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.sketch.HyperLogLog;
+import org.pentaho.di.core.sketch.KllSketch;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
@@ -91,6 +93,11 @@ public class GroupBy extends BaseStep implements StepInterface {
       allNullsAreZero = ValueMetaBase.convertStringToBoolean( val );
       val = getVariable( Const.KETTLE_AGGREGATION_MIN_NULL_IS_VALUED, "N" );
       minNullIsValued = ValueMetaBase.convertStringToBoolean( val );
+      data.approxDistinctPrecision = Math.max( HyperLogLog.MIN_PRECISION, Math.min( HyperLogLog.MAX_PRECISION,
+        Const.toInt( getVariable( Const.KETTLE_AGGREGATION_APPROX_DISTINCT_PRECISION ),
+          HyperLogLog.DEFAULT_PRECISION ) ) );
+      data.approxQuantileAccuracy = Math.max( KllSketch.MIN_K,
+        Const.toInt( getVariable( Const.KETTLE_AGGREGATION_APPROX_QUANTILE_ACCURACY ), KllSketch.DEFAULT_K ) );
 
       // What is the output looking like?
       //
@@ -469,6 +476,17 @@ public class GroupBy extends BaseStep implements StepInterface {
             }
           }
           break;
+        case GroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          if ( !subjMeta.isNull( subj ) ) {
+            ( (HyperLogLog) value ).add( subjMeta.convertToNormalStorageType( subj ) );
+          }
+          break;
+        case GroupByMeta.TYPE_GROUP_APPROX_MEDIAN:
+        case GroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+          if ( !subjMeta.isNull( subj ) ) {
+            ( (KllSketch) value ).update( subjMeta.getNumber( subj ) );
+          }
+          break;
         case GroupByMeta.TYPE_GROUP_COUNT_ALL:
           if ( !subjMeta.isNull( subj ) ) {
             data.counts[ i ]++;
@@ -606,6 +624,15 @@ public class GroupBy extends BaseStep implements StepInterface {
         case GroupByMeta.TYPE_GROUP_STANDARD_DEVIATION_SAMPLE:
           vMeta = new ValueMetaNumber( meta.getAggregateField()[ i ] );
           break;
+        case GroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          vMeta = new ValueMetaInteger( meta.getAggregateField()[ i ] );
+          v = new HyperLogLog( data.approxDistinctPrecision );
+          break;
+        case GroupByMeta.TYPE_GROUP_APPROX_MEDIAN:
+        case GroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+          vMeta = new ValueMetaNumber( meta.getAggregateField()[ i ] );
+          v = new KllSketch( data.approxQuantileAccuracy );
+          break;
         case GroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
         case GroupByMeta.TYPE_GROUP_COUNT_ANY:
         case GroupByMeta.TYPE_GROUP_COUNT_ALL:
@@ -637,7 +664,8 @@ public class GroupBy extends BaseStep implements StepInterface {
       if ( ( subjMeta != null )
           && ( aggType != GroupByMeta.TYPE_GROUP_COUNT_ALL
           && aggType != GroupByMeta.TYPE_GROUP_COUNT_DISTINCT
-          && aggType != GroupByMeta.TYPE_GROUP_COUNT_ANY ) ) {
+          && aggType != GroupByMeta.TYPE_GROUP_COUNT_ANY
+          && aggType != GroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT ) ) {
         vMeta.setLength( subjMeta.getLength(), subjMeta.getPrecision() );
       }
       data.agg[ i ] = v;
@@ -735,6 +763,19 @@ public class GroupBy extends BaseStep implements StepInterface {
           break;
         case GroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
           break;
+        case GroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          ag = ( (HyperLogLog) ag ).estimate();
+          break;
+        case GroupByMeta.TYPE_GROUP_APPROX_MEDIAN:
+        case GroupByMeta.TYPE_GROUP_APPROX_PERCENTILE: {
+          double fraction = 0.5;
+          if ( meta.getAggregateType()[ i ] == GroupByMeta.TYPE_GROUP_APPROX_PERCENTILE ) {
+            fraction = Double.parseDouble( meta.getValueField()[ i ] ) / 100.0;
+          }
+          double quantile = ( (KllSketch) ag ).getQuantile( fraction );
+          ag = Double.isNaN( quantile ) ? null : quantile;
+          break;
+        }
         case GroupByMeta.TYPE_GROUP_MIN:
           break;
         case GroupByMeta.TYPE_GROUP_MAX:
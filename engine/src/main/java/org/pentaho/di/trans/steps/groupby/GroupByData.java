@@ -24,6 +24,8 @@ import java.util.Set;
 
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.sketch.HyperLogLog;
+import org.pentaho.di.core.sketch.KllSketch;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -94,6 +96,9 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
 
   public boolean newBatch;
 
+  public int approxDistinctPrecision = HyperLogLog.DEFAULT_PRECISION;
+  public int approxQuantileAccuracy = KllSketch.DEFAULT_K;
+
   public GroupByData() {
     super();
 
@@ -0,0 +1,401 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinData.BuildRows;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinData.HashEntry;
+import org.pentaho.di.trans.steps.hashjoin.HashJoinSpill.Partition;
+
+/**
+ * Joins the rows of two streams that don't have to be sorted. All the rows of the second step are read into a hash
+ * table on their keys first, then every row of the first step is joined with the rows of its key.<br>
+ * Once the rows of the second step don't fit in memory anymore, the rows of the keys that aren't in memory yet are
+ * written to temp files, partitioned on the hash of the key. The rows of the first step with a key in one of those
+ * partitions are written to the matching partition as well. After the first step is done, the pairs of partitions are
+ * joined one at a time, the same way as the input rows.
+ */
+public class HashJoin extends BaseStep implements StepInterface {
+  private static Class<?> PKG = HashJoinMeta.class; // for i18n purposes, needed by Translator2!!
+
+  // A partition this many times split is joined in memory, whatever its size: all its rows have the same hash
+  static final int MAX_LEVEL = 6;
+
+  private HashJoinMeta meta;
+  private HashJoinData data;
+
+  public HashJoin( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+    Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    Object[] r;
+    if ( first ) {
+      first = false;
+
+      // Find the RowSet to read from
+      //
+      List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+
+      data.oneRowSet = findInputRowSet( infoStreams.get( 0 ).getStepname() );
+      if ( data.oneRowSet == null ) {
+        throw new KettleException( BaseMessages.getString(
+          PKG, "HashJoin.Exception.UnableToFindSpecifiedStep", infoStreams.get( 0 ).getStepname() ) );
+      }
+
+      data.twoRowSet = findInputRowSet( infoStreams.get( 1 ).getStepname() );
+      if ( data.twoRowSet == null ) {
+        throw new KettleException( BaseMessages.getString(
+          PKG, "HashJoin.Exception.UnableToFindSpecifiedStep", infoStreams.get( 1 ).getStepname() ) );
+      }
+
+      // Read all the rows of the second step into the hash table first
+      //
+      Object[] two = getRowFrom( data.twoRowSet );
+      if ( two != null ) {
+        data.twoMeta = data.twoRowSet.getRowMeta();
+      } else {
+        data.twoMeta = getTransMeta().getStepFields( infoStreams.get( 1 ).getStepname() );
+      }
+      data.keyNrs2 = findKeyNrs( data.twoMeta, meta.getKeyFields2() );
+      data.keyMeta = new RowMeta();
+      for ( int keyNr : data.keyNrs2 ) {
+        ValueMetaInterface keyValueMeta = data.twoMeta.getValueMeta( keyNr ).clone();
+        keyValueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+        data.keyMeta.addValueMeta( keyValueMeta );
+      }
+
+      while ( two != null && !isStopped() ) {
+        addBuildRow( two );
+        two = getRowFrom( data.twoRowSet );
+      }
+      if ( isStopped() ) {
+        return false;
+      }
+      if ( data.buildSpill != null && log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.SecondStepSpilled", data.nrBuildRows ) );
+      }
+
+      r = getRowFrom( data.oneRowSet );
+      if ( r != null ) {
+        data.oneMeta = data.oneRowSet.getRowMeta();
+      } else {
+        data.oneMeta = getTransMeta().getStepFields( infoStreams.get( 0 ).getStepname() );
+      }
+      data.keyNrs1 = findKeyNrs( data.oneMeta, meta.getKeyFields1() );
+      for ( int i = 0; i < data.keyNrs1.length; i++ ) {
+        if ( data.oneMeta.getValueMeta( data.keyNrs1[i] ).getType() != data.keyMeta.getValueMeta( i ).getType() ) {
+          throw new KettleStepException( BaseMessages.getString(
+            PKG, "HashJoin.Exception.InvalidKeyLayoutDetected" ) );
+        }
+      }
+
+      data.outputRowMeta = new RowMeta();
+      data.outputRowMeta.mergeRowMeta( data.oneMeta.clone() );
+      if ( !data.first_only ) {
+        data.outputRowMeta.mergeRowMeta( data.twoMeta.clone() );
+      }
+      data.two_dummy = new Object[data.twoMeta.size()];
+    } else {
+      r = getRowFrom( data.oneRowSet );
+    }
+
+    if ( r == null ) {
+      // The first step is done: pass on the rows of the second step without a match and join the temp files
+      //
+      putUnmatchedBuildRows();
+      joinSpilledPartitions();
+
+      setOutputDone();
+      return false;
+    }
+
+    probeRow( r );
+
+    if ( checkFeedback( getLinesRead() ) ) {
+      logBasic( BaseMessages.getString( PKG, "HashJoin.LineNumber" ) + getLinesRead() );
+    }
+    return true;
+  }
+
+  private int[] findKeyNrs( RowMetaInterface rowMeta, String[] keyFields ) throws KettleStepException {
+    int[] keyNrs = new int[keyFields.length];
+    for ( int i = 0; i < keyNrs.length; i++ ) {
+      keyNrs[i] = rowMeta.indexOfValue( keyFields[i] );
+      if ( keyNrs[i] < 0 ) {
+        String message =
+          BaseMessages.getString( PKG, "HashJoin.Exception.UnableToFindFieldInReferenceStream", keyFields[i] );
+        logError( message );
+        throw new KettleStepException( message );
+      }
+    }
+    return keyNrs;
+  }
+
+  private HashEntry getKey( RowMetaInterface rowMeta, int[] keyNrs, Object[] row ) throws KettleValueException {
+    Object[] keyData = new Object[keyNrs.length];
+    for ( int i = 0; i < keyNrs.length; i++ ) {
+      keyData[i] = rowMeta.getValueMeta( keyNrs[i] ).convertToNormalStorageType( row[keyNrs[i]] );
+    }
+    return data.getHashEntry( keyData );
+  }
+
+  /**
+   * Adds a row of the second step to the hash table, or to the temp files if its key isn't in memory and no more keys
+   * fit. All the rows of a key end up in the same place.
+   */
+  private void addBuildRow( Object[] row ) throws KettleException {
+    HashEntry key = getKey( data.twoMeta, data.keyNrs2, row );
+    BuildRows buildRows = data.table.get( key );
+    if ( buildRows == null ) {
+      if ( isMemoryFull() ) {
+        if ( data.buildSpill == null ) {
+          data.buildSpill = newSpill( data.twoMeta );
+        }
+        data.buildSpill.write( key.hashCode(), row );
+        return;
+      }
+      buildRows = new BuildRows();
+      data.table.put( key, buildRows );
+    }
+    buildRows.rows.add( row );
+    data.nrBuildRows++;
+  }
+
+  /**
+   * Joins a row of the first step with the rows of the second step in memory. If the rows of its key can only be in a
+   * temp file, the row is joined later on.
+   */
+  private void probeRow( Object[] row ) throws KettleException {
+    HashEntry key = getKey( data.oneMeta, data.keyNrs1, row );
+    BuildRows buildRows = data.table.get( key );
+    if ( buildRows != null ) {
+      buildRows.matched = true;
+      if ( data.first_only ) {
+        if ( !data.two_optional ) {
+          putRow( data.outputRowMeta, row );
+        }
+      } else {
+        for ( Object[] two : buildRows.rows ) {
+          putRow( data.outputRowMeta, joinRows( row, two ) );
+        }
+      }
+    } else if ( data.buildSpill != null && data.buildSpill.hasRows( key.hashCode() ) ) {
+      if ( data.probeSpill == null ) {
+        data.probeSpill = newSpill( data.oneMeta );
+      }
+      data.probeSpill.write( key.hashCode(), row );
+    } else if ( data.two_optional ) {
+      putRow( data.outputRowMeta, data.first_only ? row : joinRows( row, data.two_dummy ) );
+    }
+  }
+
+  private Object[] joinRows( Object[] one, Object[] two ) {
+    Object[] outputRowData = RowDataUtil.createResizedCopy( one, data.outputRowMeta.size() );
+    return RowDataUtil.addRowData( outputRowData, data.oneMeta.size(), two );
+  }
+
+  /**
+   * Passes on the rows of the second step in memory that no row of the first step matched, for a right or full outer
+   * join, and empties the hash table.
+   */
+  private void putUnmatchedBuildRows() throws KettleException {
+    if ( data.one_optional ) {
+      for ( BuildRows buildRows : data.table.values() ) {
+        if ( !buildRows.matched ) {
+          for ( Object[] two : buildRows.rows ) {
+            Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+            putRow( data.outputRowMeta, RowDataUtil.addRowData( outputRowData, data.oneMeta.size(), two ) );
+          }
+        }
+      }
+    }
+    data.table.clear();
+    data.nrBuildRows = 0L;
+    data.memoryFull = false;
+    data.freeCounter = 0;
+  }
+
+  /**
+   * Joins the pairs of partitions in the temp files one at a time. The rows of the second step of a partition that
+   * don't fit in memory either are partitioned again, together with the rows of the first step of their keys.
+   */
+  private void joinSpilledPartitions() throws KettleException {
+    Deque<Partition[]> pairs = new ArrayDeque<>();
+    pushPartitions( pairs );
+    try {
+      while ( !pairs.isEmpty() && !isStopped() ) {
+        Partition[] pair = pairs.pop();
+        Partition build = pair[0];
+        Partition probe = pair[1];
+        data.level = build != null ? build.level : probe.level;
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.JoiningTempFiles", data.level,
+            build != null ? build.nrRows : 0L, probe != null ? probe.nrRows : 0L ) );
+        }
+        if ( build != null ) {
+          try ( HashJoinSpill.Reader reader = build.open( data.twoMeta ) ) {
+            for ( Object[] row = reader.next(); row != null && !isStopped(); row = reader.next() ) {
+              addBuildRow( row );
+            }
+          }
+        }
+        if ( probe != null ) {
+          try ( HashJoinSpill.Reader reader = probe.open( data.oneMeta ) ) {
+            for ( Object[] row = reader.next(); row != null && !isStopped(); row = reader.next() ) {
+              probeRow( row );
+            }
+          }
+        }
+        putUnmatchedBuildRows();
+        pushPartitions( pairs );
+      }
+    } finally {
+      // Only left over when the step is stopped or fails
+      for ( Partition[] pair : pairs ) {
+        for ( Partition partition : pair ) {
+          if ( partition != null ) {
+            HashJoinSpill.delete( partition.file );
+          }
+        }
+      }
+      clearSpills();
+      data.level = 0;
+    }
+  }
+
+  /**
+   * Hands the partitions written since the last call over as pairs of the same partition number.
+   */
+  private void pushPartitions( Deque<Partition[]> pairs ) throws KettleException {
+    if ( data.buildSpill == null ) {
+      return;
+    }
+    Partition[] builds = data.buildSpill.finish();
+    data.buildSpill = null;
+    Partition[] probes =
+      data.probeSpill != null ? data.probeSpill.finish() : new Partition[HashJoinSpill.NR_PARTITIONS];
+    data.probeSpill = null;
+    for ( int i = 0; i < HashJoinSpill.NR_PARTITIONS; i++ ) {
+      if ( builds[i] != null || probes[i] != null ) {
+        pairs.push( new Partition[] { builds[i], probes[i] } );
+      }
+    }
+  }
+
+  private void clearSpills() {
+    if ( data.buildSpill != null ) {
+      data.buildSpill.clear();
+      data.buildSpill = null;
+    }
+    if ( data.probeSpill != null ) {
+      data.probeSpill.clear();
+      data.probeSpill = null;
+    }
+  }
+
+  private HashJoinSpill newSpill( RowMetaInterface rowMeta ) {
+    return new HashJoinSpill( rowMeta, KettleVFS.getInstance( getTransMeta().getBowl() ), "hashjoin",
+      data.directory, this, data.level );
+  }
+
+  /**
+   * @return true if no more keys of the second step fit in memory. There is always room for one key, so that every
+   *         pass over the rows of a partition keeps at least one key in memory.
+   */
+  private boolean isMemoryFull() {
+    if ( data.memoryFull || data.table.isEmpty() || data.level >= MAX_LEVEL ) {
+      return data.memoryFull;
+    }
+    if ( data.maxBuildRows > 0 && data.nrBuildRows >= data.maxBuildRows ) {
+      data.memoryFull = true;
+    } else if ( data.freeMemoryPctLimit > 0 && ++data.freeCounter >= 1000 ) {
+      data.freeCounter = 0;
+      data.memoryFull = Const.getPercentageFreeMemory() < data.freeMemoryPctLimit;
+    }
+    if ( data.memoryFull && log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "HashJoin.Log.KeepingRowsInMemory", data.nrBuildRows,
+        data.table.size() ) );
+    }
+    return data.memoryFull;
+  }
+
+  /**
+   * @see StepInterface#init(org.pentaho.di.trans.step.StepMetaInterface , org.pentaho.di.trans.step.StepDataInterface)
+   */
+  public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
+    meta = (HashJoinMeta) smi;
+    data = (HashJoinData) sdi;
+
+    if ( super.init( smi, sdi ) ) {
+      List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+      if ( infoStreams.get( 0 ).getStepMeta() == null || infoStreams.get( 1 ).getStepMeta() == null ) {
+        logError( BaseMessages.getString( PKG, "HashJoin.Log.BothStepsNeeded" ) );
+        return false;
+      }
+      if ( meta.getKeyFields1().length != meta.getKeyFields2().length ) {
+        logError( BaseMessages.getString( PKG, "HashJoin.Log.KeyCountsDiffer", meta.getKeyFields1().length,
+          meta.getKeyFields2().length ) );
+        return false;
+      }
+      int joinTypeIndex = HashJoinMeta.getJoinTypeIndex( meta.getJoinType() );
+      if ( joinTypeIndex < 0 ) {
+        logError( BaseMessages.getString( PKG, "HashJoin.Log.InvalidJoinType", meta.getJoinType() ) );
+        return false;
+      }
+      data.one_optional = HashJoinMeta.one_optionals[joinTypeIndex];
+      data.two_optional = HashJoinMeta.two_optionals[joinTypeIndex];
+      data.first_only = HashJoinMeta.first_onlies[joinTypeIndex];
+
+      data.maxBuildRows = Const.toInt( environmentSubstitute( meta.getMaxBuildRows() ), 0 );
+      data.freeMemoryPctLimit = Const.toInt( environmentSubstitute( meta.getFreeMemoryLimit() ), 0 );
+      data.directory = environmentSubstitute( Const.NVL( meta.getDirectory(), "%%java.io.tmpdir%%" ) );
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    data = (HashJoinData) sdi;
+    clearSpills();
+    data.table.clear();
+    super.dispose( smi, sdi );
+  }
+}
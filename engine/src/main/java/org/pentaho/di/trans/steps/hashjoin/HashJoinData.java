@@ -0,0 +1,104 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.BaseStepData;
+import org.pentaho.di.trans.step.StepDataInterface;
+
+public class HashJoinData extends BaseStepData implements StepDataInterface {
+
+  /**
+   * The key of a row in normal storage. The hash code is the one of the key meta data, like in the hash maps of
+   * org.pentaho.di.core.hash, and it is calculated only once.
+   */
+  public class HashEntry {
+    private final Object[] keyData;
+    private final int hashCode;
+
+    public HashEntry( Object[] keyData ) throws KettleValueException {
+      this.keyData = keyData;
+      this.hashCode = keyMeta.hashCode( keyData );
+    }
+
+    public Object[] getKeyData() {
+      return keyData;
+    }
+
+    public boolean equals( Object obj ) {
+      HashEntry entry = (HashEntry) obj;
+
+      try {
+        return keyMeta.compare( keyData, entry.keyData ) == 0;
+      } catch ( KettleValueException e ) {
+        throw new RuntimeException( e );
+      }
+    }
+
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * The rows of the second step with the same key and whether a row of the first step matched them.
+   */
+  static final class BuildRows {
+    final List<Object[]> rows = new ArrayList<>( 1 );
+    boolean matched;
+  }
+
+  public RowSet oneRowSet;
+  public RowSet twoRowSet;
+
+  public RowMetaInterface oneMeta, twoMeta;
+  public RowMetaInterface outputRowMeta; // oneMeta+twoMeta, only oneMeta for a semi or anti join
+  public RowMetaInterface keyMeta; // the keys of the second step in normal storage
+  public int[] keyNrs1;
+  public int[] keyNrs2;
+  public Object[] two_dummy;
+
+  public boolean one_optional, two_optional, first_only;
+
+  // The rows of the second step in memory by their key
+  HashMap<HashEntry, BuildRows> table;
+  long nrBuildRows;
+
+  int maxBuildRows;
+  int freeMemoryPctLimit;
+  int freeCounter;
+  boolean memoryFull;
+  String directory;
+
+  // The rows of the keys that aren't in memory, null as long as all the keys of the second step are
+  HashJoinSpill buildSpill;
+  HashJoinSpill probeSpill;
+  // The level of the hash of the keys in memory, 0 while the input rows are joined
+  int level;
+
+  public HashJoinData() {
+    super();
+    table = new HashMap<>();
+  }
+
+  public HashEntry getHashEntry( Object[] keyData ) throws KettleValueException {
+    return new HashEntry( keyData );
+  }
+}
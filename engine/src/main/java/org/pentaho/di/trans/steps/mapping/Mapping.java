@@ -74,6 +74,8 @@ public class Mapping extends BaseStep implements StepInterface {
       getData().wasStarted = true;
       switch ( getData().mappingTransMeta.getTransformationType() ) {
         case Normal:
+        case VirtualThreads:
+        case Cooperative:
         case SerialSingleThreaded:
 
           // Before we start, let's see if there are loose ends to tie up...
@@ -197,7 +199,8 @@ public class Mapping extends BaseStep implements StepInterface {
           // Since everything is running in the MappingThreads we don't have to do
           // anything else here but wait...
           //
-          if ( getTransMeta().getTransformationType() == TransformationType.Normal ) {
+          if ( getTransMeta().getTransformationType() == TransformationType.Normal
+            || getTransMeta().getTransformationType() == TransformationType.VirtualThreads ) {
             getData().getMappingTrans().waitUntilFinished();
 
             // Set some statistics from the mapping...
@@ -290,6 +293,8 @@ public class Mapping extends BaseStep implements StepInterface {
     //
     switch (  mappingData.mappingTransMeta.getTransformationType() ) {
       case Normal:
+      case VirtualThreads:
+      case Cooperative:
       case SerialSingleThreaded:
         break;
 
@@ -498,7 +503,8 @@ public class Mapping extends BaseStep implements StepInterface {
     //
     getData().setMappingTrans( new Trans( getData().mappingTransMeta, this ) );
 
-    if ( getData().mappingTransMeta.getTransformationType() != TransformationType.Normal ) {
+    if ( getData().mappingTransMeta.getTransformationType() != TransformationType.Normal
+      && getData().mappingTransMeta.getTransformationType() != TransformationType.VirtualThreads ) {
       getData().getMappingTrans().getTransMeta().setUsingThreadPriorityManagment( false );
     }
 
@@ -13,9 +13,12 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -34,6 +37,9 @@ import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.sketch.HyperLogLog;
+import org.pentaho.di.core.sketch.KllSketch;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -43,6 +49,8 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByExchange.Group;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupBySpill.Partition;
 
 /**
  * Groups information based on aggregation rules. (sum, count, ...)
@@ -77,7 +85,9 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     Object[] r = getRow(); // get row!
 
     if ( first ) {
-      if ( ( r == null ) && ( !meta.isAlwaysGivingBackOneRow() ) ) {
+      // A copy without rows still hands its (lack of) groups over to the other copies
+      //
+      if ( ( r == null ) && ( !meta.isAlwaysGivingBackOneRow() ) && data.exchange == null ) {
         setOutputDone();
         return false;
       }
@@ -88,6 +98,11 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       minNullIsValued = ValueMetaBase.convertStringToBoolean( val );
       compatibilityMode = ValueMetaBase.convertStringToBoolean(
         getVariable( Const.KETTLE_COMPATIBILITY_MEMORY_GROUP_BY_SUM_AVERAGE_RETURN_NUMBER_TYPE, "N" ) );
+      data.approxDistinctPrecision = Math.max( HyperLogLog.MIN_PRECISION, Math.min( HyperLogLog.MAX_PRECISION,
+        Const.toInt( getVariable( Const.KETTLE_AGGREGATION_APPROX_DISTINCT_PRECISION ),
+          HyperLogLog.DEFAULT_PRECISION ) ) );
+      data.approxQuantileAccuracy = Math.max( KllSketch.MIN_K,
+        Const.toInt( getVariable( Const.KETTLE_AGGREGATION_APPROX_QUANTILE_ACCURACY ), KllSketch.DEFAULT_K ) );
 
       // What is the output looking like?
       //
@@ -113,7 +128,8 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       data.groupnrs = new int[meta.getGroupField().length];
 
       // If the step does not receive any rows, we can not lookup field position indexes
-      if ( r != null ) {
+      // unless we need them to merge the groups of the other copies
+      if ( r != null || data.exchange != null ) {
         for ( int i = 0; i < meta.getSubjectField().length; i++ ) {
           if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY ) {
             data.subjectnrs[i] = 0;
@@ -169,7 +185,11 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     if ( r == null ) { // no more input to be expected... (or none received in the first place)
 
       updateValueMeta();
-      handleLastOfGroup();
+      if ( data.exchange != null ) {
+        combineCopies();
+      } else {
+        handleLastOfGroup();
+      }
 
       setOutputDone();
       return false;
@@ -192,8 +212,54 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   }
 
   private void handleLastOfGroup() throws KettleException {
+    boolean hasGroups = !data.map.isEmpty();
+
     // Dump the content of the map...
     //
+    putGroups();
+
+    // ... and aggregate the groups that didn't fit in it
+    //
+    if ( data.spill != null ) {
+      aggregateSpilledGroups();
+    }
+    data.memoryFull = false;
+    data.freeCounter = 0;
+
+    // What if we always need to give back one row?
+    //
+    if ( !hasGroups && meta.isAlwaysGivingBackOneRow() ) {
+      putEmptyAggregate();
+    }
+  }
+
+  /**
+   * Gives back 0 for count all, count distinct, null for everything else
+   */
+  private void putEmptyAggregate() throws KettleException {
+    Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+    int index = 0;
+    for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+      outputRowData[index++] = null;
+    }
+    for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+      if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
+        || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
+        || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT
+        || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT ) {
+        outputRowData[index++] = Long.valueOf( 0L );
+      } else {
+        outputRowData[index++] = null;
+      }
+    }
+    putRow( data.outputRowMeta, outputRowData );
+  }
+
+  private void putGroups() throws KettleException {
+    if ( data.combineGroups != null ) {
+      handOverGroups();
+      return;
+    }
     for ( HashEntry entry : data.map.keySet() ) {
       Aggregate aggregate = data.map.get( entry );
       Object[] aggregateResult = getAggregateResult( aggregate );
@@ -208,29 +274,298 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       }
       putRow( data.outputRowMeta, outputRowData );
     }
+  }
 
-    // What if we always need to give back one row?
-    // This means we give back 0 for count all, count distinct, null for everything else
+  /**
+   * Aggregates the groups of all the copies of the step in two phases. Every copy hands the groups it aggregated from
+   * its own rows over to the copy that merges them, chosen by the hash of the group. Once all the copies did, every copy
+   * merges and passes on the groups that were handed to it, in the order of the copies that handed them over.
+   */
+  @SuppressWarnings( "unchecked" )
+  private void combineCopies() throws KettleException {
+    MemoryGroupByExchange exchange = data.exchange;
+    RowMetaInterface normalAggMeta = toNormalStorage( data.aggMeta );
+    data.normalGroupMeta = toNormalStorage( data.groupMeta );
+    data.combineGroups = new List[ exchange.getNrCopies() ];
+    for ( int i = 0; i < data.combineGroups.length; i++ ) {
+      data.combineGroups[i] = new ArrayList<>();
+    }
+    try {
+      putGroups();
+      if ( data.spill != null ) {
+        aggregateSpilledGroups();
+      }
+      List<Group>[] copyGroups = data.combineGroups;
+      data.combineGroups = null;
+      data.map.clear();
+      if ( !exchange.putGroups( getCopy(), copyGroups, this::isStopped ) ) {
+        return;
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } finally {
+      data.combineGroups = null;
+      data.memoryFull = false;
+      data.freeCounter = 0;
+    }
+
+    // From now on the groups and aggregates are all in normal storage
     //
-    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[index++] = null;
+    data.groupMeta = data.normalGroupMeta;
+    data.aggMeta = normalAggMeta;
+    for ( Group group : exchange.takeGroups( getCopy() ) ) {
+      HashEntry entry = data.getHashEntry( group.groupData );
+      Aggregate aggregate = data.map.get( entry );
+      if ( aggregate == null ) {
+        data.map.put( entry, group.aggregate );
+      } else {
+        mergeAggregate( aggregate, group.aggregate );
+      }
+    }
+    putGroups();
+    data.map.clear();
+
+    if ( getCopy() == 0 && exchange.getNrGroups() == 0 && meta.isAlwaysGivingBackOneRow() ) {
+      putEmptyAggregate();
+    }
+  }
+
+  private static RowMetaInterface toNormalStorage( RowMetaInterface rowMeta ) {
+    RowMetaInterface normalMeta = new RowMeta();
+    for ( ValueMetaInterface valueMeta : rowMeta.getValueMetaList() ) {
+      ValueMetaInterface normalValueMeta = valueMeta.clone();
+      normalValueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+      normalMeta.addValueMeta( normalValueMeta );
+    }
+    return normalMeta;
+  }
+
+  /**
+   * Spreads the groups in memory over the copies that merge them. The keys and the values taken from the rows as they
+   * are are converted to normal storage, the other copies can't read the storage of the rows of this copy.
+   */
+  private void handOverGroups() throws KettleException {
+    for ( Map.Entry<HashEntry, Aggregate> mapEntry : data.map.entrySet() ) {
+      Object[] groupData = new Object[data.groupMeta.size()];
+      for ( int i = 0; i < groupData.length; i++ ) {
+        ValueMetaInterface valueMeta = data.groupMeta.getValueMeta( i );
+        groupData[i] = valueMeta.convertToNormalStorageType( mapEntry.getKey().getGroupData()[i] );
       }
+      Aggregate aggregate = mapEntry.getValue();
       for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
-          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
-          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT ) {
-          outputRowData[index++] = Long.valueOf( 0L );
-        } else {
-          outputRowData[index++] = null;
+        switch ( meta.getAggregateType()[i] ) {
+          case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          case MemoryGroupByMeta.TYPE_GROUP_FIRST:
+          case MemoryGroupByMeta.TYPE_GROUP_LAST:
+          case MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL:
+          case MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
+            aggregate.agg[i] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregate.agg[i] );
+            break;
+          default:
+            break;
         }
       }
-      putRow( data.outputRowMeta, outputRowData );
+      int copyNr = ( data.normalGroupMeta.hashCode( groupData ) & Integer.MAX_VALUE ) % data.combineGroups.length;
+      data.combineGroups[copyNr].add( new Group( groupData, aggregate ) );
     }
   }
 
+  /**
+   * Merges the aggregate of a group of a later copy into the aggregate of the same group of an earlier copy.
+   *
+   * @param aggregate
+   *          the aggregate of the earlier copy, it holds the result
+   * @param other
+   *          the aggregate of the later copy
+   */
+  @SuppressWarnings( "unchecked" ) void mergeAggregate( Aggregate aggregate, Aggregate other ) throws KettleException {
+    for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+      ValueMetaInterface valueMeta = data.aggMeta.getValueMeta( i );
+      Object value = aggregate.agg[i];
+      Object otherValue = other.agg[i];
+
+      switch ( meta.getAggregateType()[i] ) {
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+          aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, valueMeta, otherValue );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, valueMeta, otherValue );
+          aggregate.counts[i] += other.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN:
+        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
+          ( (List<Double>) value ).addAll( (List<Double>) otherValue );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
+          // Combines the sums of the squared deviations from the mean of both parts (Chan et al.)
+          double na = aggregate.counts[i];
+          double nb = other.counts[i];
+          double n = na + nb;
+          if ( n > 0 ) {
+            double delta = other.mean[i] - aggregate.mean[i];
+            double sum = value == null ? 0.0 : (Double) value;
+            double otherSum = otherValue == null ? 0.0 : (Double) otherValue;
+            aggregate.agg[i] = sum + otherSum + delta * delta * na * nb / n;
+            aggregate.mean[i] = aggregate.mean[i] + delta * nb / n;
+            aggregate.counts[i] += other.counts[i];
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
+          if ( other.distinctObjs != null && other.distinctObjs[i] != null ) {
+            if ( aggregate.distinctObjs == null ) {
+              aggregate.distinctObjs = new Set[meta.getSubjectField().length];
+            }
+            if ( aggregate.distinctObjs[i] == null ) {
+              aggregate.distinctObjs[i] = new TreeSet<>();
+            }
+            aggregate.distinctObjs[i].addAll( other.distinctObjs[i] );
+            aggregate.counts[i] = aggregate.distinctObjs[i].size();
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          ( (HyperLogLog) value ).merge( (HyperLogLog) otherValue );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_MEDIAN:
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+          ( (KllSketch) value ).merge( (KllSketch) otherValue );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          aggregate.counts[i] += other.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          boolean otherIsNull = valueMeta.isNull( otherValue );
+          boolean valueIsNull = valueMeta.isNull( value );
+          if ( minNullIsValued || ( !otherIsNull && !valueIsNull ) ) {
+            aggregate.agg[i] = valueMeta.compare( otherValue, value ) < 0 ? otherValue : value;
+          } else if ( valueIsNull && !otherIsNull ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          if ( valueMeta.compare( otherValue, value ) > 0 ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_FIRST:
+          if ( value == null ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_LAST:
+          if ( otherValue != null ) {
+            aggregate.agg[i] = otherValue;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL:
+          if ( aggregate.counts[i] == 0 ) {
+            aggregate.agg[i] = otherValue;
+            aggregate.counts[i] = other.counts[i];
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
+          aggregate.agg[i] = otherValue;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
+        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
+          StringBuilder sb = (StringBuilder) value;
+          StringBuilder otherSb = (StringBuilder) otherValue;
+          if ( otherSb.length() > 0 ) {
+            if ( sb.length() > 0 ) {
+              if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA ) {
+                sb.append( ", " );
+              } else if ( !Utils.isEmpty( meta.getValueField()[i] ) ) {
+                sb.append( environmentSubstitute( meta.getValueField()[i] ) );
+              }
+            }
+            sb.append( otherSb );
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Aggregates the groups in the temp files one partition at a time. The groups of a partition that don't fit in memory
+   * either are partitioned again.
+   */
+  private void aggregateSpilledGroups() throws KettleException {
+    Deque<Partition> partitions = new ArrayDeque<>( data.spill.finish() );
+    data.spill = null;
+    try {
+      while ( !partitions.isEmpty() && !isStopped() ) {
+        Partition partition = partitions.pop();
+        data.map.clear();
+        data.memoryFull = false;
+        data.freeCounter = 0;
+        data.level = partition.level;
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.AggregatingTempFile", partition.nrRows,
+            partition.file.getName().getBaseName() ) );
+        }
+        try ( MemoryGroupBySpill.Reader reader = partition.open( data.inputRowMeta ) ) {
+          for ( Object[] row = reader.next(); row != null && !isStopped(); row = reader.next() ) {
+            addToAggregate( row );
+          }
+        }
+        putGroups();
+
+        if ( data.spill != null ) {
+          for ( Partition spilled : data.spill.finish() ) {
+            partitions.push( spilled );
+          }
+          data.spill = null;
+        }
+      }
+    } finally {
+      // Only left over when the step is stopped or fails
+      for ( Partition partition : partitions ) {
+        MemoryGroupBySpill.delete( partition.file );
+      }
+      if ( data.spill != null ) {
+        data.spill.clear();
+        data.spill = null;
+      }
+      data.level = 0;
+    }
+  }
+
+  /**
+   * @return true if no more groups fit in memory. There is always room for one group, so that every pass over the
+   *         rows of a partition aggregates at least one group.
+   */
+  private boolean isMemoryFull() {
+    if ( data.memoryFull || data.map.isEmpty() ) {
+      return data.memoryFull;
+    }
+    if ( data.maxGroups > 0 && data.map.size() >= data.maxGroups ) {
+      data.memoryFull = true;
+    } else if ( data.freeMemoryPctLimit > 0 && ++data.freeCounter >= 1000 ) {
+      data.freeCounter = 0;
+      data.memoryFull = Const.getPercentageFreeMemory() < data.freeMemoryPctLimit;
+    }
+    if ( data.memoryFull && log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.KeepingGroupsInMemory", data.map.size() ) );
+    }
+    return data.memoryFull;
+  }
+
+  /**
+   * Writes the row of a group that isn't in memory to the temp file of its partition.
+   */
+  private void spill( HashEntry entry, Object[] r ) throws KettleException {
+    if ( data.spill == null ) {
+      data.spill = new MemoryGroupBySpill( data.inputRowMeta, KettleVFS.getInstance( getTransMeta().getBowl() ),
+        "memgroupby", environmentSubstitute( getVariable( Const.KETTLE_MEMORY_GROUP_BY_TMP_DIR,
+          "%%java.io.tmpdir%%" ) ), this, data.level );
+    }
+    data.spill.write( entry.hashCode(), r );
+  }
+
   @VisibleForTesting
   void updateValueMeta() throws KettleException {
 
@@ -262,6 +597,13 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     Aggregate aggregate = data.map.get( entry );
     if ( aggregate == null ) {
+      if ( isMemoryFull() ) {
+        // The group is aggregated from a temp file later on, with all its other rows
+        //
+        spill( entry, r );
+        return;
+      }
+
       // Create a new value...
       //
       aggregate = new Aggregate();
@@ -333,6 +675,17 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
           }
           aggregate.counts[i] = aggregate.distinctObjs[i].size();
           break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          if ( !subjMeta.isNull( subj ) ) {
+            ( (HyperLogLog) value ).add( subjMeta.convertToNormalStorageType( subj ) );
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_MEDIAN:
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+          if ( !subjMeta.isNull( subj ) ) {
+            ( (KllSketch) value ).update( subjMeta.getNumber( subj ) );
+          }
+          break;
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
           if ( !subjMeta.isNull( subj ) ) {
             aggregate.counts[i]++;
@@ -439,6 +792,15 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
           vMeta = new ValueMetaNumber( meta.getAggregateField()[i] );
           break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+          vMeta = new ValueMetaInteger( meta.getAggregateField()[i] );
+          v = new HyperLogLog( data.approxDistinctPrecision );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_MEDIAN:
+        case MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+          vMeta = new ValueMetaNumber( meta.getAggregateField()[i] );
+          v = new KllSketch( data.approxQuantileAccuracy );
+          break;
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
@@ -473,7 +835,8 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
       if ( meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
         && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT
-        && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+        && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
+        && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT ) {
         vMeta.setLength( subjMeta.getLength(), subjMeta.getPrecision() );
       }
       if ( aggregate == null ) {
@@ -540,6 +903,18 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
           case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
             ag = aggregate.counts[i];
             break;
+          case MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT:
+            ag = ( (HyperLogLog) ag ).estimate();
+            break;
+          case MemoryGroupByMeta.TYPE_GROUP_APPROX_MEDIAN:
+          case MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE:
+            double fraction = 0.5;
+            if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_APPROX_PERCENTILE ) {
+              fraction = Double.parseDouble( meta.getValueField()[i] ) / 100.0;
+            }
+            double quantile = ( (KllSketch) ag ).getQuantile( fraction );
+            ag = Double.isNaN( quantile ) ? null : quantile;
+            break;
           case MemoryGroupByMeta.TYPE_GROUP_MIN:
             break;
           case MemoryGroupByMeta.TYPE_GROUP_MAX:
@@ -575,11 +950,35 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.map = new HashMap<HashEntry, Aggregate>( 5000 );
+      data.maxGroups = Const.toInt( getVariable( Const.KETTLE_MEMORY_GROUP_BY_MAX_GROUPS ), 0 );
+      data.freeMemoryPctLimit = Const.toInt( getVariable( Const.KETTLE_MEMORY_GROUP_BY_FREE_MEMORY_LIMIT ), 10 );
+
+      if ( meta.isCombiningCopies() && !getStepMeta().isClustered() ) {
+        int nrCopies = getTrans().findStepInterfaces( getStepname() ).size();
+        if ( nrCopies > 1 ) {
+          data.exchange = findExchange( nrCopies );
+        }
+      }
       return true;
     }
     return false;
   }
 
+  /**
+   * @return the exchange of the groups, kept by the first copy of the step
+   */
+  private MemoryGroupByExchange findExchange( int nrCopies ) {
+    // Not the data field of the first copy: that one is only set once the copy is initialized
+    MemoryGroupBy firstCopy = (MemoryGroupBy) getTrans().findStepInterface( getStepname(), 0 );
+    MemoryGroupByData firstData = (MemoryGroupByData) firstCopy.getStepDataInterface();
+    synchronized ( firstData ) {
+      if ( firstData.exchange == null ) {
+        firstData.exchange = new MemoryGroupByExchange( nrCopies );
+      }
+      return firstData.exchange;
+    }
+  }
+
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     super.dispose( smi, sdi );
@@ -14,12 +14,16 @@
 package org.pentaho.di.trans.steps.memgroupby;
 
 import java.util.HashMap;
+import java.util.List;
 
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.sketch.HyperLogLog;
+import org.pentaho.di.core.sketch.KllSketch;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByExchange.Group;
 
 /**
  * @author Matt
@@ -90,6 +94,24 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  public int approxDistinctPrecision = HyperLogLog.DEFAULT_PRECISION;
+  public int approxQuantileAccuracy = KllSketch.DEFAULT_K;
+
+  // The rows of the groups that don't fit in memory, null as long as all the groups do
+  MemoryGroupBySpill spill;
+  // The level of the hash of the groups in memory, 0 while the input rows are aggregated
+  int level;
+  int maxGroups;
+  int freeMemoryPctLimit;
+  int freeCounter;
+  boolean memoryFull;
+
+  // The exchange of the groups with the other copies, null unless the copies combine their groups
+  MemoryGroupByExchange exchange;
+  // The groups handed over to the other copies by copy, null unless the groups of this copy are handed over
+  List<Group>[] combineGroups;
+  RowMetaInterface normalGroupMeta;
+
   public MemoryGroupByData() {
     super();
 
@@ -104,5 +126,9 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
    */
   public void clear() {
     map = new HashMap<MemoryGroupByData.HashEntry, Aggregate>();
+    if ( spill != null ) {
+      spill.clear();
+      spill = null;
+    }
   }
 }
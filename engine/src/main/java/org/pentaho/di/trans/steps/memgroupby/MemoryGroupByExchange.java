@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Lets the copies of a Memory Group By step combine their groups. Every copy aggregates its own rows first and then
+ * hands in its groups, spread over the copies by the hash of the group. Once all the copies did, every copy merges the
+ * groups that were handed to it, so that every group is passed on by a single copy.<br>
+ * The exchange is shared by the copies of one step in one transformation, the wait gives up as soon as the step is
+ * stopped.
+ */
+final class MemoryGroupByExchange {
+
+  private static final long WAIT_MILLIS = 100L;
+
+  private final int nrCopies;
+
+  // The groups handed in, by the copy that handed them in and the copy that merges them
+  private final List<Group>[][] groups;
+  private int nrHandedIn;
+  private long nrGroups;
+
+  @SuppressWarnings( "unchecked" )
+  MemoryGroupByExchange( int nrCopies ) {
+    this.nrCopies = nrCopies;
+    this.groups = new List[ nrCopies ][];
+  }
+
+  int getNrCopies() {
+    return nrCopies;
+  }
+
+  /**
+   * Hands in the groups of a copy and waits for the groups of all the other copies.
+   *
+   * @param copyGroups
+   *          the groups of the copy by the copy that merges them
+   * @return false if the step was stopped while waiting
+   */
+  synchronized boolean putGroups( int copyNr, List<Group>[] copyGroups, BooleanSupplier stopped )
+    throws InterruptedException {
+    groups[ copyNr ] = copyGroups;
+    for ( List<Group> target : copyGroups ) {
+      nrGroups += target.size();
+    }
+    nrHandedIn++;
+    if ( nrHandedIn == nrCopies ) {
+      notifyAll();
+    }
+    while ( nrHandedIn < nrCopies ) {
+      if ( stopped.getAsBoolean() ) {
+        return false;
+      }
+      wait( WAIT_MILLIS );
+    }
+    return true;
+  }
+
+  /**
+   * @return the groups that a copy merges, in the order of the copies that handed them in. They are handed out only
+   *         once.
+   */
+  synchronized List<Group> takeGroups( int copyNr ) {
+    List<Group> result = new ArrayList<>();
+    for ( List<Group>[] copyGroups : groups ) {
+      if ( copyGroups != null && copyGroups[ copyNr ] != null ) {
+        result.addAll( copyGroups[ copyNr ] );
+        copyGroups[ copyNr ] = null;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of groups all the copies handed in, before they are merged
+   */
+  synchronized long getNrGroups() {
+    return nrGroups;
+  }
+
+  /**
+   * The key of a group in normal storage and its aggregate.
+   */
+  static final class Group {
+    final Object[] groupData;
+    final Aggregate aggregate;
+
+    Group( Object[] groupData, Aggregate aggregate ) {
+      this.groupData = groupData;
+      this.aggregate = aggregate;
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.IKettleVFS;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * The temp files of the Memory Group By step. Once the step can't keep more groups in memory, the rows of the groups
+ * that aren't in memory are written to one of a number of partitions, chosen by the hash of the group. All the rows of
+ * a group end up in the same partition, in the order they were read, so every partition can be aggregated on its own
+ * afterwards. A partition that doesn't fit in memory either is split again with the next level of the hash.
+ */
+final class MemoryGroupBySpill {
+
+  static final int NR_PARTITIONS = 32;
+
+  private static final int BUFFER_SIZE = 50000;
+
+  private final RowMetaInterface rowMeta;
+  private final IKettleVFS vfs;
+  private final String prefix;
+  private final String directory;
+  private final VariableSpace space;
+  private final int level;
+
+  private final FileObject[] files = new FileObject[ NR_PARTITIONS ];
+  private final DataOutputStream[] outputStreams = new DataOutputStream[ NR_PARTITIONS ];
+  private final long[] nrRows = new long[ NR_PARTITIONS ];
+
+  /**
+   * @param level
+   *          the level of the hash the rows are partitioned on, 0 for the rows of the input
+   */
+  MemoryGroupBySpill( RowMetaInterface rowMeta, IKettleVFS vfs, String prefix, String directory,
+                      VariableSpace space, int level ) {
+    this.rowMeta = rowMeta;
+    this.vfs = vfs;
+    this.prefix = prefix;
+    this.directory = directory;
+    this.space = space;
+    this.level = level;
+  }
+
+  int getLevel() {
+    return level;
+  }
+
+  /**
+   * Writes a row to the partition of its group.
+   *
+   * @param hashCode
+   *          the hash code of the group of the row
+   */
+  void write( int hashCode, Object[] row ) throws KettleException {
+    int partition = partition( hashCode, level );
+    if ( outputStreams[ partition ] == null ) {
+      files[ partition ] = vfs.createTempFile( prefix, ".tmp", directory, space );
+      try {
+        outputStreams[ partition ] =
+          new DataOutputStream( new BufferedOutputStream( vfs.getOutputStream( files[ partition ], false ),
+            BUFFER_SIZE ) );
+      } catch ( IOException e ) {
+        throw new KettleFileException( e );
+      }
+    }
+    rowMeta.writeData( outputStreams[ partition ], row );
+    nrRows[ partition ]++;
+  }
+
+  /**
+   * Spreads the groups differently on every level, so that a partition that is split again doesn't end up in a single
+   * partition again.
+   */
+  static int partition( int hashCode, int level ) {
+    int h = hashCode ^ ( level * 0x9E3779B9 );
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h & ( NR_PARTITIONS - 1 );
+  }
+
+  /**
+   * Closes the temp files for writing.
+   *
+   * @return the partitions with rows, the caller owns them from now on
+   */
+  List<Partition> finish() throws KettleException {
+    List<Partition> partitions = new ArrayList<>();
+    try {
+      for ( int i = 0; i < NR_PARTITIONS; i++ ) {
+        if ( outputStreams[ i ] != null ) {
+          outputStreams[ i ].close();
+          outputStreams[ i ] = null;
+          partitions.add( new Partition( files[ i ], nrRows[ i ], level + 1 ) );
+          files[ i ] = null;
+        }
+      }
+    } catch ( IOException e ) {
+      throw new KettleFileException( e );
+    }
+    return partitions;
+  }
+
+  /**
+   * Closes and removes the temp files that weren't handed out yet.
+   */
+  void clear() {
+    for ( int i = 0; i < NR_PARTITIONS; i++ ) {
+      BaseStep.closeQuietly( outputStreams[ i ] );
+      outputStreams[ i ] = null;
+      if ( files[ i ] != null ) {
+        delete( files[ i ] );
+        files[ i ] = null;
+      }
+      nrRows[ i ] = 0L;
+    }
+  }
+
+  static void delete( FileObject file ) {
+    try {
+      file.delete();
+    } catch ( FileSystemException e ) {
+      // The temp file is removed at the end of the JVM at the latest
+    }
+  }
+
+  /**
+   * The rows of the groups of one partition, in a temp file.
+   */
+  static final class Partition {
+    final FileObject file;
+    final long nrRows;
+    final int level;
+
+    Partition( FileObject file, long nrRows, int level ) {
+      this.file = file;
+      this.nrRows = nrRows;
+      this.level = level;
+    }
+
+    /**
+     * Reads the rows of the partition and removes the temp file once they are read.
+     */
+    Reader open( RowMetaInterface rowMeta ) throws KettleException {
+      return new Reader( this, rowMeta );
+    }
+  }
+
+  static final class Reader implements AutoCloseable {
+    private final Partition partition;
+    private final RowMetaInterface rowMeta;
+    private final DataInputStream inputStream;
+    private long remaining;
+
+    private Reader( Partition partition, RowMetaInterface rowMeta ) throws KettleException {
+      this.partition = partition;
+      this.rowMeta = rowMeta;
+      this.remaining = partition.nrRows;
+      try {
+        inputStream = new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( partition.file ),
+          BUFFER_SIZE ) );
+      } catch ( IOException e ) {
+        throw new KettleFileException( e );
+      }
+    }
+
+    /**
+     * @return the next row, null once all of them are read
+     */
+    Object[] next() throws KettleException {
+      if ( remaining == 0 ) {
+        return null;
+      }
+      remaining--;
+      try {
+        return rowMeta.readData( inputStream );
+      } catch ( IOException e ) {
+        throw new KettleFileException( e );
+      }
+    }
+
+    @Override
+    public void close() {
+      BaseStep.closeQuietly( inputStream );
+      delete( partition.file );
+    }
+  }
+}
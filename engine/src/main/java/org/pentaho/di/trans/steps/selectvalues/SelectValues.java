@@ -26,6 +26,10 @@ import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.ColumnVector;
+import org.pentaho.di.core.row.batch.ConstantColumnVector;
+import org.pentaho.di.core.row.batch.ObjectColumnVector;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
@@ -68,72 +72,8 @@ public class SelectValues extends BaseStep implements StepInterface {
   private synchronized Object[] selectValues( RowMetaInterface rowMeta, Object[] rowData ) throws KettleValueException {
     if ( data.firstselect ) {
       data.firstselect = false;
-
-      // We need to create a new meta-data row to drive the output
-      // We also want to know the indexes of the selected fields in the source row.
-      //
-      data.fieldnrs = new int[ meta.getSelectFields().length ];
-      for ( int i = 0; i < data.fieldnrs.length; i++ ) {
-        data.fieldnrs[ i ] = rowMeta.indexOfValue( meta.getSelectFields()[ i ].getName() );
-        if ( data.fieldnrs[ i ] < 0 ) {
-          logError( BaseMessages.getString( PKG, "SelectValues.Log.CouldNotFindField", meta.getSelectFields()[i]
-              .getName() ) );
-          setErrors( 1 );
-          stopAll();
-          return null;
-        }
-      }
-
-      // Check for doubles in the selected fields... AFTER renaming!!
-      //
-      int[] cnt = new int[ meta.getSelectFields().length ];
-      for ( int i = 0; i < meta.getSelectFields().length; i++ ) {
-        cnt[ i ] = 0;
-        for ( int j = 0; j < meta.getSelectFields().length; j++ ) {
-          String one = Const.NVL( meta.getSelectFields()[ i ].getRename(), meta.getSelectFields()[ i ].getName() );
-          String two = Const.NVL( meta.getSelectFields()[ j ].getRename(), meta.getSelectFields()[ j ].getName() );
-          if ( one.equals( two ) ) {
-            cnt[ i ]++;
-          }
-
-          if ( cnt[ i ] > 1 ) {
-            logError( BaseMessages.getString( PKG, "SelectValues.Log.FieldCouldNotSpecifiedMoreThanTwice", one ) );
-            setErrors( 1 );
-            stopAll();
-            return null;
-          }
-        }
-      }
-
-      // See if we need to include (and sort) the non-specified fields as well...
-      //
-      if ( meta.isSelectingAndSortingUnspecifiedFields() ) {
-        // Select the unspecified fields.
-        // Sort the fields
-        // Add them after the specified fields...
-        //
-        List<String> extra = new ArrayList<>();
-        ArrayList<Integer> unspecifiedKeyNrs = new ArrayList<>();
-        for ( int i = 0; i < rowMeta.size(); i++ ) {
-          String fieldName = rowMeta.getValueMeta( i ).getName();
-          if ( Const.indexOfString( fieldName, meta.getSelectName() ) < 0 ) {
-            extra.add( fieldName );
-          }
-        }
-        Collections.sort( extra );
-        for ( String fieldName : extra ) {
-          int index = rowMeta.indexOfValue( fieldName );
-          unspecifiedKeyNrs.add( index );
-        }
-
-        // Create the extra field list...
-        //
-        data.extraFieldnrs = new int[ unspecifiedKeyNrs.size() ];
-        for ( int i = 0; i < data.extraFieldnrs.length; i++ ) {
-          data.extraFieldnrs[ i ] = unspecifiedKeyNrs.get( i );
-        }
-      } else {
-        data.extraFieldnrs = new int[] {};
+      if ( !prepareSelect( rowMeta ) ) {
+        return null;
       }
     }
 
@@ -183,39 +123,9 @@ public class SelectValues extends BaseStep implements StepInterface {
   private synchronized Object[] removeValues( RowMetaInterface rowMeta, Object[] rowData ) {
     if ( data.firstdeselect ) {
       data.firstdeselect = false;
-
-      data.removenrs = new int[ meta.getDeleteName().length ];
-      for ( int i = 0; i < data.removenrs.length; i++ ) {
-        data.removenrs[ i ] = rowMeta.indexOfValue( meta.getDeleteName()[ i ] );
-        if ( data.removenrs[ i ] < 0 ) {
-          logError( BaseMessages.getString( PKG, "SelectValues.Log.CouldNotFindField", meta.getDeleteName()[ i ] ) );
-          setErrors( 1 );
-          stopAll();
-          return null;
-        }
+      if ( !prepareRemove( rowMeta ) ) {
+        return null;
       }
-
-      // Check for doubles in the selected fields...
-      int[] cnt = new int[ meta.getDeleteName().length ];
-      for ( int i = 0; i < meta.getDeleteName().length; i++ ) {
-        cnt[ i ] = 0;
-        for ( int j = 0; j < meta.getDeleteName().length; j++ ) {
-          if ( meta.getDeleteName()[ i ].equals( meta.getDeleteName()[ j ] ) ) {
-            cnt[ i ]++;
-          }
-
-          if ( cnt[ i ] > 1 ) {
-            logError( BaseMessages.getString( PKG, "SelectValues.Log.FieldCouldNotSpecifiedMoreThanTwice2",
-              meta.getDeleteName()[ i ] ) );
-            setErrors( 1 );
-            stopAll();
-            return null;
-          }
-        }
-      }
-
-      // Sort removenrs descending. So that we can delete in ascending order...
-      Arrays.sort( data.removenrs );
     }
 
     /*
@@ -239,64 +149,8 @@ public class SelectValues extends BaseStep implements StepInterface {
   synchronized Object[] metadataValues( RowMetaInterface rowMeta, Object[] rowData ) throws KettleException {
     if ( data.firstmetadata ) {
       data.firstmetadata = false;
-
-      data.metanrs = new int[ meta.getMeta().length ];
-      for ( int i = 0; i < data.metanrs.length; i++ ) {
-        data.metanrs[ i ] = rowMeta.indexOfValue( meta.getMeta()[ i ].getName() );
-        if ( data.metanrs[ i ] < 0 ) {
-          logError( BaseMessages
-            .getString( PKG, "SelectValues.Log.CouldNotFindField", meta.getMeta()[ i ].getName() ) );
-          setErrors( 1 );
-          stopAll();
-          return null;
-        }
-      }
-
-      // Check for doubles in the selected fields...
-      int[] cnt = new int[ meta.getMeta().length ];
-      for ( int i = 0; i < meta.getMeta().length; i++ ) {
-        cnt[ i ] = 0;
-        for ( int j = 0; j < meta.getMeta().length; j++ ) {
-          if ( meta.getMeta()[ i ].getName().equals( meta.getMeta()[ j ].getName() ) ) {
-            cnt[ i ]++;
-          }
-
-          if ( cnt[ i ] > 1 ) {
-            logError( BaseMessages.getString( PKG, "SelectValues.Log.FieldCouldNotSpecifiedMoreThanTwice2", meta
-              .getMeta()[ i ].getName() ) );
-            setErrors( 1 );
-            stopAll();
-            return null;
-          }
-        }
-      }
-
-      // Also apply the metadata on the row meta to allow us to convert the data correctly, with the correct mask.
-      //
-      for ( int i = 0; i < data.metanrs.length; i++ ) {
-        SelectMetadataChange change = meta.getMeta()[ i ];
-        ValueMetaInterface valueMeta = rowMeta.getValueMeta( data.metanrs[ i ] );
-        if ( !Utils.isEmpty( change.getConversionMask() ) ) {
-          valueMeta.setConversionMask( change.getConversionMask() );
-        }
-
-        valueMeta.setDateFormatLenient( change.isDateFormatLenient() );
-        valueMeta.setDateFormatLocale( EnvUtil.createLocale( change.getDateFormatLocale() ) );
-        valueMeta.setDateFormatTimeZone( EnvUtil.createTimeZone( change.getDateFormatTimeZone() ) );
-        valueMeta.setLenientStringToNumber( change.isLenientStringToNumber() );
-
-        if ( !Utils.isEmpty( change.getEncoding() ) ) {
-          valueMeta.setStringEncoding( change.getEncoding() );
-        }
-        if ( !Utils.isEmpty( change.getDecimalSymbol() ) ) {
-          valueMeta.setDecimalSymbol( change.getDecimalSymbol() );
-        }
-        if ( !Utils.isEmpty( change.getGroupingSymbol() ) ) {
-          valueMeta.setGroupingSymbol( change.getGroupingSymbol() );
-        }
-        if ( !Utils.isEmpty( change.getCurrencySymbol() ) ) {
-          valueMeta.setCurrencySymbol( change.getCurrencySymbol() );
-        }
+      if ( !prepareMetadata( rowMeta ) ) {
+        return null;
       }
     }
 
@@ -327,10 +181,334 @@ public class SelectValues extends BaseStep implements StepInterface {
     return rowData;
   }
 
+  /**
+   * The batch version of {@link #selectValues(RowMetaInterface, Object[])}: the columns are put in the right order. A
+   * column is only copied when the field is selected more than once, the columns are never changed after that.
+   */
+  private synchronized RowBatch selectValues( RowMetaInterface rowMeta, RowBatch batch )
+    throws KettleValueException {
+    if ( data.firstselect ) {
+      data.firstselect = false;
+      if ( !prepareSelect( rowMeta ) ) {
+        return null;
+      }
+    }
+
+    ColumnVector[] columns = new ColumnVector[ data.selectRowMeta.size() ];
+    boolean[] selected = new boolean[ batch.getColumnCount() ];
+    int outputIndex = 0;
+
+    for ( int idx : data.fieldnrs ) {
+      if ( idx < batch.getColumnCount() ) {
+        ColumnVector column = batch.getColumn( idx );
+        if ( selected[ idx ] ) {
+          column = cloneColumn( rowMeta.getValueMeta( idx ), column );
+        }
+        selected[ idx ] = true;
+        columns[ outputIndex++ ] = column;
+      } else {
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "SelectValues.Log.MixingStreamWithDifferentFields" ) );
+        }
+      }
+    }
+
+    for ( int idx : data.extraFieldnrs ) {
+      columns[ outputIndex++ ] = batch.getColumn( idx );
+    }
+
+    // The missing fields of mixed streams stay empty
+    //
+    while ( outputIndex < columns.length ) {
+      columns[ outputIndex++ ] = new ConstantColumnVector( null, batch.size() );
+    }
+
+    return new RowBatch( data.selectRowMeta, columns, batch.size() );
+  }
+
+  /**
+   * Primitive and constant columns hold immutable values, the values of the others might be changed by a later step.
+   */
+  private ColumnVector cloneColumn( ValueMetaInterface valueMeta, ColumnVector column )
+    throws KettleValueException {
+    if ( !( column instanceof ObjectColumnVector ) ) {
+      return column;
+    }
+    Object[] values = new Object[ column.size() ];
+    for ( int i = 0; i < values.length; i++ ) {
+      values[ i ] = valueMeta.cloneValueData( column.getObject( i ) );
+    }
+    return new ObjectColumnVector( values, values.length );
+  }
+
+  /**
+   * The batch version of {@link #removeValues(RowMetaInterface, Object[])}: the columns are left out.
+   */
+  private synchronized RowBatch removeValues( RowMetaInterface rowMeta, RowBatch batch ) {
+    if ( data.firstdeselect ) {
+      data.firstdeselect = false;
+      if ( !prepareRemove( rowMeta ) ) {
+        return null;
+      }
+    }
+
+    ColumnVector[] columns = new ColumnVector[ batch.getColumnCount() - data.removenrs.length ];
+    int outputIndex = 0;
+    int removeIndex = 0;
+    for ( int i = 0; i < batch.getColumnCount(); i++ ) {
+      if ( removeIndex < data.removenrs.length && data.removenrs[ removeIndex ] == i ) {
+        removeIndex++;
+      } else {
+        columns[ outputIndex++ ] = batch.getColumn( i );
+      }
+    }
+    return new RowBatch( data.deselectRowMeta, columns, batch.size() );
+  }
+
+  /**
+   * The batch version of {@link #metadataValues(RowMetaInterface, Object[])}: only the columns of the fields that change
+   * type or storage type are converted.
+   */
+  @VisibleForTesting
+  synchronized RowBatch metadataValues( RowMetaInterface rowMeta, RowBatch batch ) throws KettleException {
+    if ( data.firstmetadata ) {
+      data.firstmetadata = false;
+      if ( !prepareMetadata( rowMeta ) ) {
+        return null;
+      }
+    }
+
+    ColumnVector[] columns = batch.getColumns();
+    for ( int i = 0; i < data.metanrs.length; i++ ) {
+      int index = data.metanrs[ i ];
+      ValueMetaInterface fromMeta = rowMeta.getValueMeta( index );
+      ValueMetaInterface toMeta = data.metadataRowMeta.getValueMeta( index );
+
+      boolean toNormalStorage = fromMeta.isStorageBinaryString()
+        && meta.getMeta()[ i ].getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL;
+      boolean toType =
+        meta.getMeta()[ i ].getType() != ValueMetaInterface.TYPE_NONE && fromMeta.getType() != toMeta.getType();
+      if ( !toNormalStorage && !toType ) {
+        continue;
+      }
+
+      Object[] values = new Object[ batch.size() ];
+      for ( int r = 0; r < values.length; r++ ) {
+        Object value = columns[ index ].getObject( r );
+        try {
+          if ( toNormalStorage ) {
+            value = fromMeta.convertBinaryStringToNativeType( (byte[]) value );
+          }
+          if ( toType ) {
+            value = toMeta.convertData( fromMeta, value );
+          }
+        } catch ( KettleValueException e ) {
+          throw new KettleConversionException( e.getMessage(), Collections.<Exception>singletonList( e ),
+            Collections.singletonList( toMeta ), batch.getRow( r ) );
+        }
+        values[ r ] = value;
+      }
+      columns[ index ] = RowBatch.toColumn( toMeta, values, values.length );
+    }
+
+    return new RowBatch( data.metadataRowMeta, columns, batch.size() );
+  }
+
+  /**
+   * Looks up the selected fields and the unspecified fields to add after them.
+   *
+   * @return false if a field can't be found or is specified more than once
+   */
+  private boolean prepareSelect( RowMetaInterface rowMeta ) {
+    // We need to create a new meta-data row to drive the output
+    // We also want to know the indexes of the selected fields in the source row.
+    //
+    data.fieldnrs = new int[ meta.getSelectFields().length ];
+    for ( int i = 0; i < data.fieldnrs.length; i++ ) {
+      data.fieldnrs[ i ] = rowMeta.indexOfValue( meta.getSelectFields()[ i ].getName() );
+      if ( data.fieldnrs[ i ] < 0 ) {
+        logError( BaseMessages.getString( PKG, "SelectValues.Log.CouldNotFindField", meta.getSelectFields()[i]
+            .getName() ) );
+        setErrors( 1 );
+        stopAll();
+        return false;
+      }
+    }
+
+    // Check for doubles in the selected fields... AFTER renaming!!
+    //
+    int[] cnt = new int[ meta.getSelectFields().length ];
+    for ( int i = 0; i < meta.getSelectFields().length; i++ ) {
+      cnt[ i ] = 0;
+      for ( int j = 0; j < meta.getSelectFields().length; j++ ) {
+        String one = Const.NVL( meta.getSelectFields()[ i ].getRename(), meta.getSelectFields()[ i ].getName() );
+        String two = Const.NVL( meta.getSelectFields()[ j ].getRename(), meta.getSelectFields()[ j ].getName() );
+        if ( one.equals( two ) ) {
+          cnt[ i ]++;
+        }
+
+        if ( cnt[ i ] > 1 ) {
+          logError( BaseMessages.getString( PKG, "SelectValues.Log.FieldCouldNotSpecifiedMoreThanTwice", one ) );
+          setErrors( 1 );
+          stopAll();
+          return false;
+        }
+      }
+    }
+
+    // See if we need to include (and sort) the non-specified fields as well...
+    //
+    if ( meta.isSelectingAndSortingUnspecifiedFields() ) {
+      // Select the unspecified fields.
+      // Sort the fields
+      // Add them after the specified fields...
+      //
+      List<String> extra = new ArrayList<>();
+      ArrayList<Integer> unspecifiedKeyNrs = new ArrayList<>();
+      for ( int i = 0; i < rowMeta.size(); i++ ) {
+        String fieldName = rowMeta.getValueMeta( i ).getName();
+        if ( Const.indexOfString( fieldName, meta.getSelectName() ) < 0 ) {
+          extra.add( fieldName );
+        }
+      }
+      Collections.sort( extra );
+      for ( String fieldName : extra ) {
+        int index = rowMeta.indexOfValue( fieldName );
+        unspecifiedKeyNrs.add( index );
+      }
+
+      // Create the extra field list...
+      //
+      data.extraFieldnrs = new int[ unspecifiedKeyNrs.size() ];
+      for ( int i = 0; i < data.extraFieldnrs.length; i++ ) {
+        data.extraFieldnrs[ i ] = unspecifiedKeyNrs.get( i );
+      }
+    } else {
+      data.extraFieldnrs = new int[] {};
+    }
+    return true;
+  }
+
+  /**
+   * Looks up the fields to remove.
+   *
+   * @return false if a field can't be found or is specified more than once
+   */
+  private boolean prepareRemove( RowMetaInterface rowMeta ) {
+    data.removenrs = new int[ meta.getDeleteName().length ];
+    for ( int i = 0; i < data.removenrs.length; i++ ) {
+      data.removenrs[ i ] = rowMeta.indexOfValue( meta.getDeleteName()[ i ] );
+      if ( data.removenrs[ i ] < 0 ) {
+        logError( BaseMessages.getString( PKG, "SelectValues.Log.CouldNotFindField", meta.getDeleteName()[ i ] ) );
+        setErrors( 1 );
+        stopAll();
+        return false;
+      }
+    }
+
+    // Check for doubles in the selected fields...
+    int[] cnt = new int[ meta.getDeleteName().length ];
+    for ( int i = 0; i < meta.getDeleteName().length; i++ ) {
+      cnt[ i ] = 0;
+      for ( int j = 0; j < meta.getDeleteName().length; j++ ) {
+        if ( meta.getDeleteName()[ i ].equals( meta.getDeleteName()[ j ] ) ) {
+          cnt[ i ]++;
+        }
+
+        if ( cnt[ i ] > 1 ) {
+          logError( BaseMessages.getString( PKG, "SelectValues.Log.FieldCouldNotSpecifiedMoreThanTwice2",
+            meta.getDeleteName()[ i ] ) );
+          setErrors( 1 );
+          stopAll();
+          return false;
+        }
+      }
+    }
+
+    // Sort removenrs descending. So that we can delete in ascending order...
+    Arrays.sort( data.removenrs );
+    return true;
+  }
+
+  /**
+   * Looks up the fields to change and applies the metadata changes to the row metadata, to allow us to convert the
+   * data correctly, with the correct mask.
+   *
+   * @return false if a field can't be found or is specified more than once
+   */
+  private boolean prepareMetadata( RowMetaInterface rowMeta ) {
+    data.metanrs = new int[ meta.getMeta().length ];
+    for ( int i = 0; i < data.metanrs.length; i++ ) {
+      data.metanrs[ i ] = rowMeta.indexOfValue( meta.getMeta()[ i ].getName() );
+      if ( data.metanrs[ i ] < 0 ) {
+        logError( BaseMessages
+          .getString( PKG, "SelectValues.Log.CouldNotFindField", meta.getMeta()[ i ].getName() ) );
+        setErrors( 1 );
+        stopAll();
+        return false;
+      }
+    }
+
+    // Check for doubles in the selected fields...
+    int[] cnt = new int[ meta.getMeta().length ];
+    for ( int i = 0; i < meta.getMeta().length; i++ ) {
+      cnt[ i ] = 0;
+      for ( int j = 0; j < meta.getMeta().length; j++ ) {
+        if ( meta.getMeta()[ i ].getName().equals( meta.getMeta()[ j ].getName() ) ) {
+          cnt[ i ]++;
+        }
+
+        if ( cnt[ i ] > 1 ) {
+          logError( BaseMessages.getString( PKG, "SelectValues.Log.FieldCouldNotSpecifiedMoreThanTwice2", meta
+            .getMeta()[ i ].getName() ) );
+          setErrors( 1 );
+          stopAll();
+          return false;
+        }
+      }
+    }
+
+    // Also apply the metadata on the row meta to allow us to convert the data correctly, with the correct mask.
+    //
+    for ( int i = 0; i < data.metanrs.length; i++ ) {
+      SelectMetadataChange change = meta.getMeta()[ i ];
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( data.metanrs[ i ] );
+      if ( !Utils.isEmpty( change.getConversionMask() ) ) {
+        valueMeta.setConversionMask( change.getConversionMask() );
+      }
+
+      valueMeta.setDateFormatLenient( change.isDateFormatLenient() );
+      valueMeta.setDateFormatLocale( EnvUtil.createLocale( change.getDateFormatLocale() ) );
+      valueMeta.setDateFormatTimeZone( EnvUtil.createTimeZone( change.getDateFormatTimeZone() ) );
+      valueMeta.setLenientStringToNumber( change.isLenientStringToNumber() );
+
+      if ( !Utils.isEmpty( change.getEncoding() ) ) {
+        valueMeta.setStringEncoding( change.getEncoding() );
+      }
+      if ( !Utils.isEmpty( change.getDecimalSymbol() ) ) {
+        valueMeta.setDecimalSymbol( change.getDecimalSymbol() );
+      }
+      if ( !Utils.isEmpty( change.getGroupingSymbol() ) ) {
+        valueMeta.setGroupingSymbol( change.getGroupingSymbol() );
+      }
+      if ( !Utils.isEmpty( change.getCurrencySymbol() ) ) {
+        valueMeta.setCurrencySymbol( change.getCurrencySymbol() );
+      }
+    }
+    return true;
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (SelectValuesMeta) smi;
     data = (SelectValuesData) sdi;
 
+    if ( data.batchMode ) {
+      return processBatch();
+    }
+    if ( data.rowListMode ) {
+      return processRows();
+    }
+
     Object[] rowData = getRow(); // get row from rowset, wait for our turn, indicate busy!
     if ( rowData == null ) { // no more input to be expected...
 
@@ -350,13 +528,7 @@ public class SelectValues extends BaseStep implements StepInterface {
 
     if ( first ) {
       first = false;
-
-      data.selectRowMeta = getInputRowMeta().clone();
-      meta.getSelectFields( data.selectRowMeta, getStepname() );
-      data.deselectRowMeta = data.selectRowMeta.clone();
-      meta.getDeleteFields( data.deselectRowMeta );
-      data.metadataRowMeta = data.deselectRowMeta.clone();
-      meta.getMetadataFields( data.metadataRowMeta, getStepname(), this );
+      prepareRowMetas();
     }
 
     try {
@@ -407,6 +579,125 @@ public class SelectValues extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Selects, removes and changes the fields of the rows that are available right away, see getRows(). Only used without
+   * error handling: a failing row stops the step anyway.
+   */
+  private boolean processRows() throws KettleException {
+    List<Object[]> rows = getRows( RowBatch.DEFAULT_SIZE );
+    if ( rows == null ) { // no more input to be expected...
+
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      prepareRowMetas();
+    }
+
+    List<Object[]> outputRows = new ArrayList<>( rows.size() );
+    for ( Object[] rowData : rows ) {
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousStep" )
+          + getInputRowMeta().getString( rowData ) );
+      }
+
+      Object[] outputData = rowData;
+      if ( data.select ) {
+        outputData = selectValues( getInputRowMeta(), outputData );
+      }
+      if ( data.deselect ) {
+        outputData = removeValues( data.selectRowMeta, outputData );
+      }
+      if ( data.metadata ) {
+        outputData = metadataValues( data.deselectRowMeta, outputData );
+      }
+
+      if ( outputData == null ) {
+        putRows( data.metadataRowMeta, outputRows );
+        setOutputDone(); // signal end to receiver(s)
+        return false;
+      }
+      outputRows.add( outputData );
+    }
+
+    // Send the rows on their way
+    //
+    putRows( data.metadataRowMeta, outputRows );
+    if ( log.isRowLevel() ) {
+      for ( Object[] outputData : outputRows ) {
+        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextStep" )
+          + data.metadataRowMeta.getString( outputData ) );
+      }
+    }
+
+    if ( checkFeedback( getLinesRead() - rows.size(), getLinesRead() ) ) {
+      logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + getLinesRead() );
+    }
+
+    return true;
+  }
+
+  /**
+   * Selects, removes and changes the fields of a whole batch of rows. Fields are selected and removed by reordering the
+   * columns of the batch, without touching the values.
+   */
+  private boolean processBatch() throws KettleException {
+    RowBatch batch = getBatch( RowBatch.DEFAULT_SIZE );
+    if ( batch == null ) { // no more input to be expected...
+
+      setOutputDone();
+      return false;
+    }
+
+    if ( first ) {
+      first = false;
+      prepareRowMetas();
+    }
+
+    RowBatch outputBatch = batch;
+    if ( data.select ) {
+      outputBatch = selectValues( getInputRowMeta(), outputBatch );
+    }
+    if ( data.deselect && outputBatch != null ) {
+      outputBatch = removeValues( data.selectRowMeta, outputBatch );
+    }
+    if ( data.metadata && outputBatch != null ) {
+      outputBatch = metadataValues( data.deselectRowMeta, outputBatch );
+    }
+
+    if ( outputBatch == null ) {
+      setOutputDone(); // signal end to receiver(s)
+      return false;
+    }
+
+    // Send the rows on their way
+    //
+    putBatch( data.metadataRowMeta, outputBatch );
+    if ( log.isRowLevel() ) {
+      for ( int i = 0; i < outputBatch.size(); i++ ) {
+        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextStep" )
+          + data.metadataRowMeta.getString( outputBatch.getRow( i ) ) );
+      }
+    }
+
+    if ( checkFeedback( getLinesRead() - batch.size(), getLinesRead() ) ) {
+      logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + getLinesRead() );
+    }
+
+    return true;
+  }
+
+  private void prepareRowMetas() throws KettleException {
+    data.selectRowMeta = getInputRowMeta().clone();
+    meta.getSelectFields( data.selectRowMeta, getStepname() );
+    data.deselectRowMeta = data.selectRowMeta.clone();
+    meta.getDeleteFields( data.deselectRowMeta );
+    data.metadataRowMeta = data.deselectRowMeta.clone();
+    meta.getMetadataFields( data.metadataRowMeta, getStepname(), this );
+  }
+
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (SelectValuesMeta) smi;
     data = (SelectValuesData) sdi;
@@ -430,6 +721,11 @@ public class SelectValues extends BaseStep implements StepInterface {
         data.metadata = true;
       }
 
+      // Rows with errors have to be sent to the error handling one by one
+      //
+      data.batchMode = hasBatchRowSets() && !getStepMeta().isDoingErrorHandling();
+      data.rowListMode = !data.batchMode && !getStepMeta().isDoingErrorHandling();
+
       boolean atLeastOne = data.select || data.deselect || data.metadata;
       if ( !atLeastOne ) {
         setErrors( 1 );
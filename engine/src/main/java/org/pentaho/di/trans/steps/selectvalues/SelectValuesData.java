@@ -41,4 +41,10 @@ public class SelectValuesData extends BaseStepData implements StepDataInterface
   public boolean select; // "normal" selection of fields.
   public boolean deselect; // de-select mode
   public boolean metadata; // change meta-data (rename & change length/precision)
+
+  /** Process the rows a batch at a time, the step is next to a hop that carries row batches. */
+  boolean batchMode;
+
+  /** Process the rows that are available right away in one go, there is no error handling to send rows to. */
+  boolean rowListMode;
 }
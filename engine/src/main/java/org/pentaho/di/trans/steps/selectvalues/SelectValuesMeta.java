@@ -810,6 +810,11 @@ public class SelectValuesMeta extends BaseStepMeta implements StepMetaInterface
     return new SelectValuesData();
   }
 
+  @Override
+  public boolean supportsBatches() {
+    return true;
+  }
+
   /**
    * @return the selectingAndSortingUnspecifiedFields
    */
@@ -135,7 +135,8 @@ public class SimpleMapping extends BaseStep implements StepInterface {
     //
     StepWithMappingMeta.activateParams( simpleMappingData.mappingTrans, simpleMappingData.mappingTrans, this, simpleMappingData.mappingTransMeta.listParameters(),
       meta.getMappingParameters().getVariable(), meta.getMappingParameters().getInputField(), meta.getMappingParameters().isInheritingAllVariables() );
-    if ( simpleMappingData.mappingTransMeta.getTransformationType() != TransformationType.Normal ) {
+    if ( simpleMappingData.mappingTransMeta.getTransformationType() != TransformationType.Normal
+      && simpleMappingData.mappingTransMeta.getTransformationType() != TransformationType.VirtualThreads ) {
       simpleMappingData.mappingTrans.getTransMeta().setUsingThreadPriorityManagment( false );
     }
 
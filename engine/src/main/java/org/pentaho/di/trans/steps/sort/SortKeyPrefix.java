@@ -0,0 +1,130 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Normalizes the value of the first sort key into a long that compares, as an unsigned number, in the same order as
+ * {@link ValueMetaInterface#compare(Object, Object)}. Two rows with a different prefix are ordered without calling the
+ * value metadata at all, only rows with an equal prefix still need the full row comparison.<br>
+ * Strings are only normalized when they are compared case sensitive without a collator, their prefix holds the first
+ * four characters.
+ */
+final class SortKeyPrefix {
+
+  private static final int STRING_PREFIX_LENGTH = 4;
+
+  private final ValueMetaInterface valueMeta;
+  private final int fieldNr;
+
+  private SortKeyPrefix( ValueMetaInterface valueMeta, int fieldNr ) {
+    this.valueMeta = valueMeta;
+    this.fieldNr = fieldNr;
+  }
+
+  /**
+   * @return the prefix for the sort key in the given field, or null if the order of its values can't be normalized
+   */
+  static SortKeyPrefix create( ValueMetaInterface valueMeta, int fieldNr ) {
+    if ( valueMeta == null || !valueMeta.isStorageNormal() ) {
+      return null;
+    }
+    Class<?> type = valueMeta.getClass();
+    if ( type == ValueMetaString.class ) {
+      if ( valueMeta.isCaseInsensitive() || !valueMeta.isCollatorDisabled() ) {
+        return null;
+      }
+    } else if ( type != ValueMetaInteger.class && type != ValueMetaNumber.class && type != ValueMetaDate.class
+      && type != ValueMetaBoolean.class ) {
+      return null;
+    }
+    return new SortKeyPrefix( valueMeta, fieldNr );
+  }
+
+  /**
+   * Calculates the prefix of the sort key of every row.
+   */
+  SortKey[] createKeys( List<Object[]> rows ) throws KettleValueException {
+    SortKey[] keys = new SortKey[ rows.size() ];
+    for ( int i = 0; i < keys.length; i++ ) {
+      Object[] row = rows.get( i );
+      keys[ i ] = new SortKey( prefix( row[ fieldNr ] ), row );
+    }
+    return keys;
+  }
+
+  long prefix( Object value ) throws KettleValueException {
+    long prefix = valueMeta.isNull( value ) ? 0L : normalize( value );
+    return valueMeta.isSortedDescending() ? ~prefix : prefix;
+  }
+
+  private long normalize( Object value ) throws KettleValueException {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return valueMeta.getInteger( value ) ^ Long.MIN_VALUE;
+      case ValueMetaInterface.TYPE_DATE:
+        return valueMeta.getDate( value ).getTime() ^ Long.MIN_VALUE;
+      case ValueMetaInterface.TYPE_NUMBER:
+        long bits = Double.doubleToLongBits( valueMeta.getNumber( value ) );
+        return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return valueMeta.getBoolean( value ) ? 2L : 1L;
+      default:
+        String string = valueMeta.getString( value );
+        if ( valueMeta.isIgnoreWhitespace() ) {
+          string = string.trim();
+        }
+        // Missing characters count as 0 so that a string sorts before the longer strings it starts with
+        //
+        long prefix = 0L;
+        for ( int i = 0; i < STRING_PREFIX_LENGTH; i++ ) {
+          prefix = ( prefix << 16 ) | ( i < string.length() ? string.charAt( i ) : 0 );
+        }
+        return prefix;
+    }
+  }
+
+  /**
+   * A row together with the normalized prefix of its first sort key.
+   */
+  static final class SortKey {
+    final long prefix;
+    final Object[] row;
+
+    SortKey( long prefix, Object[] row ) {
+      this.prefix = prefix;
+      this.row = row;
+    }
+  }
+
+  /**
+   * Orders the keys on their prefix first and only compares the rows themselves when the prefixes are equal.
+   */
+  static Comparator<SortKey> comparator( Comparator<Object[]> rowComparator ) {
+    return ( k1, k2 ) -> {
+      int cmp = Long.compareUnsigned( k1.prefix, k2.prefix );
+      return cmp != 0 ? cmp : rowComparator.compare( k1.row, k2.row );
+    };
+  }
+}
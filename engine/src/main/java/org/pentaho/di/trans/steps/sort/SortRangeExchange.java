@@ -0,0 +1,250 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.steps.sort.SortRowsSpill.Run;
+
+/**
+ * Lets the copies of a Sort rows step sort a range of the keys each. Every copy sorts its own rows and hands in a
+ * sample of them, the splitters between the ranges are the quantiles of all the samples together. Every copy then
+ * splits its sorted rows over the ranges, copy n merges the parts of range n and the first copy passes on the merged
+ * ranges in order.<br>
+ * The exchange is shared by the copies of one step in one transformation, the waits give up as soon as the step is
+ * stopped.
+ */
+final class SortRangeExchange {
+
+  /**
+   * The number of rows sampled from every sorted run of rows
+   */
+  static final int SAMPLE_SIZE = 1000;
+
+  private static final long WAIT_MILLIS = 100L;
+
+  private final int nrCopies;
+
+  private final List<Object[]> samples = new ArrayList<>();
+  private final List<Long> weights = new ArrayList<>();
+  private int nrSampled;
+  private Object[][] splitters;
+  private RowMetaInterface rowMeta;
+  private Comparator<Object[]> rowComparator;
+
+  private final Run[][] partitions;
+  private int nrPartitioned;
+  private final Run[] results;
+  private final boolean[] published;
+  private int nrReleased;
+
+  SortRangeExchange( int nrCopies ) {
+    this.nrCopies = nrCopies;
+    this.partitions = new Run[ nrCopies ][];
+    this.results = new Run[ nrCopies ];
+    this.published = new boolean[ nrCopies ];
+  }
+
+  int getNrCopies() {
+    return nrCopies;
+  }
+
+  /**
+   * Hands in the samples of the sorted rows of a copy and waits for the samples of all the other copies.
+   *
+   * @param rowMeta
+   *          the layout of the rows, null if the copy didn't get any row
+   * @param rowComparator
+   *          the order of the rows, null if the copy didn't get any row
+   * @param stopped
+   *          true once the step is stopped
+   * @return the nrCopies-1 splitters, a row goes to the first range with a splitter that isn't smaller than the row.
+   *         null if the step was stopped while waiting.
+   */
+  synchronized Object[][] putSamples( Samples copySamples, RowMetaInterface rowMeta,
+                                      Comparator<Object[]> rowComparator, BooleanSupplier stopped )
+    throws InterruptedException {
+    if ( !copySamples.rows.isEmpty() && this.rowMeta == null ) {
+      this.rowMeta = rowMeta;
+      this.rowComparator = rowComparator;
+    }
+    samples.addAll( copySamples.rows );
+    weights.addAll( copySamples.weights );
+    nrSampled++;
+    if ( nrSampled == nrCopies ) {
+      splitters = computeSplitters();
+      notifyAll();
+    }
+    while ( splitters == null ) {
+      if ( stopped.getAsBoolean() ) {
+        return null;
+      }
+      wait( WAIT_MILLIS );
+    }
+    return splitters;
+  }
+
+  /**
+   * @return the weighted quantiles of the samples, nulls if there aren't any
+   */
+  private Object[][] computeSplitters() {
+    Object[][] result = new Object[ nrCopies - 1 ][];
+    if ( samples.isEmpty() ) {
+      return result;
+    }
+    Integer[] order = new Integer[ samples.size() ];
+    long total = 0L;
+    for ( int i = 0; i < order.length; i++ ) {
+      order[ i ] = i;
+      total += weights.get( i );
+    }
+    Arrays.sort( order, ( i1, i2 ) -> rowComparator.compare( samples.get( i1 ), samples.get( i2 ) ) );
+
+    long cumulative = 0L;
+    int s = 0;
+    for ( int range = 0; range < result.length; range++ ) {
+      long target = total * ( range + 1 ) / nrCopies;
+      while ( s < order.length - 1 && cumulative + weights.get( order[ s ] ) < target ) {
+        cumulative += weights.get( order[ s ] );
+        s++;
+      }
+      result[ range ] = samples.get( order[ s ] );
+    }
+    samples.clear();
+    weights.clear();
+    return result;
+  }
+
+  /**
+   * @return the layout of the rows as handed in by the first copy with rows, null if none of the copies got any row
+   */
+  synchronized RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  synchronized Comparator<Object[]> getRowComparator() {
+    return rowComparator;
+  }
+
+  /**
+   * Hands in the sorted parts of the rows of a copy, one run per range, and waits for the parts of all the other
+   * copies.
+   *
+   * @return false if the step was stopped while waiting
+   */
+  synchronized boolean putPartitions( int copyNr, Run[] ranges, BooleanSupplier stopped )
+    throws InterruptedException {
+    partitions[ copyNr ] = ranges;
+    nrPartitioned++;
+    if ( nrPartitioned == nrCopies ) {
+      notifyAll();
+    }
+    while ( nrPartitioned < nrCopies ) {
+      if ( stopped.getAsBoolean() ) {
+        return false;
+      }
+      wait( WAIT_MILLIS );
+    }
+    return true;
+  }
+
+  /**
+   * @return the parts of a range of all the copies, in the order of the copies. Each run is handed out only once.
+   */
+  synchronized List<Run> takePartitions( int range ) {
+    List<Run> runs = new ArrayList<>( nrCopies );
+    for ( Run[] ranges : partitions ) {
+      if ( ranges != null && ranges[ range ] != null ) {
+        runs.add( ranges[ range ] );
+        ranges[ range ] = null;
+      }
+    }
+    return runs;
+  }
+
+  /**
+   * Publishes the merged rows of a range.
+   */
+  synchronized void putResult( int range, Run run ) {
+    results[ range ] = run;
+    published[ range ] = true;
+    notifyAll();
+  }
+
+  /**
+   * Waits for the merged rows of a range.
+   *
+   * @return null if the step was stopped while waiting
+   */
+  synchronized Run takeResult( int range, BooleanSupplier stopped ) throws InterruptedException {
+    while ( !published[ range ] ) {
+      if ( stopped.getAsBoolean() ) {
+        return null;
+      }
+      wait( WAIT_MILLIS );
+    }
+    Run run = results[ range ];
+    results[ range ] = null;
+    return run;
+  }
+
+  /**
+   * Called by every copy once it is done, the last one removes the runs that were never read because the step was
+   * stopped.
+   */
+  synchronized void release() {
+    nrReleased++;
+    if ( nrReleased == nrCopies ) {
+      for ( Run[] ranges : partitions ) {
+        if ( ranges != null ) {
+          for ( Run run : ranges ) {
+            if ( run != null ) {
+              run.delete();
+            }
+          }
+        }
+      }
+      for ( Run run : results ) {
+        if ( run != null ) {
+          run.delete();
+        }
+      }
+    }
+    notifyAll();
+  }
+
+  /**
+   * The samples one copy takes from its sorted rows, a sample weighs as much as the number of rows it stands for.
+   */
+  static final class Samples {
+    final List<Object[]> rows = new ArrayList<>();
+    final List<Long> weights = new ArrayList<>();
+
+    /**
+     * Takes every stride-th row of a sorted run of rows.
+     */
+    void add( List<Object[]> sortedRows ) {
+      int stride = Math.max( 1, sortedRows.size() / SAMPLE_SIZE );
+      for ( int i = stride - 1; i < sortedRows.size(); i += stride ) {
+        rows.add( sortedRows.get( i ) );
+        weights.add( (long) stride );
+      }
+    }
+  }
+}
@@ -13,26 +13,17 @@
 
 package org.pentaho.di.trans.steps.sort;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
-import org.apache.commons.vfs2.FileObject;
-import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
 import org.pentaho.di.core.exception.KettleException;
-import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -45,6 +36,9 @@ import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.sort.SortKeyPrefix.SortKey;
+import org.pentaho.di.trans.steps.sort.SortRowsSpill.Run;
+import org.pentaho.di.trans.steps.sort.SortRowsSpill.RunWriter;
 
 /**
  * Sort the rows in the input-streams based on certain criteria
@@ -55,6 +49,8 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 public class SortRows extends BaseStep implements StepInterface {
   private static Class<?> PKG = SortRows.class; // for i18n
 
+  private static final String SNAPPY = "Snappy";
+
   private SortRowsMeta meta;
   private SortRowsData data;
 
@@ -121,247 +117,78 @@ public class SortRows extends BaseStep implements StepInterface {
 
     // First sort the rows in buffer[]
     quickSort( data.buffer );
+    if ( data.rangeSamples != null ) {
+      data.rangeSamples.add( data.buffer );
+    }
 
-    // Then write them to disk...
-    DataOutputStream dos;
-    GZIPOutputStream gzos;
-    int p;
-
-    try {
-      FileObject fileObject =
-          KettleVFS.getInstance( getTransMeta().getBowl() )
-            .createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ), getTransMeta() );
-
-      data.files.add( fileObject ); // Remember the files!
-      OutputStream outputStream = KettleVFS.getInstance( getTransMeta().getBowl() )
-        .getOutputStream( fileObject, false );
-      if ( data.compressFiles ) {
-        gzos = new GZIPOutputStream( new BufferedOutputStream( outputStream ) );
-        dos = new DataOutputStream( gzos );
-      } else {
-        dos = new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
-        gzos = null;
-      }
-
-      // Just write the data, nothing else
-      List<Integer> duplicates = new ArrayList<Integer>();
+    // Then leave out the duplicates...
+    List<Object[]> rows = data.buffer;
+    if ( meta.isOnlyPassingUniqueRows() ) {
+      rows = new ArrayList<Object[]>( data.buffer.size() );
       Object[] previousRow = null;
-      if ( meta.isOnlyPassingUniqueRows() ) {
-        int index = 0;
-        while ( index < data.buffer.size() ) {
-          Object[] row = data.buffer.get( index );
-          if ( previousRow != null ) {
-            int result = data.outputRowMeta.compare( row, previousRow, data.fieldnrs );
-            if ( result == 0 ) {
-              duplicates.add( index );
-              if ( log.isRowLevel() ) {
-                logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
-                    .getString( row ) ) );
-              }
-            }
+      for ( Object[] row : data.buffer ) {
+        if ( previousRow != null && data.outputRowMeta.compare( row, previousRow, data.fieldnrs ) == 0 ) {
+          if ( log.isRowLevel() ) {
+            logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
+                .getString( row ) ) );
           }
-          index++;
-          previousRow = row;
+        } else {
+          rows.add( row );
         }
+        previousRow = row;
       }
+    }
 
-      // How many records do we have left?
-      data.bufferSizes.add( data.buffer.size() - duplicates.size() );
+    // ... and write them to disk in the background
+    data.spill.write( rows );
 
-      int duplicatesIndex = 0;
-      for ( p = 0; p < data.buffer.size(); p++ ) {
-        boolean skip = false;
-        if ( duplicatesIndex < duplicates.size() ) {
-          if ( p == duplicates.get( duplicatesIndex ) ) {
-            skip = true;
-            duplicatesIndex++;
-          }
-        }
-        if ( !skip ) {
-          data.outputRowMeta.writeData( dos, data.buffer.get( p ) );
-        }
-      }
-
-      if ( data.sortSize < 0 ) {
-        if ( data.buffer.size() > data.minSortSize ) {
-          data.minSortSize = data.buffer.size(); // if we did it once, we can do
-                                                 // it again.
+    if ( data.sortSize < 0 ) {
+      if ( data.buffer.size() > data.minSortSize ) {
+        data.minSortSize = data.buffer.size(); // if we did it once, we can do
+                                               // it again.
 
-          // Memory usage goes up over time, even with garbage collection
-          // We need pointers, file handles, etc.
-          // As such, we're going to lower the min sort size a bit
-          //
-          data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
-        }
+        // Memory usage goes up over time, even with garbage collection
+        // We need pointers, file handles, etc.
+        // As such, we're going to lower the min sort size a bit
+        //
+        data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
       }
+    }
 
-      // Clear the list
-      data.buffer.clear();
-
-      // Close temp-file
-      dos.close(); // close data stream
-      if ( gzos != null ) {
-        gzos.close(); // close gzip stream
-      }
-      outputStream.close(); // close file stream
+    // Start a new buffer, the rows of the old one are still being written
+    data.buffer = new ArrayList<Object[]>( 5000 );
 
-      // How much memory do we have left?
-      //
-      data.freeMemoryPct = Const.getPercentageFreeMemory();
-      data.freeCounter = 0;
-      if ( data.sortSize <= 0 ) {
-        if ( log.isDetailed() ) {
-          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
-        }
+    // How much memory do we have left?
+    //
+    data.freeMemoryPct = Const.getPercentageFreeMemory();
+    data.freeCounter = 0;
+    if ( data.sortSize <= 0 ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
       }
-
-    } catch ( Exception e ) {
-      throw new KettleException( "Error processing temp-file!", e );
     }
 
     data.getBufferIndex = 0;
   }
 
-  private DataInputStream getDataInputStream( GZIPInputStream gzipInputStream ) {
-    DataInputStream result = new DataInputStream( gzipInputStream );
-    data.gzis.add( gzipInputStream );
-    return result;
+  private boolean isSpilled() {
+    return data.spill != null && !data.spill.isEmpty();
   }
 
   // get sorted rows from available files in iterative manner.
   // that means call to this method will continue to return rows
   // till all temp files will not be read to the end.
-  Object[] getBuffer() throws KettleValueException {
-    Object[] retval;
-
-    // Open all files at once and read one row from each file...
-    if ( data.files.size() > 0 && ( data.dis.size() == 0 || data.fis.size() == 0 ) ) {
-      if ( log.isBasic() ) {
-        logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
-      }
-
-      try {
-        for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
-          FileObject fileObject = data.files.get( f );
-          String filename = KettleVFS.getFilename( fileObject );
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
-          }
-          InputStream fi = KettleVFS.getInputStream( fileObject );
-          DataInputStream di;
-          data.fis.add( fi );
-          if ( data.compressFiles ) {
-            di = getDataInputStream( new GZIPInputStream( new BufferedInputStream( fi ) ) );
-          } else {
-            di = new DataInputStream( new BufferedInputStream( fi, 50000 ) );
-          }
-          data.dis.add( di );
-
-          // How long is the buffer?
-          int buffersize = data.bufferSizes.get( f );
-
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
-                filename, buffersize ) );
-          }
-
-          if ( buffersize > 0 ) {
-            Object[] row = data.outputRowMeta.readData( di );
-            data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
-          }
-        }
-
-        // Sort the data row buffer
-        Collections.sort( data.tempRows, data.comparator );
-      } catch ( Exception e ) {
-        logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
-      }
-    }
-
-    if ( data.files.size() == 0 ) {
-      // read from in-memory processing
-
-      if ( data.getBufferIndex < data.buffer.size() ) {
-        retval = data.buffer.get( data.getBufferIndex );
-        data.getBufferIndex++;
-      } else {
-        retval = null;
-      }
-    } else {
+  Object[] getBuffer() throws KettleException {
+    if ( isSpilled() ) {
       // read from disk processing
+      return data.spill.nextRow();
+    }
 
-      if ( data.rowbuffer.size() == 0 ) {
-        retval = null;
-      } else {
-        // We now have "filenr" rows waiting: which one is the smallest?
-        //
-        if ( log.isRowLevel() ) {
-          for ( int i = 0; i < data.rowbuffer.size() && !isStopped(); i++ ) {
-            Object[] b = data.rowbuffer.get( i );
-            logRowlevel( BaseMessages
-                .getString( PKG, "SortRows.RowLevel.PrintRow", i, data.outputRowMeta.getString( b ) ) );
-          }
-        }
-
-        RowTempFile rowTempFile = data.tempRows.remove( 0 );
-        retval = rowTempFile.row;
-        int smallest = rowTempFile.fileNumber;
-
-        // now get another Row for position smallest
-
-        FileObject file = data.files.get( smallest );
-        DataInputStream di = data.dis.get( smallest );
-        InputStream fi = data.fis.get( smallest );
-
-        try {
-          Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
-
-          int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
-          if ( index < 0 ) {
-            data.tempRows.add( index * ( -1 ) - 1, extra );
-          } else {
-            data.tempRows.add( index, extra );
-          }
-        } catch ( KettleFileException fe ) { // empty file or EOF mostly
-          GZIPInputStream gzfi = ( data.compressFiles ) ? data.gzis.get( smallest ) : null;
-          try {
-            di.close();
-            fi.close();
-            if ( gzfi != null ) {
-              gzfi.close();
-            }
-            file.delete();
-          } catch ( IOException e ) {
-            logError( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", smallest, file.toString() ) );
-            setErrors( 1 );
-            stopAll();
-            return null;
-          }
-
-          data.files.remove( smallest );
-          data.dis.remove( smallest );
-          data.fis.remove( smallest );
-
-          if ( gzfi != null ) {
-            data.gzis.remove( smallest );
-          }
-
-          // Also update all file numbers in in data.tempRows if they are larger
-          // than smallest.
-          //
-          for ( RowTempFile rtf : data.tempRows ) {
-            if ( rtf.fileNumber > smallest ) {
-              rtf.fileNumber--;
-            }
-          }
-        } catch ( SocketTimeoutException e ) {
-          throw new KettleValueException( e ); // should never happen on local files
-        }
-      }
+    // read from in-memory processing
+    if ( data.getBufferIndex < data.buffer.size() ) {
+      return data.buffer.get( data.getBufferIndex++ );
     }
-    return retval;
+    return null;
   }
 
   @Override
@@ -377,7 +204,10 @@ public class SortRows extends BaseStep implements StepInterface {
 
       // do we have any row at start processing?
       if ( r == null ) {
-        // seems that we don't
+        // seems that we don't, but the other copies still need this one to sort their key ranges
+        if ( data.rangeExchange != null ) {
+          passRanges();
+        }
         this.setOutputDone();
         return false;
       }
@@ -411,7 +241,6 @@ public class SortRows extends BaseStep implements StepInterface {
       data.outputRowMeta = inputRowMeta.clone();
       meta.getFields( getTransMeta().getBowl(), data.outputRowMeta, getStepname(), null, null, this, repository,
         metaStore );
-      data.comparator = new RowTemapFileComparator( data.outputRowMeta, data.fieldnrs );
 
       for ( int i = 0; i < fieldNames.length; i++ ) {
         data.fieldnrs[i] = inputRowMeta.indexOfValue( fieldNames[i] );
@@ -431,13 +260,24 @@ public class SortRows extends BaseStep implements StepInterface {
         i++;
       }
       data.rowComparator = new RowObjectArrayComparator( data.outputRowMeta, data.fieldnrs );
+      if ( data.fieldnrs.length > 0 ) {
+        data.sortKeyPrefix =
+          SortKeyPrefix.create( data.outputRowMeta.getValueMeta( data.fieldnrs[0] ), data.fieldnrs[0] );
+      }
+      data.sortKeyComparator = SortKeyPrefix.comparator( data.rowComparator );
+
+      data.spill = createSpill();
     } // end if first
 
     // it is not first row and it is null
     if ( r == null ) {
       // flush result and set output done.
-      this.preSortBeforeFlush();
-      this.passBuffer();
+      if ( data.rangeExchange != null ) {
+        passRanges();
+      } else {
+        this.preSortBeforeFlush();
+        this.passBuffer();
+      }
       this.setOutputDone();
       return false;
     }
@@ -488,16 +328,34 @@ public class SortRows extends BaseStep implements StepInterface {
    *
    */
   void passBuffer() throws KettleException {
-    // Now we can start the output!
-    //
-    Object[] r = getBuffer();
-    Object[] previousRow = null;
-
     // log time spent for external merge (expected time consuming operation)
-    if ( log.isDebug() && !data.files.isEmpty() ) {
+    if ( log.isDebug() && isSpilled() ) {
       this.logDebug( BaseMessages.getString( PKG, "SortRows.Debug.ExternalMergeStarted" ) );
     }
 
+    passRows( null );
+
+    if ( log.isDebug() && isSpilled() ) {
+      this.logDebug( BaseMessages.getString( PKG, "SortRows.Debug.ExternalMergeFinished" ) );
+    }
+
+    // Clear out the buffer for the next batch
+    //
+    clearBuffers();
+  }
+
+  /**
+   * Passes the sorted rows to the next steps until there are no more.
+   *
+   * @param previousRow
+   *          the last row passed on before, to leave out its duplicates
+   * @return the last row passed on
+   */
+  private Object[] passRows( Object[] previousRow ) throws KettleException {
+    // Now we can start the output!
+    //
+    Object[] r = getBuffer();
+
     while ( r != null && !isStopped() ) {
       if ( log.isRowLevel() ) {
         logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.ReadRow", data.outputRowMeta.getString( r ) ) );
@@ -526,14 +384,151 @@ public class SortRows extends BaseStep implements StepInterface {
 
       r = getBuffer();
     }
+    return previousRow;
+  }
 
-    if ( log.isDebug() && !data.files.isEmpty() ) {
-      this.logDebug( BaseMessages.getString( PKG, "SortRows.Debug.ExternalMergeFinished" ) );
+  /**
+   * Sorts a range of the keys in every copy of the step. The copies split their sorted rows over the ranges at the
+   * quantiles of a sample of all the rows, copy n merges the parts of range n and the first copy passes on the ranges
+   * one after the other. The other copies don't pass on any row.
+   */
+  private void passRanges() throws KettleException {
+    SortRangeExchange exchange = data.rangeExchange;
+    try {
+      if ( data.outputRowMeta != null ) {
+        preSortBeforeFlush();
+      }
+      Object[][] splitters =
+        exchange.putSamples( data.rangeSamples, data.outputRowMeta, data.rowComparator, this::isStopped );
+      if ( splitters == null || exchange.getRowMeta() == null ) {
+        // stopped, or none of the copies got any row
+        return;
+      }
+      if ( data.outputRowMeta == null ) {
+        initFromOtherCopy( exchange );
+      }
+
+      if ( !exchange.putPartitions( getCopy(), partition( splitters ), this::isStopped ) ) {
+        return;
+      }
+
+      if ( getCopy() > 0 ) {
+        boolean inMemory = true;
+        for ( Run run : exchange.takePartitions( getCopy() ) ) {
+          inMemory &= run.file == null;
+          data.spill.addRun( run );
+        }
+        Run merged = data.spill.mergeAll( inMemory );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.MergedKeyRange", merged.size, getCopy() ) );
+        }
+        exchange.putResult( getCopy(), merged );
+      } else {
+        Object[] previousRow = null;
+        for ( int range = 0; range < exchange.getNrCopies() && !isStopped(); range++ ) {
+          if ( range == 0 ) {
+            for ( Run run : exchange.takePartitions( range ) ) {
+              data.spill.addRun( run );
+            }
+          } else {
+            Run run = exchange.takeResult( range, this::isStopped );
+            if ( run == null ) {
+              break;
+            }
+            data.spill.addRun( run );
+          }
+          previousRow = passRows( previousRow );
+          data.spill.clear();
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } finally {
+      clearBuffers();
     }
+  }
 
-    // Clear out the buffer for the next batch
-    //
-    clearBuffers();
+  /**
+   * A copy without any row of its own takes the layout of the rows from a copy that got rows.
+   */
+  private void initFromOtherCopy( SortRangeExchange exchange ) throws KettleException {
+    data.outputRowMeta = exchange.getRowMeta();
+    data.rowComparator = exchange.getRowComparator();
+    String[] fieldNames = meta.getFieldName();
+    data.fieldnrs = new int[fieldNames.length];
+    for ( int i = 0; i < fieldNames.length; i++ ) {
+      data.fieldnrs[i] = data.outputRowMeta.indexOfValue( fieldNames[i] );
+    }
+    data.spill = createSpill();
+  }
+
+  /**
+   * Splits the sorted rows of this copy over the key ranges, a row goes to the first range with a splitter that isn't
+   * smaller than the row.
+   *
+   * @return the sorted rows of every range
+   */
+  private Run[] partition( Object[][] splitters ) throws KettleException {
+    Run[] parts = new Run[splitters.length + 1];
+    if ( !isSpilled() ) {
+      // The parts are views on the sorted buffer, a new buffer is started to keep them intact
+      List<Object[]> rows = data.buffer;
+      data.buffer = new ArrayList<Object[]>( 5000 );
+      int from = 0;
+      for ( int range = 0; range < splitters.length; range++ ) {
+        int to = upperBound( rows, from, splitters[range] );
+        parts[range] = new Run( rows.subList( from, to ) );
+        from = to;
+      }
+      parts[splitters.length] = new Run( rows.subList( from, rows.size() ) );
+      return parts;
+    }
+
+    int range = 0;
+    RunWriter writer = data.spill.createRunWriter( false );
+    try {
+      Object[] row = data.spill.nextRow();
+      while ( row != null ) {
+        while ( range < splitters.length && data.rowComparator.compare( row, splitters[range] ) > 0 ) {
+          parts[range++] = writer.close();
+          writer = data.spill.createRunWriter( false );
+        }
+        writer.add( row );
+        row = data.spill.nextRow();
+      }
+      parts[range] = writer.close();
+    } catch ( KettleException e ) {
+      writer.discard();
+      for ( Run part : parts ) {
+        if ( part != null ) {
+          part.delete();
+        }
+      }
+      throw e;
+    }
+    for ( range++; range < parts.length; range++ ) {
+      parts[range] = new Run( new ArrayList<Object[]>() );
+    }
+    data.spill.clear();
+    return parts;
+  }
+
+  /**
+   * @return the index of the first row after the given one that is larger than the splitter
+   */
+  private int upperBound( List<Object[]> rows, int from, Object[] splitter ) {
+    int low = from;
+    int high = rows.size();
+    while ( low < high ) {
+      int middle = ( low + high ) >>> 1;
+      if ( data.rowComparator.compare( rows.get( middle ), splitter ) > 0 ) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
   }
 
   @Override
@@ -563,22 +558,44 @@ public class SortRows extends BaseStep implements StepInterface {
     //
     data.buffer = new ArrayList<Object[]>( 5000 );
 
-    // Buffer for reading from disk
-    //
-    data.rowbuffer = new ArrayList<Object[]>( 5000 );
-
     data.compressFiles = getBooleanValueOfVariable( meta.getCompressFilesVariable(), meta.getCompressFiles() );
 
-    data.tempRows = new ArrayList<RowTempFile>();
+    data.parallelSort = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_SORT_ROWS_PARALLEL, "Y" ) );
 
     data.minSortSize = 5000;
 
+    if ( meta.isRangePartitioned() && !meta.isGroupSortEnabled() && !getStepMeta().isClustered() ) {
+      int nrCopies = getTrans().findStepInterfaces( getStepname() ).size();
+      if ( nrCopies > 1 ) {
+        data.rangeExchange = findRangeExchange( nrCopies );
+        data.rangeSamples = new SortRangeExchange.Samples();
+      }
+    }
+
     return true;
   }
 
+  /**
+   * @return the exchange of the key ranges, kept by the first copy of the step
+   */
+  private SortRangeExchange findRangeExchange( int nrCopies ) {
+    // The copies are initialized in parallel, the data field of the first one may not be set yet
+    SortRows firstCopy = (SortRows) getTrans().findStepInterface( getStepname(), 0 );
+    SortRowsData firstData = (SortRowsData) firstCopy.getStepDataInterface();
+    synchronized ( firstData ) {
+      if ( firstData.rangeExchange == null ) {
+        firstData.rangeExchange = new SortRangeExchange( nrCopies );
+      }
+      return firstData.rangeExchange;
+    }
+  }
+
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     clearBuffers();
+    if ( data.rangeExchange != null ) {
+      data.rangeExchange.release();
+    }
     super.dispose( smi, sdi );
   }
 
@@ -587,31 +604,37 @@ public class SortRows extends BaseStep implements StepInterface {
     // Clean out the sort buffer
     data.buffer.clear();
     data.getBufferIndex = 0;
-    data.rowbuffer.clear();
 
-    // close any open DataInputStream objects
-    if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
-      for ( DataInputStream dis : data.dis ) {
-        BaseStep.closeQuietly( dis );
-      }
+    // close and remove the temp files, the next batch of a group sort starts without them
+    if ( data.spill != null ) {
+      data.spill.clear();
     }
-    // close any open InputStream objects
-    if ( ( data.fis != null ) && ( data.fis.size() > 0 ) ) {
-      for ( InputStream is : data.fis ) {
-        BaseStep.closeQuietly( is );
-      }
+  }
+
+  private SortRowsSpill createSpill() {
+    SortRowsSpill spill = new SortRowsSpill( log, data.outputRowMeta, data.rowComparator,
+      KettleVFS.getInstance( getTransMeta().getBowl() ), meta.getPrefix(),
+      environmentSubstitute( meta.getDirectory() ), getTransMeta() );
+    spill.setCompression( getSpillCompression() );
+    spill.setMaxOpenFiles( Const.toInt( getVariable( Const.KETTLE_SORT_ROWS_MAX_OPEN_FILES ),
+      SortRowsSpill.DEFAULT_MAX_OPEN_FILES ) );
+    return spill;
+  }
+
+  /**
+   * @return the codec of the temp files, null if they are not compressed
+   */
+  private CompressionProvider getSpillCompression() {
+    if ( !data.compressFiles ) {
+      return null;
     }
-    // remove temp files
-    for ( int f = 0; f < data.files.size(); f++ ) {
-      FileObject fileToDelete = data.files.get( f );
-      try {
-        if ( fileToDelete != null && fileToDelete.exists() ) {
-          fileToDelete.delete();
-        }
-      } catch ( FileSystemException e ) {
-        logError( e.getLocalizedMessage(), e );
-      }
+    String name = getVariable( Const.KETTLE_SORT_ROWS_COMPRESSION, SNAPPY );
+    CompressionProvider provider = CompressionProviderFactory.getInstance().getCompressionProviderByName( name );
+    if ( provider == null || !provider.supportsInput() || !provider.supportsOutput() ) {
+      // GZIP is what the temp files were always compressed with
+      provider = new GZIPCompressionProvider();
     }
+    return provider;
   }
 
   /**
@@ -619,7 +642,27 @@ public class SortRows extends BaseStep implements StepInterface {
    */
   void quickSort( List<Object[]> elements ) throws KettleException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      if ( data.sortKeyPrefix != null ) {
+        // Sort on the normalized prefix of the first key, only rows with the same prefix are compared in full
+        //
+        SortKey[] keys = data.sortKeyPrefix.createKeys( elements );
+        if ( data.parallelSort ) {
+          Arrays.parallelSort( keys, data.sortKeyComparator );
+        } else {
+          Arrays.sort( keys, data.sortKeyComparator );
+        }
+        for ( int i = 0; i < keys.length; i++ ) {
+          elements.set( i, keys[i].row );
+        }
+      } else if ( data.parallelSort ) {
+        Object[][] rows = elements.toArray( new Object[elements.size()][] );
+        Arrays.parallelSort( rows, data.rowComparator );
+        for ( int i = 0; i < rows.length; i++ ) {
+          elements.set( i, rows[i] );
+        }
+      } else {
+        Collections.sort( elements, data.rowComparator );
+      }
 
       long nrConversions = 0L;
       for ( ValueMetaInterface valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -644,12 +687,15 @@ public class SortRows extends BaseStep implements StepInterface {
   }
 
   private void preSortBeforeFlush() throws KettleException {
-    if ( data.files.size() > 0 ) {
+    if ( isSpilled() ) {
       // dump to dist and then read from disk
       sortExternalRows();
     } else {
       // sort in memory
       quickSort( data.buffer );
+      if ( data.rangeSamples != null ) {
+        data.rangeSamples.add( data.buffer );
+      }
     }
   }
 
@@ -680,22 +726,6 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
-  private class RowTemapFileComparator extends SortRowsComparator implements Comparator<RowTempFile> {
-    RowTemapFileComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      super( rowMeta, fieldNrs );
-    }
-
-    @Override
-    public int compare( RowTempFile o1, RowTempFile o2 ) {
-      try {
-        return rowMeta.compare( o1.row, o2.row, fieldNrs );
-      } catch ( KettleValueException e ) {
-        logError( "Error comparing rows: " + e.toString() );
-        return 0;
-      }
-    }
-  }
-
   private class RowObjectArrayComparator extends SortRowsComparator implements Comparator<Object[]> {
     RowObjectArrayComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
       super( rowMeta, fieldNrs );
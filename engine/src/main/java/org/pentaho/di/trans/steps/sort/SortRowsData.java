@@ -13,12 +13,8 @@
 
 package org.pentaho.di.trans.steps.sort;
 
-import java.io.DataInputStream;
-import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -30,18 +26,11 @@ import org.pentaho.di.trans.step.StepDataInterface;
  * @since 24-jan-2005
  */
 public class SortRowsData extends BaseStepData implements StepDataInterface {
-  public List<FileObject> files;
   public List<Object[]> buffer;
   public int getBufferIndex;
 
-  public List<InputStream> fis;
-  public List<GZIPInputStream> gzis;
-  public List<DataInputStream> dis;
-  public List<Object[]> rowbuffer;
-  public List<Integer> bufferSizes;
-
-  // To store rows and file references
-  public List<RowTempFile> tempRows;
+  // The sorted runs in temp files
+  SortRowsSpill spill;
 
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
@@ -51,9 +40,17 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
-  Comparator<RowTempFile> comparator;
   Comparator<Object[]> rowComparator;
 
+  // The normalized prefix of the first sort key, null if it can't be normalized
+  SortKeyPrefix sortKeyPrefix;
+  Comparator<SortKeyPrefix.SortKey> sortKeyComparator;
+  boolean parallelSort;
+
+  // The key ranges sorted by the copies of the step, null if every copy sorts all of its own rows
+  SortRangeExchange rangeExchange;
+  SortRangeExchange.Samples rangeSamples;
+
   public int freeCounter;
   public int freeMemoryPct;
   public int minSortSize;
@@ -70,12 +67,6 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public SortRowsData() {
     super();
 
-    files = new ArrayList<FileObject>();
-    fis = new ArrayList<InputStream>();
-    gzis = new ArrayList<GZIPInputStream>();
-    dis = new ArrayList<DataInputStream>();
-    bufferSizes = new ArrayList<Integer>();
-
     previous = null; // Heroic
   }
 
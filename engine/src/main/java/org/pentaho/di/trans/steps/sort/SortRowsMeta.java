@@ -113,6 +113,13 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
   /** The variable to use to set the compressFiles option boolean */
   private String compressFilesVariable;
 
+  /**
+   * Range partitioned: the copies of the step split the rows over key ranges, sort a range each and the first copy
+   * passes all the ranges on in order as one sorted stream
+   */
+  @Injection( name = "RANGE_PARTITIONED" )
+  private boolean rangePartitioned;
+
   public SortRowsMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -218,6 +225,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       compressFiles = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "compress" ) );
       compressFilesVariable = XMLHandler.getTagValue( stepnode, "compress_variable" );
       onlyPassingUniqueRows = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "unique_rows" ) );
+      rangePartitioned = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "range_partitioned" ) );
 
       Node fields = XMLHandler.getSubNode( stepnode, "fields" );
       int nrfields = XMLHandler.countNodes( fields, "field" );
@@ -254,6 +262,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     compressFiles = false;
     compressFilesVariable = null;
     onlyPassingUniqueRows = false;
+    rangePartitioned = false;
 
     int nrfields = 0;
 
@@ -284,6 +293,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     retval.append( "      " ).append( XMLHandler.addTagValue( "compress", compressFiles ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "compress_variable", compressFilesVariable ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "unique_rows", onlyPassingUniqueRows ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "range_partitioned", rangePartitioned ) );
 
     retval.append( "    <fields>" ).append( Const.CR );
     for ( int i = 0; i < fieldName.length; i++ ) {
@@ -314,6 +324,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       compressFilesVariable = rep.getStepAttributeString( id_step, "compress_variable" );
 
       onlyPassingUniqueRows = rep.getStepAttributeBoolean( id_step, "unique_rows" );
+      rangePartitioned = rep.getStepAttributeBoolean( id_step, "range_partitioned" );
 
       int nrfields = rep.countNrStepAttributes( id_step, "field_name" );
 
@@ -366,6 +377,7 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
       rep.saveStepAttribute( id_transformation, id_step, "compress", compressFiles );
       rep.saveStepAttribute( id_transformation, id_step, "compress_variable", compressFilesVariable );
       rep.saveStepAttribute( id_transformation, id_step, "unique_rows", onlyPassingUniqueRows );
+      rep.saveStepAttribute( id_transformation, id_step, "range_partitioned", rangePartitioned );
 
       for ( int i = 0; i < fieldName.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "field_name", fieldName[i] );
@@ -559,6 +571,21 @@ public class SortRowsMeta extends BaseStepMeta implements StepMetaInterface, Ser
     this.onlyPassingUniqueRows = onlyPassingUniqueRows;
   }
 
+  /**
+   * @return true if the copies of the step sort a key range each and the first copy passes on all the sorted rows
+   */
+  public boolean isRangePartitioned() {
+    return rangePartitioned;
+  }
+
+  /**
+   * @param rangePartitioned
+   *          true to let the copies of the step sort a key range each and the first copy pass on all the sorted rows
+   */
+  public void setRangePartitioned( boolean rangePartitioned ) {
+    this.rangePartitioned = rangePartitioned;
+  }
+
   /**
    * @return the compressFilesVariable
    */
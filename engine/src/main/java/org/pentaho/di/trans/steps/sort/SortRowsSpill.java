@@ -0,0 +1,561 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.ExecutorUtil;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.IKettleVFS;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * The temp files of the Sort rows step. Every sorted buffer becomes a run in a temp file that is written in the
+ * background while the step fills its next buffer. The runs are merged while reading them back a block of rows ahead,
+ * in several passes if there are more runs than temp files that may be open at the same time.
+ */
+final class SortRowsSpill {
+  private static Class<?> PKG = SortRows.class; // for i18n
+
+  static final int DEFAULT_MAX_OPEN_FILES = 128;
+
+  private static final int WRITE_BUFFER_SIZE = 500000;
+  private static final int READ_BUFFER_SIZE = 50000;
+  private static final int READ_AHEAD_ROWS = 500;
+
+  private final LogChannelInterface log;
+  private final RowMetaInterface rowMeta;
+  private final Comparator<RowTempFile> comparator;
+  private final IKettleVFS vfs;
+  private final String prefix;
+  private final String directory;
+  private final VariableSpace space;
+  private final ExecutorService executor = ExecutorUtil.getExecutor();
+
+  private CompressionProvider compression;
+  private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+
+  private final List<FileObject> files = new ArrayList<>();
+  private List<Run> runs = new ArrayList<>();
+  private Future<?> pendingWrite;
+  private RunMerger merger;
+
+  SortRowsSpill( LogChannelInterface log, RowMetaInterface rowMeta, Comparator<Object[]> rowComparator,
+                 IKettleVFS vfs, String prefix, String directory, VariableSpace space ) {
+    this.log = log;
+    this.rowMeta = rowMeta;
+    this.vfs = vfs;
+    this.prefix = prefix;
+    this.directory = directory;
+    this.space = space;
+
+    // Equal rows are taken from the earliest run first, this keeps the sort stable
+    this.comparator = ( o1, o2 ) -> {
+      int cmp = rowComparator.compare( o1.row, o2.row );
+      return cmp != 0 ? cmp : Integer.compare( o1.fileNumber, o2.fileNumber );
+    };
+  }
+
+  /**
+   * @param compression
+   *          the codec of the temp files, null to write them uncompressed
+   */
+  void setCompression( CompressionProvider compression ) {
+    this.compression = compression;
+  }
+
+  /**
+   * @param maxOpenFiles
+   *          the number of runs merged at the same time, the runs are first merged into fewer larger runs if there are
+   *          more
+   */
+  void setMaxOpenFiles( int maxOpenFiles ) {
+    this.maxOpenFiles = Math.max( 2, maxOpenFiles );
+  }
+
+  boolean isEmpty() {
+    return runs.isEmpty();
+  }
+
+  int getNrRuns() {
+    return runs.size();
+  }
+
+  /**
+   * Adds a sorted run that was written somewhere else, the spill owns it from now on and removes its temp file.
+   */
+  void addRun( Run run ) throws KettleException {
+    waitForWrite();
+    runs.add( run );
+    if ( run.file != null ) {
+      files.add( run.file );
+    }
+  }
+
+  /**
+   * Writes the sorted rows as a new run in the background. The list is owned by the spill from now on, the previous
+   * run is written completely first.
+   */
+  void write( List<Object[]> rows ) throws KettleException {
+    waitForWrite();
+
+    Run run = new Run( createTempFile(), rows.size() );
+    runs.add( run );
+    pendingWrite = executor.submit( () -> {
+      writeRun( run, rows );
+      return null;
+    } );
+  }
+
+  private void writeRun( Run run, List<Object[]> rows ) throws KettleException {
+    try ( DataOutputStream outputStream = openOutputStream( run.file ) ) {
+      for ( Object[] row : rows ) {
+        rowMeta.writeData( outputStream, row );
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( "Error processing temp-file!", e );
+    }
+  }
+
+  private void waitForWrite() throws KettleException {
+    if ( pendingWrite != null ) {
+      try {
+        pendingWrite.get();
+      } catch ( ExecutionException e ) {
+        throw new KettleException( "Error processing temp-file!", e.getCause() );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( e );
+      } finally {
+        pendingWrite = null;
+      }
+    }
+  }
+
+  /**
+   * @return the next row of all the runs merged, null once all of them have been read
+   */
+  Object[] nextRow() throws KettleException {
+    if ( merger == null ) {
+      waitForWrite();
+      if ( log.isBasic() ) {
+        log.logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", runs.size() ) );
+      }
+      while ( runs.size() > maxOpenFiles ) {
+        mergePass();
+      }
+      merger = new RunMerger( runs );
+    }
+    return merger.next();
+  }
+
+  /**
+   * Merges all the runs into a single run. The spill is empty afterwards and the caller owns the run, the temp file of
+   * the run isn't removed when the spill is cleared.
+   *
+   * @param inMemory
+   *          true to merge into a list of rows, false to merge into a temp file
+   */
+  Run mergeAll( boolean inMemory ) throws KettleException {
+    waitForWrite();
+    while ( runs.size() > maxOpenFiles ) {
+      mergePass();
+    }
+    Run merged;
+    if ( runs.size() == 1 ) {
+      merged = runs.get( 0 );
+      files.remove( merged.file );
+    } else {
+      RunWriter writer = new RunWriter( inMemory );
+      RunMerger runsMerger = new RunMerger( runs );
+      try {
+        Object[] row = runsMerger.next();
+        while ( row != null ) {
+          writer.add( row );
+          row = runsMerger.next();
+        }
+        merged = writer.close();
+      } catch ( KettleException e ) {
+        writer.discard();
+        throw e;
+      } finally {
+        runsMerger.close();
+      }
+    }
+    runs.clear();
+    clear();
+    return merged;
+  }
+
+  /**
+   * @return a writer of a new sorted run, the caller owns the run
+   */
+  RunWriter createRunWriter( boolean inMemory ) throws KettleException {
+    return new RunWriter( inMemory );
+  }
+
+  /**
+   * Merges every group of maxOpenFiles runs into one larger run. The runs stay in the order they were written.
+   */
+  private void mergePass() throws KettleException {
+    List<Run> merged = new ArrayList<>();
+    for ( int i = 0; i < runs.size(); i += maxOpenFiles ) {
+      List<Run> group = runs.subList( i, Math.min( i + maxOpenFiles, runs.size() ) );
+      merged.add( group.size() == 1 ? group.get( 0 ) : mergeRuns( group ) );
+    }
+    if ( log.isDetailed() ) {
+      log.logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.MergingTempFiles", runs.size(),
+        merged.size() ) );
+    }
+    runs = merged;
+  }
+
+  private Run mergeRuns( List<Run> group ) throws KettleException {
+    long size = 0L;
+    for ( Run run : group ) {
+      size += run.size;
+    }
+    Run merged = new Run( createTempFile(), size );
+    RunMerger groupMerger = new RunMerger( group );
+    try ( DataOutputStream outputStream = openOutputStream( merged.file ) ) {
+      Object[] row = groupMerger.next();
+      while ( row != null ) {
+        rowMeta.writeData( outputStream, row );
+        row = groupMerger.next();
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( "Error processing temp-file!", e );
+    } finally {
+      groupMerger.close();
+    }
+    return merged;
+  }
+
+  /**
+   * Closes and removes all the temp files, the spill can be used again for the next group of rows.
+   */
+  void clear() {
+    try {
+      waitForWrite();
+    } catch ( KettleException e ) {
+      // The run is removed anyway
+    }
+    if ( merger != null ) {
+      merger.close();
+      merger = null;
+    }
+    for ( FileObject file : files ) {
+      delete( file );
+    }
+    files.clear();
+    runs.clear();
+  }
+
+  private FileObject createTempFile() throws KettleException {
+    FileObject file = vfs.createTempFile( prefix, ".tmp", directory, space );
+    files.add( file );
+    return file;
+  }
+
+  private DataOutputStream openOutputStream( FileObject file ) throws IOException {
+    OutputStream outputStream = vfs.getOutputStream( file, false );
+    if ( compression != null ) {
+      outputStream = compression.createOutputStream( outputStream );
+    }
+    return new DataOutputStream( new BufferedOutputStream( outputStream, WRITE_BUFFER_SIZE ) );
+  }
+
+  private DataInputStream openInputStream( FileObject file ) throws IOException {
+    InputStream inputStream = KettleVFS.getInputStream( file );
+    if ( compression != null ) {
+      inputStream = compression.createInputStream( new BufferedInputStream( inputStream, READ_BUFFER_SIZE ) );
+    }
+    return new DataInputStream( new BufferedInputStream( inputStream, READ_BUFFER_SIZE ) );
+  }
+
+  private void delete( FileObject file ) {
+    try {
+      if ( file.exists() ) {
+        file.delete();
+      }
+    } catch ( FileSystemException e ) {
+      log.logError( e.getLocalizedMessage(), e );
+    }
+  }
+
+  private static <T> T waitFor( Future<T> future ) throws KettleException {
+    try {
+      return future.get();
+    } catch ( ExecutionException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e
+        .getCause() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * A number of sorted rows, in a temp file or in memory.
+   */
+  static final class Run {
+    final FileObject file;
+    final List<Object[]> rows;
+    final long size;
+
+    Run( FileObject file, long size ) {
+      this.file = file;
+      this.rows = null;
+      this.size = size;
+    }
+
+    Run( List<Object[]> rows ) {
+      this.file = null;
+      this.rows = rows;
+      this.size = rows.size();
+    }
+
+    /**
+     * Removes the temp file of the run if it is still there.
+     */
+    void delete() {
+      if ( file != null ) {
+        try {
+          file.delete();
+        } catch ( FileSystemException e ) {
+          // The temp file is removed at the end of the JVM at the latest
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the rows of a new run one by one.
+   */
+  final class RunWriter {
+    private final List<Object[]> rows;
+    private final FileObject file;
+    private final DataOutputStream outputStream;
+    private long size;
+
+    private RunWriter( boolean inMemory ) throws KettleException {
+      if ( inMemory ) {
+        rows = new ArrayList<>();
+        file = null;
+        outputStream = null;
+      } else {
+        rows = null;
+        file = vfs.createTempFile( prefix, ".tmp", directory, space );
+        try {
+          outputStream = openOutputStream( file );
+        } catch ( IOException e ) {
+          delete( file );
+          throw new KettleException( "Error processing temp-file!", e );
+        }
+      }
+    }
+
+    void add( Object[] row ) throws KettleException {
+      if ( rows != null ) {
+        rows.add( row );
+      } else {
+        rowMeta.writeData( outputStream, row );
+      }
+      size++;
+    }
+
+    /**
+     * @return the run with the rows written so far
+     */
+    Run close() throws KettleException {
+      if ( rows != null ) {
+        return new Run( rows );
+      }
+      try {
+        outputStream.close();
+      } catch ( IOException e ) {
+        delete( file );
+        throw new KettleException( "Error processing temp-file!", e );
+      }
+      return new Run( file, size );
+    }
+
+    /**
+     * Closes the writer and removes what was written.
+     */
+    void discard() {
+      if ( outputStream != null ) {
+        BaseStep.closeQuietly( outputStream );
+        delete( file );
+      }
+    }
+  }
+
+  /**
+   * Reads the rows of a run, the next block of rows is read in the background while the current one is merged.
+   */
+  private final class RunReader {
+    private final Run run;
+    private final DataInputStream inputStream;
+    private long remaining;
+    private List<Object[]> block = Collections.emptyList();
+    private int index;
+    private Future<List<Object[]>> nextBlock;
+
+    RunReader( Run run ) throws KettleException {
+      this.run = run;
+      if ( run.rows != null ) {
+        block = run.rows;
+        inputStream = null;
+        return;
+      }
+      this.remaining = run.size;
+      String filename = KettleVFS.getFilename( run.file );
+      if ( log.isDetailed() ) {
+        log.logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
+        log.logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows", filename,
+          run.size ) );
+      }
+      try {
+        inputStream = openInputStream( run.file );
+      } catch ( IOException e ) {
+        throw new KettleException( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
+      }
+      readAhead();
+    }
+
+    Object[] next() throws KettleException {
+      if ( index == block.size() ) {
+        if ( nextBlock == null ) {
+          return null;
+        }
+        block = waitFor( nextBlock );
+        index = 0;
+        nextBlock = null;
+        readAhead();
+      }
+      return block.get( index++ );
+    }
+
+    private void readAhead() {
+      if ( remaining > 0 ) {
+        int nrRows = (int) Math.min( remaining, READ_AHEAD_ROWS );
+        remaining -= nrRows;
+        nextBlock = executor.submit( () -> {
+          List<Object[]> rows = new ArrayList<>( nrRows );
+          for ( int i = 0; i < nrRows; i++ ) {
+            rows.add( rowMeta.readData( inputStream ) );
+          }
+          return rows;
+        } );
+      }
+    }
+
+    void close() {
+      // Don't close the stream while a block is still being read from it
+      if ( nextBlock != null ) {
+        try {
+          nextBlock.get();
+        } catch ( Exception e ) {
+          // The rows aren't needed anymore
+        }
+        nextBlock = null;
+      }
+      BaseStep.closeQuietly( inputStream );
+      if ( run.file != null ) {
+        delete( run.file );
+      }
+    }
+  }
+
+  /**
+   * Merges runs with a heap that holds the next row of every run.
+   */
+  private final class RunMerger {
+    private final RunReader[] readers;
+    private final PriorityQueue<RowTempFile> heap;
+
+    RunMerger( List<Run> runs ) throws KettleException {
+      readers = new RunReader[ runs.size() ];
+      heap = new PriorityQueue<>( Math.max( 1, runs.size() ), comparator );
+      try {
+        for ( int i = 0; i < readers.length; i++ ) {
+          readers[ i ] = new RunReader( runs.get( i ) );
+        }
+        for ( int i = 0; i < readers.length; i++ ) {
+          Object[] row = readers[ i ].next();
+          if ( row != null ) {
+            heap.add( new RowTempFile( row, i ) );
+          } else {
+            finish( i );
+          }
+        }
+      } catch ( KettleException e ) {
+        close();
+        throw e;
+      }
+    }
+
+    Object[] next() throws KettleException {
+      RowTempFile smallest = heap.poll();
+      if ( smallest == null ) {
+        return null;
+      }
+      Object[] row = smallest.row;
+      smallest.row = readers[ smallest.fileNumber ].next();
+      if ( smallest.row != null ) {
+        heap.add( smallest );
+      } else {
+        finish( smallest.fileNumber );
+      }
+      return row;
+    }
+
+    private void finish( int fileNumber ) {
+      readers[ fileNumber ].close();
+      readers[ fileNumber ] = null;
+    }
+
+    void close() {
+      for ( int i = 0; i < readers.length; i++ ) {
+        if ( readers[ i ] != null ) {
+          finish( i );
+        }
+      }
+      heap.clear();
+    }
+  }
+}
@@ -13,12 +13,14 @@
 
 package org.pentaho.di.trans.steps.streamlookup;
 
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.CompactHashIndex;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -36,7 +38,9 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 
 import java.math.BigDecimal;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Looks up information by first reading data into a hash table (in memory)
@@ -137,79 +141,179 @@ public class StreamLookup extends BaseStep implements StepInterface {
         + data.infoStream.getStepname() + "]" );
     }
 
-    int[] keyNrs = new int[meta.getKeylookup().length];
-    int[] valueNrs = new int[meta.getValue().length];
-    boolean firstRun = true;
-
-    // Which row set do we read from?
+    // Which table do we read the rows into, from which row sets?
     //
-    RowSet rowSet = findInputRowSet( data.infoStream.getStepname() );
-    Object[] rowData = getRowFrom( rowSet ); // rows are originating from "lookup_from"
-    while ( rowData != null ) {
-      if ( log.isRowLevel() ) {
-        logRowlevel( BaseMessages.getString( PKG, "StreamLookup.Log.ReadLookupRow" )
-          + rowSet.getRowMeta().getString( rowData ) );
+    StreamLookupData table = data;
+    List<RowSet> rowSets;
+    boolean skip = false;
+    boolean concurrent = false;
+    if ( data.sharedTable != null ) {
+      table = data.sharedTable.getTable();
+      rowSets = findInfoRowSets();
+      if ( data.sharedTable.loadFromCache() ) {
+        skip = true;
+      } else if ( data.infoStream.getStepMeta().isDistributes() || getStepMeta().isPartitioned()
+        || !readsTheSameInfoCopiesAsTheFirstCopy( rowSets ) ) {
+        // Every copy got a part of the lookup rows: all of them add their rows to the table
+        concurrent = data.sharedTable.getNrCopies() > 1;
+      } else {
+        // Every copy got all the lookup rows: only the first one adds them to the table
+        skip = getCopy() > 0;
       }
+    } else {
+      rowSets = Collections.singletonList( findInputRowSet( data.infoStream.getStepname() ) );
+    }
 
-      if ( firstRun ) {
-        firstRun = false;
-        data.hasLookupRows = true;
+    int[] keyNrs = new int[meta.getKeylookup().length];
+    int[] valueNrs = new int[meta.getValue().length];
+    boolean firstRun = true;
 
-        data.infoMeta = rowSet.getRowMeta().clone();
-        RowMetaInterface cacheKeyMeta = new RowMeta();
-        RowMetaInterface cacheValueMeta = new RowMeta();
+    for ( RowSet rowSet : rowSets ) {
+      Object[] rowData = getRowFrom( rowSet ); // rows are originating from "lookup_from"
+      while ( rowData != null ) {
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "StreamLookup.Log.ReadLookupRow" )
+            + rowSet.getRowMeta().getString( rowData ) );
+        }
 
-   // Look up the keys in the source rows
-        for ( int i = 0; i < meta.getKeylookup().length; i++ ) {
-          keyNrs[i] = rowSet.getRowMeta().indexOfValue( meta.getKeylookup()[i] );
-          if ( keyNrs[i] < 0 ) {
-            throw new KettleStepException( BaseMessages.getString(
-              PKG, "StreamLookup.Exception.UnableToFindField", meta.getKeylookup()[i] ) );
+        if ( !skip ) {
+          if ( concurrent ) {
+            synchronized ( table ) {
+              addLookupRow( table, rowSet.getRowMeta(), rowData, keyNrs, valueNrs, firstRun );
+            }
+          } else {
+            addLookupRow( table, rowSet.getRowMeta(), rowData, keyNrs, valueNrs, firstRun );
           }
-          cacheKeyMeta.addValueMeta( rowSet.getRowMeta().getValueMeta( keyNrs[i] ) );
-        }
-       // Save the data types of the keys to optionally convert input rows later on...
-        if ( data.keyTypes == null ) {
-          data.keyTypes = cacheKeyMeta.clone();
+          firstRun = false;
         }
 
-        // Cache keys are stored as normal types, not binary
-        for ( int i = 0; i < keyNrs.length; i++ ) {
-          cacheKeyMeta.getValueMeta( i ).setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
-        }
+        rowData = getRowFrom( rowSet );
+      }
+    }
 
-       for ( int v = 0; v < meta.getValue().length; v++ ) {
-          valueNrs[v] = rowSet.getRowMeta().indexOfValue( meta.getValue()[v] );
-          if ( valueNrs[v] < 0 ) {
-            throw new KettleStepException( BaseMessages.getString(
-              PKG, "StreamLookup.Exception.UnableToFindField", meta.getValue()[v] ) );
-          }
-          cacheValueMeta.addValueMeta( rowSet.getRowMeta().getValueMeta( valueNrs[v] ) );
+    if ( data.sharedTable != null ) {
+      if ( isStopped() ) {
+        return true;
+      }
+      try {
+        if ( !data.sharedTable.readDone( this::isStopped ) ) {
+          return true;
         }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( e );
+      }
+      data.shareTable( table );
+    }
+
+    if ( data.compactIndex != null && log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "StreamLookup.Log.CompactTableSize", "" + data.compactIndex.getSize(),
+        "" + data.compactIndex.getMemorySize() / ( 1024 * 1024 ) ) );
+    }
 
-        data.cacheKeyMeta = cacheKeyMeta;
-        data.cacheValueMeta = cacheValueMeta;
+    return true;
+  }
+
+  /**
+   * @return the row sets from the copies of the lookup step to this copy, in the order of the lookup step copies. All
+   *         the copies read them in that order, so a lookup step copy that sends its rows to every copy never waits for
+   *         a copy that reads the rows of another one.
+   */
+  private List<RowSet> findInfoRowSets() throws KettleStepException {
+    String infoStepname = data.infoStream.getStepname();
+    int nrInfoCopies = data.infoStream.getStepMeta().getCopies();
+    if ( nrInfoCopies <= 1 ) {
+      return Collections.singletonList( findInputRowSet( infoStepname ) );
+    }
+    List<RowSet> rowSets = new ArrayList<>();
+    for ( int infoCopy = 0; infoCopy < nrInfoCopies; infoCopy++ ) {
+      RowSet rowSet = findInputRowSet( infoStepname, infoCopy, getStepname(), getCopy() );
+      if ( rowSet != null ) {
+        rowSets.add( rowSet );
       }
+    }
+    return rowSets;
+  }
 
-      Object[] keyData = new Object[keyNrs.length];
+  /**
+   * With as many copies of the lookup step as of this step, every copy of this step only reads the rows of one copy of
+   * the lookup step.
+   *
+   * @return true if this copy reads the rows of the same copies of the lookup step as the first copy
+   */
+  private boolean readsTheSameInfoCopiesAsTheFirstCopy( List<RowSet> rowSets ) {
+    String infoStepname = data.infoStream.getStepname();
+    int nrInfoCopies = data.infoStream.getStepMeta().getCopies();
+    if ( nrInfoCopies <= 1 ) {
+      return true;
+    }
+    for ( int infoCopy = 0; infoCopy < nrInfoCopies; infoCopy++ ) {
+      boolean read = false;
+      for ( RowSet rowSet : rowSets ) {
+        read |= rowSet.getOriginStepCopy() == infoCopy;
+      }
+      if ( read != ( getTrans().findRowSet( infoStepname, infoCopy, getStepname(), 0 ) != null ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void addLookupRow( StreamLookupData table, RowMetaInterface rowMeta, Object[] rowData, int[] keyNrs,
+    int[] valueNrs, boolean firstRun ) throws KettleException {
+    if ( firstRun ) {
+      table.hasLookupRows = true;
+
+      table.infoMeta = rowMeta.clone();
+      RowMetaInterface cacheKeyMeta = new RowMeta();
+      RowMetaInterface cacheValueMeta = new RowMeta();
+
+      // Look up the keys in the source rows
+      for ( int i = 0; i < meta.getKeylookup().length; i++ ) {
+        keyNrs[i] = rowMeta.indexOfValue( meta.getKeylookup()[i] );
+        if ( keyNrs[i] < 0 ) {
+          throw new KettleStepException( BaseMessages.getString(
+            PKG, "StreamLookup.Exception.UnableToFindField", meta.getKeylookup()[i] ) );
+        }
+        cacheKeyMeta.addValueMeta( rowMeta.getValueMeta( keyNrs[i] ) );
+      }
+      // Save the data types of the keys to optionally convert input rows later on...
+      if ( table.keyTypes == null ) {
+        table.keyTypes = cacheKeyMeta.clone();
+      }
+
+      // Cache keys are stored as normal types, not binary
       for ( int i = 0; i < keyNrs.length; i++ ) {
-        ValueMetaInterface keyMeta = data.keyTypes.getValueMeta( i );
-        // Convert keys to normal storage type
-        keyData[i] = keyMeta.convertToNormalStorageType( rowData[keyNrs[i]] );
+        cacheKeyMeta.getValueMeta( i ).setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
       }
 
-      Object[] valueData = new Object[valueNrs.length];
-      for ( int i = 0; i < valueNrs.length; i++ ) {
-        // Store value as is, avoid preliminary binary->normal storage type conversion
-        valueData[i] = rowData[valueNrs[i]];
+      for ( int v = 0; v < meta.getValue().length; v++ ) {
+        valueNrs[v] = rowMeta.indexOfValue( meta.getValue()[v] );
+        if ( valueNrs[v] < 0 ) {
+          throw new KettleStepException( BaseMessages.getString(
+            PKG, "StreamLookup.Exception.UnableToFindField", meta.getValue()[v] ) );
+        }
+        cacheValueMeta.addValueMeta( rowMeta.getValueMeta( valueNrs[v] ) );
       }
 
-      addToCache( data.cacheKeyMeta, keyData, data.cacheValueMeta, valueData );
+      table.cacheKeyMeta = cacheKeyMeta;
+      table.cacheValueMeta = cacheValueMeta;
+    }
 
-      rowData = getRowFrom( rowSet );
+    Object[] keyData = new Object[keyNrs.length];
+    for ( int i = 0; i < keyNrs.length; i++ ) {
+      ValueMetaInterface keyMeta = table.keyTypes.getValueMeta( i );
+      // Convert keys to normal storage type
+      keyData[i] = keyMeta.convertToNormalStorageType( rowData[keyNrs[i]] );
     }
 
-    return true;
+    Object[] valueData = new Object[valueNrs.length];
+    for ( int i = 0; i < valueNrs.length; i++ ) {
+      // Store value as is, avoid preliminary binary->normal storage type conversion
+      valueData[i] = rowData[valueNrs[i]];
+    }
+
+    addToCache( table, table.cacheKeyMeta, keyData, table.cacheValueMeta, valueData );
   }
 
   private Object[] lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
@@ -261,6 +365,19 @@ public class StreamLookup extends BaseStep implements StepInterface {
       }
     }
 
+    if ( data.compactIndex != null && meta.getKeystream().length > 0 ) {
+      // Copy the values straight from the columns to the output row
+      //
+      Object[] outputRow = RowDataUtil.resizeArray( row, rowMeta.size() + data.nullIf.length );
+      int rowNr = data.compactIndex.indexOf( lu );
+      if ( rowNr < 0 ) {
+        System.arraycopy( data.nullIf, 0, outputRow, rowMeta.size(), data.nullIf.length );
+      } else {
+        data.compactIndex.getValues( rowNr, outputRow, rowMeta.size() );
+      }
+      return outputRow;
+    }
+
     Object[] add = null;
 
     if ( data.hasLookupRows ) {
@@ -283,22 +400,22 @@ public class StreamLookup extends BaseStep implements StepInterface {
     return RowDataUtil.addRowData( row, rowMeta.size(), add );
   }
 
-  private void addToCache( RowMetaInterface keyMeta, Object[] keyData, RowMetaInterface valueMeta,
-    Object[] valueData ) throws KettleValueException {
+  private void addToCache( StreamLookupData table, RowMetaInterface keyMeta, Object[] keyData,
+    RowMetaInterface valueMeta, Object[] valueData ) throws KettleValueException {
     if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, valueData );
-        int idx = Collections.binarySearch( data.list, keyValue, data.comparator );
+        int idx = Collections.binarySearch( table.list, keyValue, table.comparator );
         if ( idx < 0 ) {
           int index = -idx - 1; // this is the insertion point
-          data.list.add( index, keyValue ); // insert to keep sorted.
+          table.list.add( index, keyValue ); // insert to keep sorted.
         } else {
-          data.list.set( idx, keyValue ); // Overwrite to simulate Hashtable behaviour
+          table.list.set( idx, keyValue ); // Overwrite to simulate Hashtable behaviour
         }
       } else {
         if ( meta.isUsingIntegerPair() ) {
-          if ( !data.metadataVerifiedIntegerPair ) {
-            data.metadataVerifiedIntegerPair = true;
+          if ( !table.metadataVerifiedIntegerPair ) {
+            table.metadataVerifiedIntegerPair = true;
             if ( keyMeta.size() != 1
               || valueMeta.size() != 1 || !keyMeta.getValueMeta( 0 ).isInteger()
               || !valueMeta.getValueMeta( 0 ).isInteger() ) {
@@ -310,19 +427,37 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
           Long key = keyMeta.getInteger( keyData, 0 );
           Long value = valueMeta.getInteger( valueData, 0 );
-          data.longIndex.put( key, value );
+          table.longIndex.put( key, value );
+        } else if ( meta.isUsingCompactTable() ) {
+          if ( table.compactIndex == null ) {
+            if ( !CompactHashIndex.supportsKeys( keyMeta ) ) {
+              throw new KettleValueException( BaseMessages.getString(
+                PKG, "StreamLookup.Exception.CanNotUseCompactTable" ) );
+            }
+            // The columns hold the values in normal storage
+            RowMetaInterface compactValueMeta = valueMeta.clone();
+            for ( ValueMetaInterface compactValue : compactValueMeta.getValueMetaList() ) {
+              compactValue.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+            }
+            table.compactIndex = new CompactHashIndex( keyMeta, compactValueMeta,
+              "Y".equalsIgnoreCase( getVariable( Const.KETTLE_STREAM_LOOKUP_OFF_HEAP, "N" ) ) );
+          }
+          for ( int i = 0; i < valueData.length; i++ ) {
+            valueData[i] = valueMeta.getValueMeta( i ).convertToNormalStorageType( valueData[i] );
+          }
+          table.compactIndex.put( keyData, valueData );
         } else {
-          if ( data.hashIndex == null ) {
-            data.hashIndex = new ByteArrayHashIndex( keyMeta );
+          if ( table.hashIndex == null ) {
+            table.hashIndex = new ByteArrayHashIndex( keyMeta );
           }
-          data.hashIndex
+          table.hashIndex
             .put( RowMeta.extractData( keyMeta, keyData ), RowMeta.extractData( valueMeta, valueData ) );
         }
       }
     } else {
       // We can't just put Object[] in the map The compare function is not in it.
       // We need to wrap in and use that. Let's use RowMetaAndData for this one.
-      data.look.put( new RowMetaAndData( keyMeta, keyData ), valueData );
+      table.look.put( new RowMetaAndData( keyMeta, keyData ), valueData );
     }
   }
 
@@ -429,6 +564,14 @@ public class StreamLookup extends BaseStep implements StepInterface {
       meta.getFields( getTransMeta().getBowl(),
         data.outputRowMeta, getStepname(), new RowMetaInterface[] { data.infoMeta }, null, this, repository,
         metaStore );
+      if ( data.compactIndex != null ) {
+        // The compact table returns the values in normal storage
+        for ( int i = getInputRowMeta().size(); i < data.outputRowMeta.size(); i++ ) {
+          ValueMetaInterface valueMeta = data.outputRowMeta.getValueMeta( i ).clone();
+          valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+          data.outputRowMeta.setValueMeta( i, valueMeta );
+        }
+      }
 
       // Handle the NULL values (not found...)
       handleNullIf();
@@ -460,12 +603,64 @@ public class StreamLookup extends BaseStep implements StepInterface {
     if ( super.init( smi, sdi ) ) {
       data.readLookupValues = true;
 
+      String cacheName = environmentSubstitute( meta.getCacheName() );
+      if ( meta.isSharingTable() || !Utils.isEmpty( cacheName ) ) {
+        int nrCopies = getTrans().findStepInterfaces( getStepname() ).size();
+        if ( nrCopies > 1 || !Utils.isEmpty( cacheName ) ) {
+          try {
+            data.sharedTable = findSharedTable( nrCopies, Utils.isEmpty( cacheName ) ? null : cacheName );
+          } catch ( KettleStepException e ) {
+            logError( BaseMessages.getString( PKG, "StreamLookup.Log.UnableToReadDataFromLookupStream" ), e );
+            return false;
+          }
+        }
+      }
+
       return true;
     }
 
     return false;
   }
 
+  /**
+   * @return the lookup table of all the copies, kept by the first copy of the step
+   */
+  private StreamLookupSharedTable findSharedTable( int nrCopies, String cacheName ) throws KettleStepException {
+    StreamLookup firstCopy = (StreamLookup) getTrans().findStepInterface( getStepname(), 0 );
+    StreamLookupData firstData = (StreamLookupData) firstCopy.getStepDataInterface();
+    synchronized ( firstData ) {
+      if ( firstData.sharedTable == null ) {
+        long timeToLive = Const.toLong( environmentSubstitute( meta.getCacheTimeToLive() ), 0L ) * 1000L;
+        firstData.sharedTable = new StreamLookupSharedTable( nrCopies, cacheName,
+          cacheName == null ? null : getTableSignature(), timeToLive );
+      }
+      return firstData.sharedTable;
+    }
+  }
+
+  /**
+   * @return the keys and values with their types and the algorithm of the lookup table, a cached table is only used by
+   *         a step with the same
+   */
+  private String getTableSignature() throws KettleStepException {
+    StepMeta infoStepMeta = meta.getStepIOMeta().getInfoStreams().get( 0 ).getStepMeta();
+    RowMetaInterface infoFields = infoStepMeta == null ? new RowMeta() : getTransMeta().getStepFields( infoStepMeta );
+    StringBuilder signature = new StringBuilder();
+    appendFields( signature, infoFields, meta.getKeylookup() );
+    appendFields( signature, infoFields, meta.getValue() );
+    return signature.append( meta.isMemoryPreservationActive() ).append( meta.isUsingSortedList() )
+      .append( meta.isUsingIntegerPair() ).append( meta.isUsingCompactTable() ).toString();
+  }
+
+  private static void appendFields( StringBuilder signature, RowMetaInterface fields, String[] names ) {
+    signature.append( '[' );
+    for ( String name : names ) {
+      ValueMetaInterface valueMeta = fields.searchValueMeta( name );
+      signature.append( name ).append( ' ' ).append( valueMeta == null ? "?" : valueMeta.getTypeDesc() ).append( ';' );
+    }
+    signature.append( ']' );
+  }
+
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     // Recover memory immediately, allow in-memory data to be garbage collected
@@ -474,6 +669,8 @@ public class StreamLookup extends BaseStep implements StepInterface {
     data.list = null;
     data.hashIndex = null;
     data.longIndex = null;
+    data.compactIndex = null;
+    data.sharedTable = null;
 
     super.dispose( smi, sdi );
   }
@@ -0,0 +1,90 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.streamlookup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The lookup tables of Stream Lookup steps that are kept in the JVM by name, so that the next runs of a transformation,
+ * for example on a Carte server, don't have to build them again. A table is only handed out to a step with the same
+ * keys, values and algorithm, and only until its time to live is over.
+ */
+public final class StreamLookupCache {
+
+  private static final Map<String, Entry> tables = new ConcurrentHashMap<>();
+
+  private StreamLookupCache() {
+  }
+
+  /**
+   * @param signature
+   *          the keys, values and algorithm of the step that wants the table
+   * @return the table with the name, null if there is none, it has expired or it was built for another signature
+   */
+  static StreamLookupData get( String name, String signature ) {
+    Entry entry = tables.get( name );
+    if ( entry == null ) {
+      return null;
+    }
+    if ( entry.isExpired( System.currentTimeMillis() ) ) {
+      tables.remove( name, entry );
+      return null;
+    }
+    return entry.signature.equals( signature ) ? entry.table : null;
+  }
+
+  /**
+   * Keeps a table, replacing the one with the same name. The expired tables are removed at the same time.
+   *
+   * @param timeToLive
+   *          the number of milliseconds the table can be handed out, 0 or less to keep it until it is replaced or
+   *          removed
+   */
+  static void put( String name, String signature, StreamLookupData table, long timeToLive ) {
+    long now = System.currentTimeMillis();
+    tables.values().removeIf( entry -> entry.isExpired( now ) );
+    tables.put( name, new Entry( signature, table, timeToLive > 0 ? now + timeToLive : Long.MAX_VALUE ) );
+  }
+
+  /**
+   * Removes the table with the name, so that the next step that asks for it builds it again.
+   */
+  public static void remove( String name ) {
+    tables.remove( name );
+  }
+
+  /**
+   * Removes all the tables.
+   */
+  public static void clear() {
+    tables.clear();
+  }
+
+  private static final class Entry {
+    private final String signature;
+    private final StreamLookupData table;
+    private final long expiresAt;
+
+    private Entry( String signature, StreamLookupData table, long expiresAt ) {
+      this.signature = signature;
+      this.table = table;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired( long now ) {
+      return now >= expiresAt;
+    }
+  }
+}
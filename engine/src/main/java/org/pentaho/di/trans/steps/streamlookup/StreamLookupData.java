@@ -22,6 +22,7 @@ import java.util.Map;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.CompactHashIndex;
 import org.pentaho.di.core.hash.LongHashIndex;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -64,6 +65,7 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
 
   public ByteArrayHashIndex hashIndex;
   public LongHashIndex longIndex;
+  public CompactHashIndex compactIndex;
 
   public RowMetaInterface lookupMeta;
 
@@ -81,6 +83,9 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
 
   public StreamInterface infoStream;
 
+  // The table that is built once for all the copies, null if every copy builds its own
+  StreamLookupSharedTable sharedTable;
+
   public StreamLookupData() {
     super();
     look = new HashMap<RowMetaAndData, Object[]>();
@@ -101,4 +106,20 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
     };
   }
 
+  /**
+   * Takes over the lookup table of another data object. The table is only read from then on.
+   */
+  void shareTable( StreamLookupData source ) {
+    look = source.look;
+    list = source.list;
+    hashIndex = source.hashIndex;
+    longIndex = source.longIndex;
+    compactIndex = source.compactIndex;
+    keyTypes = source.keyTypes;
+    cacheKeyMeta = source.cacheKeyMeta;
+    cacheValueMeta = source.cacheValueMeta;
+    infoMeta = source.infoMeta;
+    metadataVerifiedIntegerPair = source.metadataVerifiedIntegerPair;
+    hasLookupRows = source.hasLookupRows;
+  }
 }
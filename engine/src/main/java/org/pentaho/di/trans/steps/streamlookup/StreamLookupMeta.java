@@ -94,6 +94,22 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
   @Injection( name = "INTEGER_PAIR" )
   private boolean usingIntegerPair;
 
+  /** Keep the keys and values in typed columns instead of objects or serialized rows */
+  @Injection( name = "COMPACT_TABLE" )
+  private boolean usingCompactTable;
+
+  /** Build the lookup table once and share it with all the copies of the step */
+  @Injection( name = "SHARE_TABLE" )
+  private boolean sharingTable;
+
+  /** The name of the lookup table in the JVM cache, empty to build it for every run */
+  @Injection( name = "CACHE_NAME" )
+  private String cacheName;
+
+  /** The number of seconds the lookup table stays in the JVM cache, empty or 0 to keep it there */
+  @Injection( name = "CACHE_TIME_TO_LIVE" )
+  private String cacheTimeToLive;
+
   public StreamLookupMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -156,6 +172,10 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       setMemoryPreservationActive( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "preserve_memory" ) ) );
       setUsingSortedList( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "sorted_list" ) ) );
       setUsingIntegerPair( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "integer_pair" ) ) );
+      setUsingCompactTable( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "compact_table" ) ) );
+      setSharingTable( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "share_table" ) ) );
+      setCacheName( XMLHandler.getTagValue( stepnode, "cache_name" ) );
+      setCacheTimeToLive( XMLHandler.getTagValue( stepnode, "cache_time_to_live" ) );
 
       Node lookup = XMLHandler.getSubNode( stepnode, "lookup" );
       nrkeys = XMLHandler.countNodes( lookup, "key" );
@@ -204,6 +224,10 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     setMemoryPreservationActive( true );
     setUsingSortedList( false );
     setUsingIntegerPair( false );
+    setUsingCompactTable( false );
+    setSharingTable( false );
+    setCacheName( null );
+    setCacheTimeToLive( null );
 
     allocate( 0, 0 );
   }
@@ -247,6 +271,10 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     retval.append( "    " ).append( XMLHandler.addTagValue( "preserve_memory", isMemoryPreservationActive() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "sorted_list", isUsingSortedList() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "integer_pair", isUsingIntegerPair() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "compact_table", isUsingCompactTable() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "share_table", isSharingTable() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "cache_name", getCacheName() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "cache_time_to_live", getCacheTimeToLive() ) );
 
     retval.append( "    <lookup>" ).append( Const.CR );
     for ( int i = 0; i < getKeystream().length; i++ ) {
@@ -281,6 +309,10 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       setMemoryPreservationActive( rep.getStepAttributeBoolean( id_step, "preserve_memory" ) );
       setUsingSortedList( rep.getStepAttributeBoolean( id_step, "sorted_list" ) );
       setUsingIntegerPair( rep.getStepAttributeBoolean( id_step, "integer_pair" ) );
+      setUsingCompactTable( rep.getStepAttributeBoolean( id_step, "compact_table" ) );
+      setSharingTable( rep.getStepAttributeBoolean( id_step, "share_table" ) );
+      setCacheName( rep.getStepAttributeString( id_step, "cache_name" ) );
+      setCacheTimeToLive( rep.getStepAttributeString( id_step, "cache_time_to_live" ) );
 
       int nrkeys = rep.countNrStepAttributes( id_step, "lookup_key_name" );
       int nrvalues = rep.countNrStepAttributes( id_step, "return_value_name" );
@@ -318,6 +350,10 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       rep.saveStepAttribute( id_transformation, id_step, "preserve_memory", isMemoryPreservationActive() );
       rep.saveStepAttribute( id_transformation, id_step, "sorted_list", isUsingSortedList() );
       rep.saveStepAttribute( id_transformation, id_step, "integer_pair", isUsingIntegerPair() );
+      rep.saveStepAttribute( id_transformation, id_step, "compact_table", isUsingCompactTable() );
+      rep.saveStepAttribute( id_transformation, id_step, "share_table", isSharingTable() );
+      rep.saveStepAttribute( id_transformation, id_step, "cache_name", getCacheName() );
+      rep.saveStepAttribute( id_transformation, id_step, "cache_time_to_live", getCacheTimeToLive() );
 
       for ( int i = 0; i < getKeystream().length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "lookup_key_name", getKeystream()[i] );
@@ -660,6 +696,66 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     this.usingIntegerPair = usingIntegerPair;
   }
 
+  /**
+   * @return true if the lookup data is kept in typed columns, see CompactHashIndex
+   */
+  public boolean isUsingCompactTable() {
+    return usingCompactTable;
+  }
+
+  /**
+   * @param usingCompactTable
+   *          true to keep the lookup data in typed columns
+   */
+  public void setUsingCompactTable( boolean usingCompactTable ) {
+    this.usingCompactTable = usingCompactTable;
+  }
+
+  /**
+   * @return true if the copies of the step build the lookup table once and share it
+   */
+  public boolean isSharingTable() {
+    return sharingTable;
+  }
+
+  /**
+   * @param sharingTable
+   *          true to build the lookup table once for all the copies of the step
+   */
+  public void setSharingTable( boolean sharingTable ) {
+    this.sharingTable = sharingTable;
+  }
+
+  /**
+   * @return the name of the lookup table in the JVM cache, see StreamLookupCache. Empty to build it for every run.
+   */
+  public String getCacheName() {
+    return cacheName;
+  }
+
+  /**
+   * @param cacheName
+   *          the name of the lookup table in the JVM cache
+   */
+  public void setCacheName( String cacheName ) {
+    this.cacheName = cacheName;
+  }
+
+  /**
+   * @return the number of seconds the lookup table stays in the JVM cache, empty or 0 to keep it there
+   */
+  public String getCacheTimeToLive() {
+    return cacheTimeToLive;
+  }
+
+  /**
+   * @param cacheTimeToLive
+   *          the number of seconds the lookup table stays in the JVM cache
+   */
+  public void setCacheTimeToLive( String cacheTimeToLive ) {
+    this.cacheTimeToLive = cacheTimeToLive;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
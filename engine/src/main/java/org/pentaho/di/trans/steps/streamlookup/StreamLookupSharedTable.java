@@ -0,0 +1,109 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.streamlookup;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * The lookup table that the copies of a Stream Lookup step build once and then read together. Every copy reads the
+ * lookup rows that were sent to it and waits until all the copies did, only then the table is complete. With a cache
+ * name the table is taken from the StreamLookupCache when it is there, and put in it once it is built otherwise.<br>
+ * The table is shared by the copies of one step in one transformation, the wait gives up as soon as the step is
+ * stopped.
+ */
+final class StreamLookupSharedTable {
+
+  private static final long WAIT_MILLIS = 100L;
+
+  private final int nrCopies;
+  private final String cacheName;
+  private final String signature;
+  private final long timeToLive;
+
+  private final StreamLookupData table;
+  private boolean cacheChecked;
+  private boolean fromCache;
+  private int nrRead;
+
+  /**
+   * @param cacheName
+   *          the name of the table in the StreamLookupCache, null to build it for this transformation only
+   * @param signature
+   *          the keys and values with their types and the algorithm of the step, null without a cache name
+   * @param timeToLive
+   *          the number of milliseconds the table stays in the cache, 0 or less to keep it there
+   */
+  StreamLookupSharedTable( int nrCopies, String cacheName, String signature, long timeToLive ) {
+    this.nrCopies = nrCopies;
+    this.cacheName = cacheName;
+    this.signature = signature;
+    this.timeToLive = timeToLive;
+    this.table = new StreamLookupData();
+  }
+
+  int getNrCopies() {
+    return nrCopies;
+  }
+
+  /**
+   * @return the table the copies fill while they read their lookup rows. It is complete once readDone() returned.
+   */
+  StreamLookupData getTable() {
+    return table;
+  }
+
+  /**
+   * Takes the table from the cache, the first time a copy asks.
+   *
+   * @return true if the table came from the cache, the copies then don't read their lookup rows into it
+   */
+  synchronized boolean loadFromCache() {
+    if ( !cacheChecked ) {
+      cacheChecked = true;
+      if ( cacheName != null ) {
+        StreamLookupData cached = StreamLookupCache.get( cacheName, signature );
+        if ( cached != null ) {
+          table.shareTable( cached );
+          fromCache = true;
+        }
+      }
+    }
+    return fromCache;
+  }
+
+  /**
+   * Tells that a copy read all its lookup rows and waits for the other copies. The last copy puts the table in the
+   * cache.
+   *
+   * @return false if the step was stopped while waiting
+   */
+  synchronized boolean readDone( BooleanSupplier stopped ) throws InterruptedException {
+    nrRead++;
+    if ( nrRead == nrCopies ) {
+      if ( cacheName != null && !fromCache ) {
+        StreamLookupData cached = new StreamLookupData();
+        cached.shareTable( table );
+        StreamLookupCache.put( cacheName, signature, cached, timeToLive );
+      }
+      notifyAll();
+    }
+    while ( nrRead < nrCopies ) {
+      if ( stopped.getAsBoolean() ) {
+        return false;
+      }
+      wait( WAIT_MILLIS );
+    }
+    return true;
+  }
+}
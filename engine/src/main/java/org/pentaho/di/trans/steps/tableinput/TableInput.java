@@ -15,6 +15,9 @@ package org.pentaho.di.trans.steps.tableinput;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -52,6 +55,9 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 public class TableInput extends BaseDatabaseStep implements StepInterface {
   private static Class<?> PKG = TableInputMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** The number of rows read from the result set at a time */
+  static final int ROW_BLOCK_SIZE = 500;
+
   private final ReentrantLock dbLock = new ReentrantLock();
 
   private TableInputMeta meta;
@@ -142,25 +148,6 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
         if ( !success ) {
           return false;
         }
-      } else {
-        if ( data.thisrow != null ) { // We can expect more rows
-
-          try {
-            data.nextrow = data.db.getRow( data.rs, meta.isLazyConversionActive() );
-          } catch ( KettleDatabaseException e ) {
-            if ( e.getCause() instanceof SQLException && isStopped() ) {
-              //This exception indicates we tried reading a row after the statment for this step was cancelled
-              //this is expected and ok so do not pass the exception up
-              logDebug( e.getMessage() );
-              return false;
-            } else {
-              throw e;
-            }
-          }
-          if ( data.nextrow != null ) {
-            incrementLinesInput();
-          }
-        }
       }
 
       if ( data.thisrow == null ) { // Finished reading?
@@ -181,14 +168,7 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
             }
 
             if ( data.thisrow != null ) {
-              putRow( data.rowMeta, data.thisrow ); // fill the rowset(s). (wait for empty)
-              data.thisrow = data.nextrow;
-
-              if ( checkFeedback( getLinesInput() ) ) {
-                if ( log.isBasic() ) {
-                  logBasic( BaseMessages.getString( PKG, "TableInput.Log.LineNumber", String.valueOf( getLinesInput() ) ) );
-                }
-              }
+              return putRowBlock();
             }
           }
         } else {
@@ -200,14 +180,7 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
           return false; // end of data or error.
         }
       } else {
-        putRow( data.rowMeta, data.thisrow ); // fill the rowset(s). (wait for empty)
-        data.thisrow = data.nextrow;
-
-        if ( checkFeedback( getLinesInput() ) ) {
-          if ( log.isBasic() ) {
-            logBasic( BaseMessages.getString( PKG, "TableInput.Log.LineNumber", String.valueOf( getLinesInput() ) ) );
-          }
-        }
+        return putRowBlock();
       }
 
       return true;
@@ -260,18 +233,76 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
       }
 
       // Get the first row...
-      data.thisrow = data.db.getRow( data.rs );
+      data.rowBlock = Collections.emptyList();
+      data.rowBlockIndex = 0;
+      data.lastRowBlock = false;
+      data.thisrow = getNextRow();
       if ( data.thisrow != null ) {
         incrementLinesInput();
-        data.nextrow = data.db.getRow( data.rs );
-        if ( data.nextrow != null ) {
-          incrementLinesInput();
-        }
       }
     }
     return success;
   }
 
+  /**
+   * Passes on the current row together with the rest of the block of rows read from the result set in one go, see
+   * putRows(). Then the first row of the next block becomes the current row.
+   *
+   * @return false if the query was cancelled while reading the next block
+   */
+  private boolean putRowBlock() throws KettleException {
+    List<Object[]> rows = new ArrayList<>( data.rowBlock.size() - data.rowBlockIndex + 1 );
+    rows.add( data.thisrow );
+    while ( data.rowBlockIndex < data.rowBlock.size() ) {
+      rows.add( data.rowBlock.get( data.rowBlockIndex++ ) );
+      incrementLinesInput();
+    }
+    putRows( data.rowMeta, rows ); // fill the rowset(s). (wait for empty)
+
+    if ( checkFeedback( getLinesInput() - rows.size(), getLinesInput() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "TableInput.Log.LineNumber", String.valueOf( getLinesInput() ) ) );
+      }
+    }
+
+    try {
+      data.thisrow = getNextRow();
+    } catch ( KettleDatabaseException e ) {
+      if ( e.getCause() instanceof SQLException && isStopped() ) {
+        //This exception indicates we tried reading a row after the statment for this step was cancelled
+        //this is expected and ok so do not pass the exception up
+        logDebug( e.getMessage() );
+        return false;
+      } else {
+        throw e;
+      }
+    }
+    if ( data.thisrow != null ) {
+      incrementLinesInput();
+    }
+    return true;
+  }
+
+  /**
+   * Gets the next row of the query. The rows are read from the result set a block at a time.
+   *
+   * @return the next row, null after the last row
+   */
+  private Object[] getNextRow() throws KettleDatabaseException {
+    if ( data.rowBlockIndex >= data.rowBlock.size() ) {
+      if ( data.lastRowBlock ) {
+        return null;
+      }
+      data.rowBlock = data.db.getRowBlock( data.rs, data.rowMeta, ROW_BLOCK_SIZE );
+      data.rowBlockIndex = 0;
+      data.lastRowBlock = data.rowBlock.size() < ROW_BLOCK_SIZE;
+      if ( data.rowBlock.isEmpty() ) {
+        return null;
+      }
+    }
+    return data.rowBlock.get( data.rowBlockIndex++ );
+  }
+
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     dbLock.lock();
     try {
@@ -14,6 +14,8 @@
 package org.pentaho.di.trans.steps.tableinput;
 
 import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.List;
 
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.database.Database;
@@ -36,6 +38,13 @@ public class TableInputData extends BaseDatabaseStepData implements StepDataInte
   public boolean isCanceled;
   public StreamInterface infoStream;
 
+  /** The block of rows read from the result set, the rows before the index are passed on */
+  public List<Object[]> rowBlock;
+  public int rowBlockIndex;
+
+  /** True if the block holds the last rows of the result set */
+  public boolean lastRowBlock;
+
   public TableInputData() {
     super();
 
@@ -44,6 +53,7 @@ public class TableInputData extends BaseDatabaseStepData implements StepDataInte
     nextrow = null;
     rs = null;
     lookupStep = null;
+    rowBlock = Collections.emptyList();
   }
 
 }
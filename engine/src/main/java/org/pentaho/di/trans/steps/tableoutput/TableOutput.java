@@ -19,6 +19,8 @@ import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseInterface;
+import org.pentaho.di.core.database.DatabaseTransactionListener;
+import org.pentaho.di.core.database.map.DatabaseConnectionMap;
 import org.pentaho.di.core.exception.KettleDatabaseBatchException;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
@@ -28,6 +30,7 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.util.ExecutorUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -37,10 +40,13 @@ import org.pentaho.di.trans.step.*;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Writes rows to a database table.
@@ -55,6 +61,10 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
   public static final String CONNECTION = "connection";
   private static Class<?> PKG = TableOutputMeta.class; // for i18n purposes, needed by Translator2!!
 
+  // The limits of a multi-row insert statement: SQL Server accepts at most 1000 rows and 2100 parameters
+  private static final int MAX_ROWS_PER_STATEMENT = 1000;
+  private static final int MAX_PARAMETERS_PER_STATEMENT = 2000;
+
   private TableOutputMeta meta;
   private TableOutputData data;
 
@@ -116,6 +126,10 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
           }
         }
       }
+
+      if ( data.bufferRows ) {
+        createWriters();
+      }
     }
 
     try {
@@ -236,6 +250,11 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       throw new KettleStepException( "The tablename is not defined (empty)" );
     }
 
+    if ( data.bufferRows ) {
+      bufferRow( rowMeta, r, insertRowData, outputRowData );
+      return null;
+    }
+
     insertStatement = data.preparedStatements.get( tableName );
     if ( insertStatement == null ) {
       String sql =
@@ -333,16 +352,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       } else {
         data.db.clearBatch( insertStatement );
         data.db.rollback();
-        StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
-        msg.append( Const.CR );
-        msg.append( "Errors encountered (first 10):" ).append( Const.CR );
-        for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
-          Exception exception = be.getExceptionsList().get( x );
-          if ( exception.getMessage() != null ) {
-            msg.append( exception.getMessage() ).append( Const.CR );
-          }
-        }
-        throw new KettleException( msg.toString(), be );
+        throw new KettleException( getBatchErrorMessage( tableName, be ), be );
       }
     } catch ( KettleDatabaseException dbe ) {
       if ( getStepMeta().isDoingErrorHandling() ) {
@@ -362,18 +372,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
         errorMessage = dbe.toString();
       } else {
         if ( meta.ignoreErrors() ) {
-          if ( data.warnings < 20 ) {
-            if ( log.isBasic() ) {
-              logBasic( "WARNING: Couldn't insert row into table: "
-                + rowMeta.getString( r ) + Const.CR + dbe.getMessage() );
-            }
-          } else if ( data.warnings == 20 ) {
-            if ( log.isBasic() ) {
-              logBasic( "FINAL WARNING (no more then 20 displayed): Couldn't insert row into table: "
-                + rowMeta.getString( r ) + Const.CR + dbe.getMessage() );
-            }
-          }
-          data.warnings++;
+          warnInsertError( rowMeta, r, dbe );
         } else {
           setErrors( getErrors() + 1 );
           data.db.rollback();
@@ -405,9 +404,8 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
         outputRowData = null;
 
         if ( rowIsSafe ) { // A commit was done and the rows are all safe (no error)
+          putRows( data.outputRowMeta, data.batchBuffer );
           for ( int i = 0; i < data.batchBuffer.size(); i++ ) {
-            Object[] row = data.batchBuffer.get( i );
-            putRow( data.outputRowMeta, row );
             incrementLinesOutput();
           }
           // Clear the buffer
@@ -428,14 +426,336 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return log.isRowLevel();
   }
 
+  private void warnInsertError( RowMetaInterface rowMeta, Object[] r, KettleException dbe ) throws KettleException {
+    if ( data.warnings < 20 ) {
+      if ( log.isBasic() ) {
+        logBasic( "WARNING: Couldn't insert row into table: "
+          + rowMeta.getString( r ) + Const.CR + dbe.getMessage() );
+      }
+    } else if ( data.warnings == 20 ) {
+      if ( log.isBasic() ) {
+        logBasic( "FINAL WARNING (no more then 20 displayed): Couldn't insert row into table: "
+          + rowMeta.getString( r ) + Const.CR + dbe.getMessage() );
+      }
+    }
+    data.warnings++;
+  }
+
+  private String getBatchErrorMessage( String tableName, KettleDatabaseBatchException be ) {
+    StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
+    msg.append( Const.CR );
+    msg.append( "Errors encountered (first 10):" ).append( Const.CR );
+    for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
+      Exception exception = be.getExceptionsList().get( x );
+      if ( exception.getMessage() != null ) {
+        msg.append( exception.getMessage() ).append( Const.CR );
+      }
+    }
+    return msg.toString();
+  }
+
+  /**
+   * Adds a row to the buffer of its writer. A full buffer is inserted and committed at once: with multi-row insert
+   * statements and/or in the background while the next rows are collected. The rows are passed on once they are
+   * committed, the same as in batch mode. When the writers commit together a full buffer is only inserted, its rows
+   * are passed on before the commit at the end, the same as in a single database transaction.
+   */
+  private void bufferRow( RowMetaInterface rowMeta, Object[] r, Object[] insertRowData, Object[] outputRowData )
+    throws KettleException {
+    TableOutputWriter writer = data.writers[ getWriterNr( rowMeta, r ) ];
+    writer.addRow( insertRowData, outputRowData );
+    if ( writer.insertBuffer.size() >= data.commitSize ) {
+      startWrite( writer, data.writeInBackground, !data.commitWritersTogether );
+      if ( !data.writeInBackground ) {
+        finishPendingWrite( writer );
+      }
+    }
+  }
+
+  /**
+   * @return the number of the writer of a row: by the hash of the writer field to keep equal values on the same
+   *         connection, round robin otherwise
+   */
+  private int getWriterNr( RowMetaInterface rowMeta, Object[] r ) throws KettleException {
+    if ( data.writers.length == 1 ) {
+      return 0;
+    }
+    if ( data.indexOfWriterField >= 0 ) {
+      int hash = rowMeta.getValueMeta( data.indexOfWriterField ).hashCode( r[ data.indexOfWriterField ] );
+      return Math.floorMod( hash, data.writers.length );
+    }
+    int writerNr = data.nextWriter;
+    data.nextWriter = ( writerNr + 1 ) % data.writers.length;
+    return writerNr;
+  }
+
+  /**
+   * Hands the buffered rows of a writer over to be inserted, once its previous rows are finished. The rows stay
+   * pending until {@link #finishPendingWrite(TableOutputWriter)} passes them on.
+   *
+   * @param inBackground true to insert the rows in the background, false to insert them right away
+   * @param commit       true to commit the rows, false to leave that to the step
+   */
+  private void startWrite( TableOutputWriter writer, boolean inBackground, boolean commit ) throws KettleException {
+    finishPendingWrite( writer );
+    if ( writer.insertBuffer.isEmpty() ) {
+      return;
+    }
+
+    final List<Object[]> insertRows = writer.insertBuffer;
+    writer.pendingBuffer = writer.outputBuffer;
+    writer.insertBuffer = new ArrayList<>( insertRows.size() );
+    writer.outputBuffer = new ArrayList<>( insertRows.size() );
+
+    FutureTask<KettleException[]> write = new FutureTask<>( () -> writer.write( insertRows, commit ) );
+    writer.pendingWrite = write;
+    if ( inBackground ) {
+      ExecutorUtil.getExecutor().execute( write );
+    } else {
+      write.run();
+    }
+  }
+
+  /**
+   * Waits for the pending rows of a writer and passes them on.
+   */
+  private void finishPendingWrite( TableOutputWriter writer ) throws KettleException {
+    if ( writer.pendingWrite == null ) {
+      return;
+    }
+    List<Object[]> outputRows = writer.pendingBuffer;
+    KettleException[] rowErrors;
+    try {
+      rowErrors = writer.pendingWrite.get();
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof KettleDatabaseException ) {
+        processFailedBuffer( writer, outputRows, (KettleDatabaseException) e.getCause() );
+        return;
+      }
+      throw new KettleException( "Unexpected error inserting rows into table [" + data.tableName + "]", e.getCause() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } finally {
+      writer.pendingWrite = null;
+      writer.pendingBuffer = null;
+    }
+    processWrittenBuffer( outputRows, rowErrors );
+  }
+
+  /**
+   * Waits for the pending rows of a writer without passing them on.
+   *
+   * @return the error that has to fail the step, null if the rows were inserted or go to the error handling
+   */
+  private Throwable waitForWrite( TableOutputWriter writer ) {
+    if ( writer.pendingWrite == null ) {
+      return null;
+    }
+    try {
+      writer.pendingWrite.get();
+      return null;
+    } catch ( ExecutionException e ) {
+      Throwable cause = e.getCause();
+      return cause instanceof KettleDatabaseBatchException && getStepMeta().isDoingErrorHandling() ? null : cause;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return e;
+    }
+  }
+
+  /**
+   * Inserts the rows that are left and commits them over all the connections together: first the rows are inserted
+   * over all of them, only when that worked out everywhere they are committed. The rows are passed on after the
+   * commit. This is as close to a two-phase commit as the connections get: a failing commit can't undo the commits of
+   * the connections before it. In a single database transaction (unique connections) the transformation commits all
+   * the connections once all its steps are done.
+   */
+  private void finishWriters() throws KettleException {
+    boolean inBackground = data.writers.length > 1;
+    for ( TableOutputWriter writer : data.writers ) {
+      startWrite( writer, inBackground, false );
+    }
+
+    Throwable failure = null;
+    for ( TableOutputWriter writer : data.writers ) {
+      Throwable error = waitForWrite( writer );
+      if ( failure == null ) {
+        failure = error;
+      }
+    }
+    if ( failure != null ) {
+      for ( TableOutputWriter writer : data.writers ) {
+        writer.pendingWrite = null;
+        writer.pendingBuffer = null;
+        writer.clearBatches();
+        writer.getDatabase().rollback();
+      }
+      throw new KettleException( "Error inserting rows into table [" + data.tableName + "]", failure );
+    }
+
+    if ( !getTransMeta().isUsingUniqueConnections() ) {
+      for ( TableOutputWriter writer : data.writers ) {
+        writer.getDatabase().commit();
+      }
+    }
+    for ( TableOutputWriter writer : data.writers ) {
+      finishPendingWrite( writer );
+      writer.closeStatements();
+    }
+  }
+
+  /**
+   * Makes sure nothing is written anymore: waits for the rows in the background, rolls back after an error and
+   * disconnects the extra connections. The first writer uses the connection of the step. In a single database
+   * transaction the extra connections are committed or rolled back and disconnected by the transformation.
+   */
+  private void closeWriters() {
+    boolean uniqueConnections = getTransMeta().isUsingUniqueConnections();
+    for ( int i = 0; i < data.writers.length; i++ ) {
+      TableOutputWriter writer = data.writers[ i ];
+      if ( writer == null ) {
+        continue;
+      }
+      waitForWrite( writer );
+      writer.pendingWrite = null;
+      writer.pendingBuffer = null;
+      if ( i > 0 && !uniqueConnections ) {
+        if ( getErrors() > 0 ) {
+          try {
+            writer.getDatabase().rollback();
+          } catch ( KettleDatabaseException e ) {
+            logError( "Unexpected error rolling back the database connection.", e );
+          }
+        }
+        writer.getDatabase().close();
+      }
+    }
+  }
+
+  /**
+   * Opens an extra connection to insert over, with the same commit behavior as the connection of the step. In a single
+   * database transaction (unique connections) it is committed or rolled back together with the transaction.
+   */
+  private Database connectWriter() throws KettleDatabaseException {
+    Database db = new Database( this, data.databaseMeta );
+    db.shareVariablesWith( this );
+    db.setCommitSize( data.commitSize );
+    db.connect( getPartitionID() );
+    db.setAutoCommit();
+    if ( getTransMeta().isUsingUniqueConnections() ) {
+      DatabaseConnectionMap.getInstance().addTransactionListener( getTrans().getTransactionId(),
+        new DatabaseTransactionListener() {
+          @Override
+          public void commit() throws KettleDatabaseException {
+            try {
+              db.commit( true );
+            } finally {
+              db.close();
+            }
+          }
+
+          @Override
+          public void rollback() throws KettleDatabaseException {
+            try {
+              db.rollback( true );
+            } finally {
+              db.close();
+            }
+          }
+        } );
+    }
+    return db;
+  }
+
+  /**
+   * Passes on the committed rows all at once, the rows that couldn't be inserted go to the error handling.
+   */
+  private void processWrittenBuffer( List<Object[]> outputRows, KettleException[] rowErrors ) throws KettleException {
+    List<Object[]> writtenRows = new ArrayList<>( outputRows.size() );
+    for ( int i = 0; i < outputRows.size(); i++ ) {
+      Object[] row = outputRows.get( i );
+      if ( rowErrors[ i ] == null ) {
+        writtenRows.add( row );
+        incrementLinesOutput();
+      } else if ( getStepMeta().isDoingErrorHandling() ) {
+        putError( data.outputRowMeta, row, 1L, rowErrors[ i ].toString(), null, "TOP001" );
+      } else {
+        warnInsertError( data.outputRowMeta, row, rowErrors[ i ] );
+      }
+    }
+    putRows( data.outputRowMeta, writtenRows );
+  }
+
+  /**
+   * Handles a buffer that couldn't be written. With error handling the failed batch is treated the same as in batch
+   * mode, otherwise everything since the last commit of the writer is rolled back. When the writers commit together
+   * that is everything, the other writers are rolled back by the step after the error.
+   */
+  private void processFailedBuffer( TableOutputWriter writer, List<Object[]> outputRows, KettleDatabaseException e )
+    throws KettleException {
+    writer.clearBatches();
+    if ( e instanceof KettleDatabaseBatchException && getStepMeta().isDoingErrorHandling() ) {
+      KettleDatabaseBatchException be = (KettleDatabaseBatchException) e;
+      if ( !data.commitWritersTogether ) {
+        writer.getDatabase().commit( true );
+      }
+      processBatchException( outputRows, be.toString(), be.getUpdateCounts(), be.getExceptionsList() );
+    } else {
+      writer.getDatabase().rollback();
+      if ( e instanceof KettleDatabaseBatchException ) {
+        throw new KettleException( getBatchErrorMessage( data.tableName, (KettleDatabaseBatchException) e ), e );
+      }
+      throw new KettleException( "Error inserting rows into table [" + data.tableName + "]", e );
+    }
+  }
+
+  /**
+   * Creates the writers of the buffered rows, the first one inserts over the connection of the step.
+   */
+  private void createWriters() throws KettleException {
+    // Stay within the limits of the database and of the commit size
+    int maxRows = MAX_PARAMETERS_PER_STATEMENT / Math.max( 1, data.insertRowMeta.size() );
+    data.rowsPerStatement = Math.max( 1, Math.min( data.rowsPerStatement, Math.min( maxRows, data.commitSize ) ) );
+
+    data.indexOfWriterField = -1;
+    if ( data.nrWriters > 1 && !Utils.isEmpty( meta.getWriterField() ) ) {
+      String writerField = environmentSubstitute( meta.getWriterField() );
+      data.indexOfWriterField = getInputRowMeta().indexOfValue( writerField );
+      if ( data.indexOfWriterField < 0 ) {
+        throw new KettleStepException( BaseMessages.getString( PKG, "TableOutput.Exception.FieldRequired",
+          writerField ) );
+      }
+    }
+
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "TableOutput.Log.BufferingRows", data.rowsPerStatement,
+        data.writeInBackground, data.nrWriters ) );
+    }
+
+    String schemaName = environmentSubstitute( meta.getSchemaName() );
+    boolean keepFailedRows = getStepMeta().isDoingErrorHandling() || meta.ignoreErrors();
+    data.writers = new TableOutputWriter[ data.nrWriters ];
+    for ( int i = 0; i < data.nrWriters; i++ ) {
+      Database db = i == 0 ? data.db : connectWriter();
+      data.writers[ i ] = new TableOutputWriter( db, schemaName, data.tableName, data.insertRowMeta,
+        data.rowsPerStatement, keepFailedRows, log );
+    }
+  }
+
   private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList ) throws KettleException {
+    processBatchException( data.batchBuffer, errorMessage, updateCounts, exceptionsList );
+  }
+
+  private void processBatchException( List<Object[]> batchBuffer, String errorMessage, int[] updateCounts,
+                                      List<Exception> exceptionsList ) throws KettleException {
     // There was an error with the commit
     // We should put all the failing rows out there...
     //
     if ( updateCounts != null ) {
       int errNr = 0;
       for ( int i = 0; i < updateCounts.length; i++ ) {
-        Object[] row = data.batchBuffer.get( i );
+        Object[] row = batchBuffer.get( i );
         if ( updateCounts[i] > 0 ) {
           // send the error foward
           putRow( data.outputRowMeta, row );
@@ -454,14 +774,14 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       // If we don't have update counts, it probably means the DB doesn't support it.
       // In this case we don't have a choice but to consider all inserted rows to be error rows.
       //
-      for ( int i = 0; i < data.batchBuffer.size(); i++ ) {
-        Object[] row = data.batchBuffer.get( i );
+      for ( int i = 0; i < batchBuffer.size(); i++ ) {
+        Object[] row = batchBuffer.get( i );
         putError( data.outputRowMeta, row, 1L, errorMessage, null, "TOP0003" );
       }
     }
 
     // Clear the buffer afterwards...
-    data.batchBuffer.clear();
+    batchBuffer.clear();
   }
 
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
@@ -490,10 +810,26 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
         // - if we need to pick up auto-generated keys
         // - if you are running the transformation as a single database transaction (unique connections)
         // - if we are reverting to save-points
-        data.batchMode =
-          meta.useBatchUpdate()
-            && data.commitSize > 0 && !meta.isReturningGeneratedKeys()
-            && !getTransMeta().isUsingUniqueConnections() && !data.useSafePoints;
+        boolean uniqueConnections = getTransMeta().isUsingUniqueConnections();
+        boolean batchInserts =
+          meta.useBatchUpdate() && data.commitSize > 0 && !meta.isReturningGeneratedKeys() && !data.useSafePoints;
+        data.batchMode = batchInserts && !uniqueConnections;
+
+        // Collect the rows of a commit to insert them with multi-row statements, in the background while the next
+        // rows come in and/or over several connections. Only when all the rows go to the same table. The writers
+        // execute their own batches and can leave the commit to the end, so they also work with unique connections.
+        boolean multiRowInsert = meta.useMultiRowInsert() && data.databaseMeta.supportsMultiRowInsert();
+        data.nrWriters = Math.max( 1, Const.toInt( environmentSubstitute( meta.getNrWriters() ), 1 ) );
+        data.bufferRows =
+          batchInserts && ( multiRowInsert || meta.usePipelinedBatch() || data.nrWriters > 1 )
+            && !meta.isTableNameInField() && !meta.isPartitioningEnabled();
+        if ( !data.bufferRows && data.nrWriters > 1 ) {
+          logBasic( BaseMessages.getString( PKG, "TableOutput.Log.WritersDisabled", data.nrWriters ) );
+          data.nrWriters = 1;
+        }
+        data.commitWritersTogether = meta.isCommitWritersTogether() || uniqueConnections;
+        data.writeInBackground = data.bufferRows && ( meta.usePipelinedBatch() || data.nrWriters > 1 );
+        data.rowsPerStatement = multiRowInsert ? MAX_ROWS_PER_STATEMENT : 1;
 
         // Per PDI-6211 : give a warning that batch mode operation in combination with step error handling can lead to
         // incorrectly processed rows.
@@ -554,6 +890,9 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
 
     if ( data.db != null ) {
       try {
+        if ( data.writers != null && getErrors() == 0 ) {
+          finishWriters();
+        }
         for ( String schemaTable : data.preparedStatements.keySet() ) {
           // Get a commit counter per prepared statement to keep track of separate tables, etc.
           //
@@ -595,6 +934,9 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
         setErrors( 1 );
         stopAll();
       } finally {
+        if ( data.writers != null ) {
+          closeWriters();
+        }
         setOutputDone();
 
         if ( getErrors() > 0 ) {
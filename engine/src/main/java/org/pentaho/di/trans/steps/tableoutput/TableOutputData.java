@@ -69,6 +69,33 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
   public int commitSize;
 
+  /**
+   * Collect the rows of a commit and insert them all at once: with multi-row inserts, in the background and/or over
+   * several connections
+   */
+  public boolean bufferRows;
+
+  /** The number of rows to insert with one statement when the rows are buffered */
+  public int rowsPerStatement;
+
+  /** Insert the buffered rows in the background while the rows of the next commit are collected? */
+  public boolean writeInBackground;
+
+  /** The number of connections to insert the buffered rows over */
+  public int nrWriters;
+
+  /** Leave the commit of the buffered rows to the end, to commit or roll back all the writers together? */
+  public boolean commitWritersTogether;
+
+  /** The writers of the buffered rows, one per connection */
+  public TableOutputWriter[] writers;
+
+  /** The field to spread the rows over the writers by, -1 to spread them round robin */
+  public int indexOfWriterField;
+
+  /** The writer of the next row when the rows are spread round robin */
+  public int nextWriter;
+
   public TableOutputData() {
     super();
 
@@ -82,6 +109,8 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
     indexOfTableNameField = -1;
 
     batchBuffer = new ArrayList<Object[]>();
+    indexOfWriterField = -1;
+    nrWriters = 1;
     commitCounterMap = new HashMap<String, Integer>();
 
     releaseSavepoint = true;
@@ -99,6 +99,29 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
   }
   private boolean useBatchUpdate;
 
+  @Injection( name = "USE_MULTI_ROW_INSERT" )
+  public void metaSetUseMultiRowInsert( String value ) {
+    setUseMultiRowInsert( "Y".equalsIgnoreCase( value ) );
+  }
+  private boolean useMultiRowInsert;
+
+  @Injection( name = "USE_PIPELINED_BATCH" )
+  public void metaSetUsePipelinedBatch( String value ) {
+    setUsePipelinedBatch( "Y".equalsIgnoreCase( value ) );
+  }
+  private boolean usePipelinedBatch;
+
+  @Injection( name = "NR_WRITERS" )
+  private String nrWriters;
+
+  @Injection( name = "WRITER_FIELD" )
+  private String writerField;
+
+  @Injection( name = "COMMIT_WRITERS_TOGETHER" )
+  public void metaSetCommitWritersTogether( String value ) {
+    setCommitWritersTogether( "Y".equalsIgnoreCase( value ) );
+  }
+  private boolean commitWritersTogether;
 
   @Injection( name = "PARTITION_OVER_TABLES" )
   public void metaSetPartitionOverTables( String value ) {
@@ -438,6 +461,81 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     return useBatchUpdate;
   }
 
+  /**
+   * @param useMultiRowInsert The useMultiRowInsert flag to set.
+   */
+  public void setUseMultiRowInsert( boolean useMultiRowInsert ) {
+    this.useMultiRowInsert = useMultiRowInsert;
+  }
+
+  /**
+   * @return Returns the useMultiRowInsert flag: insert many rows per statement in batch mode, if the database
+   *         supports it.
+   */
+  public boolean useMultiRowInsert() {
+    return useMultiRowInsert;
+  }
+
+  /**
+   * @param usePipelinedBatch The usePipelinedBatch flag to set.
+   */
+  public void setUsePipelinedBatch( boolean usePipelinedBatch ) {
+    this.usePipelinedBatch = usePipelinedBatch;
+  }
+
+  /**
+   * @return Returns the usePipelinedBatch flag: insert and commit a batch in the background while the rows of the
+   *         next batch come in.
+   */
+  public boolean usePipelinedBatch() {
+    return usePipelinedBatch;
+  }
+
+  /**
+   * @return Returns the number of connections to insert over at the same time in batch mode. Every connection
+   *         commits its own rows unless the connections commit together, see {@link #isCommitWritersTogether()}.
+   */
+  public String getNrWriters() {
+    return nrWriters;
+  }
+
+  /**
+   * @param nrWriters The number of connections to insert over at the same time to set.
+   */
+  public void setNrWriters( String nrWriters ) {
+    this.nrWriters = nrWriters;
+  }
+
+  /**
+   * @return Returns the field to spread the rows over the connections by, empty to spread them round robin.
+   */
+  public String getWriterField() {
+    return writerField;
+  }
+
+  /**
+   * @param writerField The field to spread the rows over the connections by to set.
+   */
+  public void setWriterField( String writerField ) {
+    this.writerField = writerField;
+  }
+
+  /**
+   * @return Returns true if the connections only insert their rows every commit size rows and commit them all at the
+   *         end, or roll them all back after an error. Always the case in a single database transaction (unique
+   *         connections).
+   */
+  public boolean isCommitWritersTogether() {
+    return commitWritersTogether;
+  }
+
+  /**
+   * @param commitWritersTogether The commitWritersTogether flag to set.
+   */
+  public void setCommitWritersTogether( boolean commitWritersTogether ) {
+    this.commitWritersTogether = commitWritersTogether;
+  }
+
   private void readData( Node stepnode, List<DatabaseMeta> databases ) throws KettleXMLException {
     try {
       String con = XMLHandler.getTagValue( stepnode, "connection" );
@@ -448,6 +546,11 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       truncateTable = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "truncate" ) );
       ignoreErrors = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "ignore_errors" ) );
       useBatchUpdate = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_batch" ) );
+      useMultiRowInsert = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_multi_row_insert" ) );
+      usePipelinedBatch = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_pipelined_batch" ) );
+      nrWriters = XMLHandler.getTagValue( stepnode, "nr_writers" );
+      writerField = XMLHandler.getTagValue( stepnode, "writer_field" );
+      commitWritersTogether = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "commit_writers_together" ) );
 
       // If not present it will be false to be compatible with pre-v3.2
       specifyFields = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "specify_fields" ) );
@@ -484,6 +587,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     databaseMeta = null;
     tableName = "";
     commitSize = "1000";
+    nrWriters = "1";
 
     partitioningEnabled = false;
     partitioningMonthly = true;
@@ -506,6 +610,11 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     retval.append( "    " + XMLHandler.addTagValue( "truncate", truncateTable ) );
     retval.append( "    " + XMLHandler.addTagValue( "ignore_errors", ignoreErrors ) );
     retval.append( "    " + XMLHandler.addTagValue( "use_batch", useBatchUpdate ) );
+    retval.append( "    " + XMLHandler.addTagValue( "use_multi_row_insert", useMultiRowInsert ) );
+    retval.append( "    " + XMLHandler.addTagValue( "use_pipelined_batch", usePipelinedBatch ) );
+    retval.append( "    " + XMLHandler.addTagValue( "nr_writers", nrWriters ) );
+    retval.append( "    " + XMLHandler.addTagValue( "writer_field", writerField ) );
+    retval.append( "    " + XMLHandler.addTagValue( "commit_writers_together", commitWritersTogether ) );
     retval.append( "    " + XMLHandler.addTagValue( "specify_fields", specifyFields ) );
 
     retval.append( "    " + XMLHandler.addTagValue( "partitioning_enabled", partitioningEnabled ) );
@@ -543,6 +652,11 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       truncateTable = rep.getStepAttributeBoolean( id_step, "truncate" );
       ignoreErrors = rep.getStepAttributeBoolean( id_step, "ignore_errors" );
       useBatchUpdate = rep.getStepAttributeBoolean( id_step, "use_batch" );
+      useMultiRowInsert = rep.getStepAttributeBoolean( id_step, "use_multi_row_insert" );
+      usePipelinedBatch = rep.getStepAttributeBoolean( id_step, "use_pipelined_batch" );
+      nrWriters = rep.getStepAttributeString( id_step, "nr_writers" );
+      writerField = rep.getStepAttributeString( id_step, "writer_field" );
+      commitWritersTogether = rep.getStepAttributeBoolean( id_step, "commit_writers_together" );
       specifyFields = rep.getStepAttributeBoolean( id_step, "specify_fields" );
 
       partitioningEnabled = rep.getStepAttributeBoolean( id_step, "partitioning_enabled" );
@@ -582,6 +696,11 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       rep.saveStepAttribute( id_transformation, id_step, "truncate", truncateTable );
       rep.saveStepAttribute( id_transformation, id_step, "ignore_errors", ignoreErrors );
       rep.saveStepAttribute( id_transformation, id_step, "use_batch", useBatchUpdate );
+      rep.saveStepAttribute( id_transformation, id_step, "use_multi_row_insert", useMultiRowInsert );
+      rep.saveStepAttribute( id_transformation, id_step, "use_pipelined_batch", usePipelinedBatch );
+      rep.saveStepAttribute( id_transformation, id_step, "nr_writers", nrWriters );
+      rep.saveStepAttribute( id_transformation, id_step, "writer_field", writerField );
+      rep.saveStepAttribute( id_transformation, id_step, "commit_writers_together", commitWritersTogether );
       rep.saveStepAttribute( id_transformation, id_step, "specify_fields", specifyFields );
 
       rep.saveStepAttribute( id_transformation, id_step, "partitioning_enabled", partitioningEnabled );
@@ -805,6 +924,14 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       remarks.add( cr );
     }
 
+    // Unless they commit together, every connection commits its own rows: they are not one transaction
+    //
+    int nrConnections = Const.toInt( transMeta.environmentSubstitute( nrWriters ), 1 );
+    if ( nrConnections > 1 && !commitWritersTogether && !transMeta.isUsingUniqueConnections() ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_WARNING, BaseMessages.getString(
+        PKG, "TableOutputMeta.CheckResult.WritersCommitApart", nrConnections ), stepMeta ) );
+    }
+
     // See if we have input streams leading to this step!
     if ( input.length > 0 ) {
       CheckResult cr =
@@ -0,0 +1,254 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleDatabaseBatchException;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Inserts the buffered rows of the Table Output step over one connection. The rows of a commit are inserted with one
+ * batch of (multi-row) insert statements, on the step thread or in the background. A step that inserts over several
+ * connections at the same time has one writer per connection.
+ * <p>
+ * Only one thread at a time uses the connection: the step hands a buffer over and waits for it to be finished before
+ * it uses the writer again.
+ */
+class TableOutputWriter {
+  private final Database db;
+  private final String schemaName;
+  private final String tableName;
+  private final RowMetaInterface insertRowMeta;
+  private final int rowsPerStatement;
+  private final boolean keepFailedRows;
+  private final LogChannelInterface log;
+
+  /** The insert statements, per number of rows inserted by one statement */
+  private final Map<Integer, PreparedStatement> statements = new HashMap<>();
+
+  /** The buffered rows to insert */
+  List<Object[]> insertBuffer = new ArrayList<>();
+
+  /** The buffered rows to pass on */
+  List<Object[]> outputBuffer = new ArrayList<>();
+
+  /** The rows to pass on once the rows being written are finished */
+  List<Object[]> pendingBuffer;
+
+  /** The rows being written: the errors of the rows that couldn't be inserted */
+  Future<KettleException[]> pendingWrite;
+
+  /**
+   * @param db               the connection to insert over
+   * @param schemaName       the schema of the table
+   * @param tableName        the table to insert into
+   * @param insertRowMeta    the fields to insert
+   * @param rowsPerStatement the number of rows to insert with one statement
+   * @param keepFailedRows   true if a row that can't be inserted goes to the error handling or is ignored, false if
+   *                         it fails the whole buffer
+   * @param log              the log of the step
+   */
+  TableOutputWriter( Database db, String schemaName, String tableName, RowMetaInterface insertRowMeta,
+                     int rowsPerStatement, boolean keepFailedRows, LogChannelInterface log ) {
+    this.db = db;
+    this.schemaName = schemaName;
+    this.tableName = tableName;
+    this.insertRowMeta = insertRowMeta;
+    this.rowsPerStatement = rowsPerStatement;
+    this.keepFailedRows = keepFailedRows;
+    this.log = log;
+  }
+
+  Database getDatabase() {
+    return db;
+  }
+
+  void addRow( Object[] insertRowData, Object[] outputRowData ) {
+    insertBuffer.add( insertRowData );
+    outputBuffer.add( outputRowData );
+  }
+
+  /**
+   * Inserts the rows with as few statements as possible in one batch. This can run in the background so it only
+   * touches the connection and the statements, the rows are passed on by the step.
+   *
+   * @param insertRows the rows to insert
+   * @param commit     true to commit the rows, false to leave that to the caller
+   * @return per row the error that kept it from being inserted, null for the inserted rows
+   * @throws KettleDatabaseException in case the batch failed, the update counts are those of the rows, or in case a
+   *                                 row couldn't be inserted and failed rows aren't kept
+   */
+  KettleException[] write( List<Object[]> insertRows, boolean commit ) throws KettleDatabaseException {
+    int nrFields = insertRowMeta.size();
+    boolean useBatch = db.getUseBatchInsert( true );
+    KettleException[] rowErrors = new KettleException[ insertRows.size() ];
+
+    // The statement numbers of the rows, the rows that couldn't be bound are in no statement
+    //
+    int[] statementNrs = new int[ insertRows.size() ];
+    int[] statementCounts = new int[ insertRows.size() / rowsPerStatement + 1 ];
+    int nrStatements = 0;
+    int nrExecuted = 0;
+
+    PreparedStatement ps = getStatement( rowsPerStatement );
+    int rowNr = 0;
+    try {
+      for ( int i = 0; i < insertRows.size(); i++ ) {
+        try {
+          bindRow( ps, insertRows.get( i ), rowNr * nrFields );
+        } catch ( KettleDatabaseException e ) {
+          if ( !keepFailedRows ) {
+            throw e;
+          }
+          rowErrors[ i ] = e;
+          statementNrs[ i ] = -1;
+          continue;
+        }
+        statementNrs[ i ] = nrStatements;
+        if ( ++rowNr == rowsPerStatement ) {
+          nrExecuted = addStatement( ps, useBatch, statementCounts, nrStatements++, nrExecuted );
+          rowNr = 0;
+        }
+      }
+      if ( useBatch && nrStatements > 0 ) {
+        nrExecuted = executeBatch( ps, statementCounts, nrExecuted );
+      }
+
+      // The last rows don't fill a statement, they get a statement of their own
+      //
+      if ( rowNr > 0 ) {
+        PreparedStatement last = getStatement( rowNr );
+        int lastRow = 0;
+        for ( int i = 0; i < insertRows.size(); i++ ) {
+          if ( statementNrs[ i ] == nrStatements ) {
+            bindRow( last, insertRows.get( i ), lastRow++ * nrFields );
+          }
+        }
+        nrExecuted = addStatement( last, useBatch, statementCounts, nrStatements++, nrExecuted );
+        if ( useBatch ) {
+          executeBatch( last, statementCounts, nrExecuted );
+        }
+      }
+
+      if ( commit ) {
+        db.commit();
+      }
+      if ( useBatch ) {
+        clearBatches();
+      }
+    } catch ( SQLException ex ) {
+      // Without a batch the statement that failed is the one after the executed ones
+      KettleDatabaseBatchException be = Database.createKettleDatabaseBatchException( "Error updating batch", ex );
+      int[] failedCounts = useBatch ? be.getUpdateCounts() : new int[ 0 ];
+      be.setUpdateCounts( getRowCounts( failedCounts, statementNrs, statementCounts, nrExecuted ) );
+      throw be;
+    }
+    return rowErrors;
+  }
+
+  void clearBatches() throws KettleDatabaseException {
+    for ( PreparedStatement ps : statements.values() ) {
+      db.clearBatch( ps );
+    }
+  }
+
+  void closeStatements() throws KettleDatabaseException {
+    for ( PreparedStatement ps : statements.values() ) {
+      db.closePreparedStatement( ps );
+    }
+    statements.clear();
+  }
+
+  private void bindRow( PreparedStatement ps, Object[] row, int offset ) throws KettleDatabaseException {
+    for ( int i = 0; i < insertRowMeta.size(); i++ ) {
+      db.setValue( ps, insertRowMeta.getValueMeta( i ), row[ i ], offset + i + 1 );
+    }
+  }
+
+  /**
+   * Adds a statement with all its rows bound to the batch, or executes it right away if batches aren't supported.
+   *
+   * @return the number of statements executed so far
+   */
+  private int addStatement( PreparedStatement ps, boolean useBatch, int[] statementCounts, int statementNr,
+                            int nrExecuted ) throws SQLException {
+    if ( useBatch ) {
+      ps.addBatch();
+      return nrExecuted;
+    }
+    statementCounts[ statementNr ] = ps.executeUpdate();
+    return nrExecuted + 1;
+  }
+
+  private int executeBatch( PreparedStatement ps, int[] statementCounts, int nrExecuted ) throws SQLException {
+    int[] counts = ps.executeBatch();
+    System.arraycopy( counts, 0, statementCounts, nrExecuted, counts.length );
+    return nrExecuted + counts.length;
+  }
+
+  /**
+   * Spreads the update counts of the statements over their rows: 1 for the rows of a statement that inserted rows,
+   * the (negative) count of the statement otherwise. The rows that were not executed or couldn't be bound get
+   * {@link Statement#EXECUTE_FAILED}.
+   *
+   * @param failedCounts the update counts of the statements in the failed batch, null if the driver doesn't tell
+   * @return the update counts of the rows, null if they aren't known
+   */
+  private int[] getRowCounts( int[] failedCounts, int[] statementNrs, int[] statementCounts, int nrExecuted ) {
+    if ( failedCounts == null ) {
+      return null;
+    }
+    int[] rowCounts = new int[ statementNrs.length ];
+    for ( int i = 0; i < statementNrs.length; i++ ) {
+      int statementNr = statementNrs[ i ];
+      int count;
+      if ( statementNr < 0 ) {
+        count = Statement.EXECUTE_FAILED;
+      } else if ( statementNr < nrExecuted ) {
+        count = statementCounts[ statementNr ];
+      } else if ( statementNr - nrExecuted < failedCounts.length ) {
+        count = failedCounts[ statementNr - nrExecuted ];
+      } else {
+        count = Statement.EXECUTE_FAILED;
+      }
+      rowCounts[ i ] = count > 0 ? 1 : count;
+    }
+    return rowCounts;
+  }
+
+  private PreparedStatement getStatement( int nrRows ) throws KettleDatabaseException {
+    PreparedStatement ps = statements.get( nrRows );
+    if ( ps == null ) {
+      String sql = db.getInsertStatement( schemaName, tableName, insertRowMeta, nrRows );
+      if ( log.isDetailed() ) {
+        log.logDetailed( "Prepared statement : " + sql );
+      }
+      ps = db.prepareSQL( sql );
+      statements.put( nrRows, ps );
+    }
+    return ps;
+  }
+}
@@ -19,6 +19,9 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.batch.ColumnVector;
+import org.pentaho.di.core.row.batch.ObjectColumnVector;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -50,6 +53,10 @@ public class ValueMapper extends BaseStep implements StepInterface {
     meta = (ValueMapperMeta) smi;
     data = (ValueMapperData) sdi;
 
+    if ( data.batchMode ) {
+      return processBatch();
+    }
+
     // Get one row from one of the rowsets...
     //
     Object[] r = getRow();
@@ -61,53 +68,134 @@ public class ValueMapper extends BaseStep implements StepInterface {
 
     if ( first ) {
       first = false;
+      if ( !prepareMapping( r ) ) {
+        return false;
+      }
+    }
+
+    String target = mapValue( r[data.keynr] );
+
+    if ( !Utils.isEmpty( meta.getTargetField() ) ) {
+      // room for the target
+      r = RowDataUtil.resizeArray( r, data.outputMeta.size() );
+      // Did we find anything to map to?
+      if ( !Utils.isEmpty( target ) ) {
+        r[data.outputMeta.size() - 1] = target;
+      } else {
+        r[data.outputMeta.size() - 1] = null;
+      }
+    } else {
+      r[data.keynr] = replaceValue( r[data.keynr], target );
+    }
+    putRow( data.outputMeta, r );
+
+    return true;
+  }
+
+  /**
+   * Maps the rows a batch at a time: only the column of the field to use is looked at, the new or changed column is
+   * added to the other columns of the batch.
+   */
+  private boolean processBatch() throws KettleException {
+    RowBatch batch = getBatch( RowBatch.DEFAULT_SIZE );
+    if ( batch == null ) { // means: no more input to be expected...
+
+      setOutputDone();
+      return false;
+    }
 
-      data.previousMeta = getInputRowMeta().clone();
-      data.outputMeta = data.previousMeta.clone();
-      meta.getFields( getTransMeta().getBowl(), data.outputMeta, getStepname(), null, null, this, repository, metaStore );
-
-      data.keynr = data.previousMeta.indexOfValue( meta.getFieldToUse() );
-      if ( data.keynr < 0 ) {
-        String message =
-          BaseMessages.getString( PKG, "ValueMapper.RuntimeError.FieldToUseNotFound.VALUEMAPPER0001", meta
-            .getFieldToUse(), Const.CR, getInputRowMeta().getString( r ) );
-        logError( message );
-        setErrors( 1 );
-        stopAll();
+    if ( first ) {
+      first = false;
+      if ( !prepareMapping( batch.getRow( 0 ) ) ) {
         return false;
       }
+    }
 
-      // If there is an empty entry: we map null or "" to the target at the index
-      // 0 or 1 empty mapping is allowed, not 2 or more.
-      //
-      for ( int i = 0; i < meta.getSourceValue().length; i++ ) {
-        if ( Utils.isEmpty( meta.getSourceValue()[i] ) ) {
-          if ( data.emptyFieldIndex < 0 ) {
-            data.emptyFieldIndex = i;
-          } else {
-            throw new KettleException( BaseMessages.getString(
-              PKG, "ValueMapper.RuntimeError.OnlyOneEmptyMappingAllowed.VALUEMAPPER0004" ) );
-          }
-        }
+    int size = batch.size();
+    ColumnVector keyColumn = batch.getColumn( data.keynr );
+    Object[] values = new Object[ size ];
+    ColumnVector[] columns = new ColumnVector[ data.outputMeta.size() ];
+    for ( int i = 0; i < batch.getColumnCount(); i++ ) {
+      columns[ i ] = batch.getColumn( i );
+    }
+
+    if ( !Utils.isEmpty( meta.getTargetField() ) ) {
+      for ( int i = 0; i < size; i++ ) {
+        String target = mapValue( keyColumn.getObject( i ) );
+        // Did we find anything to map to?
+        values[ i ] = Utils.isEmpty( target ) ? null : target;
       }
+      columns[ data.outputMeta.size() - 1 ] = new ObjectColumnVector( values, size );
+    } else {
+      for ( int i = 0; i < size; i++ ) {
+        Object sourceData = keyColumn.getObject( i );
+        values[ i ] = replaceValue( sourceData, mapValue( sourceData ) );
+      }
+      columns[ data.keynr ] = RowBatch.toColumn( data.outputValueMeta, values, size );
+    }
 
-      data.sourceValueMeta = getInputRowMeta().getValueMeta( data.keynr );
+    putBatch( data.outputMeta, new RowBatch( data.outputMeta, columns, size ) );
 
-      if ( Utils.isEmpty( meta.getTargetField() ) ) {
-        data.outputValueMeta = data.outputMeta.getValueMeta( data.keynr ); // Same field
+    return true;
+  }
 
-      } else {
-        data.outputValueMeta = data.outputMeta.searchValueMeta( meta.getTargetField() ); // new field
+  /**
+   * Looks up the field to use and the empty mapping, and determines the output metadata.
+   *
+   * @param r the first row, for the error message
+   * @return false if the field to use doesn't exist
+   */
+  private boolean prepareMapping( Object[] r ) throws KettleException {
+    data.previousMeta = getInputRowMeta().clone();
+    data.outputMeta = data.previousMeta.clone();
+    meta.getFields( getTransMeta().getBowl(), data.outputMeta, getStepname(), null, null, this, repository, metaStore );
+
+    data.keynr = data.previousMeta.indexOfValue( meta.getFieldToUse() );
+    if ( data.keynr < 0 ) {
+      String message =
+        BaseMessages.getString( PKG, "ValueMapper.RuntimeError.FieldToUseNotFound.VALUEMAPPER0001", meta
+          .getFieldToUse(), Const.CR, getInputRowMeta().getString( r ) );
+      logError( message );
+      setErrors( 1 );
+      stopAll();
+      return false;
+    }
+
+    // If there is an empty entry: we map null or "" to the target at the index
+    // 0 or 1 empty mapping is allowed, not 2 or more.
+    //
+    for ( int i = 0; i < meta.getSourceValue().length; i++ ) {
+      if ( Utils.isEmpty( meta.getSourceValue()[i] ) ) {
+        if ( data.emptyFieldIndex < 0 ) {
+          data.emptyFieldIndex = i;
+        } else {
+          throw new KettleException( BaseMessages.getString(
+            PKG, "ValueMapper.RuntimeError.OnlyOneEmptyMappingAllowed.VALUEMAPPER0004" ) );
+        }
       }
     }
 
-    Object sourceData = r[data.keynr];
+    data.sourceValueMeta = getInputRowMeta().getValueMeta( data.keynr );
+
+    if ( Utils.isEmpty( meta.getTargetField() ) ) {
+      data.outputValueMeta = data.outputMeta.getValueMeta( data.keynr ); // Same field
+
+    } else {
+      data.outputValueMeta = data.outputMeta.searchValueMeta( meta.getTargetField() ); // new field
+    }
+    return true;
+  }
+
+  /**
+   * @return the target value for the value of the field to use, null if there is none
+   */
+  private String mapValue( Object sourceData ) throws KettleException {
     String source = data.sourceValueMeta.getCompatibleString( sourceData );
     String target = null;
 
     // Null/Empty mapping to value...
     //
-    if ( data.emptyFieldIndex >= 0 && ( r[data.keynr] == null || Utils.isEmpty( source ) ) ) {
+    if ( data.emptyFieldIndex >= 0 && ( sourceData == null || Utils.isEmpty( source ) ) ) {
       target = meta.getTargetValue()[data.emptyFieldIndex]; // that's all there is to it.
     } else {
       if ( !Utils.isEmpty( source ) ) {
@@ -118,46 +206,38 @@ public class ValueMapper extends BaseStep implements StepInterface {
         }
       }
     }
+    return target;
+  }
 
-    if ( !Utils.isEmpty( meta.getTargetField() ) ) {
-      // room for the target
-      r = RowDataUtil.resizeArray( r, data.outputMeta.size() );
-      // Did we find anything to map to?
-      if ( !Utils.isEmpty( target ) ) {
-        r[data.outputMeta.size() - 1] = target;
-      } else {
-        r[data.outputMeta.size() - 1] = null;
-      }
-    } else {
-      // Don't set the original value to null if we don't have a target.
-      if ( target != null ) {
-        if ( target.length() > 0 ) {
-          // See if the expected type is a String...
-          //
-          if ( data.sourceValueMeta.isString() ) {
-            r[data.keynr] = target;
-          } else {
-            // Do implicit conversion of the String to the target type...
-            //
-            r[data.keynr] = data.outputValueMeta.convertData( data.stringMeta, target );
-          }
+  /**
+   * @return the new value of the field to use when there is no target field
+   */
+  private Object replaceValue( Object sourceData, String target ) throws KettleException {
+    // Don't set the original value to null if we don't have a target.
+    if ( target != null ) {
+      if ( target.length() > 0 ) {
+        // See if the expected type is a String...
+        //
+        if ( data.sourceValueMeta.isString() ) {
+          return target;
         } else {
-          // allow target to be set to null since 3.0
-          r[data.keynr] = null;
+          // Do implicit conversion of the String to the target type...
+          //
+          return data.outputValueMeta.convertData( data.stringMeta, target );
         }
       } else {
-        // Convert to normal storage type.
-        // Otherwise we're going to be mixing storage types.
-        //
-        if ( data.sourceValueMeta.isStorageBinaryString() ) {
-          Object normal = data.sourceValueMeta.convertToNormalStorageType( r[data.keynr] );
-          r[data.keynr] = normal;
-        }
+        // allow target to be set to null since 3.0
+        return null;
+      }
+    } else {
+      // Convert to normal storage type.
+      // Otherwise we're going to be mixing storage types.
+      //
+      if ( data.sourceValueMeta.isStorageBinaryString() ) {
+        return data.sourceValueMeta.convertToNormalStorageType( sourceData );
       }
+      return sourceData;
     }
-    putRow( data.outputMeta, r );
-
-    return true;
   }
 
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
@@ -174,6 +254,7 @@ public class ValueMapper extends BaseStep implements StepInterface {
     if ( super.init( smi, sdi ) ) {
       data.hashtable = new Hashtable<String, String>();
       data.emptyFieldIndex = -1;
+      data.batchMode = hasBatchRowSets();
 
       if ( !Utils.isEmpty( meta.getNonMatchDefault() ) ) {
         nonMatchActivated = true;
@@ -39,6 +39,9 @@ public class ValueMapperData extends BaseStepData implements StepDataInterface {
   public ValueMetaInterface outputValueMeta;
   public ValueMetaInterface sourceValueMeta;
 
+  /** Process the rows a batch at a time, the step is next to a hop that carries row batches. */
+  boolean batchMode;
+
   public ValueMapperData() {
     super();
 
@@ -303,6 +303,11 @@ public class ValueMapperMeta extends BaseStepMeta implements StepMetaInterface {
     return new ValueMapperData();
   }
 
+  @Override
+  public boolean supportsBatches() {
+    return true;
+  }
+
   /**
    * @return Returns the fieldToUse.
    */
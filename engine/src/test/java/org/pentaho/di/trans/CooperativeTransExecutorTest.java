@@ -0,0 +1,74 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.TransMeta.TransformationType;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+
+import static org.junit.Assert.assertEquals;
+
+public class CooperativeTransExecutorTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @BeforeClass
+  public static void before() throws KettleException {
+    KettleEnvironment.init( false );
+  }
+
+  @Test( timeout = 60000 )
+  public void testAllRowsPassInOrder() throws KettleException {
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, new DummyTransMeta(), "middle" );
+    transMeta.setTransformationType( TransformationType.Cooperative );
+    // Small row sets so that the producing steps are held back regularly
+    transMeta.setSizeRowset( 10 );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    List<RowMetaAndData> input = new ArrayList<>();
+    for ( long i = 0; i < 10000; i++ ) {
+      input.add( new RowMetaAndData( rowMeta, i ) );
+    }
+
+    List<RowMetaAndData> result = TransTestFactory.executeTestTransformation( transMeta, "middle", input );
+
+    assertEquals( input.size(), result.size() );
+    for ( int i = 0; i < result.size(); i++ ) {
+      assertEquals( Long.valueOf( i ), result.get( i ).getInteger( "id" ) );
+    }
+  }
+
+  @Test( timeout = 60000 )
+  public void testEmptyInput() throws KettleException {
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, new DummyTransMeta(), "middle" );
+    transMeta.setTransformationType( TransformationType.Cooperative );
+
+    List<RowMetaAndData> result =
+      TransTestFactory.executeTestTransformation( transMeta, "middle", new ArrayList<RowMetaAndData>() );
+
+    assertEquals( 0, result.size() );
+  }
+}
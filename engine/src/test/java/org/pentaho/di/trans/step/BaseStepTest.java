@@ -23,6 +23,7 @@ import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.SingleRowRowSet;
@@ -56,6 +57,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
@@ -376,6 +378,204 @@ public class BaseStepTest {
     verify( rowHandler, times( 1 ) ).putRow( rowMetaInterface, objects );
   }
 
+  @Test
+  public void getRowsWithRowHandler() throws KettleException {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRowHandler( rowHandler );
+    baseStep.getRows( 10 );
+    verify( rowHandler, times( 1 ) ).getRows( 10 );
+  }
+
+  @Test
+  public void putRowsWithRowHandler() throws KettleException {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRowHandler( rowHandler );
+
+    RowMetaInterface rowMetaInterface = mock( RowMetaInterface.class );
+    List<Object[]> rows = Arrays.asList( new Object[] { "foo" }, new Object[] { "bar" } );
+    baseStep.putRows( rowMetaInterface, rows );
+    verify( rowHandler, times( 1 ) ).putRows( rowMetaInterface, rows );
+  }
+
+  @Test
+  public void putRowsAndGetRowsThroughRowSet() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      spy( new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
+        mockHelper.trans ) );
+    doNothing().when( baseStep ).openRemoteInputStepSocketsOnce();
+    baseStep.setStopped( false );
+    baseStep.setRepartitioning( StepPartitioningMeta.PARTITIONING_METHOD_NONE );
+
+    RowSet rowSet = new BlockingRowSet( 10 );
+    baseStep.setOutputRowSets( new ArrayList<>( Arrays.asList( rowSet ) ) );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    List<Object[]> rows = Arrays.asList( new Object[] { 1L }, new Object[] { 2L }, new Object[] { 3L } );
+
+    baseStep.putRows( rowMeta, rows );
+    assertEquals( 3, rowSet.size() );
+    assertEquals( 3, baseStep.getLinesWritten() );
+
+    baseStep.setInputRowSets( new ArrayList<>( Arrays.asList( rowSet ) ) );
+    List<Object[]> result = baseStep.getRows( 2 );
+    assertEquals( 2, result.size() );
+    assertEquals( 1L, result.get( 0 )[ 0 ] );
+    assertEquals( 2L, result.get( 1 )[ 0 ] );
+
+    result = baseStep.getRows( 2 );
+    assertEquals( 1, result.size() );
+    assertEquals( 3L, result.get( 0 )[ 0 ] );
+    assertEquals( 3, baseStep.getLinesRead() );
+    assertEquals( rowMeta.getFieldNames()[ 0 ], baseStep.getInputRowMeta().getFieldNames()[ 0 ] );
+  }
+
+  @Test
+  public void putRowsCountsTheRowsThatFitBeforeASafeStop() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRepartitioning( StepPartitioningMeta.PARTITIONING_METHOD_NONE );
+    RowSet rowSet = new BlockingRowSet( 2 );
+    baseStep.setOutputRowSets( new ArrayList<>( Arrays.asList( rowSet ) ) );
+    baseStep.setStopped( true );
+    baseStep.setSafeStopped( true );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    // Nobody reads the row set: the third row doesn't fit and the safely stopped step gives up on it
+    baseStep.putRows( rowMeta, Arrays.asList( new Object[] { 1L }, new Object[] { 2L }, new Object[] { 3L } ) );
+    assertEquals( 2, rowSet.size() );
+    assertEquals( 2, baseStep.getLinesWritten() );
+  }
+
+  @Test( expected = KettleStepException.class )
+  public void putRowsFailsOnANullRow() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRepartitioning( StepPartitioningMeta.PARTITIONING_METHOD_NONE );
+    baseStep.setOutputRowSets( new ArrayList<>( Arrays.asList( new RingBufferRowSet( 10 ) ) ) );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    baseStep.putRows( rowMeta, Arrays.asList( new Object[] { 1L }, null ) );
+  }
+
+  @Test
+  public void rowCounters() {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+
+    assertEquals( 1, baseStep.incrementLinesRead() );
+    assertEquals( 11, baseStep.incrementLinesRead( 10 ) );
+    assertEquals( 10, baseStep.decrementLinesRead() );
+    assertEquals( 10, baseStep.getLinesRead() );
+    assertEquals( 5, baseStep.incrementLinesWritten( 5 ) );
+    assertEquals( 4, baseStep.decrementLinesWritten() );
+    assertEquals( 4, baseStep.getLinesWritten() );
+    assertEquals( 1, baseStep.incrementLinesInput() );
+    assertEquals( 1, baseStep.incrementLinesOutput() );
+    assertEquals( 1, baseStep.incrementLinesUpdated() );
+    assertEquals( 1, baseStep.incrementLinesRejected() );
+    assertEquals( 1, baseStep.incrementLinesSkipped() );
+
+    baseStep.setLinesInput( 7 );
+    assertEquals( 7, baseStep.getLinesInput() );
+    baseStep.setLinesSkipped( 0 );
+    assertEquals( 0, baseStep.getLinesSkipped() );
+  }
+
+  @Test( timeout = 30000 )
+  public void rowCountersSeenByMonitoringThread() throws Exception {
+    final BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    final int nrRows = 1000000;
+    final AtomicBoolean backwards = new AtomicBoolean( false );
+
+    Thread monitor = new Thread( () -> {
+      long previous = 0;
+      while ( previous < nrRows ) {
+        long current = baseStep.getLinesRead();
+        if ( current < previous ) {
+          backwards.set( true );
+          return;
+        }
+        previous = current;
+      }
+    } );
+    monitor.start();
+
+    for ( int i = 0; i < nrRows; i++ ) {
+      baseStep.incrementLinesRead();
+    }
+    monitor.join();
+
+    assertFalse( backwards.get() );
+    assertEquals( nrRows, baseStep.getLinesRead() );
+  }
+
+  @Test( timeout = 30000 )
+  public void countersTakenAtTheSameMoment() throws Exception {
+    // Every row is read before it is written, so a snapshot never has more lines written than read
+    final BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    final int nrRows = 1000000;
+    final AtomicBoolean inconsistent = new AtomicBoolean( false );
+
+    Thread monitor = new Thread( () -> {
+      StepCounters counters;
+      do {
+        counters = baseStep.getCounters();
+        if ( counters.getLinesWritten() > counters.getLinesRead()
+          || counters.getLinesRead() > counters.getLinesWritten() + 1 ) {
+          inconsistent.set( true );
+          return;
+        }
+      } while ( counters.getLinesWritten() < nrRows );
+    } );
+    monitor.start();
+
+    for ( int i = 0; i < nrRows; i++ ) {
+      baseStep.incrementLinesRead();
+      baseStep.incrementLinesWritten();
+    }
+    monitor.join();
+
+    assertFalse( inconsistent.get() );
+    baseStep.setErrors( 2 );
+    assertEquals( new StepCounters( nrRows, nrRows, 0, 0, 0, 0, 2 ), baseStep.getCounters() );
+  }
+
+  @Test( timeout = 30000 )
+  public void rowCountersUpdatedByOtherThreads() throws Exception {
+    // The socket threads of a remote step update the counters of the step while the step thread runs
+    final BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    final int nrRows = 1000000;
+
+    Thread socketThread = new Thread( () -> {
+      for ( int i = 0; i < nrRows; i++ ) {
+        baseStep.decrementLinesWritten();
+        baseStep.incrementLinesOutput();
+      }
+    } );
+    socketThread.start();
+    for ( int i = 0; i < nrRows; i++ ) {
+      baseStep.incrementLinesWritten();
+      baseStep.incrementLinesOutput();
+    }
+    socketThread.join();
+
+    assertEquals( 0, baseStep.getLinesWritten() );
+    assertEquals( 2 * nrRows, baseStep.getLinesOutput() );
+  }
+
   @Test
   public void putErrorWithRowHandler() throws KettleException {
     BaseStep baseStep =
@@ -414,6 +614,10 @@ public class BaseStepTest {
     } catch ( UnsupportedOperationException uoe ) {
       assertThat( uoe.getMessage(), containsString( this.getClass().getName() ) );
     }
+
+    // The batch methods fall back on getRow() and putRow()
+    assertEquals( 1, baseStep.getRows( 10 ).size() );
+    baseStep.putRows( rowMetaInterface, Arrays.asList( objects, objects ) );
   }
 
 
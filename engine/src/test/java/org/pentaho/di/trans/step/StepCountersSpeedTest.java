@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Measures the cost per row of the step row counters while a monitoring thread (Spoon, Carte, the performance
+ * snapshots) keeps reading them: the counters guarded by a lock as BaseStep used to have them, against the counters
+ * with atomic adds and acquire loads that BaseStep uses now.
+ */
+public class StepCountersSpeedTest {
+  private static final Log log = LogFactory.getLog( StepCountersSpeedTest.class );
+
+  public static final int ITERATIONS = 100000000;
+
+  interface Counter {
+    long increment();
+
+    long get();
+  }
+
+  static class LockedCounter implements Counter {
+    private final Object lock = new Object();
+    private long value;
+
+    @Override
+    public long increment() {
+      synchronized ( lock ) {
+        return ++value;
+      }
+    }
+
+    @Override
+    public long get() {
+      synchronized ( lock ) {
+        return value;
+      }
+    }
+  }
+
+  static class AtomicAddCounter implements Counter {
+    private static final VarHandle VALUE;
+
+    static {
+      try {
+        VALUE = MethodHandles.lookup().findVarHandle( AtomicAddCounter.class, "value", long.class );
+      } catch ( ReflectiveOperationException e ) {
+        throw new ExceptionInInitializerError( e );
+      }
+    }
+
+    private long value;
+
+    @Override
+    public long increment() {
+      return (long) VALUE.getAndAdd( this, 1L ) + 1L;
+    }
+
+    @Override
+    public long get() {
+      return (long) VALUE.getAcquire( this );
+    }
+  }
+
+  /**
+   * Increment the counter for every row while another thread reads it.
+   *
+   * @return the elapsed time in ms
+   */
+  public long runTest( final Counter counter, int iterations, boolean monitor ) throws InterruptedException {
+    final AtomicBoolean stop = new AtomicBoolean( false );
+    Thread monitorThread = new Thread( () -> {
+      long sum = 0;
+      while ( !stop.get() ) {
+        sum += counter.get();
+      }
+      if ( sum == 42 ) {
+        log.debug( "Prevent the loop from being optimized away" );
+      }
+    }, "monitor" );
+    if ( monitor ) {
+      monitorThread.start();
+    }
+
+    long startTime = System.currentTimeMillis();
+    for ( int i = 0; i < iterations; i++ ) {
+      counter.increment();
+    }
+    long stopTime = System.currentTimeMillis();
+
+    stop.set( true );
+    if ( monitor ) {
+      monitorThread.join();
+    }
+    if ( counter.get() != iterations ) {
+      throw new IllegalStateException( "Expected " + iterations + " but counted " + counter.get() );
+    }
+    return stopTime - startTime;
+  }
+
+  public static void main( String[] args ) throws InterruptedException {
+    StepCountersSpeedTest speedTest = new StepCountersSpeedTest();
+
+    StringBuilder message = new StringBuilder();
+    for ( int run = 0; run < 3; run++ ) {
+      message.append( "\nRun " + ( run + 1 ) + "\n" );
+      appendResult( message, "locked, no monitor", speedTest.runTest( new LockedCounter(), ITERATIONS, false ) );
+      appendResult( message, "locked, monitored", speedTest.runTest( new LockedCounter(), ITERATIONS, true ) );
+      appendResult( message, "atomic add, no monitor",
+        speedTest.runTest( new AtomicAddCounter(), ITERATIONS, false ) );
+      appendResult( message, "atomic add, monitored",
+        speedTest.runTest( new AtomicAddCounter(), ITERATIONS, true ) );
+    }
+
+    log.info( message );
+  }
+
+  private static void appendResult( StringBuilder message, String name, long time ) {
+    message.append( "Time to count " + ITERATIONS + " rows with '" + name + "' : " + time + " ms ("
+      + ( 1000000L * time / ITERATIONS ) + " ns per row)\n" );
+  }
+}
@@ -0,0 +1,141 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.BatchRowSet;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.RowBatch;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepMetaInterface;
+
+/**
+ * Runs a step that supports row batches on a list of rows through real row sets: through {@link BlockingRowSet}s the
+ * step processes the rows one by one, through {@link BatchRowSet}s a batch at a time. The tests of these steps run both
+ * and compare the results.
+ */
+public class StepBatchTestUtil {
+
+  private static final int CAPACITY = 10000;
+
+  /**
+   * Creates a new step for every run, a step can only process its rows once.
+   */
+  public interface StepFactory {
+    BaseStep create() throws Exception;
+  }
+
+  /**
+   * Runs the step until it is done.
+   *
+   * @param batches true to put the rows in as a single batch and to give the step a batch row set as output
+   * @return the output rows with their metadata
+   * @throws KettleException the error of the step
+   */
+  public static List<RowMetaAndData> run( BaseStep step, StepMetaInterface meta, StepDataInterface data,
+                                          RowMetaInterface rowMeta, List<Object[]> rows, boolean batches )
+    throws KettleException {
+    // The steps can change the rows they get
+    List<Object[]> copies = new ArrayList<>( rows.size() );
+    for ( Object[] row : rows ) {
+      copies.add( row.clone() );
+    }
+
+    RowSet input;
+    RowSet output;
+    if ( batches ) {
+      input = new BatchRowSet( CAPACITY );
+      ( (BatchRowSet) input ).putBatch( rowMeta, RowBatch.fromRows( rowMeta, copies ) );
+      output = new BatchRowSet( CAPACITY );
+    } else {
+      input = new BlockingRowSet( CAPACITY );
+      for ( Object[] row : copies ) {
+        input.putRow( rowMeta, row );
+      }
+      output = new BlockingRowSet( CAPACITY );
+    }
+    input.setDone();
+
+    step.addRowSetToInputRowSets( input );
+    step.addRowSetToOutputRowSets( output );
+    assertTrue( "init", step.init( meta, data ) );
+    while ( step.processRow( meta, data ) ) {
+      // process all the rows
+    }
+
+    List<RowMetaAndData> result = new ArrayList<>();
+    Object[] row;
+    while ( ( row = output.getRowImmediate() ) != null ) {
+      result.add( new RowMetaAndData( output.getRowMeta(), row ) );
+    }
+    return result;
+  }
+
+  /**
+   * Runs a new step on the rows one by one and a batch at a time and checks that the results are the same.
+   *
+   * @return the result of the run a batch at a time
+   */
+  public static List<RowMetaAndData> assertSameResults( StepFactory stepFactory, StepMetaInterface meta,
+                                                        StepDataInterface rowData, StepDataInterface batchData,
+                                                        RowMetaInterface rowMeta, List<Object[]> rows )
+    throws Exception {
+    List<RowMetaAndData> expected = run( stepFactory.create(), meta, rowData, rowMeta, rows, false );
+    List<RowMetaAndData> actual = run( stepFactory.create(), meta, batchData, rowMeta, rows, true );
+
+    assertEquals( "number of rows", expected.size(), actual.size() );
+    for ( int i = 0; i < expected.size(); i++ ) {
+      RowMetaInterface expectedMeta = expected.get( i ).getRowMeta();
+      RowMetaInterface actualMeta = actual.get( i ).getRowMeta();
+      assertArrayEquals( "fields of row " + i, expectedMeta.getFieldNames(), actualMeta.getFieldNames() );
+      for ( int j = 0; j < expectedMeta.size(); j++ ) {
+        ValueMetaInterface valueMeta = expectedMeta.getValueMeta( j );
+        String message = "row " + i + ", field " + valueMeta.getName();
+        assertEquals( message, valueMeta.getType(), actualMeta.getValueMeta( j ).getType() );
+        assertEquals( message, expected.get( i ).getData()[ j ], actual.get( i ).getData()[ j ] );
+      }
+    }
+    return actual;
+  }
+
+  /**
+   * Runs a new step on the rows one by one and a batch at a time and checks that both fail.
+   */
+  public static void assertBothFail( StepFactory stepFactory, StepMetaInterface meta, StepDataInterface rowData,
+                                     StepDataInterface batchData, RowMetaInterface rowMeta, List<Object[]> rows )
+    throws Exception {
+    for ( boolean batches : new boolean[] { false, true } ) {
+      StepDataInterface data = batches ? batchData : rowData;
+      try {
+        run( stepFactory.create(), meta, data, rowMeta, rows, batches );
+        fail( batches ? "the batch run didn't fail" : "the run row by row didn't fail" );
+      } catch ( KettleException e ) {
+        // expected
+      }
+    }
+  }
+}
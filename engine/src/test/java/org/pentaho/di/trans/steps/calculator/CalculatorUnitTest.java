@@ -28,6 +28,7 @@ import static org.mockito.Mockito.times;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.text.ParseException;
@@ -41,6 +42,7 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
+import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.RowSet;
@@ -61,6 +63,7 @@ import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.RowAdapter;
 import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.steps.StepBatchTestUtil;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 
 import junit.framework.Assert;
@@ -1058,4 +1061,111 @@ public class CalculatorUnitTest {
     }
   }
 
+  @Test
+  public void testCalculatorPassesTheAvailableRowsInOneGo() throws KettleException {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "a" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "b" ) );
+
+    RowSet inputRowSet = new BlockingRowSet( 10 );
+    for ( long i = 0; i < 3; i++ ) {
+      inputRowSet.putRow( inputRowMeta, new Object[] { i, 10L } );
+    }
+    inputRowSet.setDone();
+    RowSet outputRowSet = new BlockingRowSet( 10 );
+
+    Calculator calculator = new Calculator( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+    calculator.addRowSetToInputRowSets( inputRowSet );
+    calculator.addRowSetToOutputRowSets( outputRowSet );
+    calculator.init( smh.initStepMetaInterface, smh.initStepDataInterface );
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( new CalculatorMetaFunction[] {
+      new CalculatorMetaFunction( "sum", CalculatorMetaFunction.CALC_ADD, "a", "b", null,
+        ValueMetaInterface.TYPE_INTEGER, 0, 0, false, "", "", "", "" ) } );
+    CalculatorData data = new CalculatorData();
+
+    // All the rows waiting in the row set are taken and passed on by a single call
+    Assert.assertTrue( calculator.processRow( meta, data ) );
+    Assert.assertEquals( 3, calculator.getLinesRead() );
+    Assert.assertEquals( 3, calculator.getLinesWritten() );
+    Assert.assertFalse( calculator.processRow( meta, data ) );
+
+    Assert.assertEquals( 3, outputRowSet.size() );
+    for ( long i = 0; i < 3; i++ ) {
+      Object[] row = outputRowSet.getRow();
+      Assert.assertEquals( 3, outputRowSet.getRowMeta().size() );
+      Assert.assertEquals( i + 10L, row[ 2 ] );
+    }
+    Assert.assertTrue( outputRowSet.isDone() );
+  }
+
+  private RowMeta createBatchRowMeta() {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "a" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "b" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "x" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "s" ) );
+    return rowMeta;
+  }
+
+  private List<Object[]> createBatchRows() {
+    return Arrays.asList(
+      new Object[] { 1L, 2L, 1.5, "10" },
+      new Object[] { null, 2L, null, null },
+      new Object[] { -3L, null, -2.25, "7" },
+      new Object[] { Long.MAX_VALUE, 1L, 0.0, "0" } );
+  }
+
+  private CalculatorMetaFunction createFunction( String name, int calcType, String fieldA, String fieldB, int type,
+                                                 boolean removed ) {
+    return new CalculatorMetaFunction( name, calcType, fieldA, fieldB, null, type, 0, 0, removed, "", "", "", "" );
+  }
+
+  private void assertBatchesGiveTheSameResults( CalculatorMetaFunction... functions ) throws Exception {
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( functions );
+    StepBatchTestUtil.assertSameResults(
+      () -> new Calculator( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ),
+      meta, new CalculatorData(), new CalculatorData(), createBatchRowMeta(), createBatchRows() );
+  }
+
+  @Test
+  public void testBatchesGiveTheSameResultsOnTheColumns() throws Exception {
+    assertBatchesGiveTheSameResults(
+      createFunction( "sum", CalculatorMetaFunction.CALC_ADD, "a", "b", ValueMetaInterface.TYPE_INTEGER, false ),
+      createFunction( "difference", CalculatorMetaFunction.CALC_SUBTRACT, "a", "b", ValueMetaInterface.TYPE_INTEGER,
+        false ),
+      createFunction( "temp", CalculatorMetaFunction.CALC_MULTIPLY, "x", "x", ValueMetaInterface.TYPE_NUMBER, true ),
+      createFunction( "square", CalculatorMetaFunction.CALC_SQUARE, "temp", null, ValueMetaInterface.TYPE_NUMBER,
+        false ),
+      createFunction( "copy", CalculatorMetaFunction.CALC_COPY_OF_FIELD, "sum", null,
+        ValueMetaInterface.TYPE_INTEGER, false ) );
+  }
+
+  @Test
+  public void testBatchesGiveTheSameResultsWithConversions() throws Exception {
+    // The results of another type than the arguments are calculated row by row
+    assertBatchesGiveTheSameResults(
+      createFunction( "sum", CalculatorMetaFunction.CALC_ADD, "a", "b", ValueMetaInterface.TYPE_NUMBER, false ),
+      createFunction( "number", CalculatorMetaFunction.CALC_COPY_OF_FIELD, "s", null,
+        ValueMetaInterface.TYPE_INTEGER, false ),
+      createFunction( "quotient", CalculatorMetaFunction.CALC_DIVIDE, "x", "a", ValueMetaInterface.TYPE_NUMBER,
+        false ) );
+  }
+
+  @Test
+  public void testBatchesFailTheSameWay() throws Exception {
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( new CalculatorMetaFunction[] {
+      createFunction( "number", CalculatorMetaFunction.CALC_COPY_OF_FIELD, "s", null,
+        ValueMetaInterface.TYPE_INTEGER, false ) } );
+    List<Object[]> rows = new ArrayList<>( createBatchRows() );
+    rows.add( new Object[] { 1L, 1L, 1.0, "not a number" } );
+
+    StepBatchTestUtil.assertBothFail(
+      () -> new Calculator( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ),
+      meta, new CalculatorData(), new CalculatorData(), createBatchRowMeta(), rows );
+  }
+
 }
@@ -13,20 +13,30 @@
 
 package org.pentaho.di.trans.steps.constant;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.pentaho.di.core.BatchRowSet;
+import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaPluginType;
+import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.StepBatchTestUtil;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -88,4 +98,62 @@ public class ConstantTest {
     boolean success = constantSpy.processRow( constantMeta, constantData );
     assertFalse( success );
   }
+
+  private ConstantMeta createMeta( String[] names, String[] types, String[] values, String[] formats ) {
+    ConstantMeta meta = new ConstantMeta();
+    meta.allocate( names.length );
+    meta.setFieldName( names );
+    meta.setFieldType( types );
+    meta.setValue( values );
+    meta.setFieldFormat( formats );
+    Arrays.fill( meta.getFieldLength(), -1 );
+    Arrays.fill( meta.getFieldPrecision(), -1 );
+    return meta;
+  }
+
+  private RowMetaInterface createInputRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  private List<Object[]> createInputRows() {
+    return Arrays.asList(
+      new Object[] { 1L, "one" },
+      new Object[] { null, null },
+      new Object[] { 3L, "three" } );
+  }
+
+  @Test
+  public void testBatchesGiveTheSameResults() throws Exception {
+    // The values are converted from their text, the empty one is null
+    ConstantMeta meta = createMeta(
+      new String[] { "integer", "number", "date", "string", "empty" },
+      new String[] { "Integer", "Number", "Date", "String", "Integer" },
+      new String[] { "42", "1.5", "2024/07/20", "text", "" },
+      new String[] { null, null, "yyyy/MM/dd", null, null } );
+
+    List<RowMetaAndData> result = StepBatchTestUtil.assertSameResults(
+      () -> new Constant( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
+        mockHelper.trans ),
+      meta, new ConstantData(), new ConstantData(), createInputRowMeta(), createInputRows() );
+
+    assertEquals( 3, result.size() );
+    assertEquals( 7, result.get( 0 ).size() );
+    assertEquals( 42L, result.get( 1 ).getData()[ 2 ] );
+  }
+
+  @Test
+  public void testInvalidValueFailsTheInit() throws Exception {
+    ConstantMeta meta = createMeta( new String[] { "integer" }, new String[] { "Integer" },
+      new String[] { "not a number" }, new String[] { null } );
+
+    for ( boolean batches : new boolean[] { false, true } ) {
+      Constant constant = new Constant( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
+        mockHelper.trans );
+      constant.addRowSetToOutputRowSets( batches ? new BatchRowSet( 10 ) : new BlockingRowSet( 10 ) );
+      assertFalse( constant.init( meta, new ConstantData() ) );
+    }
+  }
 }
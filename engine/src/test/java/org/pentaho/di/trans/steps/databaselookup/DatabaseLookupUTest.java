@@ -19,6 +19,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
@@ -53,6 +54,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -67,12 +69,14 @@ import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -436,6 +440,125 @@ public class DatabaseLookupUTest {
     assertNotNull( data.cache.getRowFromCache( data.lookupMeta, new Object[] { 3L } ) );
   }
 
+  @Test
+  public void looksUpTheKeysOfManyRowsInOneQuery() throws Exception {
+    Database db = createBatchDb( new Object[] { 1L, 10L }, new Object[] { 2L, 20L } );
+    DatabaseLookupMeta meta = createBatchMeta( "=", 10 );
+    DatabaseLookupData data = new DatabaseLookupData();
+    DatabaseLookup step = createBatchStep( db, meta, data,
+      new Object[] { 1L }, new Object[] { 2L }, new Object[] { 1L }, new Object[] { 3L } );
+
+    List<Object[]> output = runBatchStep( step, meta, data );
+
+    ArgumentCaptor<List> keys = ArgumentCaptor.forClass( List.class );
+    verify( db ).getLookupBatch( any(), any(), any(), any(), any(), any(), any(), any(), keys.capture() );
+    assertEquals( 3, keys.getValue().size() );
+    verify( db, never() ).getLookup( anyBoolean() );
+
+    assertEquals( 4, output.size() );
+    assertArrayEquals( new Object[] { 1L, 10L }, output.get( 0 ) );
+    assertArrayEquals( new Object[] { 2L, 20L }, output.get( 1 ) );
+    assertArrayEquals( new Object[] { 1L, 10L }, output.get( 2 ) );
+    assertArrayEquals( new Object[] { 3L, null }, output.get( 3 ) );
+  }
+
+  @Test
+  public void looksUpTheBatchWhenItIsFull() throws Exception {
+    Database db = createBatchDb( new Object[] { 1L, 10L }, new Object[] { 2L, 20L }, new Object[] { 3L, 30L } );
+    DatabaseLookupMeta meta = createBatchMeta( "=", 2 );
+    DatabaseLookupData data = new DatabaseLookupData();
+    DatabaseLookup step = createBatchStep( db, meta, data,
+      new Object[] { 1L }, new Object[] { 2L }, new Object[] { 3L } );
+
+    List<Object[]> output = runBatchStep( step, meta, data );
+
+    verify( db, times( 2 ) ).getLookupBatch( any(), any(), any(), any(), any(), any(), any(), any(), any() );
+    assertEquals( 3, output.size() );
+    assertArrayEquals( new Object[] { 3L, 30L }, output.get( 2 ) );
+  }
+
+  @Test
+  public void looksUpRowByRowWithOtherConditions() throws Exception {
+    Database db = createBatchDb();
+    DatabaseLookupMeta meta = createBatchMeta( ">", 10 );
+    DatabaseLookupData data = new DatabaseLookupData();
+    DatabaseLookup step = createBatchStep( db, meta, data, new Object[] { 1L } );
+
+    runBatchStep( step, meta, data );
+
+    assertEquals( 0, data.batchSize );
+    verify( db, never() ).getLookupBatch( any(), any(), any(), any(), any(), any(), any(), any(), any() );
+    verify( step ).lookupValues( nullable( RowMetaInterface.class ), nullable( Object[].class ) );
+  }
+
+  @Test
+  public void failsOnMultipleResultsInTheBatch() throws Exception {
+    Database db = createBatchDb( new Object[] { 1L, 10L }, new Object[] { 1L, 11L } );
+    DatabaseLookupMeta meta = createBatchMeta( "=", 10 );
+    meta.setFailingOnMultipleResults( true );
+    DatabaseLookupData data = new DatabaseLookupData();
+    DatabaseLookup step = createBatchStep( db, meta, data, new Object[] { 1L } );
+
+    List<Object[]> output = runBatchStep( step, meta, data );
+
+    assertTrue( output.isEmpty() );
+    assertEquals( 1, step.getErrors() );
+  }
+
+  private Database createBatchDb( Object[]... rows ) throws Exception {
+    Database db = mock( Database.class );
+    RowMeta batchRowMeta = new RowMeta();
+    batchRowMeta.addValueMeta( new ValueMetaInteger( "ID" ) );
+    batchRowMeta.addValueMeta( new ValueMetaInteger( "VAL" ) );
+    when( db.getLookupBatchRowMeta() ).thenReturn( batchRowMeta );
+    when( db.getLookupBatch( any(), any(), any(), any(), any(), any(), any(), any(), any() ) )
+      .thenReturn( Arrays.asList( rows ) );
+    return db;
+  }
+
+  private DatabaseLookupMeta createBatchMeta( String condition, int batchSize ) {
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.setDatabaseMeta( mock( DatabaseMeta.class ) );
+    meta.allocate( 1, 1 );
+    meta.setStreamKeyField1( new String[] { "Test" } );
+    meta.setTableKeyField( new String[] { "ID" } );
+    meta.setKeyCondition( new String[] { condition } );
+    meta.setReturnValueField( new String[] { "VAL" } );
+    meta.setReturnValueNewName( new String[] { "val" } );
+    meta.setReturnValueDefaultType( new int[] { ValueMetaInterface.TYPE_INTEGER } );
+    meta.setLookupBatchSize( batchSize );
+    return meta;
+  }
+
+  private DatabaseLookup createBatchStep( Database db, DatabaseLookupMeta meta, DatabaseLookupData data,
+                                          Object[]... rows ) throws KettleException {
+    DatabaseLookup step = createSpiedStep( db, mockHelper, meta );
+    step.init( meta, data );
+    data.db = db;
+    data.keytypes = new int[] { ValueMetaInterface.TYPE_INTEGER };
+
+    List<Object[]> input = new ArrayList<>( Arrays.asList( rows ) );
+    input.add( null );
+    doReturn( input.get( 0 ), input.subList( 1, input.size() ).toArray() ).when( step ).getRow();
+    doNothing().when( step ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+    return step;
+  }
+
+  private List<Object[]> runBatchStep( DatabaseLookup step, DatabaseLookupMeta meta, DatabaseLookupData data )
+    throws KettleException {
+    while ( step.processRow( meta, data ) ) {
+      // look up all the rows
+    }
+
+    ArgumentCaptor<Object[]> rows = ArgumentCaptor.forClass( Object[].class );
+    verify( step, atLeast( 0 ) ).putRow( any( RowMetaInterface.class ), rows.capture() );
+    List<Object[]> output = new ArrayList<>();
+    for ( Object[] row : rows.getAllValues() ) {
+      output.add( Arrays.copyOf( row, data.outputRowMeta.size() ) );
+    }
+    return output;
+  }
+
   private void testIncrementLinesClusteredVariations( boolean isClustered, Boolean isExecutingClustered,
                                                       int wantedNumberOfInvocations ) {
 
@@ -13,18 +13,19 @@
 package org.pentaho.di.trans.steps.databaselookup;
 
 import org.junit.Test;
-import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.mockito.Mockito.mock;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.when;
-import static org.pentaho.test.util.InternalState.getInternalState;
 import static org.pentaho.test.util.InternalState.setInternalState;
 
 
@@ -42,11 +43,10 @@ public class DefaultCacheTest {
     defaultCache.storeRowInCache( databaseLookupMeta, rowMeta1, new Object[]{1}, new Object[]{ 100 } );
     defaultCache.storeRowInCache( databaseLookupMeta, rowMeta2, new Object[]{1}, new Object[]{ 200 } );
     defaultCache.storeRowInCache( databaseLookupMeta, rowMeta3, new Object[]{1}, new Object[]{ 300 } );
-    LinkedHashMap<RowMetaAndData, Object[]> map = (LinkedHashMap<RowMetaAndData, Object[]>) getInternalState( defaultCache, "map" );
     //Only one entry expected
-    assertEquals( 1, map.size() );
+    assertEquals( 1, defaultCache.getSize() );
     //The value expected is the first one inserted
-    assertEquals( 100, map.get( new RowMetaAndData( rowMeta1, new Object[]{1} ) )[0] );
+    assertEquals( 100, defaultCache.getRow( rowMeta1, new Object[]{1} )[0] );
   }
 
   @Test
@@ -60,9 +60,8 @@ public class DefaultCacheTest {
     for ( int i = 1; i <= 10; ++i ) {
       defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
     }
-    LinkedHashMap<RowMetaAndData, Object[]> map = (LinkedHashMap<RowMetaAndData, Object[]>) getInternalState( defaultCache, "map" );
     //All inserted entries expected
-    assertEquals( 10, map.size() );
+    assertEquals( 10, defaultCache.getSize() );
   }
 
   @Test
@@ -77,13 +76,12 @@ public class DefaultCacheTest {
     for ( int i = 1; i <= 10; ++i ) {
       defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
     }
-    LinkedHashMap<RowMetaAndData, Object[]> map = (LinkedHashMap<RowMetaAndData, Object[]>) getInternalState( defaultCache, "map" );
     //Max capacity of cache is 3, so in the end we can only have 3 entries
-    assertEquals( 3, map.size() );
+    assertEquals( 3, defaultCache.getSize() );
     //The cache eliminates the older entries when new ones are inserted, so in the end only expect the last 3 entries inserted
-    assertEquals( 800, map.get( new RowMetaAndData( rowMeta, new Object[]{8} ) )[0] );
-    assertEquals( 900, map.get( new RowMetaAndData( rowMeta, new Object[]{9} ) )[0] );
-    assertEquals( 1000, map.get( new RowMetaAndData( rowMeta, new Object[]{10} ) )[0] );
+    assertEquals( 800, defaultCache.getRow( rowMeta, new Object[]{8} )[0] );
+    assertEquals( 900, defaultCache.getRow( rowMeta, new Object[]{9} )[0] );
+    assertEquals( 1000, defaultCache.getRow( rowMeta, new Object[]{10} )[0] );
   }
 
   @Test
@@ -308,4 +306,151 @@ public class DefaultCacheTest {
       assertEquals( new Object[]{ i * 100 }[0], result[0] );
     }
   }
+
+  @Test
+  public void evictsLeastRecentlyUsedTest() throws Exception {
+    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
+    when( databaseLookupMeta.getCacheSize() ).thenReturn( 3 );
+    DefaultCache defaultCache = DefaultCache.newCache( allEqualsData(), 3 );
+    RowMeta rowMeta = integerMeta( 1 );
+    for ( long i = 1; i <= 3; ++i ) {
+      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
+    }
+    // Using key 1 makes key 2 the least recently used one
+    assertEquals( 100L, defaultCache.getRowFromCache( rowMeta, new Object[]{1L} )[0] );
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{4L}, new Object[]{ 400L } );
+
+    assertNull( defaultCache.getRowFromCache( rowMeta, new Object[]{2L} ) );
+    assertEquals( 100L, defaultCache.getRowFromCache( rowMeta, new Object[]{1L} )[0] );
+    assertEquals( 1, defaultCache.getEvictions() );
+    assertEquals( 2, defaultCache.getHits() );
+    assertEquals( 1, defaultCache.getMisses() );
+  }
+
+  @Test
+  public void evictsLeastFrequentlyUsedTest() throws Exception {
+    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
+    when( databaseLookupMeta.getCacheSize() ).thenReturn( 3 );
+    DefaultCache defaultCache =
+      DefaultCache.newCache( allEqualsData(), 3, DefaultCache.EvictionPolicy.LFU, 0L, 1 );
+    RowMeta rowMeta = integerMeta( 1 );
+    for ( long i = 1; i <= 3; ++i ) {
+      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
+    }
+    defaultCache.getRowFromCache( rowMeta, new Object[]{1L} );
+    defaultCache.getRowFromCache( rowMeta, new Object[]{1L} );
+    defaultCache.getRowFromCache( rowMeta, new Object[]{3L} );
+    defaultCache.getRowFromCache( rowMeta, new Object[]{3L} );
+    defaultCache.getRowFromCache( rowMeta, new Object[]{2L} );
+    // Key 2 was used last but least often
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{4L}, new Object[]{ 400L } );
+
+    assertEquals( 3, defaultCache.getSize() );
+    assertNull( defaultCache.getRow( rowMeta, new Object[]{2L} ) );
+  }
+
+  @Test
+  public void expiresRowsTest() throws Exception {
+    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
+    DefaultCache defaultCache =
+      DefaultCache.newCache( allEqualsData(), 0, DefaultCache.EvictionPolicy.LRU, 50L, 1 );
+    RowMeta rowMeta = integerMeta( 1 );
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{1L}, new Object[]{ 100L } );
+    assertEquals( 100L, defaultCache.getRowFromCache( rowMeta, new Object[]{1L} )[0] );
+
+    Thread.sleep( 100L );
+    assertNull( defaultCache.getRowFromCache( rowMeta, new Object[]{1L} ) );
+    assertEquals( 1, defaultCache.getExpirations() );
+
+    // An expired row is replaced by the next one stored
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{1L}, new Object[]{ 200L } );
+    assertEquals( 200L, defaultCache.getRowFromCache( rowMeta, new Object[]{1L} )[0] );
+  }
+
+  @Test
+  public void getRowFromCacheReturnsFirstStoredMatchTest() throws Exception {
+    DatabaseLookupData databaseLookupData = new DatabaseLookupData();
+    databaseLookupData.conditions =
+      new int[]{ DatabaseLookupMeta.CONDITION_NE, DatabaseLookupMeta.CONDITION_GT };
+    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
+    DefaultCache defaultCache =
+      DefaultCache.newCache( databaseLookupData, 0, DefaultCache.EvictionPolicy.LRU, 0L, 4 );
+    RowMeta rowMeta = integerMeta( 2 );
+    long[] keys = { 50, 10, 80, 30, 60, 20, 70, 40 };
+    for ( long key : keys ) {
+      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ key % 20, key },
+        new Object[]{ key * 100 } );
+    }
+    // The key > 25 stored first is 50, but its first key is 10
+    assertEquals( 8000L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 10L, 25L } )[0] );
+    assertEquals( 5000L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 0L, 25L } )[0] );
+    assertNull( defaultCache.getRowFromCache( rowMeta, new Object[]{ 0L, 80L } ) );
+
+    // Rows stored after a search are found too
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ 0L, 90L }, new Object[]{ 9000L } );
+    assertEquals( 9000L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 10L, 80L } )[0] );
+  }
+
+  @Test
+  public void getRowFromCacheEmptyBetweenTest() throws Exception {
+    DatabaseLookupData databaseLookupData = new DatabaseLookupData();
+    databaseLookupData.conditions = new int[]{ DatabaseLookupMeta.CONDITION_BETWEEN };
+    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
+    DefaultCache defaultCache = DefaultCache.newCache( databaseLookupData, 0 );
+    RowMeta rowMeta = integerMeta( 2 );
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ 5L, null }, new Object[]{ 500L } );
+
+    assertEquals( 500L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 1L, 5L } )[0] );
+    assertNull( defaultCache.getRowFromCache( rowMeta, new Object[]{ 6L, 1L } ) );
+  }
+
+  @Test
+  public void sharedCacheTest() throws Exception {
+    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
+    when( databaseLookupMeta.getCacheSize() ).thenReturn( 100000 );
+    DefaultCache defaultCache =
+      DefaultCache.newCache( allEqualsData(), 100000, DefaultCache.EvictionPolicy.LRU, 0L, 4 );
+    assertEquals( 16, defaultCache.getNrSegments() );
+
+    RowMeta rowMeta = integerMeta( 1 );
+    ExecutorService executor = Executors.newFixedThreadPool( 4 );
+    try {
+      Future<?>[] copies = new Future<?>[ 4 ];
+      for ( int copy = 0; copy < copies.length; copy++ ) {
+        copies[ copy ] = executor.submit( () -> {
+          for ( long i = 0; i < 10000; i++ ) {
+            if ( defaultCache.getRowFromCache( rowMeta, new Object[]{i} ) == null ) {
+              defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{i}, new Object[]{ i * 100 } );
+            }
+          }
+          return null;
+        } );
+      }
+      for ( Future<?> copy : copies ) {
+        copy.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals( 10000, defaultCache.getSize() );
+    assertEquals( 40000, defaultCache.getHits() + defaultCache.getMisses() );
+    for ( long i = 0; i < 10000; i++ ) {
+      assertEquals( i * 100, defaultCache.getRow( rowMeta, new Object[]{i} )[0] );
+    }
+  }
+
+  private DatabaseLookupData allEqualsData() {
+    DatabaseLookupData databaseLookupData = new DatabaseLookupData();
+    databaseLookupData.allEquals = true;
+    return databaseLookupData;
+  }
+
+  private RowMeta integerMeta( int nrKeys ) {
+    RowMeta rowMeta = new RowMeta();
+    for ( int i = 0; i < nrKeys; i++ ) {
+      rowMeta.addValueMeta( new ValueMetaInteger( "key" + i ) );
+    }
+    return rowMeta;
+  }
 }
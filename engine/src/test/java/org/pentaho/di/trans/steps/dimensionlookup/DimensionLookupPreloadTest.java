@@ -0,0 +1,245 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.dimensionlookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.H2DatabaseMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransTestFactory;
+
+/**
+ * Updates a dimension in an in-memory H2 database with the pre-load cache. Every test checks that the rows after a
+ * change find the right technical key in the cache, without a lookup in the table.
+ */
+public class DimensionLookupPreloadTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "dimension";
+  private static final AtomicInteger DATABASE_NR = new AtomicInteger();
+
+  private Connection connection;
+  private DimensionLookupMeta meta;
+  private DimensionLookup step;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    // The in-memory database is kept as long as this connection is open
+    String dbName = "mem:dimension" + DATABASE_NR.incrementAndGet();
+    connection = DriverManager.getConnection( "jdbc:h2:" + dbName );
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "CREATE TABLE DIM_CUSTOMER ( ID BIGINT, VERSION INTEGER, DATE_FROM TIMESTAMP, "
+        + "DATE_TO TIMESTAMP, CUSTOMER_ID BIGINT, NAME VARCHAR(50), CITY VARCHAR(50), SEGMENT VARCHAR(50) )" );
+    }
+
+    DatabaseMeta databaseMeta = new DatabaseMeta();
+    databaseMeta.setDatabaseInterface( new H2DatabaseMeta() );
+    databaseMeta.setName( dbName );
+    databaseMeta.setDBName( dbName );
+    databaseMeta.setDatabaseType( "H2" );
+
+    meta = new DimensionLookupMeta();
+    meta.setDefault();
+    meta.setDatabaseMeta( databaseMeta );
+    meta.setTableName( "DIM_CUSTOMER" );
+    meta.setUpdate( true );
+    meta.setPreloadingCache( true );
+    meta.setTechKeyCreation( DimensionLookupMeta.CREATION_METHOD_TABLEMAX );
+    meta.setKeyField( "ID" );
+    meta.setKeyRename( "tk" );
+    meta.setVersionField( "VERSION" );
+    meta.setDateField( "changed" );
+    meta.setDateFrom( "DATE_FROM" );
+    meta.setDateTo( "DATE_TO" );
+    meta.setKeyStream( new String[] { "customer_id" } );
+    meta.setKeyLookup( new String[] { "CUSTOMER_ID" } );
+    meta.setFieldStream( new String[] { "name", "city", "segment" } );
+    meta.setFieldLookup( new String[] { "NAME", "CITY", "SEGMENT" } );
+    meta.setFieldUpdate( new int[] { DimensionLookupMeta.TYPE_UPDATE_DIM_UPDATE,
+      DimensionLookupMeta.TYPE_UPDATE_DIM_INSERT, DimensionLookupMeta.TYPE_UPDATE_DIM_PUNCHTHROUGH } );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  private static Date date( int year, int month ) {
+    return new GregorianCalendar( year, month - 1, 1 ).getTime();
+  }
+
+  private static Object[] row( long customerId, String name, String city, String segment, Date changed ) {
+    return new Object[] { customerId, name, city, segment, changed };
+  }
+
+  /**
+   * Runs the rows through the step.
+   *
+   * @return the technical keys of the rows
+   */
+  private long[] run( Object[]... rows ) throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "customer_id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "city" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "segment" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "changed" ) );
+
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, meta, STEP_NAME );
+    Trans trans = new Trans( transMeta );
+    trans.prepareExecution( null );
+    step = (DimensionLookup) trans.getStepInterface( STEP_NAME, 0 );
+    RowStepCollector collector = new RowStepCollector();
+    trans.getStepInterface( TransTestFactory.DUMMY_STEPNAME, 0 ).addRowListener( collector );
+    RowProducer producer = trans.addRowProducer( TransTestFactory.INJECTOR_STEPNAME, 0 );
+    trans.startThreads();
+    for ( Object[] row : rows ) {
+      producer.putRow( rowMeta, row );
+    }
+    producer.finished();
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+
+    List<RowMetaAndData> result = collector.getRowsRead();
+    assertEquals( rows.length, result.size() );
+    long[] technicalKeys = new long[ result.size() ];
+    for ( int i = 0; i < technicalKeys.length; i++ ) {
+      technicalKeys[ i ] = result.get( i ).getInteger( "tk", -1L );
+    }
+    return technicalKeys;
+  }
+
+  private int countVersions( long customerId ) throws Exception {
+    try ( Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery(
+            "SELECT COUNT(*) FROM DIM_CUSTOMER WHERE CUSTOMER_ID = " + customerId ) ) {
+      resultSet.next();
+      return resultSet.getInt( 1 );
+    }
+  }
+
+  /**
+   * @return the version of the customer in the pre-load cache on the date
+   */
+  private Object[] getCachedVersion( long customerId, Date date ) throws Exception {
+    DimensionRangeCache cache = ( (DimensionLookupData) step.getStepDataInterface() ).preloadCache;
+    return cache.getRow( cache.lookupRow( new Object[] { customerId }, date ) );
+  }
+
+  @Test
+  public void testNewKey() throws Exception {
+    long[] technicalKeys = run(
+      row( 1L, "Ann", "Paris", "retail", date( 2020, 1 ) ),
+      row( 2L, "Bob", "Rome", "retail", date( 2020, 1 ) ),
+      row( 1L, "Ann", "Paris", "retail", date( 2020, 2 ) ),
+      row( 2L, "Bob", "Rome", "retail", date( 2020, 3 ) ) );
+
+    assertNotEquals( technicalKeys[ 0 ], technicalKeys[ 1 ] );
+    assertEquals( technicalKeys[ 0 ], technicalKeys[ 2 ] );
+    assertEquals( technicalKeys[ 1 ], technicalKeys[ 3 ] );
+    assertEquals( 1, countVersions( 1L ) );
+    assertEquals( 1, countVersions( 2L ) );
+    assertEquals( 2, step.getLinesOutput() );
+  }
+
+  @Test
+  public void testNewVersion() throws Exception {
+    long[] technicalKeys = run(
+      row( 1L, "Ann", "Paris", "retail", date( 2020, 1 ) ),
+      row( 1L, "Ann", "Rome", "retail", date( 2021, 1 ) ),
+      row( 1L, "Ann", "Rome", "retail", date( 2022, 1 ) ),
+      row( 1L, "Ann", "Paris", "retail", date( 2020, 6 ) ) );
+
+    assertNotEquals( technicalKeys[ 0 ], technicalKeys[ 1 ] );
+    assertEquals( technicalKeys[ 1 ], technicalKeys[ 2 ] );
+    assertEquals( technicalKeys[ 0 ], technicalKeys[ 3 ] );
+    assertEquals( 2, countVersions( 1L ) );
+
+    // The first version ends where the second one starts
+    DimensionRangeCache cache = ( (DimensionLookupData) step.getStepDataInterface() ).preloadCache;
+    Object[] first = getCachedVersion( 1L, date( 2020, 6 ) );
+    assertEquals( date( 2021, 1 ).getTime(), ( (Date) first[ cache.getToDateIndex() ] ).getTime() );
+    assertEquals( technicalKeys[ 1 ], ( (Number) getCachedVersion( 1L, date( 2021, 6 ) )[ 0 ] ).longValue() );
+  }
+
+  @Test
+  public void testTypeOneUpdate() throws Exception {
+    long[] technicalKeys = run(
+      row( 1L, "Ann", "Paris", "retail", date( 2020, 1 ) ),
+      row( 1L, "Anne", "Paris", "retail", date( 2020, 2 ) ),
+      row( 1L, "Anne", "Paris", "retail", date( 2020, 3 ) ) );
+
+    assertEquals( technicalKeys[ 0 ], technicalKeys[ 1 ] );
+    assertEquals( technicalKeys[ 0 ], technicalKeys[ 2 ] );
+    assertEquals( 1, countVersions( 1L ) );
+    // The last row finds the updated name in the cache and doesn't update the table again
+    assertEquals( 1, step.getLinesUpdated() );
+    assertEquals( 1, step.getLinesSkipped() );
+    assertEquals( "Anne", getCachedVersion( 1L, date( 2020, 3 ) )[ 2 ] );
+  }
+
+  @Test
+  public void testPunchThrough() throws Exception {
+    long[] technicalKeys = run(
+      row( 1L, "Ann", "Paris", "retail", date( 2020, 1 ) ),
+      row( 1L, "Ann", "Rome", "retail", date( 2021, 1 ) ),
+      row( 1L, "Ann", "Rome", "business", date( 2022, 1 ) ),
+      row( 1L, "Ann", "Paris", "business", date( 2020, 6 ) ) );
+
+    assertNotEquals( technicalKeys[ 0 ], technicalKeys[ 1 ] );
+    assertEquals( technicalKeys[ 1 ], technicalKeys[ 2 ] );
+    assertEquals( technicalKeys[ 0 ], technicalKeys[ 3 ] );
+    assertEquals( 2, countVersions( 1L ) );
+    // The punch through updates the second version and then all of them, also the first one in the cache: the last
+    // row doesn't change it again
+    assertEquals( 2, step.getLinesUpdated() );
+    assertEquals( 1, step.getLinesSkipped() );
+    for ( Date date : Arrays.asList( date( 2020, 6 ), date( 2021, 6 ) ) ) {
+      assertEquals( "business", getCachedVersion( 1L, date )[ 4 ] );
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.dimensionlookup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class DimensionRangeCacheTest {
+  private static final Date D1 = new Date( 1425300000000L );
+  private static final Date D2 = new Date( 1425300000000L + 3600000L );
+  private static final Date D3 = new Date( 1425300000000L + 3600000L * 2 );
+  private static final Date D4 = new Date( 1425300000000L + 3600000L * 3 );
+
+  private DimensionRangeCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    // tk, natural key, from, to
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "TK" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "CODE" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "DATE_FROM" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "DATE_TO" ) );
+    cache = new DimensionRangeCache( rowMeta, new int[] { 1 }, 2, 3 );
+
+    // The versions don't need to be added in order
+    //
+    cache.addRow( new Object[] { 3L, "A", D3, null } );
+    cache.addRow( new Object[] { 1L, "A", null, D2 } );
+    cache.addRow( new Object[] { 2L, "A", D2, D3 } );
+    cache.addRow( new Object[] { 4L, "B", D2, D4 } );
+  }
+
+  @Test
+  public void looksUpTheVersionOfTheDate() throws Exception {
+    assertEquals( 1L, lookup( "A", D1 ) );
+    assertEquals( 2L, lookup( "A", D2 ) );
+    assertEquals( 3L, lookup( "A", D3 ) );
+    assertEquals( 3L, lookup( "A", D4 ) );
+    assertEquals( 4L, lookup( "B", D3 ) );
+  }
+
+  @Test
+  public void findsNothingOutsideTheDateRanges() throws Exception {
+    assertEquals( -1, cache.lookupRow( new Object[] { "B" }, D1 ) );
+    assertEquals( -1, cache.lookupRow( new Object[] { "B" }, D4 ) );
+    assertEquals( -1, cache.lookupRow( new Object[] { "C" }, D2 ) );
+  }
+
+  @Test
+  public void returnsTheStoredRow() throws Exception {
+    assertArrayEquals( new Object[] { 2L, "A", D2, D3 },
+      cache.getRow( cache.lookupRow( new Object[] { "A" }, D2 ) ) );
+    assertArrayEquals( new Object[] { 3L, "A", D3, null },
+      cache.getRow( cache.lookupRow( new Object[] { "A" }, D4 ) ) );
+    assertEquals( 4, cache.getSize() );
+    assertEquals( 2, cache.getNrKeys() );
+  }
+
+  @Test
+  public void indexesManyKeys() throws Exception {
+    for ( long i = 0; i < 10000; i++ ) {
+      cache.addRow( new Object[] { 100L + i, "K" + i, null, D2 } );
+      cache.addRow( new Object[] { 100000L + i, "K" + i, D2, null } );
+    }
+
+    for ( long i = 0; i < 10000; i++ ) {
+      assertEquals( 100L + i, lookup( "K" + i, D1 ) );
+      assertEquals( 100000L + i, lookup( "K" + i, D3 ) );
+    }
+    assertEquals( 1L, lookup( "A", D1 ) );
+    assertEquals( 10002, cache.getNrKeys() );
+  }
+
+  @Test
+  public void keepsInLineWithANewVersion() throws Exception {
+    int latest = cache.getLatestVersion( new Object[] { "B" } );
+    cache.setToDate( latest, D3 );
+    cache.addRow( new Object[] { 5L, "B", D3, null } );
+
+    assertEquals( 4L, lookup( "B", D2 ) );
+    assertEquals( 5L, lookup( "B", D3 ) );
+    assertEquals( 5L, lookup( "B", D4 ) );
+    assertEquals( 4L, cache.getValue( cache.getPreviousVersion( cache.getLatestVersion( new Object[] { "B" } ) ), 0 ) );
+    assertEquals( -1, cache.getLatestVersion( new Object[] { "C" } ) );
+  }
+
+  @Test
+  public void changesAField() throws Exception {
+    int index = cache.lookupRow( new Object[] { "A" }, D2 );
+    cache.setValue( index, 0, 20L );
+    assertEquals( 20L, lookup( "A", D2 ) );
+    cache.setValue( index, 0, null );
+    assertEquals( null, lookup( "A", D2 ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void doesNotChangeTheNaturalKey() throws Exception {
+    cache.setValue( 0, 1, "C" );
+  }
+
+  @Test
+  public void storesIntegerKeys() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "TK" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "ID" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "DATE_FROM" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "DATE_TO" ) );
+    cache = new DimensionRangeCache( rowMeta, new int[] { 1 }, 2, 3 );
+    for ( long i = 0; i < 2000; i++ ) {
+      cache.addRow( new Object[] { i, i, null, null } );
+    }
+    cache.addRow( new Object[] { 2000L, null, null, null } );
+
+    assertEquals( 7L, cache.getRow( cache.lookupRow( new Object[] { 7L }, D1 ) )[ 0 ] );
+    assertEquals( 2000L, cache.getRow( cache.lookupRow( new Object[] { null }, D1 ) )[ 0 ] );
+    assertArrayEquals( new Object[] { 2000L, null, null, null }, cache.getRow( 2000 ) );
+    assertEquals( -1, cache.lookupRow( new Object[] { 2001L }, D1 ) );
+  }
+
+  private Object lookup( String code, Date date ) throws Exception {
+    int index = cache.lookupRow( new Object[] { code }, date );
+    return index < 0 ? null : cache.getRow( index )[ 0 ];
+  }
+}
@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.filterrows;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.batch.RowBatch;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+
+public class BatchConditionTest {
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    KettleClientEnvironment.init();
+  }
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "limit" ) );
+    return rowMeta;
+  }
+
+  private List<Object[]> createRows() {
+    return Arrays.asList(
+      new Object[] { 1L, 1.5, 2.0 },
+      new Object[] { null, 2.5, 2.0 },
+      new Object[] { 3L, null, 2.0 },
+      new Object[] { -4L, 2.0, null },
+      new Object[] { 5L, 3.0, 2.0 } );
+  }
+
+  /**
+   * Evaluates the condition on a batch and checks that every row gets the result of the condition on the row.
+   */
+  private void assertSameAsRows( Condition condition, RowMetaInterface rowMeta, List<Object[]> rows ) {
+    BatchCondition batchCondition = BatchCondition.compile( condition, rowMeta );
+    assertNotNull( batchCondition );
+    boolean[] result = batchCondition.evaluate( RowBatch.fromRows( rowMeta, rows ) );
+    for ( int i = 0; i < rows.size(); i++ ) {
+      assertEquals( "row " + i, condition.evaluate( rowMeta, rows.get( i ) ), result[ i ] );
+    }
+  }
+
+  @Test
+  public void testComparisonWithAConstant() throws Exception {
+    for ( int function : new int[] { Condition.FUNC_EQUAL, Condition.FUNC_NOT_EQUAL, Condition.FUNC_SMALLER,
+      Condition.FUNC_SMALLER_EQUAL, Condition.FUNC_LARGER, Condition.FUNC_LARGER_EQUAL } ) {
+      assertSameAsRows( new Condition( "id", function, null, new ValueMetaAndData( "constant", 3L ) ),
+        createRowMeta(), createRows() );
+      assertSameAsRows( new Condition( "amount", function, null, new ValueMetaAndData( "constant", 2.0 ) ),
+        createRowMeta(), createRows() );
+    }
+  }
+
+  @Test
+  public void testComparisonOfTwoFields() throws Exception {
+    assertSameAsRows( new Condition( "amount", Condition.FUNC_LARGER, "limit", null ), createRowMeta(),
+      createRows() );
+  }
+
+  @Test
+  public void testNullChecksAndOperators() throws Exception {
+    Condition condition = new Condition();
+    condition.addCondition( new Condition( "id", Condition.FUNC_NULL, null, null ) );
+    condition.addCondition( new Condition( Condition.OPERATOR_OR, "amount", Condition.FUNC_SMALLER, null,
+      new ValueMetaAndData( "constant", 2.0 ) ) );
+    condition.addCondition( new Condition( Condition.OPERATOR_AND_NOT, "limit", Condition.FUNC_NULL, null, null ) );
+
+    assertSameAsRows( condition, createRowMeta(), createRows() );
+    condition.setNegated( true );
+    assertSameAsRows( condition, createRowMeta(), createRows() );
+  }
+
+  @Test
+  public void testValueWithAComparatorIsNotComparedOnTheColumns() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id", ( a, b ) -> Long.compare( (Long) b, (Long) a ) ) );
+
+    assertNull( BatchCondition.compile(
+      new Condition( "id", Condition.FUNC_SMALLER, null, new ValueMetaAndData( "constant", 3L ) ), rowMeta ) );
+  }
+}
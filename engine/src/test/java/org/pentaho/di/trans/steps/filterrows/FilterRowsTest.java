@@ -0,0 +1,125 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.filterrows;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.StepBatchTestUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+/**
+ * Filters the same rows one by one and a batch at a time.
+ */
+public class FilterRowsTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private StepMockHelper<FilterRowsMeta, FilterRowsData> smh;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() {
+    smh = new StepMockHelper<>( "Filter rows", FilterRowsMeta.class, FilterRowsData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) ).thenReturn(
+      smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+  }
+
+  @After
+  public void cleanUp() {
+    smh.cleanUp();
+  }
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  private List<Object[]> createRows() {
+    return Arrays.asList(
+      new Object[] { 1L, 1.5, "one" },
+      new Object[] { null, 2.5, null },
+      new Object[] { 3L, null, "three" },
+      new Object[] { 4L, 4.0, "four" },
+      new Object[] { -5L, 0.0, "" } );
+  }
+
+  private int assertBatchesGiveTheSameResults( Condition condition ) throws Exception {
+    FilterRowsMeta meta = new FilterRowsMeta();
+    meta.setCondition( condition );
+    return StepBatchTestUtil.assertSameResults(
+      () -> new FilterRows( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ),
+      meta, new FilterRowsData(), new FilterRowsData(), createRowMeta(), createRows() ).size();
+  }
+
+  @Test
+  public void testConditionOnTheColumns() throws Exception {
+    Condition condition = new Condition();
+    condition.addCondition( new Condition( "id", Condition.FUNC_LARGER_EQUAL, null,
+      new ValueMetaAndData( "constant", 3L ) ) );
+    condition.addCondition( new Condition( Condition.OPERATOR_OR, "amount", Condition.FUNC_NULL, null, null ) );
+
+    assertEquals( 2, assertBatchesGiveTheSameResults( condition ) );
+  }
+
+  @Test
+  public void testConditionRowByRow() throws Exception {
+    // A String field can't be compared on the columns
+    assertEquals( 1, assertBatchesGiveTheSameResults( new Condition( "name", Condition.FUNC_CONTAINS, null,
+      new ValueMetaAndData( "constant", "our" ) ) ) );
+  }
+
+  @Test
+  public void testConditionWithAConversion() throws Exception {
+    // An Integer field compared with a String constant converts the constant
+    assertEquals( 1, assertBatchesGiveTheSameResults( new Condition( "id", Condition.FUNC_EQUAL, null,
+      new ValueMetaAndData( "constant", "4" ) ) ) );
+  }
+
+  @Test
+  public void testUnknownFieldFails() throws Exception {
+    FilterRowsMeta meta = new FilterRowsMeta();
+    meta.setCondition( new Condition( "unknown", Condition.FUNC_NULL, null, null ) );
+
+    StepBatchTestUtil.assertBothFail(
+      () -> new FilterRows( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ),
+      meta, new FilterRowsData(), new FilterRowsData(), createRowMeta(), createRows() );
+  }
+}
@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.loadsave.LoadSaveTester;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidator;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidatorFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class HashJoinMetaTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  LoadSaveTester loadSaveTester;
+
+  public HashJoinMetaTest() {
+    List<String> attributes =
+      Arrays.asList( "joinType", "keyFields1", "keyFields2", "maxBuildRows", "freeMemoryLimit", "directory" );
+
+    Map<String, FieldLoadSaveValidator<?>> attrValidatorMap = new HashMap<String, FieldLoadSaveValidator<?>>();
+
+    Map<String, FieldLoadSaveValidator<?>> typeValidatorMap = new HashMap<String, FieldLoadSaveValidator<?>>();
+
+    Map<String, String> getterMap = new HashMap<String, String>();
+    getterMap.put( "joinType", "getJoinType" );
+    getterMap.put( "keyFields1", "getKeyFields1" );
+    getterMap.put( "keyFields2", "getKeyFields2" );
+    getterMap.put( "maxBuildRows", "getMaxBuildRows" );
+    getterMap.put( "freeMemoryLimit", "getFreeMemoryLimit" );
+    getterMap.put( "directory", "getDirectory" );
+
+    Map<String, String> setterMap = new HashMap<String, String>();
+    setterMap.put( "joinType", "setJoinType" );
+    setterMap.put( "keyFields1", "setKeyFields1" );
+    setterMap.put( "keyFields2", "setKeyFields2" );
+    setterMap.put( "maxBuildRows", "setMaxBuildRows" );
+    setterMap.put( "freeMemoryLimit", "setFreeMemoryLimit" );
+    setterMap.put( "directory", "setDirectory" );
+
+    this.loadSaveTester = new LoadSaveTester( HashJoinMeta.class,
+      attributes,
+      getterMap, setterMap,
+      attrValidatorMap, typeValidatorMap );
+
+    FieldLoadSaveValidatorFactory validatorFactory = loadSaveTester.getFieldLoadSaveValidatorFactory();
+
+    FieldLoadSaveValidator<HashJoinMeta> targetValidator = new FieldLoadSaveValidator<HashJoinMeta>() {
+
+      @Override
+      public HashJoinMeta getTestObject() {
+        return new HashJoinMeta() {
+          {
+            setJoinType( join_types[3] );
+            setKeyFields1( new String[]{ "field1", "field2" } );
+            setKeyFields2( new String[]{ "field1", "field3" } );
+          }
+        };
+      }
+
+      @Override
+      public boolean validateTestObject( HashJoinMeta testObject, Object actual ) {
+        return testObject.getJoinType().equals( ( (HashJoinMeta) actual ).getJoinType() )
+          && Arrays.equals( testObject.getKeyFields1(), ( (HashJoinMeta) actual ).getKeyFields1() )
+          && Arrays.equals( testObject.getKeyFields2(), ( (HashJoinMeta) actual ).getKeyFields2() );
+      }
+    };
+
+    validatorFactory.registerValidator( validatorFactory.getName( HashJoinMeta.class ), targetValidator );
+  }
+
+  @Test
+  public void testSerialization() throws KettleException {
+    loadSaveTester.testSerialization();
+  }
+
+  @Test
+  public void testGetFields() throws Exception {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+
+    RowMeta inputRow1 = new RowMeta();
+    inputRow1.addValueMeta( new ValueMetaInteger( "field1" ) );
+    inputRow1.addValueMeta( new ValueMetaString( "field2" ) );
+
+    RowMeta inputRow2 = new RowMeta();
+    inputRow2.addValueMeta( new ValueMetaString( "field1" ) );
+    inputRow2.addValueMeta( new ValueMetaString( "field3" ) );
+
+    StepMeta stepMeta = new StepMeta( "Hash", meta );
+
+    RowMeta outputRowMeta = new RowMeta();
+    meta.getFields( DefaultBowl.getInstance(), outputRowMeta, "Hash Join",
+      new RowMetaInterface[]{ inputRow1, inputRow2 }, stepMeta, new Variables(), null, null );
+    assertEquals( Arrays.asList( "field1", "field2", "field1_1", "field3" ),
+      Arrays.asList( outputRowMeta.getFieldNames() ) );
+
+    // A semi join only passes on the rows of the first step
+    meta.setJoinType( "LEFT SEMI" );
+    outputRowMeta = new RowMeta();
+    meta.getFields( DefaultBowl.getInstance(), outputRowMeta, "Hash Join",
+      new RowMetaInterface[]{ inputRow1, inputRow2 }, stepMeta, new Variables(), null, null );
+    assertEquals( Arrays.asList( "field1", "field2" ), Arrays.asList( outputRowMeta.getFieldNames() ) );
+  }
+
+  @Test
+  public void cloneTest() throws Exception {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.setKeyFields1( new String[] { "kf1-1", "kf1-2" } );
+    meta.setKeyFields2( new String[] { "kf2-1", "kf2-2" } );
+    meta.setJoinType( "LEFT ANTI" );
+    meta.setMaxBuildRows( "5000" );
+    HashJoinMeta aClone = (HashJoinMeta) meta.clone();
+    assertFalse( aClone == meta );
+    assertTrue( Arrays.equals( meta.getKeyFields1(), aClone.getKeyFields1() ) );
+    assertTrue( Arrays.equals( meta.getKeyFields2(), aClone.getKeyFields2() ) );
+    assertEquals( meta.getJoinType(), aClone.getJoinType() );
+    assertEquals( meta.getMaxBuildRows(), aClone.getMaxBuildRows() );
+    assertEquals( meta.getDirectory(), aClone.getDirectory() );
+
+    List<StreamInterface> infoStreams = meta.getStepIOMeta().getInfoStreams();
+    List<StreamInterface> cloneInfoStreams = aClone.getStepIOMeta().getInfoStreams();
+    assertEquals( infoStreams.size(), cloneInfoStreams.size() );
+    for ( int i = 0; i < infoStreams.size(); i++ ) {
+      assertFalse( infoStreams.get( i ) == cloneInfoStreams.get( i ) );
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.hashjoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class HashJoinTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "testStep";
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  /**
+   * Compares every join type with a nested loop join, with all the rows in memory and with most of them in temp files
+   */
+  @Test
+  public void testJoinTypesInMemoryAndSpilled() throws Exception {
+    Random random = new Random( 7 );
+    List<Object[]> rows1 = new ArrayList<>();
+    List<Object[]> rows2 = new ArrayList<>();
+    for ( long i = 0; i < 300; i++ ) {
+      rows1.add( new Object[] { random.nextInt( 10 ) == 0 ? null : (long) random.nextInt( 80 ), "one" + i } );
+    }
+    for ( long i = 0; i < 200; i++ ) {
+      rows2.add( new Object[] { "two" + i, random.nextInt( 10 ) == 0 ? null : (long) random.nextInt( 80 ) } );
+    }
+
+    for ( int joinType = 0; joinType < HashJoinMeta.join_types.length; joinType++ ) {
+      List<String> expected = nestedLoopJoin( rows1, rows2, joinType );
+      for ( int maxBuildRows : new int[] { 0, 1, 10 } ) {
+        assertEquals( HashJoinMeta.join_types[joinType] + " keeping " + maxBuildRows + " rows in memory", expected,
+          runStep( rows1, rows2, joinType, maxBuildRows ) );
+      }
+    }
+  }
+
+  @Test
+  public void testEmptySecondStep() throws Exception {
+    List<Object[]> rows1 = Arrays.asList( new Object[] { 1L, "a" }, new Object[] { null, "b" } );
+    List<Object[]> rows2 = Collections.emptyList();
+    for ( int joinType = 0; joinType < HashJoinMeta.join_types.length; joinType++ ) {
+      assertEquals( HashJoinMeta.join_types[joinType], nestedLoopJoin( rows1, rows2, joinType ),
+        runStep( rows1, rows2, joinType, 0 ) );
+    }
+  }
+
+  @Test( expected = KettleStepException.class )
+  public void testKeysOfDifferentTypes() throws Exception {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.setKeyFields1( new String[] { "value1" } );
+    meta.setKeyFields2( new String[] { "key2" } );
+    runStep( meta, Collections.singletonList( new Object[] { 1L, "a" } ),
+      Collections.singletonList( new Object[] { "b", 1L } ), 0 );
+  }
+
+  private List<String> nestedLoopJoin( List<Object[]> rows1, List<Object[]> rows2, int joinType ) {
+    List<String> result = new ArrayList<>();
+    Set<Object[]> matched2 = new HashSet<>();
+    for ( Object[] one : rows1 ) {
+      boolean matched = false;
+      for ( Object[] two : rows2 ) {
+        if ( Objects.equals( one[0], two[1] ) ) {
+          matched = true;
+          matched2.add( two );
+          if ( !HashJoinMeta.first_onlies[joinType] ) {
+            result.add( Arrays.toString( new Object[] { one[0], one[1], two[0], two[1] } ) );
+          }
+        }
+      }
+      if ( HashJoinMeta.first_onlies[joinType] ) {
+        if ( matched != HashJoinMeta.two_optionals[joinType] ) {
+          result.add( Arrays.toString( new Object[] { one[0], one[1] } ) );
+        }
+      } else if ( !matched && HashJoinMeta.two_optionals[joinType] ) {
+        result.add( Arrays.toString( new Object[] { one[0], one[1], null, null } ) );
+      }
+    }
+    if ( HashJoinMeta.one_optionals[joinType] ) {
+      for ( Object[] two : rows2 ) {
+        if ( !matched2.contains( two ) ) {
+          result.add( Arrays.toString( new Object[] { null, null, two[0], two[1] } ) );
+        }
+      }
+    }
+    Collections.sort( result );
+    return result;
+  }
+
+  private List<String> runStep( List<Object[]> rows1, List<Object[]> rows2, int joinType, int maxBuildRows )
+    throws KettleException {
+    HashJoinMeta meta = new HashJoinMeta();
+    meta.setDefault();
+    meta.setJoinType( HashJoinMeta.join_types[joinType] );
+    meta.setKeyFields1( new String[] { "key1" } );
+    meta.setKeyFields2( new String[] { "key2" } );
+    return runStep( meta, rows1, rows2, maxBuildRows );
+  }
+
+  /**
+   * Runs the step over the rows of both steps and returns its output rows as sorted strings
+   */
+  private List<String> runStep( HashJoinMeta meta, List<Object[]> rows1, List<Object[]> rows2, int maxBuildRows )
+    throws KettleException {
+    RowMeta rowMeta1 = new RowMeta();
+    rowMeta1.addValueMeta( new ValueMetaInteger( "key1" ) );
+    rowMeta1.addValueMeta( new ValueMetaString( "value1" ) );
+    RowMeta rowMeta2 = new RowMeta();
+    rowMeta2.addValueMeta( new ValueMetaString( "value2" ) );
+    rowMeta2.addValueMeta( new ValueMetaInteger( "key2" ) );
+
+    meta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( new StepMeta( "one", null ) );
+    meta.getStepIOMeta().getInfoStreams().get( 1 ).setStepMeta( new StepMeta( "two", null ) );
+
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+    when( transMeta.getStepFields( "one" ) ).thenReturn( rowMeta1 );
+    when( transMeta.getStepFields( "two" ) ).thenReturn( rowMeta2 );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+
+    HashJoinData data = new HashJoinData();
+    int joinTypeIndex = HashJoinMeta.getJoinTypeIndex( meta.getJoinType() );
+    data.one_optional = HashJoinMeta.one_optionals[joinTypeIndex];
+    data.two_optional = HashJoinMeta.two_optionals[joinTypeIndex];
+    data.first_only = HashJoinMeta.first_onlies[joinTypeIndex];
+    data.maxBuildRows = maxBuildRows;
+    data.directory = System.getProperty( "java.io.tmpdir" );
+
+    HashJoin step = spy( new HashJoin( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    doReturn( toRowSet( rowMeta1, rows1 ) ).when( step ).findInputRowSet( "one" );
+    doReturn( toRowSet( rowMeta2, rows2 ) ).when( step ).findInputRowSet( "two" );
+    doAnswer( invocation -> ( (RowSet) invocation.getArgument( 0 ) ).getRow() ).when( step ).getRowFrom( any() );
+    List<String> output = new ArrayList<>();
+    doAnswer( invocation -> {
+      Object[] row = invocation.getArgument( 1 );
+      output.add( Arrays.toString( Arrays.copyOf( row, data.outputRowMeta.size() ) ) );
+      return null;
+    } ).when( step ).putRow( any(), any() );
+    doNothing().when( step ).setOutputDone();
+
+    while ( step.processRow( meta, data ) ) {
+      // keep on reading rows
+    }
+    Collections.sort( output );
+    return output;
+  }
+
+  private RowSet toRowSet( RowMeta rowMeta, List<Object[]> rows ) {
+    RowSet rowSet = new QueueRowSet();
+    for ( Object[] row : rows ) {
+      rowSet.putRow( rowMeta, row.clone() );
+    }
+    rowSet.setDone();
+    return rowSet;
+  }
+}
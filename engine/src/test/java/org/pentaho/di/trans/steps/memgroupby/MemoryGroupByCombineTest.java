@@ -0,0 +1,167 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupByCombineTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "testStep";
+
+  private static final String[] AGGREGATES =
+    { "sum", "count", "distinct", "min", "max", "average", "stddev", "approx_distinct", "approx_median" };
+  private static final int[] TYPES = { MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, MemoryGroupByMeta.TYPE_GROUP_MIN, MemoryGroupByMeta.TYPE_GROUP_MAX,
+    MemoryGroupByMeta.TYPE_GROUP_AVERAGE, MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION,
+    MemoryGroupByMeta.TYPE_GROUP_APPROX_COUNT_DISTINCT, MemoryGroupByMeta.TYPE_GROUP_APPROX_MEDIAN };
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * The groups are small enough for the approximate aggregates to be exact, so they have to match as well
+   */
+  @Test
+  public void testCombinedCopiesAggregateLikeOneCopy() throws Exception {
+    Random random = new Random( 11 );
+    List<List<Object[]>> copyRows = new ArrayList<>();
+    List<Object[]> allRows = new ArrayList<>();
+    for ( int copy = 0; copy < 3; copy++ ) {
+      copyRows.add( new ArrayList<>() );
+    }
+    for ( long i = 0; i < 600; i++ ) {
+      Object[] row = new Object[] { (long) random.nextInt( 40 ), (long) random.nextInt( 100 ) };
+      allRows.add( row );
+      // The last copy doesn't get any row
+      copyRows.get( (int) ( i % 2 ) ).add( row );
+    }
+
+    Map<Long, Object[]> expected = new TreeMap<>();
+    runStep( allRows, 0, null, expected );
+    assertEquals( 40, expected.size() );
+
+    MemoryGroupByExchange exchange = new MemoryGroupByExchange( 3 );
+    Map<Long, Object[]> combined = new TreeMap<>();
+    List<Future<?>> copies = new ArrayList<>();
+    for ( int copy = 0; copy < 3; copy++ ) {
+      int copyNr = copy;
+      copies.add( executor.submit( () -> {
+        runStep( copyRows.get( copyNr ), copyNr, exchange, combined );
+        return null;
+      } ) );
+    }
+    for ( Future<?> copy : copies ) {
+      copy.get();
+    }
+
+    assertEquals( expected.keySet(), combined.keySet() );
+    for ( Map.Entry<Long, Object[]> entry : expected.entrySet() ) {
+      Object[] row = combined.get( entry.getKey() );
+      for ( int i = 0; i < AGGREGATES.length; i++ ) {
+        if ( TYPES[ i ] == MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION ) {
+          assertEquals( (Double) entry.getValue()[ i + 1 ], (Double) row[ i + 1 ], 1e-9 );
+        } else {
+          assertEquals( AGGREGATES[ i ], entry.getValue()[ i + 1 ], row[ i + 1 ] );
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs one copy of the step over the rows and adds its output rows by the key of their group
+   */
+  private void runStep( List<Object[]> rows, int copyNr, MemoryGroupByExchange exchange, Map<Long, Object[]> output )
+    throws KettleException {
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, AGGREGATES.length );
+    meta.getGroupField()[ 0 ] = "key";
+    for ( int i = 0; i < AGGREGATES.length; i++ ) {
+      meta.getAggregateField()[ i ] = AGGREGATES[ i ];
+      meta.getSubjectField()[ i ] = "value";
+      meta.getAggregateType()[ i ] = TYPES[ i ];
+    }
+
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.clear();
+    data.exchange = exchange;
+
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+    when( transMeta.getPrevStepFields( any( StepMeta.class ) ) ).thenReturn( rowMeta );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, copyNr, transMeta, mock( Trans.class ) ) );
+    doAnswer( invocation -> {
+      Object[] row = invocation.getArgument( 1 );
+      synchronized ( output ) {
+        output.put( (Long) row[ 0 ], row );
+      }
+      return null;
+    } ).when( step ).putRow( any(), any() );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rows.isEmpty() ? null : rowMeta ).when( step ).getInputRowMeta();
+    Iterator<Object[]> iterator = rows.iterator();
+    doAnswer( invocation -> iterator.hasNext() ? iterator.next().clone() : null ).when( step ).getRow();
+
+    while ( step.processRow( meta, data ) ) {
+      // keep on reading rows
+    }
+  }
+}
@@ -63,5 +63,11 @@ public class MemoryGroupByMetaInjectionTest extends BaseMetadataInjectionTest<Me
           return meta.isAlwaysGivingBackOneRow();
         }
       } );
+    check( "COMBININGCOPIES", new BooleanGetter() {
+        @Override
+        public boolean get() {
+          return meta.isCombiningCopies();
+        }
+      } );
   }
 }
@@ -0,0 +1,164 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupBySpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "testStep";
+
+  private File directory;
+  private RowMeta rowMeta;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile( "memgroupby-spill-test", "" );
+    directory.delete();
+    directory.mkdir();
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+  }
+
+  @After
+  public void tearDown() {
+    for ( File file : directory.listFiles() ) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  @Test
+  public void testSpilledGroupsAggregateLikeInMemory() throws Exception {
+    Random random = new Random( 7 );
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = 0; i < 500; i++ ) {
+      rows.add( new Object[] { (long) random.nextInt( 60 ), i } );
+    }
+    Collections.shuffle( rows, random );
+
+    Map<Long, Object[]> expected = runStep( rows, 0 );
+    assertEquals( 60, expected.size() );
+
+    // Only one group fits in memory, the partitions with more groups are split again
+    Map<Long, Object[]> spilled = runStep( rows, 1 );
+    assertEquals( expected.keySet(), spilled.keySet() );
+    for ( Map.Entry<Long, Object[]> entry : expected.entrySet() ) {
+      assertArrayEquals( entry.getValue(), spilled.get( entry.getKey() ) );
+    }
+    assertEquals( 0, directory.listFiles().length );
+  }
+
+  @Test
+  public void testPartitionsDifferPerLevel() {
+    Set<Integer> level1 = new HashSet<>();
+    for ( int hashCode = 0; hashCode < 10000; hashCode++ ) {
+      int partition = MemoryGroupBySpill.partition( hashCode, 0 );
+      assertTrue( partition >= 0 && partition < MemoryGroupBySpill.NR_PARTITIONS );
+      if ( partition == 0 ) {
+        level1.add( MemoryGroupBySpill.partition( hashCode, 1 ) );
+      }
+    }
+    assertTrue( level1.size() > MemoryGroupBySpill.NR_PARTITIONS / 2 );
+  }
+
+  /**
+   * @return the output rows by the key of their group
+   */
+  private Map<Long, Object[]> runStep( List<Object[]> rows, int maxGroups ) throws KettleException {
+    String[] aggregates = { "sum", "count", "first", "last", "concat" };
+    int[] types = { MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY,
+      MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL, MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL,
+      MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA };
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, aggregates.length );
+    meta.getGroupField()[ 0 ] = "key";
+    for ( int i = 0; i < aggregates.length; i++ ) {
+      meta.getAggregateField()[ i ] = aggregates[ i ];
+      meta.getSubjectField()[ i ] = "value";
+      meta.getAggregateType()[ i ] = types[ i ];
+    }
+
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.clear();
+    data.maxGroups = maxGroups;
+
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.getBowl() ).thenReturn( DefaultBowl.getInstance() );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    step.setVariable( Const.KETTLE_MEMORY_GROUP_BY_TMP_DIR, directory.getAbsolutePath() );
+    Map<Long, Object[]> output = new TreeMap<>();
+    doAnswer( invocation -> {
+      Object[] row = invocation.getArgument( 1 );
+      output.put( (Long) row[ 0 ], row );
+      return null;
+    } ).when( step ).putRow( any(), any() );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+
+    for ( Object[] row : rows ) {
+      doReturn( row.clone() ).when( step ).getRow();
+      step.processRow( meta, data );
+    }
+    doReturn( null ).when( step ).getRow();
+    step.processRow( meta, data );
+    return output;
+  }
+}
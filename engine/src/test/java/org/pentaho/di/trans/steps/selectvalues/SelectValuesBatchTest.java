@@ -0,0 +1,153 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.selectvalues;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.StepBatchTestUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+import org.pentaho.di.trans.steps.selectvalues.SelectValuesMeta.SelectField;
+
+/**
+ * Selects, removes and changes the fields of the same rows one by one and a batch at a time. Without error handling, so
+ * that the step can process the rows a batch at a time.
+ */
+public class SelectValuesBatchTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private StepMockHelper<SelectValuesMeta, SelectValuesData> smh;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() {
+    smh = new StepMockHelper<>( "Select values", SelectValuesMeta.class, SelectValuesData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) ).thenReturn(
+      smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+  }
+
+  @After
+  public void cleanUp() {
+    smh.cleanUp();
+  }
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "rate" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  private List<Object[]> createRows( String... amounts ) {
+    return Arrays.asList(
+      new Object[] { 1L, amounts[ 0 ], 0.5, "one" },
+      new Object[] { null, amounts[ 1 ], null, null },
+      new Object[] { 3L, amounts[ 2 ], 1.5, "three" } );
+  }
+
+  private SelectField createSelectField( String name, String rename ) {
+    SelectField field = new SelectField();
+    field.setName( name );
+    field.setRename( rename );
+    return field;
+  }
+
+  private SelectMetadataChange createChange( SelectValuesMeta meta, String name, int type ) {
+    return new SelectMetadataChange( meta, name, null, type, -2, -2, ValueMetaInterface.STORAGE_TYPE_NORMAL, null,
+      false, null, null, false, null, null, null );
+  }
+
+  private List<RowMetaAndData> assertBatchesGiveTheSameResults( SelectValuesMeta meta, List<Object[]> rows )
+    throws Exception {
+    return StepBatchTestUtil.assertSameResults(
+      () -> new SelectValues( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ),
+      meta, new SelectValuesData(), new SelectValuesData(), createRowMeta(), rows );
+  }
+
+  @Test
+  public void testSelectFieldsTwice() throws Exception {
+    // A field selected twice gets a copy of its values
+    SelectValuesMeta meta = new SelectValuesMeta();
+    meta.allocate( 3, 0, 0 );
+    meta.getSelectFields()[ 0 ] = createSelectField( "name", null );
+    meta.getSelectFields()[ 1 ] = createSelectField( "id", null );
+    meta.getSelectFields()[ 2 ] = createSelectField( "id", "id_copy" );
+
+    List<RowMetaAndData> result = assertBatchesGiveTheSameResults( meta, createRows( "1", "2", "3" ) );
+
+    assertArrayEquals( new String[] { "name", "id", "id_copy" }, result.get( 0 ).getRowMeta().getFieldNames() );
+  }
+
+  @Test
+  public void testRemoveFields() throws Exception {
+    SelectValuesMeta meta = new SelectValuesMeta();
+    meta.allocate( 0, 2, 0 );
+    meta.setDeleteName( new String[] { "rate", "id" } );
+
+    List<RowMetaAndData> result = assertBatchesGiveTheSameResults( meta, createRows( "1", "2", "3" ) );
+
+    assertArrayEquals( new String[] { "amount", "name" }, result.get( 0 ).getRowMeta().getFieldNames() );
+  }
+
+  @Test
+  public void testChangeTheTypes() throws Exception {
+    SelectValuesMeta meta = new SelectValuesMeta();
+    meta.allocate( 0, 0, 2 );
+    meta.getMeta()[ 0 ] = createChange( meta, "amount", ValueMetaInterface.TYPE_INTEGER );
+    meta.getMeta()[ 1 ] = createChange( meta, "id", ValueMetaInterface.TYPE_STRING );
+
+    List<RowMetaAndData> result = assertBatchesGiveTheSameResults( meta, createRows( "10", null, "30" ) );
+
+    assertEquals( 10L, result.get( 0 ).getData()[ 1 ] );
+    assertEquals( "3", result.get( 2 ).getData()[ 0 ] );
+  }
+
+  @Test
+  public void testInvalidConversionFails() throws Exception {
+    SelectValuesMeta meta = new SelectValuesMeta();
+    meta.allocate( 0, 0, 1 );
+    meta.getMeta()[ 0 ] = createChange( meta, "amount", ValueMetaInterface.TYPE_INTEGER );
+
+    StepBatchTestUtil.assertBothFail(
+      () -> new SelectValues( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ),
+      meta, new SelectValuesData(), new SelectValuesData(), createRowMeta(), createRows( "10", "twenty", "30" ) );
+  }
+}
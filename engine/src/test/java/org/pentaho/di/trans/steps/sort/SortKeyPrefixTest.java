@@ -0,0 +1,160 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.steps.sort.SortKeyPrefix.SortKey;
+
+public class SortKeyPrefixTest {
+
+  @Test
+  public void testUnsupportedKeys() {
+    assertNull( SortKeyPrefix.create( new ValueMetaBigNumber( "big" ), 0 ) );
+
+    ValueMetaString caseInsensitive = new ValueMetaString( "string" );
+    caseInsensitive.setCaseInsensitive( true );
+    assertNull( SortKeyPrefix.create( caseInsensitive, 0 ) );
+
+    ValueMetaString collator = new ValueMetaString( "string" );
+    collator.setCollatorDisabled( false );
+    assertNull( SortKeyPrefix.create( collator, 0 ) );
+
+    ValueMetaInteger binaryString = new ValueMetaInteger( "integer" );
+    binaryString.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertNull( SortKeyPrefix.create( binaryString, 0 ) );
+
+    assertNotNull( SortKeyPrefix.create( new ValueMetaString( "string" ), 0 ) );
+  }
+
+  @Test
+  public void testIntegerOrder() throws Exception {
+    Random random = new Random( 1 );
+    List<Object> values = new ArrayList<>( Arrays.asList( null, Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE ) );
+    for ( int i = 0; i < 200; i++ ) {
+      values.add( random.nextBoolean() ? random.nextLong() : (long) random.nextInt( 10 ) - 5 );
+    }
+    assertSameOrder( new ValueMetaInteger( "integer" ), values );
+  }
+
+  @Test
+  public void testNumberOrder() throws Exception {
+    Random random = new Random( 2 );
+    List<Object> values = new ArrayList<>( Arrays.asList( null, Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1.5,
+      -Double.MIN_VALUE, -0.0, 0.0, Double.MIN_VALUE, 1.5, Double.MAX_VALUE, Double.POSITIVE_INFINITY,
+      Double.NaN ) );
+    for ( int i = 0; i < 200; i++ ) {
+      values.add( ( random.nextDouble() - 0.5 ) * Math.pow( 10, random.nextInt( 20 ) - 10 ) );
+    }
+    assertSameOrder( new ValueMetaNumber( "number" ), values );
+  }
+
+  @Test
+  public void testDateOrder() throws Exception {
+    Random random = new Random( 3 );
+    List<Object> values = new ArrayList<>( Arrays.asList( null, new Date( Long.MIN_VALUE ), new Date( -1L ),
+      new Date( 0L ), new Date( Long.MAX_VALUE ) ) );
+    for ( int i = 0; i < 200; i++ ) {
+      values.add( new Date( random.nextLong() >> random.nextInt( 40 ) ) );
+    }
+    assertSameOrder( new ValueMetaDate( "date" ), values );
+  }
+
+  @Test
+  public void testBooleanOrder() throws Exception {
+    assertSameOrder( new ValueMetaBoolean( "boolean" ), Arrays.asList( null, true, false, true, null, false ) );
+  }
+
+  @Test
+  public void testStringOrder() throws Exception {
+    List<Object> values = new ArrayList<>( Arrays.asList( null, "", "a", "ab", "abc", "abcd", "abcde", "abcdf",
+      "abd", "b", "B", " a", "a ", "\u0000", "a\u0000", "\uffff", "zzzz", "zzzzz", "\u00e9t\u00e9" ) );
+    Random random = new Random( 4 );
+    for ( int i = 0; i < 200; i++ ) {
+      char[] chars = new char[ random.nextInt( 7 ) ];
+      for ( int c = 0; c < chars.length; c++ ) {
+        chars[ c ] = (char) ( 'a' + random.nextInt( 3 ) );
+      }
+      values.add( new String( chars ) );
+    }
+    assertSameOrder( new ValueMetaString( "string" ), values );
+
+    ValueMetaString ignoreWhitespace = new ValueMetaString( "string" );
+    ignoreWhitespace.setIgnoreWhitespace( true );
+    assertSameOrder( ignoreWhitespace, values );
+  }
+
+  @Test
+  public void testSortOnPrefixAndRow() throws Exception {
+    ValueMetaString valueMeta = new ValueMetaString( "string" );
+    SortKeyPrefix prefix = SortKeyPrefix.create( valueMeta, 1 );
+    List<Object[]> rows = new ArrayList<>();
+    for ( String value : new String[] { "abcdz", "b", null, "abcda", "a" } ) {
+      rows.add( new Object[] { rows.size(), value } );
+    }
+
+    SortKey[] keys = prefix.createKeys( rows );
+    Arrays.sort( keys, SortKeyPrefix.comparator( ( r1, r2 ) -> {
+      try {
+        return valueMeta.compare( r1[ 1 ], r2[ 1 ] );
+      } catch ( KettleValueException e ) {
+        throw new IllegalStateException( e );
+      }
+    } ) );
+
+    int[] expected = { 2, 4, 3, 0, 1 };
+    for ( int i = 0; i < expected.length; i++ ) {
+      assertEquals( expected[ i ], keys[ i ].row[ 0 ] );
+    }
+  }
+
+  /**
+   * Checks in both sort directions that every two values with a different prefix have the order of the value metadata.
+   */
+  private static void assertSameOrder( ValueMetaInterface valueMeta, List<Object> values ) throws Exception {
+    for ( boolean descending : new boolean[] { false, true } ) {
+      valueMeta.setSortedDescending( descending );
+      SortKeyPrefix prefix = SortKeyPrefix.create( valueMeta, 0 );
+      assertNotNull( prefix );
+
+      for ( Object one : values ) {
+        for ( Object two : values ) {
+          int prefixCmp = Long.signum( Long.compareUnsigned( prefix.prefix( one ), prefix.prefix( two ) ) );
+          if ( prefixCmp != 0 ) {
+            assertTrue( valueMeta.getName() + ": " + one + " <> " + two,
+              Integer.signum( valueMeta.compare( one, two ) ) == prefixCmp );
+          }
+        }
+      }
+    }
+  }
+}
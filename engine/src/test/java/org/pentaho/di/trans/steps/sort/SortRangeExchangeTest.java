@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.trans.steps.sort.SortRowsSpill.Run;
+
+public class SortRangeExchangeTest {
+
+  private final Comparator<Object[]> keyComparator = ( r1, r2 ) -> Long.compare( (Long) r1[ 0 ], (Long) r2[ 0 ] );
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testSplittersAreQuantilesOfAllCopies() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    SortRangeExchange exchange = new SortRangeExchange( 3 );
+
+    // Copy 0 gets the keys 0..2999, copy 1 the keys 3000..5999 and copy 2 none at all
+    List<Future<Object[][]>> splitters = new ArrayList<>();
+    for ( int copy = 0; copy < 3; copy++ ) {
+      SortRangeExchange.Samples samples = new SortRangeExchange.Samples();
+      if ( copy < 2 ) {
+        samples.add( createRows( copy * 3000L, 3000 ) );
+      }
+      RowMetaInterface copyRowMeta = copy < 2 ? rowMeta : null;
+      Comparator<Object[]> copyComparator = copy < 2 ? keyComparator : null;
+      splitters.add( executor.submit(
+        () -> exchange.putSamples( samples, copyRowMeta, copyComparator, () -> false ) ) );
+    }
+
+    Object[][] first = splitters.get( 0 ).get();
+    for ( Future<Object[][]> copySplitters : splitters ) {
+      assertSame( first, copySplitters.get() );
+    }
+    assertEquals( 2, first.length );
+    assertTrue( Math.abs( (Long) first[ 0 ][ 0 ] - 2000L ) <= 3L );
+    assertTrue( Math.abs( (Long) first[ 1 ][ 0 ] - 4000L ) <= 3L );
+    assertSame( rowMeta, exchange.getRowMeta() );
+  }
+
+  @Test
+  public void testStoppedCopyStopsWaiting() throws Exception {
+    SortRangeExchange exchange = new SortRangeExchange( 2 );
+    assertNull( exchange.putSamples( new SortRangeExchange.Samples(), null, null, () -> true ) );
+    assertNull( exchange.takeResult( 1, () -> true ) );
+  }
+
+  @Test
+  public void testPartitionsOfARangeInCopyOrder() throws Exception {
+    SortRangeExchange exchange = new SortRangeExchange( 2 );
+    Run[][] parts = new Run[ 2 ][];
+    for ( int copy = 0; copy < 2; copy++ ) {
+      parts[ copy ] = new Run[] { new Run( createRows( copy, 1 ) ), new Run( createRows( 10L + copy, 1 ) ) };
+    }
+    Future<Boolean> other = executor.submit( () -> exchange.putPartitions( 1, parts[ 1 ], () -> false ) );
+    assertTrue( exchange.putPartitions( 0, parts[ 0 ], () -> false ) );
+    assertTrue( other.get() );
+
+    assertEquals( Arrays.asList( parts[ 0 ][ 1 ], parts[ 1 ][ 1 ] ), exchange.takePartitions( 1 ) );
+    assertTrue( exchange.takePartitions( 1 ).isEmpty() );
+
+    Run merged = new Run( createRows( 10L, 2 ) );
+    exchange.putResult( 1, merged );
+    assertSame( merged, exchange.takeResult( 1, () -> false ) );
+  }
+
+  private static List<Object[]> createRows( long firstKey, int nrRows ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows.add( new Object[] { firstKey + i } );
+    }
+    return rows;
+  }
+}
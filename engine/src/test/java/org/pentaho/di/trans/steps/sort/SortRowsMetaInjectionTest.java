@@ -64,6 +64,12 @@ public class SortRowsMetaInjectionTest extends BaseMetadataInjectionTest<SortRow
         return meta.getCompressFiles();
       }
     } );
+    check( "RANGE_PARTITIONED", new BooleanGetter() {
+      @Override
+      public boolean get() {
+        return meta.isRangePartitioned();
+      }
+    } );
     check( "NAME", new StringGetter() {
       @Override
       public String get() {
@@ -0,0 +1,189 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+
+/**
+ * Runs Sort rows in several copies that sort key ranges. The rows the first copy passes on have to be sorted over all
+ * the copies, none of them lost or passed on twice.
+ */
+public class SortRowsRangePartitionedTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final int NR_COPIES = 4;
+  private static final int NR_ROWS = 5000;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  private StepMeta addStep( TransMeta transMeta, String name, StepMetaInterface stepMetaInterface, int copies ) {
+    String pluginId = PluginRegistry.getInstance().getPluginId( StepPluginType.class, stepMetaInterface );
+    StepMeta stepMeta = new StepMeta( pluginId, name, stepMetaInterface );
+    stepMeta.setCopies( copies );
+    transMeta.addStep( stepMeta );
+    return stepMeta;
+  }
+
+  /**
+   * Sorts the keys by the copies of Sort rows, the rows are spread over the copies round robin.
+   *
+   * @param keys     the keys to sort, the sequence number of a row is the index of its key
+   * @param sortSize the number of rows a copy sorts in memory before it writes them to a temp file
+   * @return the sorted rows: the key and the sequence number
+   */
+  private List<long[]> sort( long[] keys, int sortSize ) throws Exception {
+    SortRowsMeta sortRowsMeta = new SortRowsMeta();
+    sortRowsMeta.setDefault();
+    sortRowsMeta.allocate( 1 );
+    sortRowsMeta.getFieldName()[ 0 ] = "key";
+    sortRowsMeta.getAscending()[ 0 ] = true;
+    sortRowsMeta.getCaseSensitive()[ 0 ] = true;
+    sortRowsMeta.setPrefix( "sort-rows-range-test" );
+    sortRowsMeta.setSortSize( Integer.toString( sortSize ) );
+    sortRowsMeta.setRangePartitioned( true );
+
+    TransMeta transMeta = new TransMeta();
+    StepMeta injector = addStep( transMeta, "injector", new InjectorMeta(), 1 );
+    StepMeta sortRows = addStep( transMeta, "sort rows", sortRowsMeta, NR_COPIES );
+    StepMeta dummy = addStep( transMeta, "dummy", new DummyTransMeta(), 1 );
+    transMeta.addTransHop( new TransHopMeta( injector, sortRows ) );
+    transMeta.addTransHop( new TransHopMeta( sortRows, dummy ) );
+
+    Trans trans = new Trans( transMeta );
+    trans.prepareExecution( null );
+    RowStepCollector collector = new RowStepCollector();
+    trans.getStepInterface( "dummy", 0 ).addRowListener( collector );
+    RowProducer producer = trans.addRowProducer( "injector", 0 );
+    trans.startThreads();
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "seq" ) );
+    for ( int seq = 0; seq < keys.length; seq++ ) {
+      producer.putRow( rowMeta, new Object[] { keys[ seq ], (long) seq } );
+    }
+    producer.finished();
+
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+
+    List<RowMetaAndData> rows = collector.getRowsRead();
+    List<long[]> result = new ArrayList<>( rows.size() );
+    for ( RowMetaAndData row : rows ) {
+      result.add( new long[] { row.getInteger( "key", -1L ), row.getInteger( "seq", -1L ) } );
+    }
+    return result;
+  }
+
+  /**
+   * Checks that the keys are in order over all the ranges and that every row is passed on once.
+   */
+  private void assertSorted( long[] keys, List<long[]> rows ) {
+    assertEquals( keys.length, rows.size() );
+    boolean[] seen = new boolean[ keys.length ];
+    for ( int i = 0; i < rows.size(); i++ ) {
+      long[] row = rows.get( i );
+      if ( i > 0 ) {
+        assertTrue( "Row " + i + " is out of order", rows.get( i - 1 )[ 0 ] <= row[ 0 ] );
+      }
+      int seq = (int) row[ 1 ];
+      assertEquals( keys[ seq ], row[ 0 ] );
+      assertFalse( "Row " + seq + " is passed on twice", seen[ seq ] );
+      seen[ seq ] = true;
+    }
+  }
+
+  private static long[] uniformKeys( int nrRows, int nrKeys, long seed ) {
+    Random random = new Random( seed );
+    long[] keys = new long[ nrRows ];
+    for ( int i = 0; i < nrRows; i++ ) {
+      keys[ i ] = random.nextInt( nrKeys );
+    }
+    return keys;
+  }
+
+  /**
+   * @return keys of which nine out of ten are the same key, in the middle of the other keys
+   */
+  private static long[] skewedKeys( int nrRows, long seed ) {
+    Random random = new Random( seed );
+    long[] keys = new long[ nrRows ];
+    for ( int i = 0; i < nrRows; i++ ) {
+      keys[ i ] = random.nextInt( 10 ) == 0 ? random.nextInt( 1000 ) : 500;
+    }
+    return keys;
+  }
+
+  @Test( timeout = 60000 )
+  public void testDuplicateKeys() throws Exception {
+    long[] keys = uniformKeys( NR_ROWS, 100, 1 );
+    assertSorted( keys, sort( keys, 1000000 ) );
+  }
+
+  @Test( timeout = 60000 )
+  public void testSkewedKeys() throws Exception {
+    long[] keys = skewedKeys( NR_ROWS, 2 );
+    assertSorted( keys, sort( keys, 1000000 ) );
+  }
+
+  @Test( timeout = 60000 )
+  public void testAllKeysTheSame() throws Exception {
+    long[] keys = new long[ NR_ROWS ];
+    assertSorted( keys, sort( keys, 1000000 ) );
+  }
+
+  @Test( timeout = 60000 )
+  public void testSkewedKeysInTempFiles() throws Exception {
+    // Every copy writes its rows to several temp files and splits them over the ranges from there
+    long[] keys = skewedKeys( NR_ROWS, 3 );
+    assertSorted( keys, sort( keys, 300 ) );
+  }
+
+  @Test( timeout = 60000 )
+  public void testFewerRowsThanCopies() throws Exception {
+    // Some of the copies don't get any row
+    long[] keys = { 5L, 3L };
+    assertSorted( keys, sort( keys, 1000000 ) );
+  }
+}
@@ -0,0 +1,155 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.bowl.DefaultBowl;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
+import org.pentaho.di.core.compress.snappy.SnappyCompressionProvider;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class SortRowsSpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String PREFIX = "sort-rows-spill-test";
+
+  private File directory;
+  private RowMetaInterface rowMeta;
+  private Comparator<Object[]> keyComparator;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile( PREFIX, "" );
+    directory.delete();
+    directory.mkdir();
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "sequence" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    keyComparator = ( r1, r2 ) -> Long.compare( (Long) r1[ 0 ], (Long) r2[ 0 ] );
+  }
+
+  @After
+  public void tearDown() {
+    for ( File file : directory.listFiles() ) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  @Test
+  public void testMergeUncompressed() throws Exception {
+    assertMerge( null, 7, 100 );
+  }
+
+  @Test
+  public void testMergeGzip() throws Exception {
+    assertMerge( new GZIPCompressionProvider(), 7, 100 );
+  }
+
+  @Test
+  public void testMergeSnappy() throws Exception {
+    assertMerge( new SnappyCompressionProvider(), 7, 100 );
+  }
+
+  @Test
+  public void testMergeLargerThanReadAhead() throws Exception {
+    assertMerge( null, 3, 2000 );
+  }
+
+  @Test
+  public void testClearBeforeMerge() throws Exception {
+    SortRowsSpill spill = createSpill( null );
+    spill.write( createRun( new Random( 1 ), 0, 100 ) );
+    spill.write( createRun( new Random( 2 ), 100, 100 ) );
+    assertEquals( 2, spill.getNrRuns() );
+
+    spill.clear();
+    assertTrue( spill.isEmpty() );
+    assertEquals( 0, directory.listFiles().length );
+  }
+
+  /**
+   * Writes a number of runs, merges them with at most 3 open files and checks that the rows come back sorted, equal
+   * keys in the order they were written in, and that no temp file is left behind.
+   */
+  private void assertMerge( CompressionProvider compression, int nrRuns, int runSize ) throws Exception {
+    SortRowsSpill spill = createSpill( compression );
+    spill.setMaxOpenFiles( 3 );
+
+    Random random = new Random( 42 );
+    List<Object[]> expected = new ArrayList<>();
+    for ( int r = 0; r < nrRuns; r++ ) {
+      List<Object[]> run = createRun( random, r * runSize, runSize );
+      expected.addAll( run );
+      spill.write( run );
+    }
+    expected.sort( keyComparator );
+
+    for ( Object[] row : expected ) {
+      assertArrayEquals( row, spill.nextRow() );
+    }
+    assertNull( spill.nextRow() );
+    assertEquals( 0, directory.listFiles().length );
+
+    spill.clear();
+    assertTrue( spill.isEmpty() );
+  }
+
+  private SortRowsSpill createSpill( CompressionProvider compression ) {
+    SortRowsSpill spill = new SortRowsSpill( new LogChannel( "junit" ), rowMeta, keyComparator,
+      KettleVFS.getInstance( DefaultBowl.getInstance() ), PREFIX, directory.getAbsolutePath(), new Variables() );
+    spill.setCompression( compression );
+    return spill;
+  }
+
+  private List<Object[]> createRun( Random random, long firstSequence, int size ) {
+    List<Object[]> run = new ArrayList<>();
+    for ( int i = 0; i < size; i++ ) {
+      run.add( new Object[] { (long) random.nextInt( 50 ), firstSequence + i, "row " + ( firstSequence + i ) } );
+    }
+    run.sort( keyComparator );
+    return run;
+  }
+}
@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.streamlookup;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.RowStepCollector;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+
+/**
+ * Runs Stream Lookup in several copies that share their lookup table.
+ */
+public class StreamLookupCopiesTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final int NR_ROWS = 1000;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  private StepMeta addStep( TransMeta transMeta, String name, StepMetaInterface stepMetaInterface, int copies ) {
+    String pluginId = PluginRegistry.getInstance().getPluginId( StepPluginType.class, stepMetaInterface );
+    StepMeta stepMeta = new StepMeta( pluginId, name, stepMetaInterface );
+    stepMeta.setCopies( copies );
+    transMeta.addStep( stepMeta );
+    return stepMeta;
+  }
+
+  /**
+   * Looks up the names of the ids in two copies of Stream Lookup.
+   *
+   * @param nrLookupCopies    the number of copies of the step that sends the lookup rows
+   * @param lookupDistributes false to let every copy of that step send all its rows to every copy it sends rows to
+   * @return the rows with their names
+   */
+  private List<Object[]> runTransformation( int nrLookupCopies, boolean lookupDistributes ) throws Exception {
+    TransMeta transMeta = new TransMeta();
+    StepMeta injector = addStep( transMeta, "injector", new InjectorMeta(), 1 );
+    StepMeta lookupInjector = addStep( transMeta, "lookup injector", new InjectorMeta(), 1 );
+    StepMeta lookup = addStep( transMeta, "lookup", new DummyTransMeta(), nrLookupCopies );
+    lookup.setDistributes( lookupDistributes );
+
+    StreamLookupMeta streamLookupMeta = new StreamLookupMeta();
+    streamLookupMeta.setDefault();
+    streamLookupMeta.allocate( 1, 1 );
+    streamLookupMeta.getKeystream()[ 0 ] = "id";
+    streamLookupMeta.getKeylookup()[ 0 ] = "id";
+    streamLookupMeta.getValue()[ 0 ] = "name";
+    streamLookupMeta.getValueName()[ 0 ] = "name";
+    streamLookupMeta.getValueDefaultType()[ 0 ] = ValueMetaInterface.TYPE_STRING;
+    streamLookupMeta.setSharingTable( true );
+    streamLookupMeta.getStepIOMeta().getInfoStreams().get( 0 ).setStepMeta( lookup );
+    StepMeta streamLookup = addStep( transMeta, "stream lookup", streamLookupMeta, 2 );
+    StepMeta dummy = addStep( transMeta, "dummy", new DummyTransMeta(), 1 );
+
+    transMeta.addTransHop( new TransHopMeta( lookupInjector, lookup ) );
+    transMeta.addTransHop( new TransHopMeta( lookup, streamLookup ) );
+    transMeta.addTransHop( new TransHopMeta( injector, streamLookup ) );
+    transMeta.addTransHop( new TransHopMeta( streamLookup, dummy ) );
+
+    Trans trans = new Trans( transMeta );
+    trans.prepareExecution( null );
+    RowStepCollector collector = new RowStepCollector();
+    trans.getStepInterface( "dummy", 0 ).addRowListener( collector );
+    RowProducer producer = trans.addRowProducer( "injector", 0 );
+    RowProducer lookupProducer = trans.addRowProducer( "lookup injector", 0 );
+    trans.startThreads();
+
+    RowMetaInterface lookupRowMeta = new RowMeta();
+    lookupRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    lookupRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    for ( long id = 0; id < NR_ROWS; id++ ) {
+      lookupProducer.putRow( lookupRowMeta, new Object[] { id, "name " + id } );
+    }
+    lookupProducer.finished();
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    for ( long id = 0; id < NR_ROWS; id++ ) {
+      producer.putRow( rowMeta, new Object[] { id } );
+    }
+    producer.finished();
+
+    trans.waitUntilFinished();
+    assertEquals( 0, trans.getErrors() );
+
+    List<RowMetaAndData> rows = collector.getRowsRead();
+    List<Object[]> result = new ArrayList<>( rows.size() );
+    for ( RowMetaAndData row : rows ) {
+      result.add( row.getData() );
+    }
+    return result;
+  }
+
+  private void assertAllRowsFound( List<Object[]> rows ) {
+    assertEquals( NR_ROWS, rows.size() );
+    Set<Long> ids = new HashSet<>();
+    for ( Object[] row : rows ) {
+      assertEquals( "name " + row[ 0 ], row[ 1 ] );
+      ids.add( (Long) row[ 0 ] );
+    }
+    assertEquals( NR_ROWS, ids.size() );
+  }
+
+  @Test( timeout = 60000 )
+  public void testAsManyLookupCopies() throws Exception {
+    // Every lookup copy only sends its part of the lookup rows to one copy of Stream Lookup
+    assertAllRowsFound( runTransformation( 2, false ) );
+  }
+
+  @Test( timeout = 60000 )
+  public void testOneLookupCopyThatCopiesItsRows() throws Exception {
+    // Every copy of Stream Lookup gets all the lookup rows, only the first one adds them
+    assertAllRowsFound( runTransformation( 1, false ) );
+  }
+
+  @Test( timeout = 60000 )
+  public void testOneLookupCopyThatDistributesItsRows() throws Exception {
+    assertAllRowsFound( runTransformation( 1, true ) );
+  }
+}
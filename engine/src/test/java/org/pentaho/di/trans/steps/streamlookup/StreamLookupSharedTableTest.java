@@ -0,0 +1,89 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.streamlookup;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StreamLookupSharedTableTest {
+
+  @After
+  public void tearDown() {
+    StreamLookupCache.clear();
+  }
+
+  @Test
+  public void testCopiesWaitForEachOther() throws Exception {
+    StreamLookupSharedTable sharedTable = new StreamLookupSharedTable( 2, null, "signature", 0L );
+    assertFalse( sharedTable.loadFromCache() );
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> otherCopy = executor.submit( () -> sharedTable.readDone( () -> false ) );
+      Thread.sleep( 200L );
+      assertFalse( otherCopy.isDone() );
+
+      assertTrue( sharedTable.readDone( () -> false ) );
+      assertTrue( otherCopy.get( 10, TimeUnit.SECONDS ) );
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testStoppedWhileWaiting() throws Exception {
+    StreamLookupSharedTable sharedTable = new StreamLookupSharedTable( 2, null, "signature", 0L );
+    assertFalse( sharedTable.readDone( () -> true ) );
+  }
+
+  @Test
+  public void testTableIsCached() throws Exception {
+    StreamLookupSharedTable sharedTable = new StreamLookupSharedTable( 1, "table", "signature", 0L );
+    assertFalse( sharedTable.loadFromCache() );
+    sharedTable.getTable().hasLookupRows = true;
+    sharedTable.getTable().look.put( null, new Object[] { "value" } );
+    assertTrue( sharedTable.readDone( () -> false ) );
+
+    StreamLookupSharedTable nextRun = new StreamLookupSharedTable( 1, "table", "signature", 0L );
+    assertTrue( nextRun.loadFromCache() );
+    assertTrue( nextRun.getTable().hasLookupRows );
+    assertSame( sharedTable.getTable().look, nextRun.getTable().look );
+
+    // Another step with the same name builds its own table
+    assertFalse( new StreamLookupSharedTable( 1, "table", "other", 0L ).loadFromCache() );
+  }
+
+  @Test
+  public void testCacheExpires() throws Exception {
+    StreamLookupCache.put( "table", "signature", new StreamLookupData(), 1L );
+    Thread.sleep( 10L );
+    assertNull( StreamLookupCache.get( "table", "signature" ) );
+
+    StreamLookupData table = new StreamLookupData();
+    StreamLookupCache.put( "table", "signature", table, 0L );
+    assertSame( table, StreamLookupCache.get( "table", "signature" ) );
+    StreamLookupCache.remove( "table" );
+    assertNull( StreamLookupCache.get( "table", "signature" ) );
+  }
+}
@@ -129,7 +129,8 @@ public class StreamLookupTest {
     return dataRowSet;
   }
 
-  private StreamLookupMeta mockProcessRowMeta( boolean memoryPreservationActive ) throws KettleStepException {
+  private StreamLookupMeta mockProcessRowMeta( boolean memoryPreservationActive, boolean compactTable )
+    throws KettleStepException {
     StreamLookupMeta meta = smh.processRowsStepMetaInterface;
 
     StepMeta lookupStepMeta = when( mock( StepMeta.class ).getName() ).thenReturn( "Lookup" ).getMock();
@@ -145,6 +146,7 @@ public class StreamLookupTest {
     doReturn( memoryPreservationActive ).when( meta ).isMemoryPreservationActive();
     doReturn( false ).when( meta ).isUsingSortedList();
     doReturn( false ).when( meta ).isUsingIntegerPair();
+    doReturn( compactTable ).when( meta ).isUsingCompactTable();
     doReturn( new int[] { -1 } ).when( meta ).getValueDefaultType();
     doReturn( new String[] { "" } ).when( meta ).getValueDefault();
     doReturn( new String[] { "Value" } ).when( meta ).getValueName();
@@ -157,13 +159,18 @@ public class StreamLookupTest {
   }
 
   private void doTest( boolean memoryPreservationActive, boolean binaryLookupStream, boolean binaryDataStream ) throws KettleException {
+    doTest( memoryPreservationActive, false, binaryLookupStream, binaryDataStream );
+  }
+
+  private void doTest( boolean memoryPreservationActive, boolean compactTable, boolean binaryLookupStream,
+    boolean binaryDataStream ) throws KettleException {
     StreamLookup step = new StreamLookup( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
     step.init( smh.initStepMetaInterface, smh.initStepDataInterface );
     step.addRowSetToInputRowSets( mockLookupRowSet( binaryLookupStream ) );
     step.addRowSetToInputRowSets( mockDataRowSet( binaryDataStream ) );
     step.addRowSetToOutputRowSets( new QueueRowSet() );
 
-    StreamLookupMeta meta = mockProcessRowMeta( memoryPreservationActive );
+    StreamLookupMeta meta = mockProcessRowMeta( memoryPreservationActive, compactTable );
     StreamLookupData data = new StreamLookupData();
     data.readLookupValues = true;
 
@@ -230,4 +237,19 @@ public class StreamLookupTest {
   public void testMemoryPreservationWithBinaryStreams() throws KettleException {
     doTest( true, false, true );
   }
+
+  @Test
+  public void testCompactTableWithNormalStreams() throws KettleException {
+    doTest( true, true, false, false );
+  }
+
+  @Test
+  public void testCompactTableWithBinaryLookupStream() throws KettleException {
+    doTest( true, true, true, false );
+  }
+
+  @Test
+  public void testCompactTableWithBinaryStreams() throws KettleException {
+    doTest( true, true, true, true );
+  }
 }
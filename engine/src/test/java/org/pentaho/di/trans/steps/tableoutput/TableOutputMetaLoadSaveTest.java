@@ -43,6 +43,7 @@ public class TableOutputMetaLoadSaveTest implements InitializerInterface<StepMet
     PluginRegistry.init( false );
     List<String> attributes =
         Arrays.asList( "databaseMeta", "schemaName", "tableName", "commitSize", "truncateTable", "ignoreErrors", "useBatchUpdate",
+            "useMultiRowInsert", "usePipelinedBatch", "nrWriters", "writerField", "commitWritersTogether",
             "partitioningEnabled", "partitioningField", "partitioningDaily", "partitioningMonthly", "tableNameInField", "tableNameField",
             "tableNameInTable", "returningGeneratedKeys", "generatedKeyField", "specifyFields", "fieldStream", "fieldDatabase" );
 
@@ -51,6 +52,8 @@ public class TableOutputMetaLoadSaveTest implements InitializerInterface<StepMet
         put( "truncateTable", "truncateTable" );
         put( "ignoreErrors", "ignoreErrors" );
         put( "useBatchUpdate", "useBatchUpdate" );
+        put( "useMultiRowInsert", "useMultiRowInsert" );
+        put( "usePipelinedBatch", "usePipelinedBatch" );
         put( "specifyFields", "specifyFields" );
       }
     };
@@ -24,10 +24,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNotSame;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.database.DatabaseInterface;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
@@ -36,6 +38,7 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.StringObjectId;
+import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.steps.loadsave.MemoryRepository;
 import org.pentaho.di.utils.TestUtils;
 import org.pentaho.metastore.api.IMetaStore;
@@ -156,6 +159,11 @@ public class TableOutputMetaTest {
       + "    <truncate>Y</truncate>\n"
       + "    <ignore_errors>N</ignore_errors>\n"
       + "    <use_batch>Y</use_batch>\n"
+      + "    <use_multi_row_insert>N</use_multi_row_insert>\n"
+      + "    <use_pipelined_batch>N</use_pipelined_batch>\n"
+      + "    <nr_writers/>\n"
+      + "    <writer_field/>\n"
+      + "    <commit_writers_together>N</commit_writers_together>\n"
       + "    <specify_fields>Y</specify_fields>\n"
       + "    <partitioning_enabled>N</partitioning_enabled>\n"
       + "    <partitioning_field/>\n"
@@ -199,6 +207,11 @@ public class TableOutputMetaTest {
     verify( rep ).saveStepAttribute( id_transformation, id_step, "truncate", true );
     verify( rep ).saveStepAttribute( id_transformation, id_step, "ignore_errors", false );
     verify( rep ).saveStepAttribute( id_transformation, id_step, "use_batch", true );
+    verify( rep ).saveStepAttribute( id_transformation, id_step, "use_multi_row_insert", false );
+    verify( rep ).saveStepAttribute( id_transformation, id_step, "use_pipelined_batch", false );
+    verify( rep ).saveStepAttribute( id_transformation, id_step, "nr_writers", null );
+    verify( rep ).saveStepAttribute( id_transformation, id_step, "writer_field", null );
+    verify( rep ).saveStepAttribute( id_transformation, id_step, "commit_writers_together", false );
     verify( rep ).saveStepAttribute( id_transformation, id_step, "specify_fields", true );
 
     verify( rep ).saveStepAttribute( id_transformation, id_step, "partitioning_enabled", false );
@@ -231,6 +244,7 @@ public class TableOutputMetaTest {
     tableOutputMeta.setDefault();
     assertEquals( "", tableOutputMeta.getTableName() );
     assertEquals( "1000", tableOutputMeta.getCommitSize() );
+    assertEquals( "1", tableOutputMeta.getNrWriters() );
     assertFalse( tableOutputMeta.isPartitioningEnabled() );
     assertTrue( tableOutputMeta.isPartitioningMonthly() );
     assertEquals( "", tableOutputMeta.getPartitioningField() );
@@ -239,6 +253,42 @@ public class TableOutputMetaTest {
     assertFalse( tableOutputMeta.specifyFields() );
   }
 
+  @Test
+  public void testCheckWarnsThatConnectionsCommitApart() throws Exception {
+    TableOutputMeta tableOutputMeta = new TableOutputMeta();
+    tableOutputMeta.setDefault();
+    tableOutputMeta.setNrWriters( "${writers}" );
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.environmentSubstitute( "${writers}" ) ).thenReturn( "4" );
+    List<CheckResultInterface> remarks = new ArrayList<>();
+
+    tableOutputMeta.check( remarks, transMeta, null, null, new String[] { "input" }, null, null, transMeta, null,
+      metaStore );
+
+    assertEquals( 1, countWarnings( remarks ) );
+    remarks.clear();
+    tableOutputMeta.setCommitWritersTogether( true );
+    tableOutputMeta.check( remarks, transMeta, null, null, new String[] { "input" }, null, null, transMeta, null,
+      metaStore );
+    assertEquals( 0, countWarnings( remarks ) );
+    tableOutputMeta.setCommitWritersTogether( false );
+    tableOutputMeta.setNrWriters( "1" );
+    when( transMeta.environmentSubstitute( "1" ) ).thenReturn( "1" );
+    tableOutputMeta.check( remarks, transMeta, null, null, new String[] { "input" }, null, null, transMeta, null,
+      metaStore );
+    assertEquals( 0, countWarnings( remarks ) );
+  }
+
+  private int countWarnings( List<CheckResultInterface> remarks ) {
+    int count = 0;
+    for ( CheckResultInterface remark : remarks ) {
+      if ( remark.getType() == CheckResultInterface.TYPE_RESULT_WARNING ) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   @Test
   public void testClone() throws Exception {
     TableOutputMeta tableOutputMeta = new TableOutputMeta();
@@ -362,6 +412,33 @@ public class TableOutputMetaTest {
     assertFalse( tableOutputMeta.useBatchUpdate() );
   }
 
+  @Test
+  public void metaSetUseMultiRowInsert() {
+    TableOutputMeta tableOutputMeta = new TableOutputMeta();
+    tableOutputMeta.metaSetUseMultiRowInsert( "Y" );
+    assertTrue( tableOutputMeta.useMultiRowInsert() );
+    tableOutputMeta.metaSetUseMultiRowInsert( "N" );
+    assertFalse( tableOutputMeta.useMultiRowInsert() );
+  }
+
+  @Test
+  public void metaSetUsePipelinedBatch() {
+    TableOutputMeta tableOutputMeta = new TableOutputMeta();
+    tableOutputMeta.metaSetUsePipelinedBatch( "Y" );
+    assertTrue( tableOutputMeta.usePipelinedBatch() );
+    tableOutputMeta.metaSetUsePipelinedBatch( "N" );
+    assertFalse( tableOutputMeta.usePipelinedBatch() );
+  }
+
+  @Test
+  public void metaSetCommitWritersTogether() {
+    TableOutputMeta tableOutputMeta = new TableOutputMeta();
+    tableOutputMeta.metaSetCommitWritersTogether( "Y" );
+    assertTrue( tableOutputMeta.isCommitWritersTogether() );
+    tableOutputMeta.metaSetCommitWritersTogether( "N" );
+    assertFalse( tableOutputMeta.isCommitWritersTogether() );
+  }
+
   @Test
   public void metaSetPartitionOverTables() {
     TableOutputMeta tableOutputMeta = new TableOutputMeta();
@@ -14,7 +14,10 @@
 package org.pentaho.di.trans.steps.tableoutput;
 
 import java.lang.reflect.Method;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,6 +30,7 @@ import org.pentaho.di.core.database.DatabaseInterface;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -40,11 +44,18 @@ import org.pentaho.di.trans.step.StepPartitioningMeta;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -222,6 +233,236 @@ public class TableOutputTest {
   }
 
 
+  @Test
+  public void testWriteToTable_insertsTheBufferedRowsWithMultiRowStatements() throws Exception {
+    TableOutputData data = createBufferData( 3, 2 );
+    PreparedStatement twoRows = prepareBufferStatement( 2 );
+    PreparedStatement oneRow = prepareBufferStatement( 1 );
+    doReturn( new int[] { 2 } ).when( twoRows ).executeBatch();
+    doReturn( new int[] { 1 } ).when( oneRow ).executeBatch();
+
+    tableOutputSpy.writeToTable( filled, new Object[] { "a", "b", "c" } );
+    tableOutputSpy.writeToTable( filled, new Object[] { "d", "e", "f" } );
+    verify( twoRows, never() ).addBatch();
+    verify( tableOutputSpy, never() ).putRows( any(), any() );
+
+    tableOutputSpy.writeToTable( filled, new Object[] { "g", "h", "i" } );
+    verify( db ).setValue( twoRows, filled.getValueMeta( 0 ), "a", 1 );
+    verify( db ).setValue( twoRows, filled.getValueMeta( 0 ), "d", 4 );
+    verify( db ).setValue( oneRow, filled.getValueMeta( 2 ), "i", 3 );
+    verify( twoRows ).addBatch();
+    verify( oneRow ).addBatch();
+    verify( db ).commit();
+    verify( tableOutputSpy ).putRows( any(), argThat( rows -> rows.size() == 3 ) );
+    assertTrue( data.writers[ 0 ].insertBuffer.isEmpty() );
+    assertTrue( data.writers[ 0 ].outputBuffer.isEmpty() );
+  }
+
+  @Test
+  public void testWriteToTable_sendsTheRowsOfAFailedStatementToTheErrorHandling() throws Exception {
+    createBufferData( 4, 2 );
+    doReturn( true ).when( stepMeta ).isDoingErrorHandling();
+    doNothing().when( tableOutputSpy ).putError( any(), any(), anyLong(), any(), isNull(), any() );
+    PreparedStatement twoRows = prepareBufferStatement( 2 );
+    doThrow( new BatchUpdateException( new int[] { 2, Statement.EXECUTE_FAILED } ) ).when( twoRows ).executeBatch();
+
+    for ( int i = 0; i < 4; i++ ) {
+      tableOutputSpy.writeToTable( filled, new Object[] { "a" + i, "b", "c" } );
+    }
+    verify( db ).commit( true );
+    verify( db, never() ).rollback();
+    verify( tableOutputSpy, times( 2 ) ).putRow( any(), any() );
+    verify( tableOutputSpy, times( 2 ) ).putError( any(), any(), anyLong(), any(), isNull(), eq( "TOP0002" ) );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testWriteToTable_rollsBackAFailedBufferWithoutErrorHandling() throws Exception {
+    createBufferData( 2, 2 );
+    PreparedStatement twoRows = prepareBufferStatement( 2 );
+    doThrow( new BatchUpdateException( new int[] { Statement.EXECUTE_FAILED } ) ).when( twoRows ).executeBatch();
+
+    tableOutputSpy.writeToTable( filled, new Object[] { "a", "b", "c" } );
+    try {
+      tableOutputSpy.writeToTable( filled, new Object[] { "d", "e", "f" } );
+    } finally {
+      verify( db ).rollback();
+      verify( tableOutputSpy, never() ).putRow( any(), any() );
+      verify( tableOutputSpy, never() ).putRows( any(), any() );
+    }
+  }
+
+  @Test
+  public void testWriteToTable_writesInTheBackgroundWhileTheNextRowsComeIn() throws Exception {
+    TableOutputData data = createBufferData( 2, 1 );
+    data.writeInBackground = true;
+    PreparedStatement oneRow = prepareBufferStatement( 1 );
+    doReturn( new int[] { 1, 1 } ).when( oneRow ).executeBatch();
+
+    tableOutputSpy.writeToTable( filled, new Object[] { "a", "b", "c" } );
+    tableOutputSpy.writeToTable( filled, new Object[] { "d", "e", "f" } );
+    assertEquals( 2, data.writers[ 0 ].pendingBuffer.size() );
+    tableOutputSpy.writeToTable( filled, new Object[] { "g", "h", "i" } );
+    tableOutputSpy.writeToTable( filled, new Object[] { "j", "k", "l" } );
+
+    // The first commit is passed on before the second one goes to the background
+    verify( tableOutputSpy ).putRows( any(), argThat( rows -> rows.size() == 2 ) );
+    assertEquals( "g", data.writers[ 0 ].pendingBuffer.get( 0 )[ 0 ] );
+
+    data.writers[ 0 ].pendingWrite.get();
+    verify( oneRow, times( 2 ) ).executeBatch();
+    verify( db, times( 2 ) ).commit();
+  }
+
+  @Test
+  public void testWriteToTable_spreadsTheRowsOverTheWritersByTheWriterField() throws Exception {
+    TableOutputData data = createBufferData( 10, 1 );
+    Database other = mock( Database.class );
+    data.writers = new TableOutputWriter[] { data.writers[ 0 ],
+      new TableOutputWriter( other, null, "sas", filled, 1, false, mock( LogChannelInterface.class ) ) };
+    data.nrWriters = 2;
+    data.indexOfWriterField = 0;
+
+    for ( String key : new String[] { "a", "b", "a", "c", "b", "a" } ) {
+      tableOutputSpy.writeToTable( filled, new Object[] { key, "x", "y" } );
+    }
+    for ( TableOutputWriter writer : data.writers ) {
+      for ( Object[] row : writer.insertBuffer ) {
+        int writerNr = Math.floorMod( filled.getValueMeta( 0 ).hashCode( row[ 0 ] ), 2 );
+        assertTrue( writer == data.writers[ writerNr ] );
+      }
+    }
+    assertEquals( 6, data.writers[ 0 ].insertBuffer.size() + data.writers[ 1 ].insertBuffer.size() );
+  }
+
+  @Test
+  public void testDispose_commitsAllTheWritersOnlyOnceAllOfThemInsertedTheirRows() throws Exception {
+    TableOutputData data = createBufferData( 10, 1 );
+    Database other = mock( Database.class );
+    doReturn( true ).when( other ).getUseBatchInsert( true );
+    PreparedStatement ps = prepareBufferStatement( 1 );
+    doReturn( new int[] { 1 } ).when( ps ).executeBatch();
+    PreparedStatement otherPs = mock( PreparedStatement.class );
+    doReturn( "insert 1" ).when( other ).getInsertStatement( any(), eq( "sas" ), eq( filled ), eq( 1 ) );
+    doReturn( otherPs ).when( other ).prepareSQL( "insert 1" );
+    doThrow( new BatchUpdateException( new int[] { Statement.EXECUTE_FAILED } ) ).when( otherPs ).executeBatch();
+    data.writers = new TableOutputWriter[] { data.writers[ 0 ],
+      new TableOutputWriter( other, null, "sas", filled, 1, false, mock( LogChannelInterface.class ) ) };
+    data.nrWriters = 2;
+    doNothing().when( tableOutputSpy ).setOutputDone();
+    doNothing().when( tableOutputSpy ).stopAll();
+    doNothing().when( tableOutputSpy ).logError( anyString() );
+    doNothing().when( tableOutputSpy ).logError( anyString(), any( Throwable.class ) );
+
+    tableOutputSpy.writeToTable( filled, new Object[] { "a", "b", "c" } );
+    tableOutputSpy.writeToTable( filled, new Object[] { "d", "e", "f" } );
+    tableOutputSpy.dispose( tableOutputMeta, data );
+
+    verify( db, never() ).commit();
+    verify( other, never() ).commit();
+    verify( db, atLeastOnce() ).rollback();
+    verify( other, atLeastOnce() ).rollback();
+    verify( other ).close();
+    verify( tableOutputSpy, never() ).putRow( any(), any() );
+    verify( tableOutputSpy, never() ).putRows( any(), any() );
+  }
+
+  @Test
+  public void testWriteToTable_rollsBackAllTheWritersThatCommitTogetherWhenOneFails() throws Exception {
+    TableOutputData data = createBufferData( 2, 1 );
+    data.commitWritersTogether = true;
+    PreparedStatement ps = prepareBufferStatement( 1 );
+    doReturn( new int[] { 1, 1 } ).when( ps ).executeBatch();
+    Database other = prepareOtherWriter( data );
+    PreparedStatement otherPs = other.prepareSQL( "insert 1" );
+    doReturn( new int[] { 1, 1 } ).doReturn( new int[] { 1, 1 } )
+      .doThrow( new BatchUpdateException( new int[] { Statement.EXECUTE_FAILED } ) ).when( otherPs ).executeBatch();
+    doNothing().when( tableOutputSpy ).setOutputDone();
+    doNothing().when( tableOutputSpy ).logError( anyString(), any( Throwable.class ) );
+
+    // The rows go round robin: the third buffer of the second writer fails after five buffers were inserted
+    try {
+      for ( int i = 0; i < 12; i++ ) {
+        tableOutputSpy.writeToTable( filled, new Object[] { "a" + i, "b", "c" } );
+      }
+      fail( "The failed buffer should fail the step" );
+    } catch ( KettleException e ) {
+      tableOutputSpy.setErrors( 1 );
+    }
+    tableOutputSpy.dispose( tableOutputMeta, data );
+
+    verify( ps, times( 3 ) ).executeBatch();
+    verify( otherPs, times( 3 ) ).executeBatch();
+    verify( db, never() ).commit();
+    verify( db, never() ).commit( anyBoolean() );
+    verify( other, never() ).commit();
+    verify( other, never() ).commit( anyBoolean() );
+    verify( db, atLeastOnce() ).rollback();
+    verify( other, atLeastOnce() ).rollback();
+  }
+
+  @Test
+  public void testDispose_leavesTheCommitOfTheWritersToTheTransactionOfUniqueConnections() throws Exception {
+    TableOutputData data = createBufferData( 2, 1 );
+    data.commitWritersTogether = true;
+    doReturn( true ).when( transMeta ).isUsingUniqueConnections();
+    PreparedStatement ps = prepareBufferStatement( 1 );
+    doReturn( new int[] { 1, 1 } ).when( ps ).executeBatch();
+    Database other = prepareOtherWriter( data );
+    doReturn( new int[] { 1, 1 } ).when( other.prepareSQL( "insert 1" ) ).executeBatch();
+    doNothing().when( tableOutputSpy ).setOutputDone();
+
+    for ( int i = 0; i < 8; i++ ) {
+      tableOutputSpy.writeToTable( filled, new Object[] { "a" + i, "b", "c" } );
+    }
+    tableOutputSpy.dispose( tableOutputMeta, data );
+
+    verify( db, never() ).commit();
+    verify( other, never() ).commit();
+    verify( other, never() ).close();
+    verify( tableOutputSpy, times( 4 ) ).putRows( any(), argThat( rows -> rows.size() == 2 ) );
+  }
+
+  /**
+   * Adds a second writer that inserts one row per statement in batches.
+   */
+  private Database prepareOtherWriter( TableOutputData data ) throws Exception {
+    Database other = mock( Database.class );
+    doReturn( true ).when( other ).getUseBatchInsert( true );
+    doReturn( "insert 1" ).when( other ).getInsertStatement( any(), eq( "sas" ), eq( filled ), eq( 1 ) );
+    doReturn( mock( PreparedStatement.class ) ).when( other ).prepareSQL( "insert 1" );
+    data.writers = new TableOutputWriter[] { data.writers[ 0 ],
+      new TableOutputWriter( other, null, "sas", filled, 1, false, mock( LogChannelInterface.class ) ) };
+    data.nrWriters = 2;
+    return other;
+  }
+
+  private TableOutputData createBufferData( int commitSize, int rowsPerStatement ) throws Exception {
+    TableOutputData data = new TableOutputData();
+    data.db = db;
+    data.tableName = "sas";
+    data.batchMode = true;
+    data.bufferRows = true;
+    data.commitSize = commitSize;
+    data.rowsPerStatement = rowsPerStatement;
+    data.insertRowMeta = filled;
+    data.outputRowMeta = filled;
+    data.writers = new TableOutputWriter[] {
+      new TableOutputWriter( db, null, "sas", filled, rowsPerStatement, false, mock( LogChannelInterface.class ) ) };
+    tableOutputSpy.setData( data );
+    doReturn( true ).when( db ).getUseBatchInsert( true );
+    doNothing().when( tableOutputSpy ).putRow( any(), any() );
+    doNothing().when( tableOutputSpy ).putRows( any(), any() );
+    return data;
+  }
+
+  private PreparedStatement prepareBufferStatement( int nrRows ) throws Exception {
+    PreparedStatement ps = mock( PreparedStatement.class );
+    String sql = "insert " + nrRows;
+    doReturn( sql ).when( db ).getInsertStatement( any(), eq( "sas" ), eq( filled ), eq( nrRows ) );
+    doReturn( ps ).when( db ).prepareSQL( sql );
+    return ps;
+  }
+
   private RowMetaInterface createRowMeta( String[] args, boolean hasEmptyFields ) {
     RowMetaInterface result = new RowMeta();
     if ( hasEmptyFields ) {
@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.valuemapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.StepBatchTestUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+/**
+ * Maps the same rows one by one and a batch at a time.
+ */
+public class ValueMapperTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private StepMockHelper<ValueMapperMeta, ValueMapperData> smh;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() {
+    smh = new StepMockHelper<>( "Value mapper", ValueMapperMeta.class, ValueMapperData.class );
+    when( smh.logChannelInterfaceFactory.create( any(), any( LoggingObjectInterface.class ) ) ).thenReturn(
+      smh.logChannelInterface );
+    when( smh.trans.isRunning() ).thenReturn( true );
+  }
+
+  @After
+  public void cleanUp() {
+    smh.cleanUp();
+  }
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    return rowMeta;
+  }
+
+  private List<Object[]> createRows() {
+    return Arrays.asList(
+      new Object[] { 1L, "A" },
+      new Object[] { 2L, null },
+      new Object[] { null, "B" },
+      new Object[] { 4L, "" },
+      new Object[] { 5L, "C" } );
+  }
+
+  private ValueMapperMeta createMeta( String fieldToUse, String targetField, String nonMatchDefault,
+                                      String[] sources, String[] targets ) {
+    ValueMapperMeta meta = new ValueMapperMeta();
+    meta.allocate( sources.length );
+    meta.setFieldToUse( fieldToUse );
+    meta.setTargetField( targetField );
+    meta.setNonMatchDefault( nonMatchDefault );
+    meta.setSourceValue( sources );
+    meta.setTargetValue( targets );
+    return meta;
+  }
+
+  private List<RowMetaAndData> assertBatchesGiveTheSameResults( ValueMapperMeta meta ) throws Exception {
+    return StepBatchTestUtil.assertSameResults(
+      () -> new ValueMapper( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ),
+      meta, new ValueMapperData(), new ValueMapperData(), createRowMeta(), createRows() );
+  }
+
+  @Test
+  public void testMapToATargetField() throws Exception {
+    // The empty source maps null and "" to the target
+    List<RowMetaAndData> result = assertBatchesGiveTheSameResults( createMeta( "code", "description", "other",
+      new String[] { "A", "B", "" }, new String[] { "alpha", "beta", "none" } ) );
+
+    assertEquals( "alpha", result.get( 0 ).getData()[ 2 ] );
+    assertEquals( "none", result.get( 1 ).getData()[ 2 ] );
+    assertEquals( "other", result.get( 4 ).getData()[ 2 ] );
+  }
+
+  @Test
+  public void testReplaceTheValues() throws Exception {
+    List<RowMetaAndData> result = assertBatchesGiveTheSameResults( createMeta( "code", null, null,
+      new String[] { "A", "C" }, new String[] { "alpha", "" } ) );
+
+    assertEquals( "alpha", result.get( 0 ).getData()[ 1 ] );
+    assertEquals( "B", result.get( 2 ).getData()[ 1 ] );
+    assertNull( result.get( 4 ).getData()[ 1 ] );
+  }
+
+  @Test
+  public void testReplaceWithAConversion() throws Exception {
+    // The targets are converted to the Integer field
+    List<RowMetaAndData> result = assertBatchesGiveTheSameResults( createMeta( "id", null, null,
+      new String[] { "1", "5" }, new String[] { "10", "50" } ) );
+
+    assertEquals( 10L, result.get( 0 ).getData()[ 0 ] );
+    assertEquals( 2L, result.get( 1 ).getData()[ 0 ] );
+    assertEquals( 50L, result.get( 4 ).getData()[ 0 ] );
+  }
+
+  @Test
+  public void testInvalidConversionFails() throws Exception {
+    StepBatchTestUtil.assertBothFail(
+      () -> new ValueMapper( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans ),
+      createMeta( "id", null, null, new String[] { "2" }, new String[] { "two" } ),
+      new ValueMapperData(), new ValueMapperData(), createRowMeta(), createRows() );
+  }
+}
@@ -101,6 +101,10 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
   private Text wOrderBy;
   private FormData fdlOrderBy, fdOrderBy;
 
+  private Label wlBatchSize;
+  private Text wBatchSize;
+  private FormData fdlBatchSize, fdBatchSize;
+
   private Label wlFailMultiple;
   private Button wFailMultiple;
   private FormData fdlFailMultiple, fdFailMultiple;
@@ -472,6 +476,24 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wOrderBy.setLayoutData( fdOrderBy );
     wOrderBy.addModifyListener( lsMod );
 
+    // Lookup batch size line
+    wlBatchSize = new Label( shell, SWT.RIGHT );
+    wlBatchSize.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.BatchSize.Label" ) );
+    props.setLook( wlBatchSize );
+    fdlBatchSize = new FormData();
+    fdlBatchSize.left = new FormAttachment( 0, 0 );
+    fdlBatchSize.top = new FormAttachment( wOrderBy, margin );
+    fdlBatchSize.right = new FormAttachment( middle, -margin );
+    wlBatchSize.setLayoutData( fdlBatchSize );
+    wBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wBatchSize );
+    fdBatchSize = new FormData();
+    fdBatchSize.left = new FormAttachment( middle, 0 );
+    fdBatchSize.top = new FormAttachment( wOrderBy, margin );
+    fdBatchSize.right = new FormAttachment( 100, 0 );
+    wBatchSize.setLayoutData( fdBatchSize );
+    wBatchSize.addModifyListener( lsMod );
+
     // THE BUTTONS
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
@@ -482,7 +504,7 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wCancel = new Button( shell, SWT.PUSH );
     wCancel.setText( BaseMessages.getString( PKG, "System.Button.Cancel" ) );
 
-    setButtonPositions( new Button[] { wOK, wCancel, wGet, wGetLU }, margin, wOrderBy );
+    setButtonPositions( new Button[] { wOK, wCancel, wGet, wGetLU }, margin, wBatchSize );
 
     // Add listeners
     lsOK = new Listener() {
@@ -520,6 +542,7 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wStepname.addSelectionListener( lsDef );
     wTable.addSelectionListener( lsDef );
     wOrderBy.addSelectionListener( lsDef );
+    wBatchSize.addSelectionListener( lsDef );
     wCachesize.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
@@ -646,6 +669,7 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
 
     wCache.setSelection( input.isCached() );
     wCachesize.setText( "" + input.getCacheSize() );
+    wBatchSize.setText( "" + input.getLookupBatchSize() );
     wCacheLoadAll.setSelection( input.isLoadingAllDataInCache() );
 
     if ( input.getStreamKeyField1() != null ) {
@@ -730,6 +754,7 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
 
     input.setCached( wCache.getSelection() );
     input.setCacheSize( Const.toInt( wCachesize.getText(), 0 ) );
+    input.setLookupBatchSize( Const.toInt( wBatchSize.getText(), 0 ) );
     input.setLoadingAllDataInCache( wCacheLoadAll.getSelection() );
 
     logDebug( BaseMessages.getString( PKG, "DatabaseLookupDialog.Log.FoundKeys", String.valueOf( nrkeys ) ) );
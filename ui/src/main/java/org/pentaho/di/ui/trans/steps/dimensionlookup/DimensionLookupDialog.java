@@ -1189,8 +1189,8 @@ public class DimensionLookupDialog extends BaseStepDialog implements StepDialogI
 
     // Caching...
     //
-    wlPreloadCache.setEnabled( wUseCache.getSelection() && !wUpdate.getSelection() );
-    wPreloadCache.setEnabled( wUseCache.getSelection() && !wUpdate.getSelection() );
+    wlPreloadCache.setEnabled( wUseCache.getSelection() );
+    wPreloadCache.setEnabled( wUseCache.getSelection() );
 
     wlCacheSize.setEnabled( wUseCache.getSelection() && !wPreloadCache.getSelection() );
     wCacheSize.setEnabled( wUseCache.getSelection() && !wPreloadCache.getSelection() );
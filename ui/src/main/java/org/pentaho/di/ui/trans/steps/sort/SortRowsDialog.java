@@ -90,6 +90,10 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
   private Button wUniqueRows;
   private FormData fdlUniqueRows, fdUniqueRows;
 
+  private Label wlRangePartitioned;
+  private Button wRangePartitioned;
+  private FormData fdlRangePartitioned, fdRangePartitioned;
+
   private Label wlFields;
   private TableView wFields;
   private FormData fdlFields, fdFields;
@@ -289,6 +293,25 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     wUniqueRows.setLayoutData( fdUniqueRows );
     wUniqueRows.addSelectionListener( new ComponentSelectionListener( input ) );
 
+    // Let the copies sort a key range each?
+    wlRangePartitioned = new Label( shell, SWT.RIGHT );
+    wlRangePartitioned.setText( BaseMessages.getString( PKG, "SortRowsDialog.RangePartitioned.Label" ) );
+    props.setLook( wlRangePartitioned );
+    fdlRangePartitioned = new FormData();
+    fdlRangePartitioned.left = new FormAttachment( 0, 0 );
+    fdlRangePartitioned.right = new FormAttachment( middle, -margin );
+    fdlRangePartitioned.top = new FormAttachment( wUniqueRows, margin );
+    wlRangePartitioned.setLayoutData( fdlRangePartitioned );
+    wRangePartitioned = new Button( shell, SWT.CHECK );
+    wRangePartitioned.setToolTipText( BaseMessages.getString( PKG, "SortRowsDialog.RangePartitioned.Tooltip" ) );
+    props.setLook( wRangePartitioned );
+    fdRangePartitioned = new FormData();
+    fdRangePartitioned.left = new FormAttachment( middle, 0 );
+    fdRangePartitioned.top = new FormAttachment( wUniqueRows, margin );
+    fdRangePartitioned.right = new FormAttachment( 100, 0 );
+    wRangePartitioned.setLayoutData( fdRangePartitioned );
+    wRangePartitioned.addSelectionListener( new ComponentSelectionListener( input ) );
+
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
     wGet = new Button( shell, SWT.PUSH );
@@ -304,7 +327,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     props.setLook( wlFields );
     fdlFields = new FormData();
     fdlFields.left = new FormAttachment( 0, 0 );
-    fdlFields.top = new FormAttachment( wUniqueRows, margin );
+    fdlFields.top = new FormAttachment( wRangePartitioned, margin );
     wlFields.setLayoutData( fdlFields );
 
     final int FieldsRows = input.getFieldName().length;
@@ -480,6 +503,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     wCompress.setSelection( input.getCompressFiles() );
     wCompress.setVariableName( input.getCompressFilesVariable() );
     wUniqueRows.setSelection( input.isOnlyPassingUniqueRows() );
+    wRangePartitioned.setSelection( input.isRangePartitioned() );
 
     Table table = wFields.table;
     if ( input.getFieldName().length > 0 ) {
@@ -530,6 +554,7 @@ public class SortRowsDialog extends BaseStepDialog implements StepDialogInterfac
     input.setCompressFiles( wCompress.getSelection() );
     input.setCompressFilesVariable( wCompress.getVariableName() );
     input.setOnlyPassingUniqueRows( wUniqueRows.getSelection() );
+    input.setRangePartitioned( wRangePartitioned.getSelection() );
 
     // Table table = wFields.table;
     int nrfields = wFields.nrNonEmpty();
@@ -55,6 +55,7 @@ import org.pentaho.di.trans.steps.streamlookup.StreamLookupMeta;
 import org.pentaho.di.ui.core.dialog.ErrorDialog;
 import org.pentaho.di.ui.core.widget.ColumnInfo;
 import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.core.widget.TextVar;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
 
 public class StreamLookupDialog extends BaseStepDialog implements StepDialogInterface {
@@ -84,6 +85,22 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
   private Button wIntegerPair;
   private FormData fdlIntegerPair, fdIntegerPair;
 
+  private Label wlCompactTable;
+  private Button wCompactTable;
+  private FormData fdlCompactTable, fdCompactTable;
+
+  private Label wlSharingTable;
+  private Button wSharingTable;
+  private FormData fdlSharingTable, fdSharingTable;
+
+  private Label wlCacheName;
+  private TextVar wCacheName;
+  private FormData fdlCacheName, fdCacheName;
+
+  private Label wlCacheTimeToLive;
+  private TextVar wCacheTimeToLive;
+  private FormData fdlCacheTimeToLive, fdCacheTimeToLive;
+
   private StreamLookupMeta input;
 
   private Button wGetLU;
@@ -249,7 +266,7 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     fdReturn.left = new FormAttachment( 0, 0 );
     fdReturn.top = new FormAttachment( wlReturn, margin );
     fdReturn.right = new FormAttachment( 100, 0 );
-    fdReturn.bottom = new FormAttachment( 100, -125 );
+    fdReturn.bottom = new FormAttachment( 100, -225 );
     wReturn.setLayoutData( fdReturn );
 
     wlPreserveMemory = new Label( shell, SWT.RIGHT );
@@ -316,6 +333,28 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
         input.setChanged();
       }
     } );
+
+    wlCompactTable = new Label( shell, SWT.RIGHT );
+    wlCompactTable.setText( BaseMessages.getString( PKG, "StreamLookupDialog.CompactTable.Label" ) );
+    props.setLook( wlCompactTable );
+    fdlCompactTable = new FormData();
+    fdlCompactTable.left = new FormAttachment( 0, 0 );
+    fdlCompactTable.top = new FormAttachment( wSortedList, margin );
+    fdlCompactTable.right = new FormAttachment( middle, -margin );
+    wlCompactTable.setLayoutData( fdlCompactTable );
+    wCompactTable = new Button( shell, SWT.RADIO );
+    wCompactTable.setEnabled( false );
+    props.setLook( wCompactTable );
+    fdCompactTable = new FormData();
+    fdCompactTable.left = new FormAttachment( middle, 0 );
+    fdCompactTable.top = new FormAttachment( wSortedList, margin );
+    fdCompactTable.right = new FormAttachment( 100, 0 );
+    wCompactTable.setLayoutData( fdCompactTable );
+    wCompactTable.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
     // PDI-2107 preserve memory should be enabled to have this options on.
     wPreserveMemory.addListener( SWT.Selection, new Listener() {
       @Override
@@ -323,11 +362,67 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
         boolean selection = wPreserveMemory.getSelection();
         wSortedList.setEnabled( selection );
         wIntegerPair.setEnabled( selection );
+        wCompactTable.setEnabled( selection );
       }
     } );
 
     // END MEMORY PRESERVE
 
+    wlSharingTable = new Label( shell, SWT.RIGHT );
+    wlSharingTable.setText( BaseMessages.getString( PKG, "StreamLookupDialog.SharingTable.Label" ) );
+    props.setLook( wlSharingTable );
+    fdlSharingTable = new FormData();
+    fdlSharingTable.left = new FormAttachment( 0, 0 );
+    fdlSharingTable.top = new FormAttachment( wCompactTable, margin );
+    fdlSharingTable.right = new FormAttachment( middle, -margin );
+    wlSharingTable.setLayoutData( fdlSharingTable );
+    wSharingTable = new Button( shell, SWT.CHECK );
+    props.setLook( wSharingTable );
+    fdSharingTable = new FormData();
+    fdSharingTable.left = new FormAttachment( middle, 0 );
+    fdSharingTable.top = new FormAttachment( wCompactTable, margin );
+    fdSharingTable.right = new FormAttachment( 100, 0 );
+    wSharingTable.setLayoutData( fdSharingTable );
+    wSharingTable.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
+    wlCacheName = new Label( shell, SWT.RIGHT );
+    wlCacheName.setText( BaseMessages.getString( PKG, "StreamLookupDialog.CacheName.Label" ) );
+    props.setLook( wlCacheName );
+    fdlCacheName = new FormData();
+    fdlCacheName.left = new FormAttachment( 0, 0 );
+    fdlCacheName.top = new FormAttachment( wSharingTable, margin );
+    fdlCacheName.right = new FormAttachment( middle, -margin );
+    wlCacheName.setLayoutData( fdlCacheName );
+    wCacheName = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCacheName );
+    wCacheName.addModifyListener( lsMod );
+    fdCacheName = new FormData();
+    fdCacheName.left = new FormAttachment( middle, 0 );
+    fdCacheName.top = new FormAttachment( wSharingTable, margin );
+    fdCacheName.right = new FormAttachment( 100, 0 );
+    wCacheName.setLayoutData( fdCacheName );
+
+    wlCacheTimeToLive = new Label( shell, SWT.RIGHT );
+    wlCacheTimeToLive.setText( BaseMessages.getString( PKG, "StreamLookupDialog.CacheTimeToLive.Label" ) );
+    props.setLook( wlCacheTimeToLive );
+    fdlCacheTimeToLive = new FormData();
+    fdlCacheTimeToLive.left = new FormAttachment( 0, 0 );
+    fdlCacheTimeToLive.top = new FormAttachment( wCacheName, margin );
+    fdlCacheTimeToLive.right = new FormAttachment( middle, -margin );
+    wlCacheTimeToLive.setLayoutData( fdlCacheTimeToLive );
+    wCacheTimeToLive = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCacheTimeToLive );
+    wCacheTimeToLive.addModifyListener( lsMod );
+    fdCacheTimeToLive = new FormData();
+    fdCacheTimeToLive.left = new FormAttachment( middle, 0 );
+    fdCacheTimeToLive.top = new FormAttachment( wCacheName, margin );
+    fdCacheTimeToLive.right = new FormAttachment( 100, 0 );
+    wCacheTimeToLive.setLayoutData( fdCacheTimeToLive );
+
     // THE BUTTONS
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
@@ -522,12 +617,17 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     if ( isPreserveMemory ) {
       wSortedList.setEnabled( true );
       wIntegerPair.setEnabled( true );
+      wCompactTable.setEnabled( true );
     }
     // PDI-2107 usually this is sorted list or integer pair
     // for backward compatibility they can be set both
     // but user will be forced to choose only one option later.
     wSortedList.setSelection( input.isUsingSortedList() );
     wIntegerPair.setSelection( input.isUsingIntegerPair() );
+    wCompactTable.setSelection( input.isUsingCompactTable() );
+    wSharingTable.setSelection( input.isSharingTable() );
+    wCacheName.setText( Const.NVL( input.getCacheName(), "" ) );
+    wCacheTimeToLive.setText( Const.NVL( input.getCacheTimeToLive(), "" ) );
 
     wKey.setRowNums();
     wKey.optWidth( true );
@@ -555,6 +655,10 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     input.setMemoryPreservationActive( wPreserveMemory.getSelection() );
     input.setUsingSortedList( wSortedList.getSelection() );
     input.setUsingIntegerPair( wIntegerPair.getSelection() );
+    input.setUsingCompactTable( wCompactTable.getSelection() );
+    input.setSharingTable( wSharingTable.getSelection() );
+    input.setCacheName( wCacheName.getText() );
+    input.setCacheTimeToLive( wCacheTimeToLive.getText() );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "StreamLookupDialog.Log.FoundKeys", nrkeys + "" ) );
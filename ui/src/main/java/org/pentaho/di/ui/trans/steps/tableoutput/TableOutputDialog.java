@@ -126,6 +126,26 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
   private Button wBatch;
   private FormData fdlBatch, fdBatch;
 
+  private Label wlMultiRowInsert;
+  private Button wMultiRowInsert;
+  private FormData fdlMultiRowInsert, fdMultiRowInsert;
+
+  private Label wlPipelinedBatch;
+  private Button wPipelinedBatch;
+  private FormData fdlPipelinedBatch, fdPipelinedBatch;
+
+  private Label wlNrWriters;
+  private TextVar wNrWriters;
+  private FormData fdlNrWriters, fdNrWriters;
+
+  private Label wlWriterField;
+  private ComboVar wWriterField;
+  private FormData fdlWriterField, fdWriterField;
+
+  private Label wlCommitWritersTogether;
+  private Button wCommitWritersTogether;
+  private FormData fdlCommitWritersTogether, fdCommitWritersTogether;
+
   private Label wlUsePart;
   private Button wUsePart;
   private FormData fdlUsePart, fdUsePart;
@@ -557,20 +577,125 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
       }
     } );
 
+    // Multi-row insert
+    wlMultiRowInsert = new Label( wMainComp, SWT.RIGHT );
+    wlMultiRowInsert.setText( BaseMessages.getString( PKG, "TableOutputDialog.MultiRowInsert.Label" ) );
+    props.setLook( wlMultiRowInsert );
+    fdlMultiRowInsert = new FormData();
+    fdlMultiRowInsert.left = new FormAttachment( 0, 0 );
+    fdlMultiRowInsert.top = new FormAttachment( wBatch, margin );
+    fdlMultiRowInsert.right = new FormAttachment( middle, -margin );
+    wlMultiRowInsert.setLayoutData( fdlMultiRowInsert );
+    wMultiRowInsert = new Button( wMainComp, SWT.CHECK );
+    props.setLook( wMultiRowInsert );
+    fdMultiRowInsert = new FormData();
+    fdMultiRowInsert.left = new FormAttachment( middle, 0 );
+    fdMultiRowInsert.top = new FormAttachment( wBatch, margin );
+    fdMultiRowInsert.right = new FormAttachment( 100, 0 );
+    wMultiRowInsert.setLayoutData( fdMultiRowInsert );
+    wMultiRowInsert.addSelectionListener( lsSelMod );
+
+    // Pipelined batch
+    wlPipelinedBatch = new Label( wMainComp, SWT.RIGHT );
+    wlPipelinedBatch.setText( BaseMessages.getString( PKG, "TableOutputDialog.PipelinedBatch.Label" ) );
+    props.setLook( wlPipelinedBatch );
+    fdlPipelinedBatch = new FormData();
+    fdlPipelinedBatch.left = new FormAttachment( 0, 0 );
+    fdlPipelinedBatch.top = new FormAttachment( wMultiRowInsert, margin );
+    fdlPipelinedBatch.right = new FormAttachment( middle, -margin );
+    wlPipelinedBatch.setLayoutData( fdlPipelinedBatch );
+    wPipelinedBatch = new Button( wMainComp, SWT.CHECK );
+    props.setLook( wPipelinedBatch );
+    fdPipelinedBatch = new FormData();
+    fdPipelinedBatch.left = new FormAttachment( middle, 0 );
+    fdPipelinedBatch.top = new FormAttachment( wMultiRowInsert, margin );
+    fdPipelinedBatch.right = new FormAttachment( 100, 0 );
+    wPipelinedBatch.setLayoutData( fdPipelinedBatch );
+    wPipelinedBatch.addSelectionListener( lsSelMod );
+
+    // The number of connections to insert over
+    wlNrWriters = new Label( wMainComp, SWT.RIGHT );
+    wlNrWriters.setText( BaseMessages.getString( PKG, "TableOutputDialog.NrWriters.Label" ) );
+    wlNrWriters.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.NrWriters.Tooltip" ) );
+    props.setLook( wlNrWriters );
+    fdlNrWriters = new FormData();
+    fdlNrWriters.left = new FormAttachment( 0, 0 );
+    fdlNrWriters.top = new FormAttachment( wPipelinedBatch, margin );
+    fdlNrWriters.right = new FormAttachment( middle, -margin );
+    wlNrWriters.setLayoutData( fdlNrWriters );
+    wNrWriters = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wNrWriters );
+    wNrWriters.addModifyListener( lsMod );
+    fdNrWriters = new FormData();
+    fdNrWriters.left = new FormAttachment( middle, 0 );
+    fdNrWriters.top = new FormAttachment( wPipelinedBatch, margin );
+    fdNrWriters.right = new FormAttachment( 100, 0 );
+    wNrWriters.setLayoutData( fdNrWriters );
+
+    // The field to spread the rows over the connections by
+    wlWriterField = new Label( wMainComp, SWT.RIGHT );
+    wlWriterField.setText( BaseMessages.getString( PKG, "TableOutputDialog.WriterField.Label" ) );
+    props.setLook( wlWriterField );
+    fdlWriterField = new FormData();
+    fdlWriterField.left = new FormAttachment( 0, 0 );
+    fdlWriterField.top = new FormAttachment( wNrWriters, margin );
+    fdlWriterField.right = new FormAttachment( middle, -margin );
+    wlWriterField.setLayoutData( fdlWriterField );
+    wWriterField = new ComboVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wWriterField );
+    wWriterField.addModifyListener( lsMod );
+    fdWriterField = new FormData();
+    fdWriterField.left = new FormAttachment( middle, 0 );
+    fdWriterField.top = new FormAttachment( wNrWriters, margin );
+    fdWriterField.right = new FormAttachment( 100, 0 );
+    wWriterField.setLayoutData( fdWriterField );
+    wWriterField.addFocusListener( new FocusListener() {
+      public void focusLost( org.eclipse.swt.events.FocusEvent e ) {
+      }
+
+      public void focusGained( org.eclipse.swt.events.FocusEvent e ) {
+        Cursor busy = new Cursor( shell.getDisplay(), SWT.CURSOR_WAIT );
+        shell.setCursor( busy );
+        getFields();
+        shell.setCursor( null );
+        busy.dispose();
+      }
+    } );
+
+    // Commit the connections together
+    wlCommitWritersTogether = new Label( wMainComp, SWT.RIGHT );
+    wlCommitWritersTogether.setText( BaseMessages.getString( PKG, "TableOutputDialog.CommitWritersTogether.Label" ) );
+    wlCommitWritersTogether.setToolTipText(
+      BaseMessages.getString( PKG, "TableOutputDialog.CommitWritersTogether.Tooltip" ) );
+    props.setLook( wlCommitWritersTogether );
+    fdlCommitWritersTogether = new FormData();
+    fdlCommitWritersTogether.left = new FormAttachment( 0, 0 );
+    fdlCommitWritersTogether.top = new FormAttachment( wWriterField, margin );
+    fdlCommitWritersTogether.right = new FormAttachment( middle, -margin );
+    wlCommitWritersTogether.setLayoutData( fdlCommitWritersTogether );
+    wCommitWritersTogether = new Button( wMainComp, SWT.CHECK );
+    props.setLook( wCommitWritersTogether );
+    fdCommitWritersTogether = new FormData();
+    fdCommitWritersTogether.left = new FormAttachment( middle, 0 );
+    fdCommitWritersTogether.top = new FormAttachment( wWriterField, margin );
+    fdCommitWritersTogether.right = new FormAttachment( 100, 0 );
+    wCommitWritersTogether.setLayoutData( fdCommitWritersTogether );
+    wCommitWritersTogether.addSelectionListener( lsSelMod );
+
     // NameInField
     wlNameInField = new Label( wMainComp, SWT.RIGHT );
     wlNameInField.setText( BaseMessages.getString( PKG, "TableOutputDialog.NameInField.Label" ) );
     props.setLook( wlNameInField );
     fdlNameInField = new FormData();
     fdlNameInField.left = new FormAttachment( 0, 0 );
-    fdlNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdlNameInField.top = new FormAttachment( wCommitWritersTogether, margin * 5 );
     fdlNameInField.right = new FormAttachment( middle, -margin );
     wlNameInField.setLayoutData( fdlNameInField );
     wNameInField = new Button( wMainComp, SWT.CHECK );
     props.setLook( wNameInField );
     fdNameInField = new FormData();
     fdNameInField.left = new FormAttachment( middle, 0 );
-    fdNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdNameInField.top = new FormAttachment( wCommitWritersTogether, margin * 5 );
     fdNameInField.right = new FormAttachment( 100, 0 );
     wNameInField.setLayoutData( fdNameInField );
     wNameInField.addSelectionListener( new SelectionAdapter() {
@@ -845,6 +970,8 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wSchema.addSelectionListener( lsDef );
     wTable.addSelectionListener( lsDef );
     wPartField.addSelectionListener( lsDef );
+    wNrWriters.addSelectionListener( lsDef );
+    wWriterField.addSelectionListener( lsDef );
     wNameField.addSelectionListener( lsDef );
     wReturnField.addSelectionListener( lsDef );
 
@@ -888,10 +1015,12 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
       try {
         String field = wNameField.getText();
         String partfield = wPartField.getText();
+        String writerField = wWriterField.getText();
         RowMetaInterface r = transMeta.getPrevStepFields( stepname );
         if ( r != null ) {
           wNameField.setItems( r.getFieldNames() );
           wPartField.setItems( r.getFieldNames() );
+          wWriterField.setItems( r.getFieldNames() );
         }
         if ( field != null ) {
           wNameField.setText( field );
@@ -899,6 +1028,9 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
         if ( partfield != null ) {
           wPartField.setText( partfield );
         }
+        if ( writerField != null ) {
+          wWriterField.setText( writerField );
+        }
       } catch ( KettleException ke ) {
         new ErrorDialog(
           shell, BaseMessages.getString( PKG, "TableOutputDialog.FailedToGetFields.DialogTitle" ), BaseMessages
@@ -1178,11 +1310,12 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     // Do we want to return keys?
     boolean returnKeys = wReturnKeys.getSelection();
 
-    // Can't use batch yet when grabbing auto-generated keys or sometimes when we use error handling
-    boolean useBatch = wBatch.getSelection() && !transMeta.isUsingUniqueConnections() && !returnKeys;
+    // Can't use batch yet when grabbing auto-generated keys or sometimes when we use error handling. With unique
+    // connections only the buffered rows are inserted in batches.
+    boolean useBatch = wBatch.getSelection() && !returnKeys;
 
     // Only enable batch option when not returning keys.
-    boolean enableBatch = !returnKeys && !transMeta.isUsingUniqueConnections();
+    boolean enableBatch = !returnKeys;
 
     // Can't ignore errors when using batch inserts.
     boolean useIgnore = !useBatch;
@@ -1235,6 +1368,20 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wlBatch.setEnabled( enableBatch );
     wBatch.setEnabled( enableBatch );
 
+    // The rows of a commit can only be inserted at once when they all go to the same table
+    boolean enableBuffer = useBatch && !usePartitioning && !isTableNameInField;
+    wlPipelinedBatch.setEnabled( enableBuffer );
+    wPipelinedBatch.setEnabled( enableBuffer );
+    wlNrWriters.setEnabled( enableBuffer );
+    wNrWriters.setEnabled( enableBuffer );
+    wlWriterField.setEnabled( enableBuffer );
+    wWriterField.setEnabled( enableBuffer );
+
+    // In a single database transaction the connections always commit together
+    boolean enableCommitTogether = enableBuffer && !transMeta.isUsingUniqueConnections();
+    wlCommitWritersTogether.setEnabled( enableCommitTogether );
+    wCommitWritersTogether.setEnabled( enableCommitTogether );
+
     boolean specifyFields = wSpecifyFields.getSelection();
     wFields.setEnabled( specifyFields );
     wGetFields.setEnabled( specifyFields );
@@ -1246,6 +1393,10 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wNameInTable.setEnabled( isTableNameInField && !specifyFields );
 
     DatabaseMeta databaseMeta = transMeta.findDatabase( wConnection.getText() );
+    boolean enableMultiRowInsert = enableBuffer && ( databaseMeta == null || databaseMeta.supportsMultiRowInsert() );
+    wlMultiRowInsert.setEnabled( enableMultiRowInsert );
+    wMultiRowInsert.setEnabled( enableMultiRowInsert );
+
     if ( databaseMeta != null ) {
       if ( !databaseMeta.supportsAutoGeneratedKeys() ) {
         wReturnKeys.setEnabled( false );
@@ -1280,6 +1431,15 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wTruncate.setSelection( input.truncateTable() );
     wIgnore.setSelection( input.ignoreErrors() );
     wBatch.setSelection( input.useBatchUpdate() );
+    wMultiRowInsert.setSelection( input.useMultiRowInsert() );
+    wPipelinedBatch.setSelection( input.usePipelinedBatch() );
+    if ( input.getNrWriters() != null ) {
+      wNrWriters.setText( input.getNrWriters() );
+    }
+    if ( input.getWriterField() != null ) {
+      wWriterField.setText( input.getWriterField() );
+    }
+    wCommitWritersTogether.setSelection( input.isCommitWritersTogether() );
 
     wCommit.setText( input.getCommitSize() );
 
@@ -1333,6 +1493,11 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     info.setTruncateTable( wTruncate.getSelection() );
     info.setIgnoreErrors( wIgnore.getSelection() );
     info.setUseBatchUpdate( wBatch.getSelection() );
+    info.setUseMultiRowInsert( wMultiRowInsert.getSelection() );
+    info.setUsePipelinedBatch( wPipelinedBatch.getSelection() );
+    info.setNrWriters( wNrWriters.getText() );
+    info.setWriterField( wWriterField.getText() );
+    info.setCommitWritersTogether( wCommitWritersTogether.getSelection() );
     info.setPartitioningEnabled( wUsePart.getSelection() );
     info.setPartitioningField( wPartField.getText() );
     info.setPartitioningDaily( wPartDaily.getSelection() );